@@ -0,0 +1,69 @@
+package com.moji.musicdistribution;
+
+import com.moji.musicdistribution.domain.aggregates.Artist;
+import com.moji.musicdistribution.domain.aggregates.LabelRecord;
+import com.moji.musicdistribution.domain.aggregates.Release;
+import com.moji.musicdistribution.domain.aggregates.Song;
+import com.moji.musicdistribution.domain.repositories.ArtistRepository;
+import com.moji.musicdistribution.domain.repositories.LabelRepository;
+import com.moji.musicdistribution.domain.repositories.ReleaseRepository;
+import com.moji.musicdistribution.domain.repositories.SongRepository;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * The application against its in-memory H2 database, for end-to-end benchmarks
+ * Runs without the web server, background jobs, the search index or SQL logging.
+ */
+public final class BenchmarkApplication {
+
+    private BenchmarkApplication() {
+    }
+
+    public static ConfigurableApplicationContext start() {
+        return new SpringApplicationBuilder(MusicDistributionApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.main.banner-mode=off",
+                        "spring.datasource.url=jdbc:h2:mem:benchmark-" + UUID.randomUUID(),
+                        "spring.jpa.show-sql=false",
+                        "releases.publish.enabled=false",
+                        "search.index.enabled=false",
+                        "logging.level.root=WARN",
+                        "logging.level.com.moji.musicdistribution=WARN")
+                .run();
+    }
+
+    /**
+     * Save a label, an artist and the given number of songs in one published release
+     *
+     * @return the song IDs
+     */
+    public static List<UUID> publishedSongs(ConfigurableApplicationContext context, int songs) {
+        UUID labelId = UUID.randomUUID();
+        UUID artistId = UUID.randomUUID();
+        context.getBean(LabelRepository.class).save(new LabelRecord(labelId, "Benchmark Label"));
+        context.getBean(ArtistRepository.class).save(new Artist(artistId, "Benchmark Artist", labelId));
+
+        List<Song> saved = new ArrayList<>(songs);
+        for (int i = 0; i < songs; i++) {
+            saved.add(new Song(UUID.randomUUID(), "Song " + i, artistId, Duration.ofMinutes(3)));
+        }
+        context.getBean(SongRepository.class).saveAll(saved);
+        List<UUID> songIds = saved.stream().map(Song::getId).toList();
+
+        LocalDate today = LocalDate.now();
+        Release release = new Release(UUID.randomUUID(), "Benchmark Release", artistId);
+        release.addSongs(new HashSet<>(songIds));
+        release.proposeReleaseDate(today);
+        release.approveReleaseDate(today);
+        release.publish(today);
+        context.getBean(ReleaseRepository.class).save(release);
+        return songIds;
+    }
+}
@@ -0,0 +1,75 @@
+package com.moji.musicdistribution.command.handlers;
+
+import com.moji.musicdistribution.BenchmarkApplication;
+import com.moji.musicdistribution.command.CommandBus;
+import com.moji.musicdistribution.command.commands.RecordStream;
+import com.moji.musicdistribution.command.commands.RecordStreams;
+import com.moji.musicdistribution.monitoring.HotPathMetrics;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recording streams end to end against H2: one {@link RecordStream} through the command bus,
+ * and a batch of 100 as one {@link RecordStreams}
+ * <p>
+ * Run with the hot-path instrumentation on and off; the difference is its overhead. The event
+ * store and projections grow over the run as they would in service.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class StreamHandlerBenchmark {
+
+    private static final int BATCH_SIZE = 100;
+
+    @Param({"true", "false"})
+    public boolean hotPath;
+
+    private ConfigurableApplicationContext context;
+    private CommandBus commandBus;
+    private List<UUID> songIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        context.getBean(HotPathMetrics.class).setEnabled(hotPath);
+        commandBus = context.getBean(CommandBus.class);
+        songIds = BenchmarkApplication.publishedSongs(context, 1_000);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void record() {
+        commandBus.execute(command());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void recordBatch() {
+        List<RecordStream> commands = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            commands.add(command());
+        }
+        commandBus.execute(new RecordStreams(commands));
+    }
+
+    private RecordStream command() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return new RecordStream(songIds.get(random.nextInt(songIds.size())), UUID.randomUUID(),
+                Duration.ofSeconds(random.nextBoolean() ? 10 : 60), Instant.now());
+    }
+}
@@ -0,0 +1,81 @@
+package com.moji.musicdistribution.eventstore;
+
+import com.moji.musicdistribution.domain.events.DomainEvent;
+import com.moji.musicdistribution.domain.events.ReleasePublished;
+import com.moji.musicdistribution.domain.events.StreamRecorded;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Appends to and type queries of the {@link InMemoryEventStore} at various log sizes
+ * One event in ten is a {@link ReleasePublished}, the rest are streams. The log is refilled
+ * before every iteration so that appends always start from the given size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class EventStoreBenchmark {
+
+    private static final int FILL_BATCH = 10_000;
+
+    @Param({"10000", "100000", "1000000"})
+    public int size;
+
+    private final UUID songId = UUID.randomUUID();
+    private final UUID artistId = UUID.randomUUID();
+    private InMemoryEventStore eventStore;
+
+    @Setup(Level.Iteration)
+    public void fill() {
+        eventStore = new InMemoryEventStore(event -> {
+        });
+        // Appended in groups, as one event at a time would copy the log on every append
+        List<DomainEvent> batch = new ArrayList<>(FILL_BATCH);
+        for (int i = 0; i < size; i++) {
+            batch.add(i % 10 == 0 ? release() : stream());
+            if (batch.size() == FILL_BATCH) {
+                eventStore.storeAll(batch);
+                batch = new ArrayList<>(FILL_BATCH);
+            }
+        }
+        if (!batch.isEmpty()) {
+            eventStore.storeAll(batch);
+        }
+    }
+
+    @Benchmark
+    public long store() {
+        StreamRecorded event = stream();
+        eventStore.store(event);
+        return event.getSequence();
+    }
+
+    @Benchmark
+    public List<ReleasePublished> getEventsByType() {
+        return eventStore.getEventsByType(ReleasePublished.class);
+    }
+
+    @Benchmark
+    public List<DomainEvent> getEventsAfterTail() {
+        return eventStore.getEventsAfter(size - 100L, 100);
+    }
+
+    private StreamRecorded stream() {
+        return new StreamRecorded(UUID.randomUUID(), songId, UUID.randomUUID(),
+                Instant.parse("2025-03-01T12:00:00Z"), Duration.ofSeconds(60), artistId, "Song");
+    }
+
+    private ReleasePublished release() {
+        return new ReleasePublished(UUID.randomUUID(), LocalDate.of(2025, 3, 1), "Release", artistId, Set.of(songId));
+    }
+}
@@ -0,0 +1,98 @@
+package com.moji.musicdistribution.job;
+
+import com.moji.musicdistribution.BenchmarkApplication;
+import com.moji.musicdistribution.domain.aggregates.Release;
+import com.moji.musicdistribution.domain.aggregates.Song;
+import com.moji.musicdistribution.domain.repositories.ReleaseRepository;
+import com.moji.musicdistribution.domain.repositories.SongRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishing a day's worth of approved releases through {@link ReleasePublicationScheduler#publishDue()},
+ * in transactions of {@code releases.publish.batch-size} releases running
+ * {@code releases.publish.parallelism} at once on virtual threads, against H2
+ * Each iteration saves and queues a fresh set of approved releases of one song each; the
+ * scheduler's own dispatcher is disabled so only the benchmark publishes them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+public class PublishBenchmark {
+
+    private static final int SAVE_CHUNK = 1_000;
+
+    @Param({"10000", "100000"})
+    public int releases;
+
+    private ConfigurableApplicationContext context;
+    private ReleasePublicationScheduler scheduler;
+    private UUID artistId;
+    private List<UUID> releaseIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start();
+        scheduler = context.getBean(ReleasePublicationScheduler.class);
+        // The artist and label the releases belong to
+        artistId = context.getBean(SongRepository.class)
+                .findById(BenchmarkApplication.publishedSongs(context, 1).get(0))
+                .orElseThrow()
+                .getArtistId();
+    }
+
+    @Setup(Level.Iteration)
+    public void approveReleases() {
+        SongRepository songRepository = context.getBean(SongRepository.class);
+        ReleaseRepository releaseRepository = context.getBean(ReleaseRepository.class);
+        // Due today in the scheduler's default releases.publish.zone
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        releaseIds = new ArrayList<>(releases);
+        List<Song> songs = new ArrayList<>(SAVE_CHUNK);
+        List<Release> approved = new ArrayList<>(SAVE_CHUNK);
+        for (int i = 0; i < releases; i++) {
+            Song song = new Song(UUID.randomUUID(), "Single " + i, artistId, Duration.ofMinutes(3));
+            Release release = new Release(UUID.randomUUID(), "Release " + i, artistId);
+            release.addSongs(Set.of(song.getId()));
+            release.proposeReleaseDate(today);
+            release.approveReleaseDate(today);
+            songs.add(song);
+            approved.add(release);
+            releaseIds.add(release.getId());
+            if (approved.size() == SAVE_CHUNK || i == releases - 1) {
+                songRepository.saveAll(songs);
+                releaseRepository.saveAll(approved);
+                songs = new ArrayList<>(SAVE_CHUNK);
+                approved = new ArrayList<>(SAVE_CHUNK);
+            }
+        }
+        for (UUID releaseId : releaseIds) {
+            scheduler.schedule(releaseId, today);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int publish() {
+        int published = scheduler.publishDue();
+        if (published != releaseIds.size()) {
+            throw new IllegalStateException("Published " + published + " of " + releaseIds.size() + " releases");
+        }
+        return published;
+    }
+}
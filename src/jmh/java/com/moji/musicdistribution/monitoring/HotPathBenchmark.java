@@ -0,0 +1,59 @@
+package com.moji.musicdistribution.monitoring;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@link HotPathMetrics} around a fixed amount of work, enabled and disabled
+ * Compare each against {@code baseline}; {@code StreamHandlerBenchmark} measures the same
+ * overhead on a real command.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class HotPathBenchmark {
+
+    // About a microsecond of work, shorter than any command or query
+    private static final long WORK_TOKENS = 250;
+
+    private HotPathMetrics enabled;
+    private HotPathMetrics disabled;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        enabled = new HotPathMetrics(new SimpleMeterRegistry(), true, 100);
+        disabled = new HotPathMetrics(new SimpleMeterRegistry(), false, 100);
+    }
+
+    @Benchmark
+    public void baseline() {
+        Blackhole.consumeCPU(WORK_TOKENS);
+    }
+
+    @Benchmark
+    public void enabled() {
+        long started = enabled.start();
+        Blackhole.consumeCPU(WORK_TOKENS);
+        enabled.stop(HotPathMetrics.Operation.REPOSITORY, "songRepository.findById", started);
+    }
+
+    @Benchmark
+    public void disabled() {
+        long started = disabled.start();
+        Blackhole.consumeCPU(WORK_TOKENS);
+        disabled.stop(HotPathMetrics.Operation.REPOSITORY, "songRepository.findById", started);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public void enabledContended() {
+        long started = enabled.start();
+        Blackhole.consumeCPU(WORK_TOKENS);
+        enabled.stop(HotPathMetrics.Operation.REPOSITORY, "songRepository.findById", started);
+    }
+}
@@ -0,0 +1,79 @@
+package com.moji.musicdistribution.query.projections;
+
+import com.moji.musicdistribution.domain.events.StreamMonetized;
+import com.moji.musicdistribution.domain.events.StreamRecorded;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link MonetizationProjection#on(StreamMonetized)} from one thread and under contention
+ * The projection keeps every monetized stream, so it is replaced before each iteration.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class MonetizationProjectionBenchmark {
+
+    private static final int EVENTS_PER_THREAD = 4096;
+    private static final BigDecimal RATE = new BigDecimal("0.004");
+
+    @Param({"10", "10000"})
+    public int artists;
+
+    private MonetizationProjection projection;
+    private UUID[] artistIds;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        projection = new MonetizationProjection();
+        artistIds = new UUID[artists];
+        for (int i = 0; i < artists; i++) {
+            artistIds[i] = UUID.randomUUID();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Events {
+
+        private StreamMonetized[] events;
+        private int next;
+
+        @Setup(Level.Iteration)
+        public void setUp(MonetizationProjectionBenchmark benchmark) {
+            Random random = new Random();
+            events = new StreamMonetized[EVENTS_PER_THREAD];
+            for (int i = 0; i < events.length; i++) {
+                StreamRecorded recorded = new StreamRecorded(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(),
+                        Instant.parse("2025-03-01T00:00:00Z").plus(Duration.ofMinutes(random.nextInt(60 * 24 * 30))),
+                        Duration.ofSeconds(60), benchmark.artistIds[random.nextInt(benchmark.artists)], "Song");
+                events[i] = StreamMonetized.fromStreamRecorded(recorded, RATE);
+            }
+        }
+
+        StreamMonetized next() {
+            StreamMonetized event = events[next];
+            next = (next + 1) & (EVENTS_PER_THREAD - 1);
+            return event;
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void single(Events events) {
+        projection.on(events.next());
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public void contended(Events events) {
+        projection.on(events.next());
+    }
+}
@@ -0,0 +1,77 @@
+package com.moji.musicdistribution.query.projections;
+
+import com.moji.musicdistribution.domain.events.DomainEvent;
+import com.moji.musicdistribution.domain.events.StreamRecorded;
+import com.moji.musicdistribution.eventstore.InMemoryEventStore;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full rebuild of the {@link StreamStatsProjection} by the {@link ProjectionRebuilder}
+ * A parallelism of 0 uses one shard per core; 1 is the sequential baseline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class ProjectionRebuildBenchmark {
+
+    @Param({"1000000", "4000000"})
+    public int events;
+
+    @Param({"1", "0"})
+    public int parallelism;
+
+    private InMemoryEventStore eventStore;
+    private ProjectionRebuilder rebuilder;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        eventStore = new InMemoryEventStore(event -> {
+        });
+        Random random = new Random(42);
+        UUID[] songs = new UUID[10_000];
+        UUID[] artists = new UUID[1_000];
+        for (int i = 0; i < songs.length; i++) {
+            songs[i] = UUID.randomUUID();
+        }
+        for (int i = 0; i < artists.length; i++) {
+            artists[i] = UUID.randomUUID();
+        }
+        List<DomainEvent> batch = new ArrayList<>();
+        for (int i = 0; i < events; i++) {
+            int song = random.nextInt(songs.length);
+            batch.add(new StreamRecorded(UUID.randomUUID(), songs[song], UUID.randomUUID(),
+                    Instant.parse("2025-03-01T00:00:00Z").plus(Duration.ofMinutes(random.nextInt(60 * 24 * 90))),
+                    Duration.ofSeconds(random.nextBoolean() ? 10 : 60), artists[song % artists.length], "Song"));
+            if (batch.size() == 10_000) {
+                eventStore.storeAll(batch);
+                batch = new ArrayList<>();
+            }
+        }
+        eventStore.storeAll(batch);
+        rebuilder = new ProjectionRebuilder(eventStore, 50_000, parallelism);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        rebuilder.shutdown();
+    }
+
+    @Benchmark
+    public StreamStatsProjection rebuild() {
+        StreamStatsProjection projection = new StreamStatsProjection(
+                new StaticListableBeanFactory().getBeanProvider(SongPopularityListener.class));
+        rebuilder.rebuild(projection);
+        return projection;
+    }
+}
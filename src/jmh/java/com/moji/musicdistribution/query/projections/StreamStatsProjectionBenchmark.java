@@ -0,0 +1,86 @@
+package com.moji.musicdistribution.query.projections;
+
+import com.moji.musicdistribution.domain.events.StreamRecorded;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link StreamStatsProjection#on(StreamRecorded)} from one thread and under contention
+ * With a single song every thread updates the same statistics; with many they rarely collide.
+ * The events have not been stored, so this measures the update rather than the de-duplication.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class StreamStatsProjectionBenchmark {
+
+    private static final int EVENTS_PER_THREAD = 4096;
+
+    @Param({"1", "1000", "100000"})
+    public int songs;
+
+    private StreamStatsProjection projection;
+    private UUID[] songIds;
+    private UUID[] artistIds;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        projection = new StreamStatsProjection(
+                new StaticListableBeanFactory().getBeanProvider(SongPopularityListener.class));
+        songIds = new UUID[songs];
+        artistIds = new UUID[songs];
+        UUID[] artists = new UUID[Math.max(1, songs / 10)];
+        for (int i = 0; i < artists.length; i++) {
+            artists[i] = UUID.randomUUID();
+        }
+        for (int i = 0; i < songs; i++) {
+            songIds[i] = UUID.randomUUID();
+            artistIds[i] = artists[i % artists.length];
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Events {
+
+        private StreamRecorded[] events;
+        private int next;
+
+        @Setup(Level.Iteration)
+        public void setUp(StreamStatsProjectionBenchmark benchmark) {
+            Random random = new Random();
+            events = new StreamRecorded[EVENTS_PER_THREAD];
+            for (int i = 0; i < events.length; i++) {
+                int song = random.nextInt(benchmark.songs);
+                events[i] = new StreamRecorded(UUID.randomUUID(), benchmark.songIds[song], UUID.randomUUID(),
+                        Instant.parse("2025-03-01T00:00:00Z").plus(Duration.ofMinutes(random.nextInt(60 * 24 * 30))),
+                        Duration.ofSeconds(random.nextBoolean() ? 10 : 60), benchmark.artistIds[song], "Song");
+            }
+        }
+
+        StreamRecorded next() {
+            StreamRecorded event = events[next];
+            next = (next + 1) & (EVENTS_PER_THREAD - 1);
+            return event;
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void single(Events events) {
+        projection.on(events.next());
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public void contended(Events events) {
+        projection.on(events.next());
+    }
+}
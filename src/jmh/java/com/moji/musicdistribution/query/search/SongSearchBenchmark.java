@@ -0,0 +1,161 @@
+package com.moji.musicdistribution.query.search;
+
+import com.moji.musicdistribution.domain.aggregates.Release;
+import com.moji.musicdistribution.domain.aggregates.Song;
+import com.moji.musicdistribution.domain.repositories.ReleaseRepository;
+import com.moji.musicdistribution.domain.repositories.SongRepository;
+import com.moji.musicdistribution.eventstore.InMemoryEventStore;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Title search at 10k, 100k and 1M published songs
+ * <p>
+ * {@code index} is the {@link SongTitleIndex} query that {@code LevenshteinSearchService}
+ * answers from once the index is ready, without the result cache or the entity loading;
+ * {@code scan} is a linear pass of the {@link LevenshteinMatcher} kernel over every title, the
+ * fallback cost. The index loads a generated catalogue from in-memory repositories, so no
+ * database is needed.
+ * Titles are one to four words from a fixed vocabulary, and each query is a title with one
+ * character changed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SongSearchBenchmark {
+
+    private static final int QUERIES = 1024;
+
+    @Param({"10000", "100000", "1000000"})
+    public int titles;
+
+    @Param({"1", "2"})
+    public int maxDistance;
+
+    private SongTitleIndex index;
+    private char[][] folded;
+    private String[] queries;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        String[] vocabulary = vocabulary(random, 5_000);
+
+        List<IndexedTitle> entries = new ArrayList<>(titles);
+        Map<UUID, Song> songs = new HashMap<>();
+        List<Release> releases = new ArrayList<>();
+        UUID artistId = UUID.randomUUID();
+        LocalDate today = LocalDate.now();
+        Set<UUID> releaseSongs = new HashSet<>();
+        for (int i = 0; i < titles; i++) {
+            StringBuilder title = new StringBuilder();
+            int words = 1 + random.nextInt(4);
+            for (int w = 0; w < words; w++) {
+                title.append(w == 0 ? "" : " ").append(vocabulary[random.nextInt(vocabulary.length)]);
+            }
+            Song song = new Song(UUID.randomUUID(), title.toString(), artistId, Duration.ofMinutes(3));
+            songs.put(song.getId(), song);
+            entries.add(IndexedTitle.of(song.getId(), song.getTitle()));
+            releaseSongs.add(song.getId());
+            if (releaseSongs.size() == 10 || i == titles - 1) {
+                Release release = new Release(UUID.randomUUID(), "Release " + releases.size(), artistId);
+                release.addSongs(releaseSongs);
+                release.proposeReleaseDate(today);
+                release.approveReleaseDate(today);
+                release.publish(today);
+                releases.add(release);
+                releaseSongs = new HashSet<>();
+            }
+        }
+
+        folded = new char[titles][];
+        for (int i = 0; i < titles; i++) {
+            folded[i] = entries.get(i).getFolded();
+        }
+        queries = new String[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            char[] query = entries.get(random.nextInt(titles)).getTitle().toCharArray();
+            query[random.nextInt(query.length)] = (char) ('a' + random.nextInt(26));
+            queries[i] = new String(query);
+        }
+
+        SongRepository songRepository = repository(SongRepository.class, (proxy, method, args) -> switch (method.getName()) {
+            case "findAllById" -> {
+                List<Song> found = new ArrayList<>();
+                for (Object songId : (Iterable<?>) args[0]) {
+                    found.add(songs.get((UUID) songId));
+                }
+                yield found;
+            }
+            default -> throw new UnsupportedOperationException(method.getName());
+        });
+        ReleaseRepository releaseRepository = repository(ReleaseRepository.class, (proxy, method, args) -> switch (method.getName()) {
+            case "findAll" -> releases;
+            default -> throw new UnsupportedOperationException(method.getName());
+        });
+
+        index = new SongTitleIndex(songRepository, releaseRepository,
+                new StaticListableBeanFactory().getBeanProvider(TitleIndexListener.class),
+                new InMemoryEventStore(event -> {
+                }), true, 5_000, 10_000, 0, 4, 20_000, "");
+        index.initialize();
+        if (!index.isReady()) {
+            throw new IllegalStateException("Song title index was not built");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        index.shutdown();
+    }
+
+    @Benchmark
+    public List<TitleMatch> index() {
+        return index.search(nextQuery(), maxDistance);
+    }
+
+    @Benchmark
+    public int scan() {
+        LevenshteinMatcher matcher = LevenshteinMatcher.compile(TitleNormalizer.normalize(nextQuery()));
+        int matches = 0;
+        for (char[] title : folded) {
+            if (matcher.distance(title, 0, title.length, maxDistance) <= maxDistance) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    private String nextQuery() {
+        String query = queries[next];
+        next = (next + 1) & (QUERIES - 1);
+        return query;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T repository(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    private static String[] vocabulary(Random random, int size) {
+        String[] words = new String[size];
+        for (int i = 0; i < size; i++) {
+            char[] word = new char[3 + random.nextInt(7)];
+            for (int c = 0; c < word.length; c++) {
+                word[c] = (char) ('a' + random.nextInt(26));
+            }
+            words[i] = new String(word);
+        }
+        return words;
+    }
+}
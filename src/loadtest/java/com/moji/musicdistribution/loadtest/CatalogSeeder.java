@@ -0,0 +1,121 @@
+package com.moji.musicdistribution.loadtest;
+
+import com.moji.musicdistribution.command.CommandBus;
+import com.moji.musicdistribution.command.commands.*;
+import com.moji.musicdistribution.domain.aggregates.Artist;
+import com.moji.musicdistribution.domain.aggregates.LabelRecord;
+import com.moji.musicdistribution.domain.aggregates.Song;
+import com.moji.musicdistribution.domain.repositories.ArtistRepository;
+import com.moji.musicdistribution.domain.repositories.LabelRepository;
+import com.moji.musicdistribution.domain.repositories.SongRepository;
+import org.springframework.context.ApplicationContext;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Seeds labels, artists and songs through the repositories, and publishes the songs in releases
+ * through the {@link CommandBus} so the search index and projections see the same events as in production
+ */
+public final class CatalogSeeder {
+
+    private static final int ARTISTS_PER_LABEL = 10;
+    private static final int SONGS_PER_RELEASE = 10;
+    private static final String[] WORDS = {"midnight", "river", "echo", "golden", "static", "summer",
+            "neon", "hollow", "velvet", "paper", "satellite", "wildfire", "harbor", "glass", "thunder", "lullaby"};
+
+    private final LabelRepository labelRepository;
+    private final ArtistRepository artistRepository;
+    private final SongRepository songRepository;
+    private final CommandBus commandBus;
+
+    public CatalogSeeder(ApplicationContext context) {
+        this.labelRepository = context.getBean(LabelRepository.class);
+        this.artistRepository = context.getBean(ArtistRepository.class);
+        this.songRepository = context.getBean(SongRepository.class);
+        this.commandBus = context.getBean(CommandBus.class);
+    }
+
+    public Catalog seed(int artists, int songsPerArtist, Random random) {
+        LocalDate today = LocalDate.now();
+        List<UUID> artistIds = new ArrayList<>(artists);
+        List<UUID> songIds = new ArrayList<>(artists * songsPerArtist);
+        List<String> titles = new ArrayList<>(artists * songsPerArtist);
+        UUID labelId = null;
+
+        for (int a = 0; a < artists; a++) {
+            if (a % ARTISTS_PER_LABEL == 0) {
+                labelId = UUID.randomUUID();
+                labelRepository.save(new LabelRecord(labelId, "Load Test Label " + a / ARTISTS_PER_LABEL));
+            }
+            UUID artistId = UUID.randomUUID();
+            artistRepository.save(new Artist(artistId, "Load Test Artist " + a, labelId));
+            artistIds.add(artistId);
+
+            List<Song> songs = new ArrayList<>(songsPerArtist);
+            for (int s = 0; s < songsPerArtist; s++) {
+                String title = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)]
+                        + " " + (a * songsPerArtist + s);
+                songs.add(new Song(UUID.randomUUID(), title, artistId, Duration.ofSeconds(120 + random.nextInt(240))));
+                titles.add(title);
+            }
+            songRepository.saveAll(songs);
+
+            for (int from = 0; from < songs.size(); from += SONGS_PER_RELEASE) {
+                Set<UUID> releaseSongs = new HashSet<>();
+                for (Song song : songs.subList(from, Math.min(from + SONGS_PER_RELEASE, songs.size()))) {
+                    releaseSongs.add(song.getId());
+                    songIds.add(song.getId());
+                }
+                publish(artistId, labelId, releaseSongs, "Load Test Release " + a + "-" + from, today);
+            }
+        }
+        return new Catalog(artistIds, songIds, titles);
+    }
+
+    private void publish(UUID artistId, UUID labelId, Set<UUID> songIds, String title, LocalDate today) {
+        UUID releaseId = UUID.randomUUID();
+        commandBus.execute(new CreateRelease(releaseId, title, artistId));
+        commandBus.execute(new AddSongsToRelease(releaseId, songIds, artistId));
+        commandBus.execute(new ProposeReleaseDate(releaseId, artistId, today));
+        commandBus.execute(new ApproveReleaseDate(releaseId, labelId, today));
+        commandBus.execute(new PublishRelease(releaseId, today));
+    }
+
+    /**
+     * IDs and titles of the seeded catalogue, picked at random by the requests
+     */
+    public static final class Catalog {
+
+        private final List<UUID> artistIds;
+        private final List<UUID> songIds;
+        private final List<String> titles;
+
+        Catalog(List<UUID> artistIds, List<UUID> songIds, List<String> titles) {
+            this.artistIds = List.copyOf(artistIds);
+            this.songIds = List.copyOf(songIds);
+            this.titles = List.copyOf(titles);
+        }
+
+        public UUID randomArtist(Random random) {
+            return artistIds.get(random.nextInt(artistIds.size()));
+        }
+
+        public UUID randomSong(Random random) {
+            return songIds.get(random.nextInt(songIds.size()));
+        }
+
+        public String randomTitle(Random random) {
+            return titles.get(random.nextInt(titles.size()));
+        }
+
+        public int getArtistCount() {
+            return artistIds.size();
+        }
+
+        public int getSongCount() {
+            return songIds.size();
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.moji.musicdistribution.loadtest;
+
+import com.moji.musicdistribution.loadtest.RequestMix.RequestType;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-model load: requests start on a fixed schedule at the configured rate, each on its own
+ * virtual thread, however long earlier ones take
+ * Latency is measured from the time a request was scheduled to start rather than the time it was
+ * sent, so a stalled server shows up as latency instead of as a lower request rate.
+ */
+public final class LoadGenerator {
+
+    private final URI baseUri;
+    private final RequestMix mix;
+    private final CatalogSeeder.Catalog catalog;
+    private final int maxInFlight;
+    private final HttpClient client;
+    private final Map<RequestType, Stats> stats = new EnumMap<>(RequestType.class);
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    public LoadGenerator(URI baseUri, RequestMix mix, CatalogSeeder.Catalog catalog, int maxInFlight) {
+        this.baseUri = baseUri;
+        this.mix = mix;
+        this.catalog = catalog;
+        this.maxInFlight = maxInFlight;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        for (RequestType type : mix.getTypes()) {
+            stats.put(type, new Stats());
+        }
+    }
+
+    /**
+     * Send requests at the given rate for the given time, then wait for those still in flight
+     */
+    public void run(double rate, Duration duration) {
+        Random random = new Random();
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        double nanosPerRequest = 1e9 / rate;
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long i = 0; ; i++) {
+                long scheduled = start + (long) (i * nanosPerRequest);
+                if (scheduled >= end) {
+                    break;
+                }
+                long wait = scheduled - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+
+                RequestType type = mix.next(random);
+                if (inFlight.incrementAndGet() > maxInFlight) {
+                    // The server has fallen this far behind; count the request as failed rather than queue it
+                    inFlight.decrementAndGet();
+                    stats.get(type).dropped.increment();
+                    continue;
+                }
+                HttpRequest request = mix.request(type, baseUri, catalog, random);
+                executor.execute(() -> send(type, request, scheduled));
+            }
+        }
+    }
+
+    private void send(RequestType type, HttpRequest request, long scheduled) {
+        Stats typeStats = stats.get(type);
+        try {
+            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+            if (response.statusCode() / 100 == 2) {
+                typeStats.latencyMicros.recordValue(Math.max(0, (System.nanoTime() - scheduled) / 1_000));
+            } else {
+                typeStats.errors.increment();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            typeStats.errors.increment();
+        } catch (Exception e) {
+            typeStats.errors.increment();
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Latencies of successful requests in microseconds since the last call, and the failures since then
+     */
+    public Map<RequestType, Interval> takeInterval() {
+        Map<RequestType, Interval> intervals = new EnumMap<>(RequestType.class);
+        stats.forEach((type, typeStats) -> intervals.put(type, typeStats.take()));
+        return intervals;
+    }
+
+    /**
+     * Results of one request type over a reporting interval
+     */
+    public static final class Interval {
+
+        private final Histogram latencyMicros;
+        private final long errors;
+        private final long dropped;
+
+        Interval(Histogram latencyMicros, long errors, long dropped) {
+            this.latencyMicros = latencyMicros;
+            this.errors = errors;
+            this.dropped = dropped;
+        }
+
+        public Histogram getLatencyMicros() {
+            return latencyMicros;
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+
+        public long getDropped() {
+            return dropped;
+        }
+    }
+
+    private static final class Stats {
+
+        private final Recorder latencyMicros = new Recorder(3);
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder dropped = new LongAdder();
+
+        Interval take() {
+            return new Interval(latencyMicros.getIntervalHistogram(), errors.sumThenReset(), dropped.sumThenReset());
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.moji.musicdistribution.loadtest;
+
+import com.moji.musicdistribution.loadtest.RequestMix.RequestType;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Prints a line per reporting interval and a summary of the measured period, and writes both as CSV
+ * <ul>
+ *     <li>{@code latency.csv}: per interval and request type, throughput and latency percentiles</li>
+ *     <li>{@code runtime.csv}: per interval, GC pauses, heap and requests in flight</li>
+ *     <li>{@code summary.csv}: per request type over the measured period</li>
+ * </ul>
+ * Intervals of the warmup are reported but left out of the summary.
+ */
+public final class LoadReport implements AutoCloseable {
+
+    private static final double MICROS_PER_MILLI = 1_000.0;
+    private static final double BYTES_PER_MB = 1024.0 * 1024.0;
+
+    private final Path directory;
+    private final PrintWriter latencyCsv;
+    private final PrintWriter runtimeCsv;
+    private final Map<RequestType, Histogram> totals = new EnumMap<>(RequestType.class);
+    private final Map<RequestType, long[]> failures = new EnumMap<>(RequestType.class);
+
+    private double measuredSeconds;
+    private long gcPauses;
+    private long gcPauseMillis;
+    private long maxGcPauseMillis;
+    private long maxHeapUsed;
+
+    public LoadReport(Path directory, Set<RequestType> types) {
+        this.directory = directory;
+        try {
+            Files.createDirectories(directory);
+            this.latencyCsv = new PrintWriter(Files.newBufferedWriter(directory.resolve("latency.csv")));
+            this.runtimeCsv = new PrintWriter(Files.newBufferedWriter(directory.resolve("runtime.csv")));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write the load test report to " + directory, e);
+        }
+        latencyCsv.println("elapsed_s,phase,type,requests,errors,dropped,throughput_rps,p50_ms,p90_ms,p99_ms,p999_ms,max_ms");
+        runtimeCsv.println("elapsed_s,phase,gc_pauses,gc_pause_ms,gc_max_pause_ms,heap_used_mb,heap_committed_mb,in_flight");
+        for (RequestType type : types) {
+            totals.put(type, new Histogram(3));
+            failures.put(type, new long[2]);
+        }
+    }
+
+    /**
+     * Report one interval, adding it to the summary unless it belongs to the warmup
+     */
+    public void interval(double elapsedSeconds, double intervalSeconds, boolean warmup,
+                         Map<RequestType, LoadGenerator.Interval> results, RuntimeMonitor.Sample runtime, int inFlight) {
+        String phase = warmup ? "warmup" : "measure";
+        StringBuilder line = new StringBuilder(String.format(Locale.ROOT, "[%7.1fs %-7s]", elapsedSeconds, phase));
+
+        results.forEach((type, result) -> {
+            Histogram latency = result.getLatencyMicros();
+            latencyCsv.println(String.format(Locale.ROOT, "%.1f,%s,%s,%d,%d,%d,%.1f,%.3f,%.3f,%.3f,%.3f,%.3f",
+                    elapsedSeconds, phase, type.getLabel(), latency.getTotalCount(), result.getErrors(), result.getDropped(),
+                    latency.getTotalCount() / intervalSeconds, millis(latency, 50), millis(latency, 90),
+                    millis(latency, 99), millis(latency, 99.9), latency.getMaxValue() / MICROS_PER_MILLI));
+            line.append(String.format(Locale.ROOT, " %s %.0f/s p99 %.1fms%s", type.getLabel(),
+                    latency.getTotalCount() / intervalSeconds, millis(latency, 99),
+                    result.getErrors() + result.getDropped() > 0 ? " (" + (result.getErrors() + result.getDropped()) + " failed)" : ""));
+            if (!warmup) {
+                totals.get(type).add(latency);
+                failures.get(type)[0] += result.getErrors();
+                failures.get(type)[1] += result.getDropped();
+            }
+        });
+
+        runtimeCsv.println(String.format(Locale.ROOT, "%.1f,%s,%d,%d,%d,%.1f,%.1f,%d",
+                elapsedSeconds, phase, runtime.getPauses(), runtime.getPauseMillis(), runtime.getMaxPauseMillis(),
+                runtime.getHeapUsed() / BYTES_PER_MB, runtime.getHeapCommitted() / BYTES_PER_MB, inFlight));
+        line.append(String.format(Locale.ROOT, " | gc %d pauses %dms max %dms | heap %.0f/%.0fMB | in flight %d",
+                runtime.getPauses(), runtime.getPauseMillis(), runtime.getMaxPauseMillis(),
+                runtime.getHeapUsed() / BYTES_PER_MB, runtime.getHeapCommitted() / BYTES_PER_MB, inFlight));
+        if (!warmup) {
+            measuredSeconds += intervalSeconds;
+            gcPauses += runtime.getPauses();
+            gcPauseMillis += runtime.getPauseMillis();
+            maxGcPauseMillis = Math.max(maxGcPauseMillis, runtime.getMaxPauseMillis());
+            maxHeapUsed = Math.max(maxHeapUsed, runtime.getHeapUsed());
+        }
+
+        latencyCsv.flush();
+        runtimeCsv.flush();
+        System.out.println(line);
+    }
+
+    /**
+     * Print and write the summary of the measured period, and check it against the limits
+     *
+     * @param maxP99Millis 0 for no latency limit
+     * @return whether every request type stayed within the limits
+     */
+    public boolean summarize(double maxErrorRate, long maxP99Millis) {
+        double measuredSeconds = Math.max(1e-3, this.measuredSeconds);
+        boolean passed = true;
+        StringBuilder out = new StringBuilder(String.format(Locale.ROOT,
+                "%n%-13s %10s %8s %8s %10s %9s %9s %9s %9s %9s%n",
+                "type", "requests", "errors", "dropped", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms"));
+
+        try (PrintWriter csv = new PrintWriter(Files.newBufferedWriter(directory.resolve("summary.csv")))) {
+            csv.println("type,requests,errors,dropped,throughput_rps,p50_ms,p90_ms,p99_ms,p999_ms,max_ms");
+            for (Map.Entry<RequestType, Histogram> entry : totals.entrySet()) {
+                RequestType type = entry.getKey();
+                Histogram latency = entry.getValue();
+                long errors = failures.get(type)[0];
+                long dropped = failures.get(type)[1];
+                long attempted = latency.getTotalCount() + errors + dropped;
+
+                out.append(String.format(Locale.ROOT, "%-13s %10d %8d %8d %10.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                        type.getLabel(), latency.getTotalCount(), errors, dropped, latency.getTotalCount() / measuredSeconds,
+                        millis(latency, 50), millis(latency, 90), millis(latency, 99), millis(latency, 99.9),
+                        latency.getMaxValue() / MICROS_PER_MILLI));
+                csv.println(String.format(Locale.ROOT, "%s,%d,%d,%d,%.1f,%.3f,%.3f,%.3f,%.3f,%.3f",
+                        type.getLabel(), latency.getTotalCount(), errors, dropped, latency.getTotalCount() / measuredSeconds,
+                        millis(latency, 50), millis(latency, 90), millis(latency, 99), millis(latency, 99.9),
+                        latency.getMaxValue() / MICROS_PER_MILLI));
+
+                double errorRate = attempted == 0 ? 0 : (double) (errors + dropped) / attempted;
+                if (errorRate > maxErrorRate) {
+                    out.append(String.format(Locale.ROOT, "  FAILED: %s error rate %.2f%% exceeds %.2f%%%n",
+                            type.getLabel(), errorRate * 100, maxErrorRate * 100));
+                    passed = false;
+                }
+                if (maxP99Millis > 0 && millis(latency, 99) > maxP99Millis) {
+                    out.append(String.format(Locale.ROOT, "  FAILED: %s p99 %.2fms exceeds %dms%n",
+                            type.getLabel(), millis(latency, 99), maxP99Millis));
+                    passed = false;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write the load test summary to " + directory, e);
+        }
+
+        out.append(String.format(Locale.ROOT, "%ngc: %d pauses, %dms in total, longest %dms; peak heap used %.0fMB%n",
+                gcPauses, gcPauseMillis, maxGcPauseMillis, maxHeapUsed / BYTES_PER_MB));
+        out.append("Reports written to ").append(directory.toAbsolutePath());
+        System.out.println(out);
+        return passed;
+    }
+
+    private static double millis(Histogram latencyMicros, double percentile) {
+        return latencyMicros.getValueAtPercentile(percentile) / MICROS_PER_MILLI;
+    }
+
+    @Override
+    public void close() {
+        latencyCsv.close();
+        runtimeCsv.close();
+    }
+}
@@ -0,0 +1,112 @@
+package com.moji.musicdistribution.loadtest;
+
+import com.moji.musicdistribution.MusicDistributionApplication;
+import com.moji.musicdistribution.config.EventDispatchTracker;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load and soak test: starts the application in-process against its in-memory H2 database, seeds a
+ * catalogue, drives a mix of stream commands, searches and reports over HTTP at a fixed arrival rate,
+ * and reports throughput, latency percentiles, GC pauses and heap over time
+ * Exits with status 1 when the error rate or p99 latency of any request type exceeds its limit, so
+ * regressions can fail a build. See {@link LoadTestOptions} for the options.
+ */
+public final class LoadTest {
+
+    private static final long SETTLE_TIMEOUT_MILLIS = 60_000;
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        boolean passed;
+        try (ConfigurableApplicationContext context = start()) {
+            int port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+            URI baseUri = URI.create("http://localhost:" + port + "/api/");
+
+            long seedStarted = System.nanoTime();
+            CatalogSeeder.Catalog catalog = new CatalogSeeder(context)
+                    .seed(options.getArtists(), options.getSongsPerArtist(), new Random());
+            awaitEventDispatch(context.getBean(EventDispatchTracker.class));
+            System.out.printf("Seeded %d artists and %d published songs in %d ms; sending %.0f requests/s for %s after a %s warmup%n",
+                    catalog.getArtistCount(), catalog.getSongCount(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - seedStarted),
+                    options.getRate(), options.getDuration(), options.getWarmup());
+
+            passed = run(options, new LoadGenerator(baseUri, options.getMix(), catalog, options.getMaxInFlight()));
+        }
+        System.exit(passed ? 0 : 1);
+    }
+
+    private static ConfigurableApplicationContext start() {
+        return new SpringApplicationBuilder(MusicDistributionApplication.class)
+                .properties(
+                        "server.port=0",
+                        "spring.main.banner-mode=off",
+                        "spring.datasource.url=jdbc:h2:mem:loadtest-" + UUID.randomUUID(),
+                        "spring.jpa.show-sql=false",
+                        "releases.publish.enabled=false",
+                        "logging.level.root=WARN",
+                        "logging.level.com.moji.musicdistribution=WARN")
+                .run();
+    }
+
+    private static boolean run(LoadTestOptions options, LoadGenerator generator) throws InterruptedException {
+        long warmupNanos = options.getWarmup().toNanos();
+        long intervalMillis = options.getInterval().toMillis();
+        long started = System.nanoTime();
+
+        try (RuntimeMonitor monitor = new RuntimeMonitor();
+             LoadReport report = new LoadReport(options.getReportDirectory(), options.getMix().getTypes())) {
+            monitor.takeSample();
+            generator.takeInterval();
+
+            ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "load-test-report");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long[] lastReport = {started};
+            Runnable reportInterval = () -> {
+                long now = System.nanoTime();
+                report.interval((now - started) / 1e9, (now - lastReport[0]) / 1e9, lastReport[0] - started < warmupNanos,
+                        generator.takeInterval(), monitor.takeSample(), generator.getInFlight());
+                lastReport[0] = now;
+            };
+            reporter.scheduleAtFixedRate(reportInterval, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+
+            generator.run(options.getRate(), options.getWarmup().plus(options.getDuration()));
+
+            // Report what completed since the last interval, including requests that were still in flight
+            reporter.shutdown();
+            if (!reporter.awaitTermination(intervalMillis, TimeUnit.MILLISECONDS)) {
+                throw new IllegalStateException("Reporting did not finish");
+            }
+            reportInterval.run();
+
+            return report.summarize(options.getMaxErrorRate(), options.getMaxP99Millis());
+        }
+    }
+
+    /**
+     * Wait until the events of the seeded catalogue have reached the search index and projections
+     */
+    private static void awaitEventDispatch(EventDispatchTracker tracker) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + SETTLE_TIMEOUT_MILLIS;
+        while (tracker.getPending() > 0) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new IllegalStateException(tracker.getPending() + " events still pending after seeding");
+            }
+            Thread.sleep(50);
+        }
+    }
+}
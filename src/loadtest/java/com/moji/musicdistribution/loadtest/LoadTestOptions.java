@@ -0,0 +1,129 @@
+package com.moji.musicdistribution.loadtest;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Command line options of the {@link LoadTest}, given as {@code --name=value}
+ * <ul>
+ *     <li>{@code rate}: requests started per second, whatever the response times (200)</li>
+ *     <li>{@code duration} and {@code warmup}: measured run and the unmeasured lead-in before it,
+ *     as ISO-8601 durations (PT2M, PT15S)</li>
+ *     <li>{@code mix}: relative weights of the request types
+ *     (stream=80,search=15,report=4,monetization=1)</li>
+ *     <li>{@code artists} and {@code songs-per-artist}: seeded catalogue, published in releases of
+ *     ten songs (50, 20)</li>
+ *     <li>{@code interval}: reporting interval (PT5S)</li>
+ *     <li>{@code max-in-flight}: outstanding requests beyond which new ones are dropped (10000)</li>
+ *     <li>{@code max-error-rate} and {@code max-p99-ms}: the run fails if exceeded over the
+ *     measured period (0.01, unlimited)</li>
+ *     <li>{@code report-dir}: where the CSV reports are written (build/loadtest)</li>
+ * </ul>
+ */
+public final class LoadTestOptions {
+
+    private static final Set<String> NAMES = Set.of("rate", "duration", "warmup", "mix", "artists",
+            "songs-per-artist", "interval", "max-in-flight", "max-error-rate", "max-p99-ms", "report-dir");
+
+    private final double rate;
+    private final Duration duration;
+    private final Duration warmup;
+    private final RequestMix mix;
+    private final int artists;
+    private final int songsPerArtist;
+    private final Duration interval;
+    private final int maxInFlight;
+    private final double maxErrorRate;
+    private final long maxP99Millis;
+    private final Path reportDirectory;
+
+    private LoadTestOptions(Map<String, String> values) {
+        this.rate = Double.parseDouble(values.getOrDefault("rate", "200"));
+        this.duration = Duration.parse(values.getOrDefault("duration", "PT2M"));
+        this.warmup = Duration.parse(values.getOrDefault("warmup", "PT15S"));
+        this.mix = RequestMix.parse(values.getOrDefault("mix", "stream=80,search=15,report=4,monetization=1"));
+        this.artists = Integer.parseInt(values.getOrDefault("artists", "50"));
+        this.songsPerArtist = Integer.parseInt(values.getOrDefault("songs-per-artist", "20"));
+        this.interval = Duration.parse(values.getOrDefault("interval", "PT5S"));
+        this.maxInFlight = Integer.parseInt(values.getOrDefault("max-in-flight", "10000"));
+        this.maxErrorRate = Double.parseDouble(values.getOrDefault("max-error-rate", "0.01"));
+        this.maxP99Millis = Long.parseLong(values.getOrDefault("max-p99-ms", "0"));
+        this.reportDirectory = Path.of(values.getOrDefault("report-dir", "build/loadtest"));
+
+        if (rate <= 0) {
+            throw new IllegalArgumentException("Rate must be positive");
+        }
+        if (duration.isNegative() || duration.isZero() || warmup.isNegative()) {
+            throw new IllegalArgumentException("Duration must be positive and warmup not negative");
+        }
+        if (artists < 1 || songsPerArtist < 1) {
+            throw new IllegalArgumentException("The catalogue needs at least one artist with one song");
+        }
+        if (interval.toMillis() < 100) {
+            throw new IllegalArgumentException("Reporting interval must be at least 100 ms");
+        }
+    }
+
+    public static LoadTestOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals < 0) {
+                throw new IllegalArgumentException("Expected --name=value but got " + arg);
+            }
+            String name = arg.substring(2, equals);
+            if (!NAMES.contains(name)) {
+                throw new IllegalArgumentException("Unknown option " + name + "; expected one of " + NAMES);
+            }
+            values.put(name, arg.substring(equals + 1));
+        }
+        return new LoadTestOptions(values);
+    }
+
+    public double getRate() {
+        return rate;
+    }
+
+    public Duration getDuration() {
+        return duration;
+    }
+
+    public Duration getWarmup() {
+        return warmup;
+    }
+
+    public RequestMix getMix() {
+        return mix;
+    }
+
+    public int getArtists() {
+        return artists;
+    }
+
+    public int getSongsPerArtist() {
+        return songsPerArtist;
+    }
+
+    public Duration getInterval() {
+        return interval;
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public double getMaxErrorRate() {
+        return maxErrorRate;
+    }
+
+    public long getMaxP99Millis() {
+        return maxP99Millis;
+    }
+
+    public Path getReportDirectory() {
+        return reportDirectory;
+    }
+}
@@ -0,0 +1,133 @@
+package com.moji.musicdistribution.loadtest;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Weighted choice of request types, and the HTTP requests for each against a seeded catalogue
+ */
+public final class RequestMix {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    private final RequestType[] types;
+    private final int[] cumulativeWeights;
+
+    private RequestMix(Map<RequestType, Integer> weights) {
+        this.types = weights.keySet().toArray(new RequestType[0]);
+        this.cumulativeWeights = new int[types.length];
+        int total = 0;
+        for (int i = 0; i < types.length; i++) {
+            total += weights.get(types[i]);
+            cumulativeWeights[i] = total;
+        }
+    }
+
+    /**
+     * Parse weights such as {@code stream=80,search=20}; omitted types are not sent
+     */
+    public static RequestMix parse(String spec) {
+        Map<RequestType, Integer> weights = new EnumMap<>(RequestType.class);
+        for (String part : spec.split(",")) {
+            String[] nameAndWeight = part.trim().split("=");
+            if (nameAndWeight.length != 2) {
+                throw new IllegalArgumentException("Expected type=weight but got " + part);
+            }
+            int weight = Integer.parseInt(nameAndWeight[1]);
+            if (weight < 0) {
+                throw new IllegalArgumentException("Weight of " + nameAndWeight[0] + " is negative");
+            }
+            if (weight > 0) {
+                weights.put(RequestType.named(nameAndWeight[0]), weight);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("The request mix is empty");
+        }
+        return new RequestMix(weights);
+    }
+
+    public Set<RequestType> getTypes() {
+        return EnumSet.copyOf(Arrays.asList(types));
+    }
+
+    public RequestType next(Random random) {
+        int pick = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < types.length; i++) {
+            if (pick < cumulativeWeights[i]) {
+                return types[i];
+            }
+        }
+        throw new IllegalStateException("Weights do not add up");
+    }
+
+    /**
+     * Build a request of the given type for random entries of the catalogue
+     */
+    public HttpRequest request(RequestType type, URI baseUri, CatalogSeeder.Catalog catalog, Random random) {
+        switch (type) {
+            case STREAM -> {
+                // One stream in four is too short to be monetized
+                String body = String.format("{\"songId\":\"%s\",\"userId\":\"%s\",\"duration\":\"PT%dS\",\"timestamp\":\"%s\"}",
+                        catalog.randomSong(random), UUID.randomUUID(), random.nextInt(4) == 0 ? 15 : 180, Instant.now());
+                return HttpRequest.newBuilder(baseUri.resolve("commands/streams"))
+                        .timeout(TIMEOUT)
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(body))
+                        .build();
+            }
+            case SEARCH -> {
+                // A catalogue title with one character changed
+                char[] term = catalog.randomTitle(random).toCharArray();
+                term[random.nextInt(term.length)] = (char) ('a' + random.nextInt(26));
+                return get(baseUri.resolve("queries/songs/search?maxDistance=2&searchTerm="
+                        + URLEncoder.encode(new String(term), StandardCharsets.UTF_8)));
+            }
+            case REPORT -> {
+                return get(baseUri.resolve("queries/artists/" + catalog.randomArtist(random) + "/stream-report"));
+            }
+            case MONETIZATION -> {
+                return get(baseUri.resolve("queries/artists/" + catalog.randomArtist(random) + "/monetization-report"));
+            }
+            default -> throw new IllegalArgumentException("Unknown request type " + type);
+        }
+    }
+
+    private static HttpRequest get(URI uri) {
+        return HttpRequest.newBuilder(uri).timeout(TIMEOUT).GET().build();
+    }
+
+    /**
+     * Request types the load test can send
+     */
+    public enum RequestType {
+        STREAM("stream"),
+        SEARCH("search"),
+        REPORT("report"),
+        MONETIZATION("monetization");
+
+        private final String label;
+
+        RequestType(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        static RequestType named(String label) {
+            for (RequestType type : values()) {
+                if (type.label.equals(label)) {
+                    return type;
+                }
+            }
+            throw new IllegalArgumentException("Unknown request type " + label);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.moji.musicdistribution.loadtest;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * GC pauses and heap usage of this JVM, which hosts the application under test
+ * Pauses come from the collectors' notifications; the concurrent cycles of ZGC and Shenandoah
+ * are reported by their own collector beans and are left out, as they do not stop the application.
+ */
+public final class RuntimeMonitor implements AutoCloseable {
+
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private final List<NotificationEmitter> emitters = new ArrayList<>();
+    private final NotificationListener listener = this::onNotification;
+
+    private final LongAdder pauses = new LongAdder();
+    private final LongAdder pauseMillis = new LongAdder();
+    private final AtomicLong maxPauseMillis = new AtomicLong();
+
+    public RuntimeMonitor() {
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (collector instanceof NotificationEmitter emitter && !collector.getName().contains("Cycles")) {
+                emitter.addNotificationListener(listener, null, null);
+                emitters.add(emitter);
+            }
+        }
+    }
+
+    private void onNotification(Notification notification, Object handback) {
+        if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+            return;
+        }
+        GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+        long millis = info.getGcInfo().getDuration();
+        pauses.increment();
+        pauseMillis.add(millis);
+        maxPauseMillis.accumulateAndGet(millis, Math::max);
+    }
+
+    /**
+     * GC pauses since the last call and the heap in use now
+     */
+    public Sample takeSample() {
+        MemoryUsage heap = memory.getHeapMemoryUsage();
+        return new Sample(pauses.sumThenReset(), pauseMillis.sumThenReset(), maxPauseMillis.getAndSet(0),
+                heap.getUsed(), heap.getCommitted());
+    }
+
+    @Override
+    public void close() {
+        for (NotificationEmitter emitter : emitters) {
+            try {
+                emitter.removeNotificationListener(listener);
+            } catch (Exception e) {
+                // Already removed
+            }
+        }
+    }
+
+    /**
+     * GC pauses over a reporting interval and the heap at its end
+     */
+    public static final class Sample {
+
+        private final long pauses;
+        private final long pauseMillis;
+        private final long maxPauseMillis;
+        private final long heapUsed;
+        private final long heapCommitted;
+
+        Sample(long pauses, long pauseMillis, long maxPauseMillis, long heapUsed, long heapCommitted) {
+            this.pauses = pauses;
+            this.pauseMillis = pauseMillis;
+            this.maxPauseMillis = maxPauseMillis;
+            this.heapUsed = heapUsed;
+            this.heapCommitted = heapCommitted;
+        }
+
+        public long getPauses() {
+            return pauses;
+        }
+
+        public long getPauseMillis() {
+            return pauseMillis;
+        }
+
+        public long getMaxPauseMillis() {
+            return maxPauseMillis;
+        }
+
+        public long getHeapUsed() {
+            return heapUsed;
+        }
+
+        public long getHeapCommitted() {
+            return heapCommitted;
+        }
+    }
+}
@@ -2,7 +2,6 @@ package com.moji.musicdistribution.api.command;
 
 import com.moji.musicdistribution.command.CommandBus;
 import com.moji.musicdistribution.command.commands.*;
-import com.moji.musicdistribution.command.handlers.*;
 import com.moji.musicdistribution.domain.aggregates.Release;
 import lombok.RequiredArgsConstructor;
 import lombok.Getter;
@@ -13,6 +12,8 @@ import org.springframework.web.bind.annotation.*;
 
 import java.time.Clock;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 import java.util.UUID;
 
@@ -24,14 +25,9 @@ import java.util.UUID;
 @RequiredArgsConstructor
 public class CommandController {
 
-    private final CommandBus commandBus; // Add this field
-    private final AddSongsHandler addSongsHandler;
-    private final ProposeDateHandler proposeDateHandler;
-    private final ApproveDateHandler approveDateHandler;
-    private final PublishHandler publishHandler;
-    private final StreamHandler streamHandler;
-    private final PaymentReportHandler paymentReportHandler;
-    private final WithdrawHandler withdrawHandler;
+    private static final int MAX_STREAM_BATCH_SIZE = 1000;
+
+    private final CommandBus commandBus;
     private final Clock clock;
 
 
@@ -49,7 +45,7 @@ public class CommandController {
                 request.getArtistId()
         );
 
-        // Execute the command using the CommandBus and get the result
+        // Execute the command and get the result
         Release release = commandBus.executeForResult(command);
 
         // Return the DTO
@@ -75,7 +71,7 @@ public class CommandController {
                 request.getArtistId()
         );
 
-        addSongsHandler.handle(command);
+        commandBus.execute(command);
         return ResponseEntity.ok().build();
     }
 
@@ -93,7 +89,7 @@ public class CommandController {
                 request.getProposedDate()
         );
 
-        proposeDateHandler.handle(command);
+        commandBus.execute(command);
         return ResponseEntity.ok().build();
     }
 
@@ -111,7 +107,7 @@ public class CommandController {
                 request.getApprovedDate()
         );
 
-        approveDateHandler.handle(command);
+        commandBus.execute(command);
         return ResponseEntity.ok().build();
     }
 
@@ -124,7 +120,7 @@ public class CommandController {
 
         PublishRelease command = new PublishRelease(releaseId, currentDate);
 
-        publishHandler.handle(command);
+        commandBus.execute(command);
         return ResponseEntity.ok().build();
     }
 
@@ -140,7 +136,29 @@ public class CommandController {
                 request.getTimestamp()
         );
 
-        streamHandler.handle(command);
+        commandBus.execute(command);
+        return ResponseEntity.ok().build();
+    }
+
+    /**
+     * Record a batch of streams in one transaction
+     */
+    @PostMapping("/streams/batch")
+    public ResponseEntity<Void> recordStreams(@RequestBody List<RecordStreamRequest> requests) {
+        if (requests.size() > MAX_STREAM_BATCH_SIZE) {
+            throw new IllegalArgumentException("At most " + MAX_STREAM_BATCH_SIZE + " streams can be recorded at once");
+        }
+        List<RecordStream> commands = new ArrayList<>(requests.size());
+        for (RecordStreamRequest request : requests) {
+            commands.add(new RecordStream(
+                    request.getSongId(),
+                    request.getUserId(),
+                    request.getDuration(),
+                    request.getTimestamp()
+            ));
+        }
+
+        commandBus.execute(new RecordStreams(commands));
         return ResponseEntity.ok().build();
     }
 
@@ -159,7 +177,7 @@ public class CommandController {
                 UUID.randomUUID()
         );
 
-        paymentReportHandler.handle(command);
+        commandBus.execute(command);
         return ResponseEntity.ok().build();
     }
 
@@ -173,7 +191,7 @@ public class CommandController {
 
         WithdrawRelease command = new WithdrawRelease(releaseId, artistId);
 
-        withdrawHandler.handle(command);
+        commandBus.execute(command);
         return ResponseEntity.ok().build();
     }
 
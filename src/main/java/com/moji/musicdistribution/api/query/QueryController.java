@@ -1,17 +1,26 @@
 package com.moji.musicdistribution.api.query;
 
-import com.moji.musicdistribution.domain.aggregates.Song;
 import com.moji.musicdistribution.query.projections.ArtistStreamProjection;
 import com.moji.musicdistribution.query.projections.PaymentReportProjection;
 import com.moji.musicdistribution.query.readmodels.ArtistStreamReport;
+import com.moji.musicdistribution.query.readmodels.DailyStreamReport;
 import com.moji.musicdistribution.query.readmodels.MonetizationReport;
 import com.moji.musicdistribution.query.readmodels.PaymentReport;
+import com.moji.musicdistribution.query.readmodels.SongSearchPage;
+import com.moji.musicdistribution.query.readmodels.SongStreamPage;
+import com.moji.musicdistribution.query.readmodels.SongSuggestion;
+import com.moji.musicdistribution.query.search.SearchMode;
+import com.moji.musicdistribution.query.search.SongAutocompleteIndex;
 import com.moji.musicdistribution.query.services.LevenshteinSearchService;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.List;
 import java.util.UUID;
@@ -24,21 +33,37 @@ import java.util.UUID;
 @RequiredArgsConstructor
 public class QueryController {
 
+    private static final int MAX_SEARCH_LIMIT = 100;
+    private static final int MAX_STREAM_PAGE_LIMIT = 1000;
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final String STREAM_EXPORT_HEADER = "stream_id,song_id,user_id,timestamp,duration_seconds,monetized";
+
     private final LevenshteinSearchService searchService;
+    private final SongAutocompleteIndex autocompleteIndex;
     private final ArtistStreamProjection artistStreamProjection;
     private final PaymentReportProjection paymentReportProjection;
 
     /**
      * Search for songs by title using Levenshtein distance
+     * Results are ranked by distance, then by stream count; when more results exist the
+     * cursor for the next page is returned in the X-Next-Cursor header. In TOKENS mode every
+     * word of the term is matched separately, in any order, against the words of the title
      */
     @GetMapping("/songs/search")
     public ResponseEntity<List<SongDTO>> searchSongsByTitle(
             @RequestParam String searchTerm,
-            @RequestParam(defaultValue = "2") int maxDistance) {
+            @RequestParam(defaultValue = "2") int maxDistance,
+            @RequestParam(defaultValue = "TITLE") SearchMode mode,
+            @RequestParam(defaultValue = "20") int limit,
+            @RequestParam(required = false) String cursor) {
+
+        if (limit < 1 || limit > MAX_SEARCH_LIMIT) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_SEARCH_LIMIT);
+        }
 
-        List<Song> songs = searchService.searchSongsByTitle(searchTerm, maxDistance);
+        SongSearchPage page = searchService.searchSongsByTitle(searchTerm, maxDistance, mode, limit, cursor);
 
-        List<SongDTO> songDTOs = songs.stream()
+        List<SongDTO> songDTOs = page.getSongs().stream()
                 .map(song -> new SongDTO(
                         song.getId(),
                         song.getTitle(),
@@ -47,7 +72,26 @@ public class QueryController {
                 ))
                 .toList();
 
-        return ResponseEntity.ok(songDTOs);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(songDTOs);
+    }
+
+    /**
+     * Suggest published songs whose title starts with the prefix, most streamed first
+     */
+    @GetMapping("/songs/autocomplete")
+    public ResponseEntity<List<SongSuggestion>> autocompleteSongTitles(
+            @RequestParam String prefix,
+            @RequestParam(defaultValue = "10") int limit) {
+
+        if (limit < 1 || limit > autocompleteIndex.maxSuggestions()) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + autocompleteIndex.maxSuggestions());
+        }
+
+        return ResponseEntity.ok(autocompleteIndex.complete(prefix, limit));
     }
 
     /**
@@ -68,6 +112,80 @@ public class QueryController {
         return ResponseEntity.ok(report);
     }
 
+    /**
+     * Get an artist's streams per day
+     */
+    @GetMapping("/artists/{artistId}/daily-streams")
+    public ResponseEntity<DailyStreamReport> getArtistDailyStreams(
+            @PathVariable UUID artistId,
+            @RequestParam Instant fromDate,
+            @RequestParam Instant toDate) {
+
+        DailyStreamReport report = artistStreamProjection.generateDailyStreamReport(
+                artistId,
+                fromDate,
+                toDate
+        );
+
+        return ResponseEntity.ok(report);
+    }
+
+    /**
+     * Get the individual streams of an artist's song, oldest first
+     * When more streams exist the cursor for the next page is returned in the X-Next-Cursor header
+     */
+    @GetMapping("/artists/{artistId}/songs/{songId}/streams")
+    public ResponseEntity<SongStreamPage> getSongStreams(
+            @PathVariable UUID artistId,
+            @PathVariable UUID songId,
+            @RequestParam(defaultValue = "100") int limit,
+            @RequestParam(required = false) String cursor) {
+
+        if (limit < 1 || limit > MAX_STREAM_PAGE_LIMIT) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_STREAM_PAGE_LIMIT);
+        }
+
+        SongStreamPage page = artistStreamProjection.getSongStreams(artistId, songId, limit, cursor);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(page);
+    }
+
+    /**
+     * Export every stream of an artist as CSV
+     * Rows are written as they are read from the database, so the export is never held in memory
+     */
+    @GetMapping(value = "/artists/{artistId}/streams/export", produces = "text/csv")
+    public void exportArtistStreams(
+            @PathVariable UUID artistId,
+            @RequestParam(required = false) Instant fromDate,
+            @RequestParam(required = false) Instant toDate,
+            HttpServletResponse response) throws IOException {
+
+        response.setContentType("text/csv");
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        PrintWriter writer = response.getWriter();
+        // The header is deferred to the first row so an unknown artist can still become an error response
+        boolean[] headerWritten = new boolean[1];
+
+        artistStreamProjection.exportStreams(artistId, fromDate, toDate, stream -> {
+            if (!headerWritten[0]) {
+                writer.println(STREAM_EXPORT_HEADER);
+                headerWritten[0] = true;
+            }
+            writer.println(stream.getId() + "," + stream.getSongId() + "," + stream.getUserId() + ","
+                    + stream.getStreamDate() + "," + stream.getDuration().getSeconds() + ","
+                    + stream.isMonetizable());
+        });
+        if (!headerWritten[0]) {
+            writer.println(STREAM_EXPORT_HEADER);
+        }
+        writer.flush();
+    }
+
     /**
      * Get payment report for an artist
      */
@@ -1,5 +1,6 @@
 package com.moji.musicdistribution.command;
 
+import com.moji.musicdistribution.monitoring.HotPathMetrics;
 import org.springframework.stereotype.Component;
 
 import java.util.HashMap;
@@ -9,12 +10,18 @@ import java.util.function.Function;
 
 /**
  * A simple command bus that routes commands to their handlers
- * Supports both void handlers and handlers that return results
+ * Supports both void handlers and handlers that return results.
+ * Every execution is timed by command type with {@link HotPathMetrics}.
  */
 //@Component
 public class CommandBus {
 
     private final Map<Class<?>, Object> handlers = new HashMap<>();
+    private final HotPathMetrics hotPathMetrics;
+
+    public CommandBus(HotPathMetrics hotPathMetrics) {
+        this.hotPathMetrics = hotPathMetrics;
+    }
 
     /**
      * Register a handler for a specific command type (void return)
@@ -41,16 +48,21 @@ public class CommandBus {
             throw new IllegalArgumentException("No handler registered for command: " + command.getClass().getName());
         }
 
-        if (handler instanceof Consumer) {
-            @SuppressWarnings("unchecked")
-            Consumer<T> consumer = (Consumer<T>) handler;
-            consumer.accept(command);
-        } else if (handler instanceof Function) {
-            @SuppressWarnings("unchecked")
-            Function<T, ?> function = (Function<T, ?>) handler;
-            function.apply(command);
-        } else {
-            throw new IllegalStateException("Unsupported handler type: " + handler.getClass().getName());
+        long started = hotPathMetrics.start();
+        try {
+            if (handler instanceof Consumer) {
+                @SuppressWarnings("unchecked")
+                Consumer<T> consumer = (Consumer<T>) handler;
+                consumer.accept(command);
+            } else if (handler instanceof Function) {
+                @SuppressWarnings("unchecked")
+                Function<T, ?> function = (Function<T, ?>) handler;
+                function.apply(command);
+            } else {
+                throw new IllegalStateException("Unsupported handler type: " + handler.getClass().getName());
+            }
+        } finally {
+            hotPathMetrics.stop(HotPathMetrics.Operation.COMMAND, command.getClass(), started);
         }
     }
 
@@ -68,7 +80,12 @@ public class CommandBus {
 
         if (handler instanceof Function) {
             Function<T, R> function = (Function<T, R>) handler;
-            return function.apply(command);
+            long started = hotPathMetrics.start();
+            try {
+                return function.apply(command);
+            } finally {
+                hotPathMetrics.stop(HotPathMetrics.Operation.COMMAND, command.getClass(), started);
+            }
         } else {
             throw new IllegalStateException("Handler does not return a result: " + handler.getClass().getName());
         }
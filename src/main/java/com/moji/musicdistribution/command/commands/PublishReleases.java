@@ -0,0 +1,35 @@
+package com.moji.musicdistribution.command.commands;
+
+import lombok.Getter;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Command to publish a batch of releases whose approved date has been reached
+ * Releases that cannot be published are reported back rather than failing the batch
+ */
+@Getter
+public class PublishReleases {
+    private final List<UUID> releaseIds;
+    private final LocalDate currentDate;
+
+    /**
+     * Create a new PublishReleases command
+     *
+     * @param releaseIds  The IDs of the releases to publish
+     * @param currentDate The current date (to check against the approved dates)
+     */
+    public PublishReleases(List<UUID> releaseIds, LocalDate currentDate) {
+        if (releaseIds == null || releaseIds.isEmpty()) {
+            throw new IllegalArgumentException("Release IDs cannot be empty");
+        }
+        if (currentDate == null) {
+            throw new IllegalArgumentException("Current date cannot be null");
+        }
+
+        this.releaseIds = List.copyOf(releaseIds);
+        this.currentDate = currentDate;
+    }
+}
@@ -0,0 +1,27 @@
+package com.moji.musicdistribution.command.commands;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Command to record a batch of streams in one transaction
+ * The whole batch is rejected if any stream is invalid.
+ */
+@Getter
+public class RecordStreams {
+    private final List<RecordStream> streams;
+
+    /**
+     * Create a new RecordStreams command
+     *
+     * @param streams The streams to record
+     */
+    public RecordStreams(List<RecordStream> streams) {
+        if (streams == null) {
+            throw new IllegalArgumentException("Streams cannot be null");
+        }
+
+        this.streams = List.copyOf(streams);
+    }
+}
@@ -11,8 +11,9 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
 
 /**
  * Handler for the AddSongsToRelease command
@@ -38,13 +39,18 @@ public class AddSongsHandler {
             throw new IllegalStateException("Artist does not own this release");
         }
 
-        // 3. Verify that the songs exist and belong to the artist
-        Set<Song> songs = command.getSongIds().stream()
-                .map(songId -> songRepository.findById(songId)
-                        .orElseThrow(() -> new IllegalArgumentException("Song not found: " + songId)))
-                .collect(Collectors.toSet());
+        // 3. Verify that the songs exist and belong to the artist, loading them in one query
+        Map<UUID, Song> songs = new HashMap<>();
+        for (Song song : songRepository.findAllById(command.getSongIds())) {
+            songs.put(song.getId(), song);
+        }
+        for (UUID songId : command.getSongIds()) {
+            if (!songs.containsKey(songId)) {
+                throw new IllegalArgumentException("Song not found: " + songId);
+            }
+        }
 
-        for (Song song : songs) {
+        for (Song song : songs.values()) {
             if (!song.getArtistId().equals(command.getArtistId())) {
                 throw new IllegalStateException("Artist does not own all the songs");
             }
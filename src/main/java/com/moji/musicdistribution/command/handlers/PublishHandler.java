@@ -1,13 +1,19 @@
 package com.moji.musicdistribution.command.handlers;
 
 import com.moji.musicdistribution.command.commands.PublishRelease;
+import com.moji.musicdistribution.command.commands.PublishReleases;
 import com.moji.musicdistribution.domain.aggregates.Release;
 import com.moji.musicdistribution.domain.events.ReleasePublished;
 import com.moji.musicdistribution.domain.repositories.ReleaseRepository;
 import com.moji.musicdistribution.eventstore.EventStore;
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
 
 /**
  * Handler for the PublishRelease command
@@ -47,4 +53,83 @@ public class PublishHandler {
         ReleasePublished event = ReleasePublished.fromRelease(release);
         eventStore.store(event);
     }
+
+    /**
+     * Handle the PublishReleases command in one transaction
+     * Releases that are missing, not approved or not yet due are left out and reported with
+     * the reason; the others are published and their events appended as one group once the
+     * transaction commits. The event store does not roll back, so a batch that fails at flush
+     * or commit leaves no events behind for releases that are then published one by one.
+     */
+    @Transactional
+    public BatchResult handleAll(PublishReleases command) {
+        Map<UUID, Release> releases = new HashMap<>();
+        for (Release release : releaseRepository.findAllById(command.getReleaseIds())) {
+            releases.put(release.getId(), release);
+        }
+
+        List<Release> published = new ArrayList<>(releases.size());
+        Map<UUID, String> failures = new LinkedHashMap<>();
+        for (UUID releaseId : command.getReleaseIds()) {
+            Release release = releases.get(releaseId);
+            if (release == null) {
+                failures.put(releaseId, "Release not found");
+            } else if (release.getApprovedReleaseDate() == null) {
+                failures.put(releaseId, "Release has no approved date");
+            } else if (release.getApprovedReleaseDate().isAfter(command.getCurrentDate())) {
+                failures.put(releaseId, "Approved release date has not been reached yet");
+            } else {
+                try {
+                    release.publish(command.getCurrentDate());
+                    published.add(release);
+                } catch (IllegalStateException e) {
+                    failures.put(releaseId, e.getMessage());
+                }
+            }
+        }
+
+        releaseRepository.saveAll(published);
+
+        List<ReleasePublished> events = new ArrayList<>(published.size());
+        for (Release release : published) {
+            events.add(ReleasePublished.fromRelease(release));
+        }
+        storeAfterCommit(events);
+
+        List<UUID> publishedIds = new ArrayList<>(published.size());
+        for (Release release : published) {
+            publishedIds.add(release.getId());
+        }
+        return new BatchResult(publishedIds, failures);
+    }
+
+    private void storeAfterCommit(List<ReleasePublished> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            eventStore.storeAll(events);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                eventStore.storeAll(events);
+            }
+        });
+    }
+
+    /**
+     * Outcome of a PublishReleases command
+     */
+    @Getter
+    public static class BatchResult {
+        private final List<UUID> published;
+        private final Map<UUID, String> failures; // release ID -> reason
+
+        public BatchResult(List<UUID> published, Map<UUID, String> failures) {
+            this.published = List.copyOf(published);
+            this.failures = Collections.unmodifiableMap(new LinkedHashMap<>(failures));
+        }
+    }
 }
\ No newline at end of file
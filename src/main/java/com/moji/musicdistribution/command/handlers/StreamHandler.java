@@ -1,22 +1,25 @@
 package com.moji.musicdistribution.command.handlers;
 
 import com.moji.musicdistribution.command.commands.RecordStream;
-import com.moji.musicdistribution.domain.aggregates.Release;
+import com.moji.musicdistribution.command.commands.RecordStreams;
 import com.moji.musicdistribution.domain.aggregates.Song;
 import com.moji.musicdistribution.domain.aggregates.Stream;
+import com.moji.musicdistribution.domain.events.DomainEvent;
 import com.moji.musicdistribution.domain.events.StreamMonetized;
 import com.moji.musicdistribution.domain.events.StreamRecorded;
-import com.moji.musicdistribution.domain.repositories.ReleaseRepository;
+import com.moji.musicdistribution.domain.ids.UuidV7;
+import com.moji.musicdistribution.domain.repositories.SongReleaseIndex;
 import com.moji.musicdistribution.domain.repositories.SongRepository;
 import com.moji.musicdistribution.domain.repositories.StreamRepository;
 import com.moji.musicdistribution.eventstore.EventStore;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
-import java.util.List;
-import java.util.UUID;
+import java.util.*;
 
 /**
  * Handler for the RecordStream command
@@ -25,7 +28,7 @@ import java.util.UUID;
 @RequiredArgsConstructor
 public class StreamHandler {
     private final SongRepository songRepository;
-    private final ReleaseRepository releaseRepository;
+    private final SongReleaseIndex songReleaseIndex;
     private final StreamRepository streamRepository;
     private final EventStore eventStore;
 
@@ -38,28 +41,86 @@ public class StreamHandler {
         Song song = songRepository.findById(command.getSongId())
                 .orElseThrow(() -> new IllegalArgumentException("Song not found"));
 
-        // 2. Find releases containing the song
-        List<Release> releases = releaseRepository.findBySongId(command.getSongId());
+        // 2. Verify that the song is available for streaming (in a published release)
+        if (!songReleaseIndex.isPublished(command.getSongId())) {
+            throw new IllegalStateException("Song is not available for streaming");
+        }
 
-        // 3. Verify that the song is available for streaming (in a published release)
-        boolean isAvailableForStreaming = releases.stream()
-                .anyMatch(Release::isPublished);
+        // 3. Create and save the stream
+        Stream stream = createStream(command, song);
+        streamRepository.save(stream);
 
-        if (!isAvailableForStreaming) {
-            throw new IllegalStateException("Song is not available for streaming");
+        // 4. Publish the StreamRecorded (and StreamMonetized) events
+        publishEvents(command, stream, song);
+    }
+
+    /**
+     * Handle the RecordStreams command: a batch of streams in one transaction
+     * Songs are loaded once per batch and the streams are saved together, so Hibernate sends
+     * the inserts as JDBC batches. The whole batch is rejected if any stream is invalid.
+     * The events are appended once the inserts have committed, so a failed commit publishes nothing.
+     */
+    @Transactional
+    public void handleAll(RecordStreams batch) {
+        List<RecordStream> commands = batch.getStreams();
+        Set<UUID> songIds = new HashSet<>();
+        for (RecordStream command : commands) {
+            songIds.add(command.getSongId());
+        }
+        Map<UUID, Song> songs = new HashMap<>();
+        for (Song song : songRepository.findAllById(songIds)) {
+            songs.put(song.getId(), song);
+        }
+
+        List<Stream> streams = new ArrayList<>(commands.size());
+        for (RecordStream command : commands) {
+            Song song = songs.get(command.getSongId());
+            if (song == null) {
+                throw new IllegalArgumentException("Song not found");
+            }
+            if (!songReleaseIndex.isPublished(command.getSongId())) {
+                throw new IllegalStateException("Song is not available for streaming");
+            }
+            streams.add(createStream(command, song));
+        }
+        streamRepository.saveAll(streams);
+
+        List<DomainEvent> events = new ArrayList<>(commands.size() * 2);
+        for (int i = 0; i < commands.size(); i++) {
+            RecordStream command = commands.get(i);
+            addEvents(command, streams.get(i), songs.get(command.getSongId()), events);
+        }
+        storeAfterCommit(events);
+    }
+
+    private void storeAfterCommit(List<DomainEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            eventStore.storeAll(events);
+            return;
         }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                eventStore.storeAll(events);
+            }
+        });
+    }
 
-        // 4. Create and save the stream
-        Stream stream = new Stream(
-                UUID.randomUUID(),
+    private Stream createStream(RecordStream command, Song song) {
+        return new Stream(
+                UuidV7.next(),
                 command.getSongId(),
+                song.getArtistId(),
                 command.getUserId(),
                 command.getStreamTimestamp(),
                 command.getDuration()
         );
-        streamRepository.save(stream);
+    }
 
-        // 5. Publish the StreamRecorded event
+    private void publishEvents(RecordStream command, Stream stream, Song song) {
         StreamRecorded streamRecordedEvent = StreamRecorded.fromStream(
                 stream,
                 song.getArtistId(),
@@ -67,7 +128,7 @@ public class StreamHandler {
         );
         eventStore.store(streamRecordedEvent);
 
-        // 6. If the stream is monetizable, publish the StreamMonetized event
+        // If the stream is monetizable, publish the StreamMonetized event
         if (command.isMonetizable()) {
             // In a real system, the monetization amount would be calculated based on business rules
             BigDecimal monetizationAmount = calculateMonetizationAmount(stream.getDuration());
@@ -80,6 +141,21 @@ public class StreamHandler {
         }
     }
 
+    private void addEvents(RecordStream command, Stream stream, Song song, List<DomainEvent> events) {
+        StreamRecorded streamRecordedEvent = StreamRecorded.fromStream(
+                stream,
+                song.getArtistId(),
+                song.getTitle()
+        );
+        events.add(streamRecordedEvent);
+        if (command.isMonetizable()) {
+            events.add(StreamMonetized.fromStreamRecorded(
+                    streamRecordedEvent,
+                    calculateMonetizationAmount(stream.getDuration())
+            ));
+        }
+    }
+
     /**
      * Calculate the monetization amount for a stream
      * In a real system, this would implement complex business rules
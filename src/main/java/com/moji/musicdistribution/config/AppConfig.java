@@ -18,11 +18,19 @@ public class AppConfig {
     // Use Spring's event multicaster for asynchronous event handling
     @Bean
     public ApplicationEventMulticaster applicationEventMulticaster() {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor();
+        executor.setTaskDecorator(eventDispatchTracker());
         SimpleApplicationEventMulticaster eventMulticaster = new SimpleApplicationEventMulticaster();
-        eventMulticaster.setTaskExecutor(new SimpleAsyncTaskExecutor());
+        eventMulticaster.setTaskExecutor(executor);
         return eventMulticaster;
     }
 
+    // Backlog of the multicaster's listener invocations, exported as metrics
+    @Bean
+    public EventDispatchTracker eventDispatchTracker() {
+        return new EventDispatchTracker();
+    }
+
     // Clock bean for consistent time handling
     @Bean
     public Clock clock() {
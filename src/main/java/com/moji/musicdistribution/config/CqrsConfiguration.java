@@ -3,6 +3,7 @@ package com.moji.musicdistribution.config;
 import com.moji.musicdistribution.command.CommandBus;
 import com.moji.musicdistribution.command.commands.*;
 import com.moji.musicdistribution.command.handlers.*;
+import com.moji.musicdistribution.monitoring.HotPathMetrics;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableScheduling;
@@ -26,12 +27,14 @@ public class CqrsConfiguration {
             PublishHandler publishHandler,
             StreamHandler streamHandler,
             PaymentReportHandler paymentReportHandler,
-            WithdrawHandler withdrawHandler
+            WithdrawHandler withdrawHandler,
+            HotPathMetrics hotPathMetrics
     ) {
-        CommandBus commandBus = new CommandBus();
+        CommandBus commandBus = new CommandBus(hotPathMetrics);
 
         // Register handlers that return results
         commandBus.register(CreateRelease.class, createReleaseHandler::handle);
+        commandBus.register(PublishReleases.class, publishHandler::handleAll);
 
         // Register void handlers
         commandBus.register(AddSongsToRelease.class, addSongsHandler::handle);
@@ -39,6 +42,7 @@ public class CqrsConfiguration {
         commandBus.register(ApproveReleaseDate.class, approveDateHandler::handle);
         commandBus.register(PublishRelease.class, publishHandler::handle);
         commandBus.register(RecordStream.class, streamHandler::handle);
+        commandBus.register(RecordStreams.class, streamHandler::handleAll);
         commandBus.register(RequestPaymentReport.class, paymentReportHandler::handle);
         commandBus.register(WithdrawRelease.class, withdrawHandler::handle);
 
@@ -0,0 +1,54 @@
+package com.moji.musicdistribution.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.core.task.TaskDecorator;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the listener invocations handed to the event multicaster's executor that have not
+ * finished yet
+ * <p>
+ * Every listener of every published event is one task, so this is the dispatcher's backlog.
+ * It is created with the multicaster, before the meter registry exists, and bound to the
+ * registry as a {@link MeterBinder}.
+ */
+public class EventDispatchTracker implements TaskDecorator, MeterBinder {
+
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicLong dispatched = new AtomicLong();
+
+    @Override
+    public Runnable decorate(Runnable runnable) {
+        pending.incrementAndGet();
+        dispatched.incrementAndGet();
+        return () -> {
+            try {
+                runnable.run();
+            } finally {
+                pending.decrementAndGet();
+            }
+        };
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("events.dispatch.pending", pending, AtomicInteger::get)
+                .description("Event listener invocations queued or running")
+                .register(registry);
+        FunctionCounter.builder("events.dispatch.tasks", dispatched, AtomicLong::get)
+                .description("Event listener invocations dispatched")
+                .register(registry);
+    }
+
+    /**
+     * Listener invocations queued or running
+     */
+    public int getPending() {
+        return pending.get();
+    }
+}
@@ -3,6 +3,8 @@ package com.moji.musicdistribution.domain.aggregates;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.UUID;
 
@@ -11,6 +13,8 @@ import java.util.UUID;
  */
 @Entity
 @Table(name = "artists")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Getter
 @NoArgsConstructor // Required by JPA
 public class Artist {
@@ -1,8 +1,11 @@
 package com.moji.musicdistribution.domain.aggregates;
 
 import jakarta.persistence.*;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.time.LocalDate;
 import java.util.HashSet;
@@ -14,6 +17,8 @@ import java.util.UUID;
  */
 @Entity
 @Table(name = "releases")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Getter
 @NoArgsConstructor // Required by JPA
 public class Release {
@@ -27,10 +32,17 @@ public class Release {
     private UUID artistId;
 
     @ElementCollection
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     @CollectionTable(name = "release_songs", joinColumns = @JoinColumn(name = "release_id"))
     @Column(name = "song_id")
     private Set<UUID> songIds = new HashSet<>();
 
+    // Reverse index of songIds with the current status, for song availability lookups
+    @OneToMany(cascade = CascadeType.ALL, orphanRemoval = true)
+    @JoinColumn(name = "release_id", insertable = false, updatable = false)
+    @Getter(AccessLevel.NONE)
+    private Set<SongRelease> songReleases = new HashSet<>();
+
     @Column(name = "proposed_release_date")
     private LocalDate proposedReleaseDate;
 
@@ -52,6 +64,7 @@ public class Release {
         this.title = title;
         this.artistId = artistId;
         this.songIds = new HashSet<>();
+        this.songReleases = new HashSet<>();
         this.status = ReleaseStatus.DRAFT;
     }
 
@@ -62,7 +75,11 @@ public class Release {
         if (status == ReleaseStatus.WITHDRAWN) {
             throw new IllegalStateException("Cannot add songs to a withdrawn release");
         }
-        this.songIds.addAll(newSongIds);
+        for (UUID songId : newSongIds) {
+            if (this.songIds.add(songId)) {
+                this.songReleases.add(new SongRelease(songId, id, status));
+            }
+        }
     }
 
     /**
@@ -73,7 +90,7 @@ public class Release {
             throw new IllegalStateException("Cannot propose release date for a withdrawn release");
         }
         this.proposedReleaseDate = date;
-        this.status = ReleaseStatus.PROPOSED;
+        changeStatus(ReleaseStatus.PROPOSED);
     }
 
     /**
@@ -84,7 +101,7 @@ public class Release {
             throw new IllegalStateException("Cannot approve date for a release that hasn't been proposed");
         }
         this.approvedReleaseDate = date;
-        this.status = ReleaseStatus.APPROVED;
+        changeStatus(ReleaseStatus.APPROVED);
     }
 
     /**
@@ -98,7 +115,7 @@ public class Release {
             throw new IllegalStateException("Cannot publish a release before its approved date");
         }
         this.publishedDate = currentDate;
-        this.status = ReleaseStatus.PUBLISHED;
+        changeStatus(ReleaseStatus.PUBLISHED);
     }
 
     /**
@@ -108,7 +125,14 @@ public class Release {
         if (status != ReleaseStatus.PUBLISHED) {
             throw new IllegalStateException("Only published releases can be withdrawn");
         }
-        this.status = ReleaseStatus.WITHDRAWN;
+        changeStatus(ReleaseStatus.WITHDRAWN);
+    }
+
+    private void changeStatus(ReleaseStatus newStatus) {
+        this.status = newStatus;
+        for (SongRelease songRelease : songReleases) {
+            songRelease.updateStatus(newStatus);
+        }
     }
 
     /**
@@ -0,0 +1,61 @@
+package com.moji.musicdistribution.domain.aggregates;
+
+import com.moji.musicdistribution.domain.repositories.SongReleaseListener;
+import jakarta.persistence.*;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.UUID;
+
+/**
+ * Reverse index row of a release's songs: one song in one release, with the release's status
+ * Owned and kept in step by {@link Release}; keyed by song first so looking up the releases
+ * of a song reads one index range instead of joining the release_songs collection table.
+ */
+@Entity
+@Table(name = "song_releases")
+@IdClass(SongRelease.Key.class)
+@EntityListeners(SongReleaseListener.class)
+@Getter
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+@NoArgsConstructor // Required by JPA
+public class SongRelease {
+    @Id
+    @Column(name = "song_id")
+    @EqualsAndHashCode.Include
+    private UUID songId;
+
+    @Id
+    @Column(name = "release_id")
+    @EqualsAndHashCode.Include
+    private UUID releaseId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Release.ReleaseStatus status;
+
+    /**
+     * Create a reverse index row; releases create their own as songs are added
+     */
+    public SongRelease(UUID songId, UUID releaseId, Release.ReleaseStatus status) {
+        this.songId = songId;
+        this.releaseId = releaseId;
+        this.status = status;
+    }
+
+    void updateStatus(Release.ReleaseStatus status) {
+        this.status = status;
+    }
+
+    /**
+     * Composite primary key (song_id, release_id)
+     */
+    @EqualsAndHashCode
+    @NoArgsConstructor
+    public static class Key implements Serializable {
+        private UUID songId;
+        private UUID releaseId;
+    }
+}
@@ -1,27 +1,48 @@
 package com.moji.musicdistribution.domain.aggregates;
 
 import jakarta.persistence.*;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Persistable;
 
 import java.time.Duration;
 import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
 import java.util.UUID;
 
 /**
  * Stream entity - represents a single stream/play of a song
+ * Streams are insert-only and carry assigned IDs, so the entity reports itself as new until it
+ * has been persisted or loaded; saving one is then a plain (batchable) insert rather than a
+ * merge that first selects the row.
  */
 @Entity
-@Table(name = "streams")
+@Table(name = "streams", indexes = {
+        @Index(name = "idx_streams_artist_timestamp", columnList = "artist_id, timestamp"),
+        @Index(name = "idx_streams_artist_monetized_timestamp", columnList = "artist_id, monetized, timestamp"),
+        @Index(name = "idx_streams_song_timestamp", columnList = "song_id, timestamp")
+})
 @Getter
 @NoArgsConstructor // Required by JPA
-public class Stream {
+public class Stream implements Persistable<UUID> {
     @Id
     private UUID id;
 
     @Column(name = "song_id", nullable = false)
     private UUID songId;
 
+    // Denormalised from the song so artist queries need no join; nullable only until
+    // StreamBackfill has filled rows written before the column existed
+    @Column(name = "artist_id")
+    private UUID artistId;
+
+    // Month (yyyyMM, UTC) the stream is retained and archived with; see periodOf. Nullable only until
+    // StreamBackfill has filled rows written before the column existed
+    @Column(name = "period")
+    private Integer period;
+
     @Column(name = "user_id", nullable = false)
     private UUID userId;
 
@@ -38,23 +59,35 @@ public class Stream {
     @Transient
     private Duration duration;
 
+    @Transient
+    @Getter(AccessLevel.NONE)
+    private boolean persisted;
+
     @PostLoad
     private void loadDuration() {
         this.duration = Duration.ofSeconds(this.durationSeconds);
+        this.persisted = true;
+    }
+
+    @PostPersist
+    private void markPersisted() {
+        this.persisted = true;
     }
 
     /**
      * Create a new stream record
      */
-    public Stream(UUID id, UUID songId, UUID userId, Instant timestamp, Duration duration) {
+    public Stream(UUID id, UUID songId, UUID artistId, UUID userId, Instant timestamp, Duration duration) {
         if (duration == null || duration.isNegative()) {
             throw new IllegalArgumentException("Stream duration cannot be negative");
         }
 
         this.id = id;
         this.songId = songId;
+        this.artistId = artistId;
         this.userId = userId;
         this.timestamp = timestamp;
+        this.period = periodOf(timestamp);
         this.duration = duration;
         this.durationSeconds = duration.getSeconds();
 
@@ -62,6 +95,15 @@ public class Stream {
         this.monetized = duration.getSeconds() > 30;
     }
 
+    /**
+     * Month period of a timestamp, as yyyyMM in UTC
+     * Streams are retained and archived a whole period at a time
+     */
+    public static int periodOf(Instant timestamp) {
+        LocalDate date = LocalDate.ofInstant(timestamp, ZoneOffset.UTC);
+        return date.getYear() * 100 + date.getMonthValue();
+    }
+
     /**
      * Get the stream duration
      */
@@ -79,6 +121,11 @@ public class Stream {
         return monetized;
     }
 
+    @Override
+    public boolean isNew() {
+        return !persisted;
+    }
+
     /**
      * Get the date of this stream (for reporting purposes)
      */
@@ -1,22 +1,39 @@
 package com.moji.musicdistribution.domain.events;
 
+import com.moji.musicdistribution.domain.ids.UuidV7;
 import lombok.Getter;
 
+import java.io.Serial;
+import java.io.Serializable;
 import java.util.UUID;
 
 /**
  * Base implementation of DomainEvent that provides common fields for all events.
+ * Events are serializable so that the event store can journal them; the sequence is not
+ * written, as it is the event's position in the journal.
  */
 @Getter
-public abstract class BaseDomainEvent implements DomainEvent {
+public abstract class BaseDomainEvent implements DomainEvent, Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
 
     private final UUID id;
     private final long timestamp;
     private final UUID aggregateId;
+    private transient volatile long sequence;
 
     protected BaseDomainEvent(UUID aggregateId) {
-        this.id = UUID.randomUUID();
+        this.id = UuidV7.next();
         this.timestamp = System.currentTimeMillis();
         this.aggregateId = aggregateId;
     }
+
+    @Override
+    public void assignSequence(long sequence) {
+        if (this.sequence != 0) {
+            throw new IllegalStateException("Event has already been stored");
+        }
+        this.sequence = sequence;
+    }
 }
\ No newline at end of file
@@ -27,4 +27,18 @@ public interface DomainEvent {
      * @return The aggregate ID
      */
     UUID getAggregateId();
+
+    /**
+     * Get the position of this event in the event store
+     *
+     * @return The sequence number, or 0 if the event has not been stored yet
+     */
+    long getSequence();
+
+    /**
+     * Assign the position of this event in the event store; called once by the store
+     *
+     * @param sequence The sequence number
+     */
+    void assignSequence(long sequence);
 }
\ No newline at end of file
@@ -2,6 +2,7 @@ package com.moji.musicdistribution.domain.events;
 
 import lombok.Getter;
 
+import java.io.Serial;
 import java.time.Instant;
 import java.util.UUID;
 
@@ -10,6 +11,10 @@ import java.util.UUID;
  */
 @Getter
 public class PaymentReportRequested extends BaseDomainEvent {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
     private final UUID artistId;
     private final String artistName;
     private final Instant fromDate;
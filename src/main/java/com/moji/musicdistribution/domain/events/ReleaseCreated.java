@@ -2,6 +2,7 @@ package com.moji.musicdistribution.domain.events;
 
 import lombok.Getter;
 
+import java.io.Serial;
 import java.util.UUID;
 
 /**
@@ -9,6 +10,10 @@ import java.util.UUID;
  */
 @Getter
 public class ReleaseCreated extends BaseDomainEvent {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
     private final String title;
     private final UUID artistId;
 
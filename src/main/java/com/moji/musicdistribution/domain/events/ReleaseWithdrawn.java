@@ -3,6 +3,7 @@ package com.moji.musicdistribution.domain.events;
 import com.moji.musicdistribution.domain.aggregates.Release;
 import lombok.Getter;
 
+import java.io.Serial;
 import java.util.Set;
 import java.util.UUID;
 
@@ -11,6 +12,10 @@ import java.util.UUID;
  */
 @Getter
 public class ReleaseWithdrawn extends BaseDomainEvent {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
     private final String releaseTitle;
     private final UUID artistId;
     private final Set<UUID> songIds;
@@ -2,6 +2,7 @@ package com.moji.musicdistribution.domain.events;
 
 import lombok.Getter;
 
+import java.io.Serial;
 import java.math.BigDecimal;
 import java.time.Duration;
 import java.time.Instant;
@@ -12,6 +13,10 @@ import java.util.UUID;
  */
 @Getter
 public class StreamMonetized extends BaseDomainEvent {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
     private final UUID songId;
     private final UUID artistId;
     private final Instant streamTimestamp; // Renamed to avoid conflict
@@ -3,6 +3,7 @@ package com.moji.musicdistribution.domain.events;
 import com.moji.musicdistribution.domain.aggregates.Stream;
 import lombok.Getter;
 
+import java.io.Serial;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.UUID;
@@ -12,6 +13,10 @@ import java.util.UUID;
  */
 @Getter
 public class StreamRecorded extends BaseDomainEvent {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
     private final UUID songId;
     private final UUID userId;
     private final Instant streamTimestamp; // Renamed to avoid conflict
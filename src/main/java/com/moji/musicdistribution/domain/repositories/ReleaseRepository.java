@@ -1,8 +1,11 @@
 package com.moji.musicdistribution.domain.repositories;
 
 import com.moji.musicdistribution.domain.aggregates.Release;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
@@ -10,6 +13,8 @@ import java.time.LocalDate;
 import java.util.List;
 import java.util.UUID;
 
+import static org.hibernate.jpa.HibernateHints.HINT_CACHEABLE;
+
 /**
  * Repository for Release aggregates
  */
@@ -18,17 +23,38 @@ public interface ReleaseRepository extends JpaRepository<Release, UUID> {
     /**
      * Find all releases by artist ID
      */
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
     List<Release> findByArtistId(UUID artistId);
 
     /**
-     * Find all releases containing a specific song
+     * Find all releases containing a specific song, through the song_releases reverse index
+     * Callers that only need availability should use {@link SongReleaseIndex} instead
      */
-    @Query("SELECT r FROM Release r WHERE :songId MEMBER OF r.songIds")
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    @Query("SELECT r FROM Release r WHERE r.id IN " +
+            "(SELECT sr.releaseId FROM SongRelease sr WHERE sr.songId = :songId)")
     List<Release> findBySongId(@Param("songId") UUID songId);
 
     /**
-     * Find all releases with an approved date that has been reached
+     * First page of approved releases, whether or not their date has been reached, by ID
+     */
+    @Query("SELECT r.id AS id, r.approvedReleaseDate AS approvedReleaseDate FROM Release r " +
+            "WHERE r.status = 'APPROVED' ORDER BY r.id")
+    List<ApprovedRelease> findFirstApprovedReleases(Pageable pageable);
+
+    /**
+     * Next page of approved releases after the given release ID (keyset pagination)
      */
-    @Query("SELECT r FROM Release r WHERE r.status = 'APPROVED' AND r.approvedReleaseDate <= :currentDate")
-    List<Release> findReleasesReadyForPublishing(@Param("currentDate") LocalDate currentDate);
+    @Query("SELECT r.id AS id, r.approvedReleaseDate AS approvedReleaseDate FROM Release r " +
+            "WHERE r.status = 'APPROVED' AND r.id > :afterId ORDER BY r.id")
+    List<ApprovedRelease> findApprovedReleasesAfter(@Param("afterId") UUID afterId, Pageable pageable);
+
+    /**
+     * ID and approved date of an approved release
+     */
+    interface ApprovedRelease {
+        UUID getId();
+
+        LocalDate getApprovedReleaseDate();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,133 @@
+package com.moji.musicdistribution.domain.repositories;
+
+import com.moji.musicdistribution.domain.aggregates.Release;
+import com.moji.musicdistribution.domain.aggregates.SongRelease;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-through cache of the song to release reverse index
+ * <p>
+ * Answers which releases contain a song, and whether any of them is published, with one hash
+ * lookup and without loading {@link Release} entities or their song collections. Misses read
+ * the indexed song_releases table. {@link SongReleaseListener} invalidates a song whenever one
+ * of its rows is written; a load that overlaps an invalidation is not cached.
+ */
+@Component
+public class SongReleaseIndex {
+
+    private final SongReleaseRepository songReleaseRepository;
+    private final int maxEntries;
+    private final ConcurrentHashMap<UUID, List<ReleaseState>> releasesBySong = new ConcurrentHashMap<>();
+
+    // Bumped on every invalidation so loads that overlap one are discarded
+    private final AtomicLong epoch = new AtomicLong();
+
+    public SongReleaseIndex(SongReleaseRepository songReleaseRepository,
+                            @Value("${catalog.song-release-index.max-entries:100000}") int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("Song release index must hold at least 1 entry");
+        }
+        this.songReleaseRepository = songReleaseRepository;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Releases containing the song, with their current status
+     */
+    public List<ReleaseState> releasesOf(UUID songId) {
+        List<ReleaseState> cached = releasesBySong.get(songId);
+        if (cached != null) {
+            return cached;
+        }
+
+        long loadEpoch = epoch.get();
+        List<ReleaseState> loaded = songReleaseRepository.findBySongId(songId).stream()
+                .map(ReleaseState::of)
+                .toList();
+        if (releasesBySong.size() >= maxEntries) {
+            evictOne();
+        }
+        releasesBySong.put(songId, loaded);
+        if (epoch.get() != loadEpoch) {
+            // Invalidated while loading; the rows read may already be stale
+            releasesBySong.remove(songId, loaded);
+        }
+        return loaded;
+    }
+
+    /**
+     * Whether the song is in at least one published release, and so can be streamed
+     */
+    public boolean isPublished(UUID songId) {
+        for (ReleaseState release : releasesOf(songId)) {
+            if (release.getStatus() == Release.ReleaseStatus.PUBLISHED) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Drop the cached releases of a song
+     */
+    public void invalidate(UUID songId) {
+        epoch.incrementAndGet();
+        releasesBySong.remove(songId);
+    }
+
+    /**
+     * Drop every cached song, after rows were written without going through the entity listener
+     */
+    public void clear() {
+        epoch.incrementAndGet();
+        releasesBySong.clear();
+    }
+
+    /**
+     * Number of songs cached
+     */
+    public int size() {
+        return releasesBySong.size();
+    }
+
+    private void evictOne() {
+        // Approximate bound: any entry will do, the index is cheap to reload
+        Iterator<UUID> it = releasesBySong.keySet().iterator();
+        if (it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    /**
+     * A release containing a song, and the release's status
+     */
+    public static final class ReleaseState {
+        private final UUID releaseId;
+        private final Release.ReleaseStatus status;
+
+        ReleaseState(UUID releaseId, Release.ReleaseStatus status) {
+            this.releaseId = releaseId;
+            this.status = status;
+        }
+
+        static ReleaseState of(SongRelease songRelease) {
+            return new ReleaseState(songRelease.getReleaseId(), songRelease.getStatus());
+        }
+
+        public UUID getReleaseId() {
+            return releaseId;
+        }
+
+        public Release.ReleaseStatus getStatus() {
+            return status;
+        }
+    }
+}
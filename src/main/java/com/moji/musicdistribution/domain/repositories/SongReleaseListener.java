@@ -0,0 +1,45 @@
+package com.moji.musicdistribution.domain.repositories;
+
+import com.moji.musicdistribution.domain.aggregates.SongRelease;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * JPA entity listener that keeps {@link SongReleaseIndex} in step with writes to the reverse
+ * index, however the owning release was saved
+ * <p>
+ * The song is invalidated when the row is flushed and again once the transaction commits, so
+ * a lookup that read the old row before the commit cannot leave it cached. Created by
+ * Hibernate through Spring, which is why the index is looked up lazily rather than injected.
+ */
+public class SongReleaseListener {
+
+    private final ObjectProvider<SongReleaseIndex> songReleaseIndex;
+
+    public SongReleaseListener(ObjectProvider<SongReleaseIndex> songReleaseIndex) {
+        this.songReleaseIndex = songReleaseIndex;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    void onWrite(SongRelease songRelease) {
+        SongReleaseIndex index = songReleaseIndex.getIfAvailable();
+        if (index == null) {
+            return;
+        }
+        index.invalidate(songRelease.getSongId());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    index.invalidate(songRelease.getSongId());
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.moji.musicdistribution.domain.repositories;
+
+import com.moji.musicdistribution.domain.aggregates.SongRelease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Repository for the song to release reverse index
+ * Rows are written through {@link com.moji.musicdistribution.domain.aggregates.Release}; read
+ * availability through {@link SongReleaseIndex}, which caches it.
+ */
+@Repository
+public interface SongReleaseRepository extends JpaRepository<SongRelease, SongRelease.Key> {
+    /**
+     * Find the releases containing a song, with their status
+     */
+    List<SongRelease> findBySongId(UUID songId);
+
+    /**
+     * Add the rows missing for songs added to releases before the index existed
+     *
+     * @return the number of rows added
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO song_releases (song_id, release_id, status) " +
+            "SELECT rs.song_id, r.id, r.status FROM release_songs rs JOIN releases r ON r.id = rs.release_id " +
+            "WHERE NOT EXISTS (SELECT 1 FROM song_releases sr " +
+            "WHERE sr.song_id = rs.song_id AND sr.release_id = rs.release_id)", nativeQuery = true)
+    int backfill();
+}
@@ -1,12 +1,16 @@
 package com.moji.musicdistribution.domain.repositories;
 
 import com.moji.musicdistribution.domain.aggregates.Song;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 import java.util.UUID;
 
+import static org.hibernate.jpa.HibernateHints.HINT_CACHEABLE;
+
 /**
  * Repository for Song entities
  */
@@ -15,5 +19,6 @@ public interface SongRepository extends JpaRepository<Song, UUID> {
     /**
      * Find all songs by artist ID
      */
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
     List<Song> findByArtistId(UUID artistId);
 }
\ No newline at end of file
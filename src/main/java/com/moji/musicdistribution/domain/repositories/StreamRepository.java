@@ -1,20 +1,34 @@
 package com.moji.musicdistribution.domain.repositories;
 
 import com.moji.musicdistribution.domain.aggregates.Stream;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
+
 /**
  * Repository for Stream entities
  */
 @Repository
 public interface StreamRepository extends JpaRepository<Stream, UUID> {
+    /**
+     * Rows fetched per round trip when streaming exports
+     */
+    int EXPORT_FETCH_SIZE = 500;
+
     /**
      * Find all streams for a specific song
      */
@@ -23,18 +37,208 @@ public interface StreamRepository extends JpaRepository<Stream, UUID> {
     /**
      * Find all streams for songs by a specific artist
      */
-    @Query("SELECT s FROM Stream s JOIN Song song ON s.songId = song.id WHERE song.artistId = :artistId")
+    @Query("SELECT s FROM Stream s WHERE s.artistId = :artistId")
     List<Stream> findByArtistId(@Param("artistId") UUID artistId);
 
     /**
      * Find all monetizable streams (longer than 30 seconds) for a specific artist within a date range
      */
-    @Query("SELECT s FROM Stream s JOIN Song song ON s.songId = song.id " +
-            "WHERE song.artistId = :artistId " +
+    @Query("SELECT s FROM Stream s " +
+            "WHERE s.artistId = :artistId " +
             "AND s.monetized = true " +
             "AND s.timestamp BETWEEN :fromDate AND :toDate")
     List<Stream> findMonetizableStreamsByArtistAndDateRange(
             @Param("artistId") UUID artistId,
             @Param("fromDate") Instant fromDate,
             @Param("toDate") Instant toDate);
-}
\ No newline at end of file
+
+    /**
+     * Count the streams of each of an artist's songs, split by monetization
+     */
+    @Query("SELECT s.songId AS songId, s.monetized AS monetized, COUNT(s) AS streamCount " +
+            "FROM Stream s " +
+            "WHERE s.artistId = :artistId " +
+            "GROUP BY s.songId, s.monetized")
+    List<SongStreamCount> countStreamsByArtist(@Param("artistId") UUID artistId);
+
+    /**
+     * Count the streams of each of an artist's songs within a date range, split by monetization
+     */
+    @Query("SELECT s.songId AS songId, s.monetized AS monetized, COUNT(s) AS streamCount " +
+            "FROM Stream s " +
+            "WHERE s.artistId = :artistId " +
+            "AND s.timestamp BETWEEN :fromDate AND :toDate " +
+            "GROUP BY s.songId, s.monetized")
+    List<SongStreamCount> countStreamsByArtistAndDateRange(
+            @Param("artistId") UUID artistId,
+            @Param("fromDate") Instant fromDate,
+            @Param("toDate") Instant toDate);
+
+    /**
+     * Count and total the duration of the monetized streams of each of an artist's songs within
+     * a date range
+     */
+    @Query("SELECT s.songId AS songId, COUNT(s) AS streamCount, SUM(s.durationSeconds) AS totalDurationSeconds " +
+            "FROM Stream s " +
+            "WHERE s.artistId = :artistId " +
+            "AND s.monetized = true " +
+            "AND s.timestamp BETWEEN :fromDate AND :toDate " +
+            "GROUP BY s.songId")
+    List<SongStreamTotals> sumMonetizedStreamsBySong(
+            @Param("artistId") UUID artistId,
+            @Param("fromDate") Instant fromDate,
+            @Param("toDate") Instant toDate);
+
+    /**
+     * Count and total the duration of an artist's streams per calendar day within a date range,
+     * oldest day first
+     */
+    @Query("SELECT extract(date from s.timestamp) AS streamDate, COUNT(s) AS streamCount, " +
+            "SUM(CASE WHEN s.monetized = true THEN 1 ELSE 0 END) AS monetizedCount, " +
+            "SUM(s.durationSeconds) AS totalDurationSeconds " +
+            "FROM Stream s " +
+            "WHERE s.artistId = :artistId " +
+            "AND s.timestamp BETWEEN :fromDate AND :toDate " +
+            "GROUP BY extract(date from s.timestamp) " +
+            "ORDER BY extract(date from s.timestamp)")
+    List<DailyStreamTotals> sumStreamsByDay(
+            @Param("artistId") UUID artistId,
+            @Param("fromDate") Instant fromDate,
+            @Param("toDate") Instant toDate);
+
+    /**
+     * First page of a song's streams in (timestamp, id) order
+     */
+    @Query("SELECT s FROM Stream s WHERE s.songId = :songId ORDER BY s.timestamp, s.id")
+    List<Stream> findFirstStreamsOfSong(@Param("songId") UUID songId, Pageable page);
+
+    /**
+     * Page of a song's streams ordered after the given (timestamp, id) position
+     */
+    @Query("SELECT s FROM Stream s WHERE s.songId = :songId " +
+            "AND (s.timestamp > :timestamp OR (s.timestamp = :timestamp AND s.id > :id)) " +
+            "ORDER BY s.timestamp, s.id")
+    List<Stream> findStreamsOfSongAfter(
+            @Param("songId") UUID songId,
+            @Param("timestamp") Instant timestamp,
+            @Param("id") UUID id,
+            Pageable page);
+
+    /**
+     * Stream all of an artist's streams from a database cursor; must be consumed inside a
+     * transaction and closed
+     */
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "" + EXPORT_FETCH_SIZE),
+            @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT s FROM Stream s " +
+            "WHERE s.artistId = :artistId ORDER BY s.timestamp, s.id")
+    java.util.stream.Stream<Stream> streamByArtistId(@Param("artistId") UUID artistId);
+
+    /**
+     * Stream an artist's streams within a date range from a database cursor; must be consumed
+     * inside a transaction and closed
+     */
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "" + EXPORT_FETCH_SIZE),
+            @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT s FROM Stream s " +
+            "WHERE s.artistId = :artistId " +
+            "AND s.timestamp BETWEEN :fromDate AND :toDate ORDER BY s.timestamp, s.id")
+    java.util.stream.Stream<Stream> streamByArtistIdAndDateRange(
+            @Param("artistId") UUID artistId,
+            @Param("fromDate") Instant fromDate,
+            @Param("toDate") Instant toDate);
+
+    /**
+     * Stream every stream of a period in (timestamp, id) order from a database cursor; must be
+     * consumed inside a transaction and closed
+     */
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "" + EXPORT_FETCH_SIZE),
+            @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT s FROM Stream s WHERE s.period = :period ORDER BY s.timestamp, s.id")
+    java.util.stream.Stream<Stream> streamByPeriod(@Param("period") int period);
+
+    /**
+     * IDs of streams recorded before the artist ID and period were denormalised onto them
+     * Streams of deleted songs are only returned while their period is missing
+     */
+    @Query("SELECT s.id FROM Stream s WHERE s.period IS NULL OR (s.artistId IS NULL " +
+            "AND EXISTS (SELECT song.id FROM Song song WHERE song.id = s.songId))")
+    List<UUID> findIdsToBackfill(Pageable page);
+
+    /**
+     * Fill in the song's artist ID and the month period of the given streams
+     *
+     * @return the number of streams updated
+     */
+    @Modifying
+    @Query("UPDATE Stream s SET " +
+            "s.artistId = COALESCE(s.artistId, (SELECT song.artistId FROM Song song WHERE song.id = s.songId)), " +
+            "s.period = COALESCE(s.period, YEAR(s.timestamp) * 100 + MONTH(s.timestamp)) " +
+            "WHERE s.id IN :ids")
+    int backfill(@Param("ids") Collection<UUID> ids);
+
+    /**
+     * Periods holding streams older than the given period, oldest first
+     */
+    @Query("SELECT DISTINCT s.period FROM Stream s WHERE s.period < :period ORDER BY s.period")
+    List<Integer> findPeriodsBefore(@Param("period") int period);
+
+    /**
+     * Delete the given streams
+     *
+     * @return the number of streams deleted
+     */
+    @Modifying
+    @Query("DELETE FROM Stream s WHERE s.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<UUID> ids);
+
+    /**
+     * Delete every stream of a period
+     *
+     * @return the number of streams deleted
+     */
+    @Modifying
+    @Query("DELETE FROM Stream s WHERE s.period = :period")
+    int deleteByPeriod(@Param("period") int period);
+
+    /**
+     * Number of streams of one song with the given monetization
+     */
+    interface SongStreamCount {
+        UUID getSongId();
+
+        boolean isMonetized();
+
+        long getStreamCount();
+    }
+
+    /**
+     * Number and total duration of the streams of one song
+     */
+    interface SongStreamTotals {
+        UUID getSongId();
+
+        long getStreamCount();
+
+        long getTotalDurationSeconds();
+    }
+
+    /**
+     * Number and total duration of the streams on one calendar day
+     */
+    interface DailyStreamTotals {
+        LocalDate getStreamDate();
+
+        long getStreamCount();
+
+        long getMonetizedCount();
+
+        long getTotalDurationSeconds();
+    }
+}
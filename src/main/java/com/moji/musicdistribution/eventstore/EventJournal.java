@@ -0,0 +1,170 @@
+package com.moji.musicdistribution.eventstore;
+
+import com.moji.musicdistribution.domain.events.DomainEvent;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only file of the stored events, in sequence order
+ * <p>
+ * File layout (big-endian): magic and format version, then one record per event: body length,
+ * the serialized event, CRC32 of the body. A record cut short by a crash is dropped, with
+ * anything after it, when the journal is opened. Appends reach the operating system at once and
+ * the disk when the journal is closed, so the log survives a restart of the process; a power
+ * loss can lose its tail.
+ */
+@Slf4j
+final class EventJournal implements Closeable {
+
+    private static final int MAGIC = 0x45564A4C; // "EVJL"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 8;
+    private static final int MAX_RECORD_BYTES = 1 << 24;
+
+    // Only events and the JDK value types they hold are read back
+    private static final ObjectInputFilter EVENTS_ONLY = ObjectInputFilter.Config.createFilter(
+            "com.moji.musicdistribution.domain.events.*;java.base/*;!*");
+
+    private final FileChannel channel;
+
+    private EventJournal(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Open the journal, creating it if it does not exist, and read back the events it holds
+     *
+     * @param events receives the journaled events in sequence order
+     * @throws IOException if the file cannot be read or is not an event journal
+     */
+    static EventJournal open(Path path, List<DomainEvent> events) throws IOException {
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long end;
+            if (channel.size() == 0) {
+                write(channel, ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(VERSION).flip());
+                end = HEADER_BYTES;
+            } else {
+                end = read(channel, events);
+            }
+            if (end < channel.size()) {
+                log.warn("Dropping {} bytes of incomplete records at the end of the event journal {}",
+                        channel.size() - end, path);
+                channel.truncate(end);
+            }
+            channel.position(end);
+            return new EventJournal(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Serialize an event into a journal record body
+     */
+    static byte[] serialize(DomainEvent event) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(event);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Event cannot be serialized: " + event.getClass().getSimpleName(), e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Append serialized events in one write
+     */
+    void append(List<byte[]> records) throws IOException {
+        int size = 0;
+        for (byte[] record : records) {
+            size += Integer.BYTES + record.length + Long.BYTES;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        CRC32 crc = new CRC32();
+        for (byte[] record : records) {
+            crc.reset();
+            crc.update(record);
+            buffer.putInt(record.length).put(record).putLong(crc.getValue());
+        }
+        write(channel, buffer.flip());
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            channel.force(true);
+        } finally {
+            channel.close();
+        }
+    }
+
+    // Read every complete record and return the offset just after the last one
+    private static long read(FileChannel channel, List<DomainEvent> events) throws IOException {
+        channel.position(0);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), 1 << 16));
+        try {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not an event journal");
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported event journal version " + version);
+            }
+        } catch (EOFException e) {
+            throw new IOException("Not an event journal", e);
+        }
+
+        long end = HEADER_BYTES;
+        CRC32 crc = new CRC32();
+        while (true) {
+            byte[] record;
+            long checksum;
+            try {
+                int length = in.readInt();
+                if (length < 0 || length > MAX_RECORD_BYTES) {
+                    return end;
+                }
+                record = new byte[length];
+                in.readFully(record);
+                checksum = in.readLong();
+            } catch (EOFException e) {
+                return end;
+            }
+            crc.reset();
+            crc.update(record);
+            if (crc.getValue() != checksum) {
+                return end;
+            }
+            events.add(deserialize(record));
+            end += Integer.BYTES + record.length + Long.BYTES;
+        }
+    }
+
+    private static DomainEvent deserialize(byte[] record) throws IOException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(record))) {
+            in.setObjectInputFilter(EVENTS_ONLY);
+            return (DomainEvent) in.readObject();
+        } catch (ClassNotFoundException | ClassCastException | InvalidClassException e) {
+            throw new IOException("Journaled event cannot be read back", e);
+        }
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
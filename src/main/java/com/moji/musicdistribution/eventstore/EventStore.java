@@ -18,6 +18,14 @@ public interface EventStore {
      */
     void store(DomainEvent event);
 
+    /**
+     * Store a group of domain events as one append: they get consecutive sequence numbers,
+     * in list order, with no other event in between
+     *
+     * @param events The events to store
+     */
+    void storeAll(List<? extends DomainEvent> events);
+
     /**
      * Get all events for a specific aggregate
      *
@@ -41,4 +49,47 @@ public interface EventStore {
      * @return All stored events
      */
     List<DomainEvent> getAllEvents();
+
+    /**
+     * Get the events stored after the given sequence number, in order
+     *
+     * @param sequence The last sequence number already seen
+     * @return The later events
+     */
+    List<DomainEvent> getEventsAfter(long sequence);
+
+    /**
+     * Get at most limit events stored after the given sequence number, in order; used to read
+     * the log in batches
+     *
+     * @param sequence The last sequence number already seen
+     * @param limit    The maximum number of events to return
+     * @return The next events
+     */
+    List<DomainEvent> getEventsAfter(long sequence, int limit);
+
+    /**
+     * Get the sequence number of the most recently stored event
+     *
+     * @return The last sequence number, or 0 if no event has been stored
+     */
+    long getLastSequence();
+
+    /**
+     * Get the ID of the event stored at the given sequence number; a sequence number together
+     * with this ID identifies a position in one particular log
+     *
+     * @param sequence A sequence number no greater than the last one
+     * @return The event ID, or the nil UUID for sequence 0
+     */
+    default UUID getEventIdAt(long sequence) {
+        if (sequence == 0) {
+            return new UUID(0, 0);
+        }
+        List<DomainEvent> events = getEventsAfter(sequence - 1, 1);
+        if (events.isEmpty()) {
+            throw new IllegalArgumentException("No event at sequence " + sequence);
+        }
+        return events.get(0).getId();
+    }
 }
\ No newline at end of file
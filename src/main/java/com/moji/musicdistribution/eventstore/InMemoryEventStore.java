@@ -1,43 +1,150 @@
 package com.moji.musicdistribution.eventstore;
 
 import com.moji.musicdistribution.domain.events.DomainEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 
 /**
  * In-memory implementation of the EventStore.
  * Stores events in memory and also publishes them to the Spring application event system.
+ * Events are numbered in the order they are stored. With {@code eventstore.journal.path} set
+ * they are also appended to an {@link EventJournal}, which is read back, without publishing,
+ * when the store is created; otherwise the log starts afresh on every start.
  */
 @Component
+@Slf4j
 public class InMemoryEventStore implements EventStore {
 
     private final Map<UUID, List<DomainEvent>> eventsByAggregate = new ConcurrentHashMap<>();
     private final List<DomainEvent> allEvents = new CopyOnWriteArrayList<>();
     private final ApplicationEventPublisher eventPublisher;
 
+    // Held only while numbering and appending, so the list order matches the sequence numbers
+    private final Lock appendLock = new ReentrantLock();
+
+    private final EventJournal journal; // null when the log is not journaled
+
     public InMemoryEventStore(ApplicationEventPublisher eventPublisher) {
+        this(eventPublisher, "");
+    }
+
+    @Autowired
+    public InMemoryEventStore(ApplicationEventPublisher eventPublisher,
+                              @Value("${eventstore.journal.path:}") String journalPath) {
         this.eventPublisher = eventPublisher;
+        if (journalPath == null || journalPath.isBlank()) {
+            this.journal = null;
+            return;
+        }
+        List<DomainEvent> journaled = new ArrayList<>();
+        try {
+            this.journal = EventJournal.open(Path.of(journalPath), journaled);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot open the event journal " + journalPath, e);
+        }
+        for (DomainEvent event : journaled) {
+            append(event);
+        }
+        log.info("Loaded {} events from the event journal {}", journaled.size(), journalPath);
     }
 
     @Override
     public void store(DomainEvent event) {
+        if (event.getSequence() != 0) {
+            throw new IllegalStateException("Event has already been stored");
+        }
+        List<byte[]> records = journal == null ? null : serialize(List.of(event));
+        appendLock.lock();
+        try {
+            journal(records);
+            append(event);
+        } finally {
+            appendLock.unlock();
+        }
+
+        // Publish the event to the Spring application context
+        eventPublisher.publishEvent(event);
+    }
+
+    @Override
+    public void storeAll(List<? extends DomainEvent> events) {
+        for (DomainEvent event : events) {
+            if (event.getSequence() != 0) {
+                throw new IllegalStateException("Event has already been stored");
+            }
+        }
+
+        // One lock and one bulk append for the whole group
+        List<byte[]> records = serialize(events);
+        appendLock.lock();
+        try {
+            journal(records);
+            long sequence = allEvents.size();
+            for (DomainEvent event : events) {
+                event.assignSequence(++sequence);
+                eventsByAggregate.computeIfAbsent(event.getAggregateId(), k -> new ArrayList<>())
+                        .add(event);
+            }
+            allEvents.addAll(events);
+        } finally {
+            appendLock.unlock();
+        }
+
+        for (DomainEvent event : events) {
+            eventPublisher.publishEvent(event);
+        }
+    }
+
+    // Serialized before taking the append lock, written under it so the journal is in sequence order
+    private List<byte[]> serialize(List<? extends DomainEvent> events) {
+        if (journal == null) {
+            return null;
+        }
+        List<byte[]> records = new ArrayList<>(events.size());
+        for (DomainEvent event : events) {
+            records.add(EventJournal.serialize(event));
+        }
+        return records;
+    }
+
+    // Must hold the append lock; nothing is appended in memory if the journal write fails
+    private void journal(List<byte[]> records) {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.append(records);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to append to the event journal", e);
+        }
+    }
+
+    // Must hold the append lock
+    private void append(DomainEvent event) {
+        event.assignSequence(allEvents.size() + 1);
+
         // Store by aggregate ID
         eventsByAggregate.computeIfAbsent(event.getAggregateId(), k -> new ArrayList<>())
                 .add(event);
 
         // Store in all events list
         allEvents.add(event);
-
-        // Publish the event to the Spring application context
-        eventPublisher.publishEvent(event);
     }
 
     @Override
@@ -58,4 +165,37 @@ public class InMemoryEventStore implements EventStore {
     public List<DomainEvent> getAllEvents() {
         return new ArrayList<>(allEvents);
     }
-}
\ No newline at end of file
+
+    @Override
+    public List<DomainEvent> getEventsAfter(long sequence) {
+        return getEventsAfter(sequence, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<DomainEvent> getEventsAfter(long sequence, int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit cannot be negative");
+        }
+        // The log only grows, so positions are stable and no copy of the whole log is needed
+        int size = allEvents.size();
+        int from = (int) Math.min(Math.max(sequence, 0), size);
+        int to = (int) Math.min((long) from + limit, size);
+        List<DomainEvent> events = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            events.add(allEvents.get(i));
+        }
+        return events;
+    }
+
+    @Override
+    public long getLastSequence() {
+        return allEvents.size();
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        if (journal != null) {
+            journal.close();
+        }
+    }
+}
@@ -0,0 +1,336 @@
+package com.moji.musicdistribution.job;
+
+import com.moji.musicdistribution.command.CommandBus;
+import com.moji.musicdistribution.command.commands.PublishRelease;
+import com.moji.musicdistribution.command.commands.PublishReleases;
+import com.moji.musicdistribution.command.handlers.PublishHandler;
+import com.moji.musicdistribution.domain.events.ReleaseDateApproved;
+import com.moji.musicdistribution.domain.repositories.ReleaseRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+/**
+ * Publishes each approved release at the start of its approved date
+ * <p>
+ * Approved releases wait in a {@link DelayQueue} ordered by the instant their date begins in
+ * {@code releases.publish.zone}. The queue is fed by {@link ReleaseDateApproved} events and
+ * rebuilt from the repository, a page at a time, at startup; a periodic reconciliation re-adds
+ * any approved release the queue lost track of. A dispatcher thread sleeps until the earliest
+ * release is due, then takes everything due at that moment and publishes it in batches of
+ * {@code releases.publish.batch-size}, one transaction per batch, running up to
+ * {@code releases.publish.parallelism} batches at once on virtual threads.
+ * <p>
+ * A release whose date is approved again before it fires keeps only its latest entry. A
+ * release the batch cannot publish is left out of it and retried on its own schedule (for
+ * instance because the event arrived before the approval was committed); if a whole batch
+ * transaction fails, its releases are published one by one so one bad release cannot hold
+ * back the rest. After {@code releases.publish.max-attempts} a release is left to the next
+ * reconciliation.
+ */
+@Component
+@Slf4j
+public class ReleasePublicationScheduler {
+
+    private static final int REBUILD_PAGE_SIZE = 1000;
+
+    private final ReleaseRepository releaseRepository;
+    private final CommandBus commandBus;
+    private final Clock clock;
+    private final ZoneId zone;
+    private final boolean enabled;
+    private final int batchSize;
+    private final int parallelism;
+    private final long retryDelayMs;
+    private final int maxAttempts;
+
+    private final DelayQueue<DuePublication> queue = new DelayQueue<>();
+    // Date each queued release is due on; queue entries for any other date are stale
+    private final ConcurrentHashMap<UUID, LocalDate> scheduledDates = new ConcurrentHashMap<>();
+    private final ExecutorService publishers = Executors.newVirtualThreadPerTaskExecutor();
+    private volatile Thread dispatcher;
+
+    public ReleasePublicationScheduler(ReleaseRepository releaseRepository,
+                                       CommandBus commandBus,
+                                       Clock clock,
+                                       @Value("${releases.publish.zone:UTC}") String zone,
+                                       @Value("${releases.publish.enabled:true}") boolean enabled,
+                                       @Value("${releases.publish.batch-size:200}") int batchSize,
+                                       @Value("${releases.publish.parallelism:4}") int parallelism,
+                                       @Value("${releases.publish.retry-delay-ms:1000}") long retryDelayMs,
+                                       @Value("${releases.publish.max-attempts:5}") int maxAttempts) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Publication batch size must be positive");
+        }
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Publication parallelism must be positive");
+        }
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("Publication needs at least one attempt");
+        }
+        this.releaseRepository = releaseRepository;
+        this.commandBus = commandBus;
+        this.clock = clock;
+        this.zone = ZoneId.of(zone);
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.parallelism = parallelism;
+        this.retryDelayMs = retryDelayMs;
+        this.maxAttempts = maxAttempts;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        int scheduled = rebuild();
+        log.info("Scheduled {} approved releases for publication", scheduled);
+        if (enabled) {
+            Thread thread = new Thread(this::dispatch, "release-publisher");
+            thread.setDaemon(true);
+            dispatcher = thread;
+            thread.start();
+        }
+    }
+
+    /**
+     * Listen for approved release dates
+     */
+    @EventListener
+    public void on(ReleaseDateApproved event) {
+        schedule(event.getAggregateId(), event.getApprovedDate());
+    }
+
+    /**
+     * Re-add approved releases the queue does not know about, every hour by default
+     */
+    @Scheduled(fixedDelayString = "${releases.publish.reconcile-interval-ms:3600000}",
+            initialDelayString = "${releases.publish.reconcile-interval-ms:3600000}")
+    public void reconcile() {
+        int scheduled = rebuild();
+        if (scheduled > 0) {
+            log.info("Reconciliation scheduled {} approved releases", scheduled);
+        }
+    }
+
+    /**
+     * Queue a release for publication at the start of its approved date
+     *
+     * @return whether the release was not already queued for that date
+     */
+    public boolean schedule(UUID releaseId, LocalDate approvedDate) {
+        if (approvedDate.equals(scheduledDates.put(releaseId, approvedDate))) {
+            return false;
+        }
+        long dueMillis = approvedDate.atStartOfDay(zone).toInstant().toEpochMilli();
+        queue.add(new DuePublication(releaseId, approvedDate, dueMillis, 1));
+        return true;
+    }
+
+    /**
+     * Number of releases waiting to be published
+     */
+    public int size() {
+        return scheduledDates.size();
+    }
+
+    /**
+     * Publish every release that is due now, without waiting for later ones
+     *
+     * @return the number of releases published
+     */
+    int publishDue() {
+        int published = 0;
+        List<DuePublication> due = new ArrayList<>();
+        while (queue.drainTo(due) > 0) {
+            published += publish(due);
+            due.clear();
+        }
+        return published;
+    }
+
+    // Queue every approved release; the date check makes this idempotent
+    private int rebuild() {
+        int scheduled = 0;
+        Pageable page = PageRequest.of(0, REBUILD_PAGE_SIZE);
+        List<ReleaseRepository.ApprovedRelease> releases = releaseRepository.findFirstApprovedReleases(page);
+        while (!releases.isEmpty()) {
+            for (ReleaseRepository.ApprovedRelease release : releases) {
+                if (schedule(release.getId(), release.getApprovedReleaseDate())) {
+                    scheduled++;
+                }
+            }
+            UUID last = releases.get(releases.size() - 1).getId();
+            releases = releases.size() < REBUILD_PAGE_SIZE
+                    ? List.of()
+                    : releaseRepository.findApprovedReleasesAfter(last, page);
+        }
+        return scheduled;
+    }
+
+    private void dispatch() {
+        List<DuePublication> due = new ArrayList<>();
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                due.add(queue.take());
+                queue.drainTo(due);
+                publish(due);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                log.error("Release publication failed", e);
+            } finally {
+                due.clear();
+            }
+        }
+    }
+
+    // Publish everything due in bounded parallel batches and wait for all of it
+    private int publish(List<DuePublication> due) {
+        LocalDate today = LocalDate.now(clock.withZone(zone));
+        List<DuePublication> current = new ArrayList<>(due.size());
+        for (DuePublication publication : due) {
+            if (publication.approvedDate.equals(scheduledDates.get(publication.releaseId))) {
+                current.add(publication);
+            }
+        }
+
+        Semaphore permits = new Semaphore(parallelism);
+        List<Callable<Integer>> batches = new ArrayList<>();
+        for (int from = 0; from < current.size(); from += batchSize) {
+            List<DuePublication> batch = current.subList(from, Math.min(from + batchSize, current.size()));
+            batches.add(() -> {
+                permits.acquire();
+                try {
+                    return publishBatch(batch, today);
+                } finally {
+                    permits.release();
+                }
+            });
+        }
+
+        int published = 0;
+        try {
+            for (Future<Integer> result : publishers.invokeAll(batches)) {
+                try {
+                    published += result.get();
+                } catch (ExecutionException e) {
+                    log.error("Release publication batch failed", e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return published;
+    }
+
+    private int publishBatch(List<DuePublication> batch, LocalDate today) {
+        List<UUID> releaseIds = new ArrayList<>(batch.size());
+        for (DuePublication publication : batch) {
+            releaseIds.add(publication.releaseId);
+        }
+
+        PublishHandler.BatchResult result;
+        try {
+            result = commandBus.executeForResult(new PublishReleases(releaseIds, today));
+        } catch (RuntimeException e) {
+            // The batch transaction rolled back; isolate the failing release
+            log.warn("Publishing a batch of {} releases failed, publishing them one by one: {}",
+                    batch.size(), e.getMessage());
+            int published = 0;
+            for (DuePublication publication : batch) {
+                if (publishOne(publication, today)) {
+                    published++;
+                }
+            }
+            return published;
+        }
+
+        for (DuePublication publication : batch) {
+            String failure = result.getFailures().get(publication.releaseId);
+            if (failure == null) {
+                published(publication);
+            } else {
+                failed(publication, failure, null);
+            }
+        }
+        return result.getPublished().size();
+    }
+
+    private boolean publishOne(DuePublication publication, LocalDate today) {
+        try {
+            commandBus.execute(new PublishRelease(publication.releaseId, today));
+            published(publication);
+            return true;
+        } catch (RuntimeException e) {
+            failed(publication, e.getMessage(), e);
+            return false;
+        }
+    }
+
+    private void published(DuePublication publication) {
+        scheduledDates.remove(publication.releaseId, publication.approvedDate);
+        log.debug("Published release {} for {}", publication.releaseId, publication.approvedDate);
+    }
+
+    private void failed(DuePublication publication, String reason, Exception cause) {
+        if (publication.attempt < maxAttempts) {
+            log.warn("Publishing release {} failed (attempt {}), retrying: {}",
+                    publication.releaseId, publication.attempt, reason);
+            queue.add(new DuePublication(publication.releaseId, publication.approvedDate,
+                    clock.millis() + retryDelayMs, publication.attempt + 1));
+        } else {
+            log.error("Giving up publishing release {} after {} attempts: {}",
+                    publication.releaseId, publication.attempt, reason, cause);
+            scheduledDates.remove(publication.releaseId, publication.approvedDate);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        Thread thread = dispatcher;
+        if (thread != null) {
+            thread.interrupt();
+        }
+        publishers.shutdownNow();
+    }
+
+    /**
+     * A release waiting for the instant its approved date begins
+     */
+    private final class DuePublication implements Delayed {
+        private final UUID releaseId;
+        private final LocalDate approvedDate;
+        private final long dueMillis;
+        private final int attempt;
+
+        DuePublication(UUID releaseId, LocalDate approvedDate, long dueMillis, int attempt) {
+            this.releaseId = releaseId;
+            this.approvedDate = approvedDate;
+            this.dueMillis = dueMillis;
+            this.attempt = attempt;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueMillis - clock.millis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(dueMillis, ((DuePublication) other).dueMillis);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.moji.musicdistribution.job;
+
+import com.moji.musicdistribution.domain.repositories.SongReleaseIndex;
+import com.moji.musicdistribution.domain.repositories.SongReleaseRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * One-off migration that fills the song_releases reverse index for songs added to releases
+ * before it existed
+ * <p>
+ * Runs at startup as a single insert-select and is a no-op once every release song has its
+ * row; from then on the rows are written together with their release. The insert bypasses
+ * the entity listener, so the {@link SongReleaseIndex} is cleared once rows were added.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SongReleaseBackfill {
+
+    private final SongReleaseRepository songReleaseRepository;
+    private final SongReleaseIndex songReleaseIndex;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        int added = songReleaseRepository.backfill();
+        if (added > 0) {
+            // Lookups made before the backfill may have cached songs without releases
+            songReleaseIndex.clear();
+            log.info("Backfilled {} song release index rows", added);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.moji.musicdistribution.job;
+
+import com.moji.musicdistribution.domain.repositories.StreamRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * One-off migration that fills the denormalised columns of streams recorded before they
+ * existed: the song's artist ID ({@code streams.artist_id}) and the month period
+ * ({@code streams.period}), so the join-free queries and the period jobs see them
+ * <p>
+ * Runs at startup in short transactions of {@code streams.backfill.batch-size} rows and is a
+ * no-op once every stream is filled. Streams of deleted songs get a period but no artist.
+ */
+@Component
+@Slf4j
+public class StreamBackfill {
+
+    private final StreamRepository streamRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int batchSize;
+
+    public StreamBackfill(StreamRepository streamRepository,
+                          PlatformTransactionManager transactionManager,
+                          @Value("${streams.backfill.enabled:true}") boolean enabled,
+                          @Value("${streams.backfill.batch-size:1000}") int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Backfill batch size must be positive");
+        }
+        this.streamRepository = streamRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (enabled) {
+            backfill();
+        }
+    }
+
+    /**
+     * Backfill all streams missing an artist or period
+     *
+     * @return the number of streams updated
+     */
+    public long backfill() {
+        long updated = 0;
+        while (true) {
+            Integer batch = transactionTemplate.execute(status -> {
+                List<UUID> ids = streamRepository.findIdsToBackfill(PageRequest.of(0, batchSize));
+                return ids.isEmpty() ? 0 : streamRepository.backfill(ids);
+            });
+            if (batch == null || batch == 0) {
+                break;
+            }
+            updated += batch;
+        }
+        if (updated > 0) {
+            log.info("Backfilled artist ID and period on {} streams", updated);
+        }
+        return updated;
+    }
+}
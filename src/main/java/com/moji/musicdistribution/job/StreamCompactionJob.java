@@ -0,0 +1,144 @@
+package com.moji.musicdistribution.job;
+
+import com.moji.musicdistribution.domain.aggregates.Stream;
+import com.moji.musicdistribution.domain.repositories.StreamRepository;
+import com.moji.musicdistribution.query.archive.StreamArchive;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Clock;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Scheduled job that moves closed month periods of streams from the streams table into the
+ * columnar {@link StreamArchive}
+ * <p>
+ * A period is closed once it is older than the {@code streams.archive.live-months} most recent
+ * months. Each period is written to its archive file and read back before any row is deleted, so
+ * a file that cannot be loaded leaves the period live. Only the rows that were written are then
+ * deleted: a stream backdated into the period while the job runs stays in the table. The loaded
+ * segment is swapped in for queries as the deletion commits, so a report never counts a stream
+ * twice, nor misses one, while the job runs. Rows that reach the table after their period was
+ * read, or that a failed run left behind, are merged into the period's file on the next run.
+ */
+@Component
+@Slf4j
+public class StreamCompactionJob {
+
+    // Archived stream IDs per delete statement
+    private static final int DELETE_BATCH_SIZE = 1_000;
+
+    private final StreamRepository streamRepository;
+    private final StreamArchive streamArchive;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final Clock clock;
+    private final int liveMonths;
+
+    public StreamCompactionJob(StreamRepository streamRepository,
+                               StreamArchive streamArchive,
+                               EntityManager entityManager,
+                               PlatformTransactionManager transactionManager,
+                               Clock clock,
+                               @Value("${streams.archive.live-months:2}") int liveMonths) {
+        if (liveMonths < 1) {
+            throw new IllegalArgumentException("At least the current month must stay live");
+        }
+        this.streamRepository = streamRepository;
+        this.streamArchive = streamArchive;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.clock = clock;
+        this.liveMonths = liveMonths;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        compactClosedPeriods();
+    }
+
+    /**
+     * Compact closed periods every day at 1 AM
+     */
+    @Scheduled(cron = "0 0 1 * * ?")
+    public void compactClosedPeriods() {
+        if (!streamArchive.isEnabled()) {
+            return;
+        }
+        int firstLivePeriod = Stream.periodOf(ZonedDateTime.now(clock.withZone(ZoneOffset.UTC))
+                .minusMonths(liveMonths - 1).toInstant());
+        for (int period : streamRepository.findPeriodsBefore(firstLivePeriod)) {
+            try {
+                compact(period);
+            } catch (Exception e) {
+                log.error("Failed to compact streams of period {}", period, e);
+            }
+        }
+    }
+
+    /**
+     * Archive one period and remove its rows from the streams table
+     */
+    void compact(int period) throws IOException {
+        List<UUID> archivedIds = new ArrayList<>();
+        Integer archived = readOnlyTransactionTemplate.execute(status -> {
+            try (java.util.stream.Stream<Stream> streams = streamRepository.streamByPeriod(period)) {
+                return streamArchive.write(period, streams.peek(stream -> {
+                    archivedIds.add(stream.getId());
+                    entityManager.detach(stream);
+                }));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        streamArchive.prepare(period);
+        Integer deleted;
+        try {
+            deleted = transactionTemplate.execute(status -> {
+                int rows = 0;
+                for (int from = 0; from < archivedIds.size(); from += DELETE_BATCH_SIZE) {
+                    rows += streamRepository.deleteByIdIn(
+                            archivedIds.subList(from, Math.min(from + DELETE_BATCH_SIZE, archivedIds.size())));
+                }
+                publishOnCommit(period);
+                return rows;
+            });
+        } catch (RuntimeException e) {
+            // The rows are still there, so the archive keeps serving what it had
+            streamArchive.discard(period);
+            throw e;
+        }
+        log.info("Compacted {} streams of period {} into an archive of {}", deleted, period, archived);
+    }
+
+    private void publishOnCommit(int period) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            streamArchive.publish(period);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                streamArchive.publish(period);
+            }
+        });
+    }
+}
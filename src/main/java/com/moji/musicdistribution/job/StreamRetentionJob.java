@@ -0,0 +1,80 @@
+package com.moji.musicdistribution.job;
+
+import com.moji.musicdistribution.domain.aggregates.Stream;
+import com.moji.musicdistribution.domain.repositories.StreamRepository;
+import com.moji.musicdistribution.query.archive.StreamArchive;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.List;
+
+/**
+ * Scheduled job that deletes whole month periods of streams once they fall out of the
+ * retention window of {@code streams.retention.months}
+ * <p>
+ * A period is dropped only after every stream in it is older than the window, and each period
+ * is deleted in its own transaction so a failure leaves the remaining periods intact. Expired
+ * periods of the {@link StreamArchive} are dropped with them.
+ */
+@Component
+@Slf4j
+public class StreamRetentionJob {
+
+    private final StreamRepository streamRepository;
+    private final StreamArchive streamArchive;
+    private final TransactionTemplate transactionTemplate;
+    private final Clock clock;
+    private final int retentionMonths;
+
+    public StreamRetentionJob(StreamRepository streamRepository,
+                              StreamArchive streamArchive,
+                              PlatformTransactionManager transactionManager,
+                              Clock clock,
+                              @Value("${streams.retention.months:0}") int retentionMonths) {
+        if (retentionMonths < 0) {
+            throw new IllegalArgumentException("Stream retention cannot be negative");
+        }
+        this.streamRepository = streamRepository;
+        this.streamArchive = streamArchive;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.clock = clock;
+        this.retentionMonths = retentionMonths;
+    }
+
+    /**
+     * Drop expired periods every day shortly after midnight
+     */
+    @Scheduled(cron = "0 30 0 * * ?")
+    public void dropExpiredPeriods() {
+        if (retentionMonths == 0) {
+            return;
+        }
+        int cutoff = Stream.periodOf(ZonedDateTime.now(clock.withZone(ZoneOffset.UTC))
+                .minusMonths(retentionMonths).toInstant());
+        List<Integer> expired = streamRepository.findPeriodsBefore(cutoff);
+        for (int period : expired) {
+            try {
+                Integer deleted = transactionTemplate.execute(status -> streamRepository.deleteByPeriod(period));
+                log.info("Dropped {} streams of expired period {}", deleted, period);
+            } catch (Exception e) {
+                log.error("Failed to drop streams of period {}", period, e);
+            }
+        }
+        for (int period : List.copyOf(streamArchive.periods().headSet(cutoff))) {
+            try {
+                streamArchive.drop(period);
+                log.info("Dropped archived streams of expired period {}", period);
+            } catch (IOException e) {
+                log.error("Failed to drop archived streams of period {}", period, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.moji.musicdistribution.monitoring;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Actuator endpoint to switch the hot-path timings on and off at runtime
+ * {@code POST /actuator/hotpath} with {@code {"enabled": false}} stops recording;
+ * {@code slowThresholdMs} changes the threshold for Flight Recorder events.
+ */
+@Component
+@Endpoint(id = "hotpath")
+@RequiredArgsConstructor
+public class HotPathEndpoint {
+
+    private final HotPathMetrics hotPathMetrics;
+
+    @ReadOperation
+    public Map<String, Object> settings() {
+        return Map.of(
+                "enabled", hotPathMetrics.isEnabled(),
+                "slowThresholdMs", hotPathMetrics.getSlowThreshold().toMillis()
+        );
+    }
+
+    @WriteOperation
+    public Map<String, Object> configure(@Nullable Boolean enabled, @Nullable Long slowThresholdMs) {
+        if (enabled != null) {
+            hotPathMetrics.setEnabled(enabled);
+        }
+        if (slowThresholdMs != null) {
+            hotPathMetrics.setSlowThreshold(Duration.ofMillis(slowThresholdMs));
+        }
+        return settings();
+    }
+}
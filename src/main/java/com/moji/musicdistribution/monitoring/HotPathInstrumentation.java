@@ -0,0 +1,118 @@
+package com.moji.musicdistribution.monitoring;
+
+import com.moji.musicdistribution.eventstore.EventStore;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.framework.Advised;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.data.repository.Repository;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Times every {@link EventStore} append and every repository method with {@link HotPathMetrics}
+ * <p>
+ * Spring Data repositories are already proxies, so the timing advice is added to them first in
+ * the chain; the event store is wrapped in a proxy of its interface. The metrics are looked up
+ * on first use, so that a post-processor does not create the meter registry early.
+ */
+@Component
+public class HotPathInstrumentation implements BeanPostProcessor {
+
+    private final ObjectProvider<HotPathMetrics> metricsProvider;
+    private volatile HotPathMetrics metrics;
+
+    public HotPathInstrumentation(ObjectProvider<HotPathMetrics> metricsProvider) {
+        this.metricsProvider = metricsProvider;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof EventStore) {
+            return advise(bean, new EventStoreTiming());
+        }
+        if (bean instanceof Repository<?, ?>) {
+            return advise(bean, new RepositoryTiming(beanName));
+        }
+        return bean;
+    }
+
+    private Object advise(Object bean, MethodInterceptor interceptor) {
+        if (bean instanceof Advised advised && !advised.isFrozen()) {
+            advised.addAdvice(0, interceptor);
+            return bean;
+        }
+        ProxyFactory proxyFactory = new ProxyFactory(bean);
+        proxyFactory.addAdvice(interceptor);
+        return proxyFactory.getProxy();
+    }
+
+    private HotPathMetrics metrics() {
+        HotPathMetrics current = metrics;
+        if (current == null) {
+            current = metricsProvider.getObject();
+            metrics = current;
+        }
+        return current;
+    }
+
+    /**
+     * Times store and storeAll, named by event type and "storeAll"
+     */
+    private final class EventStoreTiming implements MethodInterceptor {
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            String method = invocation.getMethod().getName();
+            Object key;
+            if (method.equals("store")) {
+                key = invocation.getArguments()[0].getClass();
+            } else if (method.equals("storeAll")) {
+                key = method;
+            } else {
+                return invocation.proceed();
+            }
+            HotPathMetrics hotPathMetrics = metrics();
+            long started = hotPathMetrics.start();
+            try {
+                return invocation.proceed();
+            } finally {
+                hotPathMetrics.stop(HotPathMetrics.Operation.EVENT_STORE, key, started);
+            }
+        }
+    }
+
+    /**
+     * Times every repository method, named by repository bean and method
+     */
+    private final class RepositoryTiming implements MethodInterceptor {
+
+        private final String repository;
+        private final Map<Method, String> names = new ConcurrentHashMap<>();
+
+        private RepositoryTiming(String repository) {
+            this.repository = repository;
+        }
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            Method method = invocation.getMethod();
+            if (method.getDeclaringClass() == Object.class) {
+                return invocation.proceed();
+            }
+            String name = names.computeIfAbsent(method, m -> repository + "." + m.getName());
+            HotPathMetrics hotPathMetrics = metrics();
+            long started = hotPathMetrics.start();
+            try {
+                return invocation.proceed();
+            } finally {
+                hotPathMetrics.stop(HotPathMetrics.Operation.REPOSITORY, name, started);
+            }
+        }
+    }
+}
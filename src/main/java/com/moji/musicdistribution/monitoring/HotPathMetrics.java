@@ -0,0 +1,137 @@
+package com.moji.musicdistribution.monitoring;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of the hot paths: command handling, event store appends and repository queries
+ * <p>
+ * Each operation is recorded in a {@code hotpath.duration} timer tagged with the kind of
+ * operation and its name (command or event type, or repository method), publishing p50, p99
+ * and p999 from Micrometer's HDR-style rolling histograms. Operations slower than
+ * {@code instrumentation.hot-path.slow-threshold-ms} are also emitted as a
+ * {@link SlowOperationEvent} to a running Flight Recorder.
+ * <p>
+ * A disabled instance costs one volatile read per operation; it can be switched at runtime
+ * through the {@link HotPathEndpoint}. Callers bracket the operation with {@link #start} and
+ * {@link #stop}.
+ */
+@Component
+public class HotPathMetrics {
+
+    // Returned by start() while disabled; a nanoTime of exactly this value merely goes unrecorded
+    private static final long NOT_TIMED = Long.MIN_VALUE;
+
+    private final MeterRegistry meterRegistry;
+    private final Map<Operation, Map<Object, Timer>> timers = new EnumMap<>(Operation.class);
+    private volatile boolean enabled;
+    private volatile long slowThresholdNanos;
+
+    public HotPathMetrics(MeterRegistry meterRegistry,
+                          @Value("${instrumentation.hot-path.enabled:true}") boolean enabled,
+                          @Value("${instrumentation.hot-path.slow-threshold-ms:100}") long slowThresholdMs) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        setSlowThreshold(Duration.ofMillis(slowThresholdMs));
+        for (Operation operation : Operation.values()) {
+            timers.put(operation, new ConcurrentHashMap<>());
+        }
+    }
+
+    /**
+     * Start timing an operation
+     *
+     * @return the token to pass to {@link #stop}
+     */
+    public long start() {
+        return enabled ? System.nanoTime() : NOT_TIMED;
+    }
+
+    /**
+     * Record an operation started with {@link #start}
+     *
+     * @param key a class, named by its simple name, or any other object, named by its string form
+     */
+    public void stop(Operation operation, Object key, long started) {
+        if (started == NOT_TIMED) {
+            return;
+        }
+        long duration = System.nanoTime() - started;
+        Map<Object, Timer> operationTimers = timers.get(operation);
+        Timer timer = operationTimers.get(key);
+        if (timer == null) {
+            timer = operationTimers.computeIfAbsent(key, k -> register(operation, k));
+        }
+        timer.record(duration, TimeUnit.NANOSECONDS);
+
+        if (duration >= slowThresholdNanos) {
+            SlowOperationEvent event = new SlowOperationEvent();
+            if (event.isEnabled()) {
+                event.operation = operation.getTag();
+                event.name = name(key);
+                event.elapsed = duration;
+                event.commit();
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Duration getSlowThreshold() {
+        return Duration.ofNanos(slowThresholdNanos);
+    }
+
+    public void setSlowThreshold(Duration threshold) {
+        if (threshold.isNegative()) {
+            throw new IllegalArgumentException("Slow operation threshold must not be negative");
+        }
+        this.slowThresholdNanos = threshold.toNanos();
+    }
+
+    private Timer register(Operation operation, Object key) {
+        return Timer.builder("hotpath.duration")
+                .tag("operation", operation.getTag())
+                .tag("name", name(key))
+                .description("Time spent in a command handler, event store append or repository query")
+                .publishPercentiles(0.5, 0.99, 0.999)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private static String name(Object key) {
+        return key instanceof Class<?> type ? type.getSimpleName() : key.toString();
+    }
+
+    /**
+     * Kinds of timed operation
+     */
+    public enum Operation {
+        COMMAND("command"),
+        EVENT_STORE("event-store"),
+        REPOSITORY("repository");
+
+        private final String tag;
+
+        Operation(String tag) {
+            this.tag = tag;
+        }
+
+        public String getTag() {
+            return tag;
+        }
+    }
+}
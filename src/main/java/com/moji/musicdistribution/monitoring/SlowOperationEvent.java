@@ -0,0 +1,32 @@
+package com.moji.musicdistribution.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight Recorder event for a hot-path operation slower than the configured threshold
+ * Emitted by {@link HotPathMetrics} after the operation, so the event's own duration is zero
+ * and the operation's is in {@code elapsed}.
+ */
+@Name("com.moji.musicdistribution.SlowOperation")
+@Label("Slow Operation")
+@Category({"Music Distribution", "Hot Path"})
+@Description("A command, event store append or repository query slower than the threshold")
+@StackTrace(false)
+class SlowOperationEvent extends Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Name")
+    String name;
+
+    @Label("Elapsed")
+    @Timespan(Timespan.NANOSECONDS)
+    long elapsed;
+}
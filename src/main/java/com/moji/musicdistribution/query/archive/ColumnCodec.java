@@ -0,0 +1,183 @@
+package com.moji.musicdistribution.query.archive;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Encodings shared by the archive columns: deflate-compressed blocks, unsigned varints and
+ * fixed-width bit packing
+ */
+final class ColumnCodec {
+
+    private ColumnCodec() {
+    }
+
+    /**
+     * Write a block as raw length, compressed length and the deflated bytes
+     */
+    static void writeBlock(DataOutputStream out, byte[] raw) throws IOException {
+        byte[] compressed = deflate(raw);
+        out.writeInt(raw.length);
+        out.writeInt(compressed.length);
+        out.write(compressed);
+    }
+
+    /**
+     * Read a block written by {@link #writeBlock} and return its inflated bytes
+     */
+    static ByteBuffer readBlock(ByteBuffer in) {
+        int rawLength = in.getInt();
+        int compressedLength = in.getInt();
+        if (rawLength < 0 || compressedLength < 0 || compressedLength > in.remaining()) {
+            throw new IllegalArgumentException("Corrupt column block");
+        }
+        byte[] compressed = new byte[compressedLength];
+        in.get(compressed);
+        return ByteBuffer.wrap(inflate(compressed, rawLength));
+    }
+
+    /**
+     * Copy a block written by {@link #writeBlock} without inflating it, so it can be passed to
+     * {@link #readBlock} later
+     */
+    static byte[] copyBlock(ByteBuffer in) {
+        int start = in.position();
+        in.getInt();
+        int compressedLength = in.getInt();
+        if (compressedLength < 0 || compressedLength > in.remaining()) {
+            throw new IllegalArgumentException("Corrupt column block");
+        }
+        byte[] block = new byte[8 + compressedLength];
+        in.position(start);
+        in.get(block);
+        return block;
+    }
+
+    static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, raw.length / 4));
+            byte[] buffer = new byte[1 << 14];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    static byte[] inflate(byte[] compressed, int rawLength) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            byte[] raw = new byte[rawLength];
+            int read = 0;
+            while (read < rawLength) {
+                int n = inflater.inflate(raw, read, rawLength - read);
+                if (n == 0 && (inflater.finished() || inflater.needsInput())) {
+                    throw new IllegalArgumentException("Truncated column block");
+                }
+                read += n;
+            }
+            return raw;
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Corrupt column block", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Varint too long");
+    }
+
+    /**
+     * Number of bits needed to store values up to the given non-negative maximum
+     */
+    static int bitsFor(int maxValue) {
+        return Math.max(1, 32 - Integer.numberOfLeadingZeros(maxValue));
+    }
+
+    /**
+     * Pack non-negative values into consecutive fixed-width fields of 64-bit words
+     */
+    static long[] pack(int[] values, int count, int bits) {
+        long[] words = new long[(int) (((long) count * bits + 63) >>> 6)];
+        for (int i = 0; i < count; i++) {
+            long bitIndex = (long) i * bits;
+            int word = (int) (bitIndex >>> 6);
+            int offset = (int) (bitIndex & 63);
+            long value = values[i];
+            words[word] |= value << offset;
+            if (offset + bits > 64) {
+                words[word + 1] |= value >>> (64 - offset);
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Unpack values written by {@link #pack}
+     */
+    static int[] unpack(long[] words, int count, int bits) {
+        int[] values = new int[count];
+        long mask = (1L << bits) - 1;
+        for (int i = 0; i < count; i++) {
+            long bitIndex = (long) i * bits;
+            int word = (int) (bitIndex >>> 6);
+            int offset = (int) (bitIndex & 63);
+            long value = words[word] >>> offset;
+            if (offset + bits > 64) {
+                value |= words[word + 1] << (64 - offset);
+            }
+            values[i] = (int) (value & mask);
+        }
+        return values;
+    }
+
+    static byte[] packedBytes(int[] values, int count, int bits) {
+        long[] words = pack(values, count, bits);
+        ByteBuffer buffer = ByteBuffer.allocate(8 + words.length * Long.BYTES);
+        buffer.putInt(bits).putInt(words.length);
+        for (long word : words) {
+            buffer.putLong(word);
+        }
+        return buffer.array();
+    }
+
+    static int[] readPacked(ByteBuffer in, int count) {
+        int bits = in.getInt();
+        int wordCount = in.getInt();
+        if (bits < 1 || bits > 31 || (long) wordCount * 64 < (long) count * bits) {
+            throw new IllegalArgumentException("Corrupt packed column");
+        }
+        long[] words = new long[wordCount];
+        in.asLongBuffer().get(words);
+        in.position(in.position() + wordCount * Long.BYTES);
+        return unpack(words, count, bits);
+    }
+}
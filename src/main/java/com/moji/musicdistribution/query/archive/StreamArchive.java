@@ -0,0 +1,361 @@
+package com.moji.musicdistribution.query.archive;
+
+import com.moji.musicdistribution.domain.aggregates.Stream;
+import com.moji.musicdistribution.domain.repositories.StreamRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+
+/**
+ * Columnar archive of closed stream periods
+ * <p>
+ * Each compacted month lives in one compressed file under {@code streams.archive.path} and is
+ * held in memory as a {@link StreamArchiveSegment}. Once a period is archived its rows are
+ * removed from the streams table, so report projections add the archive's aggregates to those
+ * of the database. The aggregate methods return the same shapes as the corresponding
+ * {@link StreamRepository} queries. Date bounds are inclusive, and null bounds mean unbounded.
+ */
+@Component
+@Slf4j
+public class StreamArchive {
+
+    private final Path directory; // null when the archive is disabled
+    private final ConcurrentSkipListMap<Integer, StreamArchiveSegment> segments = new ConcurrentSkipListMap<>();
+
+    // Periods read back from their files but not yet visible to queries
+    private final Map<Integer, StreamArchiveSegment> prepared = new ConcurrentHashMap<>();
+
+    public StreamArchive(@Value("${streams.archive.path:}") String path) {
+        this.directory = path == null || path.isBlank() ? null : Paths.get(path);
+        if (directory != null) {
+            load();
+        }
+    }
+
+    /**
+     * Whether streams can be archived
+     */
+    public boolean isEnabled() {
+        return directory != null;
+    }
+
+    /**
+     * Whether the period has been archived
+     */
+    public boolean contains(int period) {
+        return segments.containsKey(period);
+    }
+
+    /**
+     * Archived periods, oldest first
+     */
+    public NavigableSet<Integer> periods() {
+        return Collections.unmodifiableNavigableSet(segments.navigableKeySet());
+    }
+
+    /**
+     * Write the streams of a period, in timestamp order, to its archive file
+     * If the period already has a file, its streams are merged with the new ones, keeping one
+     * copy of each stream ID. The new contents only become visible to queries once they are
+     * {@link #prepare prepared} and {@link #publish published}, which callers do as the removal
+     * of the rows from the streams table commits.
+     *
+     * @return the number of streams in the period's archive
+     */
+    public int write(int period, java.util.stream.Stream<Stream> streams) throws IOException {
+        if (directory == null) {
+            throw new IllegalStateException("Stream archive is disabled");
+        }
+        Path file = directory.resolve(StreamArchiveFile.fileName(period));
+        StreamArchiveSegment.Builder builder = new StreamArchiveSegment.Builder(period);
+        if (Files.exists(file)) {
+            // Late arrivals, or rows left behind by an interrupted compaction
+            StreamArchiveSegment existing = StreamArchiveFile.read(file);
+            Map<UUID, Stream> merged = new HashMap<>();
+            existing.forEachStream(everySong(existing), 0, existing.getRowCount(),
+                    stream -> merged.put(stream.getId(), stream));
+            streams.forEach(stream -> merged.putIfAbsent(stream.getId(), stream));
+            merged.values().stream()
+                    .sorted(Comparator.comparing(Stream::getStreamDate).thenComparing(Stream::getId))
+                    .forEach(builder::add);
+        } else {
+            streams.forEach(builder::add);
+        }
+        StreamArchiveSegment segment = builder.build();
+        StreamArchiveFile.write(file, segment);
+        return segment.getRowCount();
+    }
+
+    /**
+     * Read a written period back without making it visible to queries
+     * Fails before the caller has removed any row if the file cannot be loaded.
+     */
+    public void prepare(int period) throws IOException {
+        if (directory == null) {
+            throw new IllegalStateException("Stream archive is disabled");
+        }
+        prepared.put(period, StreamArchiveFile.read(directory.resolve(StreamArchiveFile.fileName(period))));
+    }
+
+    /**
+     * Make a prepared period visible to queries, replacing its previous contents
+     */
+    public void publish(int period) {
+        StreamArchiveSegment segment = prepared.remove(period);
+        if (segment == null) {
+            throw new IllegalStateException("Period " + period + " has not been prepared");
+        }
+        segments.put(period, segment);
+    }
+
+    /**
+     * Forget a prepared period; queries keep the contents they had
+     */
+    public void discard(int period) {
+        prepared.remove(period);
+    }
+
+    /**
+     * Remove a period from the archive and delete its file
+     */
+    public void drop(int period) throws IOException {
+        prepared.remove(period);
+        segments.remove(period);
+        if (directory != null) {
+            Files.deleteIfExists(directory.resolve(StreamArchiveFile.fileName(period)));
+        }
+    }
+
+    /**
+     * Count the archived streams of each of an artist's songs, split by monetization
+     */
+    public List<StreamRepository.SongStreamCount> countStreamsByArtist(UUID artistId, Instant fromDate, Instant toDate) {
+        List<StreamRepository.SongStreamCount> counts = new ArrayList<>();
+        scanBySong(artistId, fromDate, toDate, (songId, monetized, nonMonetized, monetizedSeconds) -> {
+            if (monetized > 0) {
+                counts.add(new SongCount(songId, true, monetized));
+            }
+            if (nonMonetized > 0) {
+                counts.add(new SongCount(songId, false, nonMonetized));
+            }
+        });
+        return counts;
+    }
+
+    /**
+     * Count and total the duration of the archived monetized streams of each of an artist's songs
+     */
+    public List<StreamRepository.SongStreamTotals> sumMonetizedStreamsBySong(UUID artistId, Instant fromDate, Instant toDate) {
+        List<StreamRepository.SongStreamTotals> totals = new ArrayList<>();
+        scanBySong(artistId, fromDate, toDate, (songId, monetized, nonMonetized, monetizedSeconds) -> {
+            if (monetized > 0) {
+                totals.add(new SongTotals(songId, monetized, monetizedSeconds));
+            }
+        });
+        return totals;
+    }
+
+    /**
+     * Count and total the duration of an artist's archived streams per calendar day (UTC),
+     * oldest day first
+     */
+    public List<StreamRepository.DailyStreamTotals> sumStreamsByDay(UUID artistId, Instant fromDate, Instant toDate) {
+        SortedMap<LocalDate, long[]> days = new TreeMap<>();
+        for (StreamArchiveSegment segment : overlapping(fromDate, toDate)) {
+            boolean[] mask = segment.artistMask(artistId);
+            if (mask != null) {
+                segment.aggregateByDay(mask, lowerRow(segment, fromDate), upperRow(segment, toDate), days);
+            }
+        }
+        List<StreamRepository.DailyStreamTotals> totals = new ArrayList<>(days.size());
+        days.forEach((date, day) -> totals.add(new DayTotals(date, day[0], day[1], day[2])));
+        return totals;
+    }
+
+    /**
+     * Pass an artist's archived streams to the consumer, oldest first
+     */
+    public void forEachStream(UUID artistId, Instant fromDate, Instant toDate, Consumer<Stream> consumer) {
+        for (StreamArchiveSegment segment : overlapping(fromDate, toDate)) {
+            boolean[] mask = segment.artistMask(artistId);
+            if (mask != null) {
+                segment.forEachStream(mask, lowerRow(segment, fromDate), upperRow(segment, toDate), consumer);
+            }
+        }
+    }
+
+    private void scanBySong(UUID artistId, Instant fromDate, Instant toDate, SongTotalsConsumer consumer) {
+        Map<UUID, long[]> bySong = new HashMap<>();
+        for (StreamArchiveSegment segment : overlapping(fromDate, toDate)) {
+            boolean[] mask = segment.artistMask(artistId);
+            if (mask == null) {
+                continue;
+            }
+            int songCount = segment.getSongCount();
+            long[] monetized = new long[songCount];
+            long[] nonMonetized = new long[songCount];
+            long[] monetizedSeconds = new long[songCount];
+            segment.aggregateBySong(mask, lowerRow(segment, fromDate), upperRow(segment, toDate),
+                    monetized, nonMonetized, monetizedSeconds);
+            for (int song = 0; song < songCount; song++) {
+                if (monetized[song] + nonMonetized[song] > 0) {
+                    long[] totals = bySong.computeIfAbsent(segment.getSongId(song), id -> new long[3]);
+                    totals[0] += monetized[song];
+                    totals[1] += nonMonetized[song];
+                    totals[2] += monetizedSeconds[song];
+                }
+            }
+        }
+        bySong.forEach((songId, totals) -> consumer.accept(songId, totals[0], totals[1], totals[2]));
+    }
+
+    private static boolean[] everySong(StreamArchiveSegment segment) {
+        boolean[] mask = new boolean[segment.getSongCount()];
+        Arrays.fill(mask, true);
+        return mask;
+    }
+
+    private Collection<StreamArchiveSegment> overlapping(Instant fromDate, Instant toDate) {
+        int fromPeriod = fromDate == null ? Integer.MIN_VALUE : Stream.periodOf(fromDate);
+        int toPeriod = toDate == null ? Integer.MAX_VALUE : Stream.periodOf(toDate);
+        if (fromPeriod > toPeriod) {
+            return List.of();
+        }
+        return segments.subMap(fromPeriod, true, toPeriod, true).values();
+    }
+
+    private static int lowerRow(StreamArchiveSegment segment, Instant fromDate) {
+        return fromDate == null ? 0 : segment.lowerBound(StreamArchiveSegment.toMicros(fromDate));
+    }
+
+    private static int upperRow(StreamArchiveSegment segment, Instant toDate) {
+        return toDate == null ? segment.getRowCount() : segment.upperBound(StreamArchiveSegment.toMicros(toDate));
+    }
+
+    private void load() {
+        try {
+            Files.createDirectories(directory);
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "streams-*.sca")) {
+                for (Path file : files) {
+                    int period = StreamArchiveFile.periodOf(file.getFileName().toString());
+                    if (period < 0) {
+                        continue;
+                    }
+                    try {
+                        segments.put(period, StreamArchiveFile.read(file));
+                    } catch (IOException e) {
+                        log.warn("Skipping unreadable stream archive segment {}", file, e);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot open stream archive at " + directory, e);
+        }
+        log.info("Loaded {} archived stream periods from {}", segments.size(), directory);
+    }
+
+    @FunctionalInterface
+    private interface SongTotalsConsumer {
+        void accept(UUID songId, long monetized, long nonMonetized, long monetizedSeconds);
+    }
+
+    private static final class SongCount implements StreamRepository.SongStreamCount {
+        private final UUID songId;
+        private final boolean monetized;
+        private final long streamCount;
+
+        SongCount(UUID songId, boolean monetized, long streamCount) {
+            this.songId = songId;
+            this.monetized = monetized;
+            this.streamCount = streamCount;
+        }
+
+        @Override
+        public UUID getSongId() {
+            return songId;
+        }
+
+        @Override
+        public boolean isMonetized() {
+            return monetized;
+        }
+
+        @Override
+        public long getStreamCount() {
+            return streamCount;
+        }
+    }
+
+    private static final class SongTotals implements StreamRepository.SongStreamTotals {
+        private final UUID songId;
+        private final long streamCount;
+        private final long totalDurationSeconds;
+
+        SongTotals(UUID songId, long streamCount, long totalDurationSeconds) {
+            this.songId = songId;
+            this.streamCount = streamCount;
+            this.totalDurationSeconds = totalDurationSeconds;
+        }
+
+        @Override
+        public UUID getSongId() {
+            return songId;
+        }
+
+        @Override
+        public long getStreamCount() {
+            return streamCount;
+        }
+
+        @Override
+        public long getTotalDurationSeconds() {
+            return totalDurationSeconds;
+        }
+    }
+
+    private static final class DayTotals implements StreamRepository.DailyStreamTotals {
+        private final LocalDate streamDate;
+        private final long streamCount;
+        private final long monetizedCount;
+        private final long totalDurationSeconds;
+
+        DayTotals(LocalDate streamDate, long streamCount, long monetizedCount, long totalDurationSeconds) {
+            this.streamDate = streamDate;
+            this.streamCount = streamCount;
+            this.monetizedCount = monetizedCount;
+            this.totalDurationSeconds = totalDurationSeconds;
+        }
+
+        @Override
+        public LocalDate getStreamDate() {
+            return streamDate;
+        }
+
+        @Override
+        public long getStreamCount() {
+            return streamCount;
+        }
+
+        @Override
+        public long getMonetizedCount() {
+            return monetizedCount;
+        }
+
+        @Override
+        public long getTotalDurationSeconds() {
+            return totalDurationSeconds;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.moji.musicdistribution.query.archive;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * File framing of a {@link StreamArchiveSegment}
+ * <p>
+ * File layout (big-endian): magic, format version, body length, body, CRC32 of the body. Files
+ * are written to a temporary sibling and moved into place, and are memory-mapped when read.
+ */
+final class StreamArchiveFile {
+
+    private static final int MAGIC = 0x53544341; // "STCA"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+
+    private StreamArchiveFile() {
+    }
+
+    /**
+     * File name of a period's segment
+     */
+    static String fileName(int period) {
+        return "streams-" + period + ".sca";
+    }
+
+    /**
+     * Period of a segment file name, or -1 if the name is not one
+     */
+    static int periodOf(String fileName) {
+        if (!fileName.startsWith("streams-") || !fileName.endsWith(".sca")) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(fileName.substring("streams-".length(), fileName.length() - ".sca".length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Write the segment, replacing any previous file atomically
+     */
+    static void write(Path path, StreamArchiveSegment segment) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(body)) {
+            segment.writeBody(out);
+        }
+        byte[] bytes = body.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+
+        Path parent = path.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+                header.putInt(MAGIC).putInt(VERSION).putLong(bytes.length).flip();
+                writeFully(channel, header);
+                writeFully(channel, ByteBuffer.wrap(bytes));
+                ByteBuffer trailer = ByteBuffer.allocate(Long.BYTES);
+                trailer.putLong(crc.getValue()).flip();
+                writeFully(channel, trailer);
+                channel.force(true);
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Map and decode a segment file
+     *
+     * @throws IOException if the file cannot be read or is not a valid segment of this version
+     */
+    static StreamArchiveSegment read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Archive segment too large to map: " + size + " bytes");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (size < HEADER_BYTES || buffer.getInt() != MAGIC) {
+                throw new IOException("Not a stream archive segment");
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported archive segment version " + version);
+            }
+            long bodyLength = buffer.getLong();
+            if (bodyLength < 0 || HEADER_BYTES + bodyLength + Long.BYTES != size) {
+                throw new IOException("Truncated archive segment");
+            }
+
+            ByteBuffer body = buffer.slice(HEADER_BYTES, (int) bodyLength);
+            CRC32 crc = new CRC32();
+            crc.update(body.duplicate());
+            if (crc.getValue() != buffer.getLong(HEADER_BYTES + (int) bodyLength)) {
+                throw new IOException("Archive segment checksum mismatch");
+            }
+            try {
+                return StreamArchiveSegment.readBody(body);
+            } catch (BufferUnderflowException | IllegalArgumentException e) {
+                throw new IOException("Corrupt archive segment", e);
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,385 @@
+package com.moji.musicdistribution.query.archive;
+
+import com.moji.musicdistribution.domain.aggregates.Stream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * One archived month of streams in columnar form
+ * <p>
+ * Rows are sorted by timestamp. The scan columns are held decoded as primitive arrays: epoch
+ * microseconds, dictionary-encoded song, duration in seconds and a monetized bitset. Aggregates
+ * binary-search the time range and then run a branch-light loop over those arrays. Stream and
+ * user IDs are only needed to replay rows, so they stay compressed until asked for.
+ * <p>
+ * Encoded (before deflate) timestamps are varint deltas, songs and durations are bit-packed at
+ * the width of their largest value, and monetized flags take one bit per row.
+ */
+final class StreamArchiveSegment {
+
+    static final long MICROS_PER_DAY = 86_400_000_000L;
+
+    // Streams whose song was deleted before it could be denormalised have no artist
+    private static final UUID UNKNOWN_ARTIST = new UUID(0, 0);
+
+    private final int period;
+    private final int rowCount;
+    private final UUID[] songIds;
+    private final UUID[] artistIds; // artist of each dictionary song
+    private final long[] timestampMicros;
+    private final int[] songs;
+    private final int[] durations;
+    private final long[] monetized;
+    private final byte[] coldBlock; // compressed stream IDs and users
+
+    private StreamArchiveSegment(int period, int rowCount, UUID[] songIds, UUID[] artistIds,
+                                 long[] timestampMicros, int[] songs, int[] durations, long[] monetized,
+                                 byte[] coldBlock) {
+        this.period = period;
+        this.rowCount = rowCount;
+        this.songIds = songIds;
+        this.artistIds = artistIds;
+        this.timestampMicros = timestampMicros;
+        this.songs = songs;
+        this.durations = durations;
+        this.monetized = monetized;
+        this.coldBlock = coldBlock;
+    }
+
+    int getPeriod() {
+        return period;
+    }
+
+    int getRowCount() {
+        return rowCount;
+    }
+
+    int getSongCount() {
+        return songIds.length;
+    }
+
+    UUID getSongId(int song) {
+        return songIds[song];
+    }
+
+    /**
+     * Dictionary positions of the artist's songs, or null when the artist has none here
+     */
+    boolean[] artistMask(UUID artistId) {
+        boolean[] mask = null;
+        for (int song = 0; song < artistIds.length; song++) {
+            if (artistIds[song].equals(artistId)) {
+                if (mask == null) {
+                    mask = new boolean[artistIds.length];
+                }
+                mask[song] = true;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * First row at or after the instant
+     */
+    int lowerBound(long micros) {
+        int low = 0;
+        int high = rowCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timestampMicros[mid] < micros) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * First row after the instant
+     */
+    int upperBound(long micros) {
+        int low = 0;
+        int high = rowCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timestampMicros[mid] <= micros) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Add the streams of masked songs in rows [from, to) to per-song counters indexed by
+     * dictionary position
+     */
+    void aggregateBySong(boolean[] mask, int from, int to,
+                         long[] monetizedCounts, long[] nonMonetizedCounts, long[] monetizedDurations) {
+        for (int row = from; row < to; row++) {
+            int song = songs[row];
+            if (mask[song]) {
+                if ((monetized[row >>> 6] >>> (row & 63) & 1L) != 0) {
+                    monetizedCounts[song]++;
+                    monetizedDurations[song] += durations[row];
+                } else {
+                    nonMonetizedCounts[song]++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Add the streams of masked songs in rows [from, to) to per-day totals of stream count,
+     * monetized count and duration
+     */
+    void aggregateByDay(boolean[] mask, int from, int to, SortedMap<LocalDate, long[]> days) {
+        int row = from;
+        while (row < to) {
+            // Rows are sorted, so each day is a contiguous run
+            long day = Math.floorDiv(timestampMicros[row], MICROS_PER_DAY);
+            long dayEnd = (day + 1) * MICROS_PER_DAY;
+            long streams = 0;
+            long monetizedStreams = 0;
+            long seconds = 0;
+            for (; row < to && timestampMicros[row] < dayEnd; row++) {
+                if (mask[songs[row]]) {
+                    long flag = monetized[row >>> 6] >>> (row & 63) & 1L;
+                    streams++;
+                    monetizedStreams += flag;
+                    seconds += durations[row];
+                }
+            }
+            if (streams > 0) {
+                long[] totals = days.computeIfAbsent(LocalDate.ofEpochDay(day), d -> new long[3]);
+                totals[0] += streams;
+                totals[1] += monetizedStreams;
+                totals[2] += seconds;
+            }
+        }
+    }
+
+    /**
+     * Rebuild the streams of masked songs in rows [from, to), oldest first
+     */
+    void forEachStream(boolean[] mask, int from, int to, Consumer<Stream> consumer) {
+        ByteBuffer cold = ColumnCodec.readBlock(ByteBuffer.wrap(coldBlock));
+        UUID[] users = readUuids(cold);
+        int[] userColumn = ColumnCodec.readPacked(cold, rowCount);
+        int idsStart = cold.position();
+        for (int row = from; row < to; row++) {
+            int song = songs[row];
+            if (mask[song]) {
+                int idOffset = idsStart + row * 16;
+                UUID streamId = new UUID(cold.getLong(idOffset), cold.getLong(idOffset + 8));
+                UUID artistId = artistIds[song].equals(UNKNOWN_ARTIST) ? null : artistIds[song];
+                consumer.accept(new Stream(streamId, songIds[song], artistId, users[userColumn[row]],
+                        toInstant(timestampMicros[row]), Duration.ofSeconds(durations[row])));
+            }
+        }
+    }
+
+    void writeBody(DataOutputStream out) throws IOException {
+        out.writeInt(period);
+        out.writeInt(rowCount);
+        out.writeInt(songIds.length);
+        for (int song = 0; song < songIds.length; song++) {
+            writeUuid(out, songIds[song]);
+            writeUuid(out, artistIds[song]);
+        }
+
+        ByteArrayOutputStream timestamps = new ByteArrayOutputStream(rowCount * 2);
+        long previous = 0;
+        for (int row = 0; row < rowCount; row++) {
+            // The first delta is the absolute value; the rest are non-negative as rows are sorted
+            ColumnCodec.writeVarLong(timestamps, timestampMicros[row] - previous);
+            previous = timestampMicros[row];
+        }
+        ColumnCodec.writeBlock(out, timestamps.toByteArray());
+        ColumnCodec.writeBlock(out, ColumnCodec.packedBytes(songs, rowCount, ColumnCodec.bitsFor(Math.max(0, songIds.length - 1))));
+        ColumnCodec.writeBlock(out, ColumnCodec.packedBytes(durations, rowCount, ColumnCodec.bitsFor(max(durations))));
+
+        ByteBuffer flags = ByteBuffer.allocate(monetized.length * Long.BYTES);
+        for (long word : monetized) {
+            flags.putLong(word);
+        }
+        ColumnCodec.writeBlock(out, flags.array());
+        out.write(coldBlock);
+    }
+
+    static StreamArchiveSegment readBody(ByteBuffer in) {
+        int period = in.getInt();
+        int rowCount = in.getInt();
+        int songCount = in.getInt();
+        if (rowCount < 0 || songCount < 0 || (rowCount > 0 && songCount == 0)) {
+            throw new IllegalArgumentException("Corrupt segment header");
+        }
+        UUID[] songIds = new UUID[songCount];
+        UUID[] artistIds = new UUID[songCount];
+        for (int song = 0; song < songCount; song++) {
+            songIds[song] = readUuid(in);
+            artistIds[song] = readUuid(in);
+        }
+
+        ByteBuffer timestampBlock = ColumnCodec.readBlock(in);
+        long[] timestampMicros = new long[rowCount];
+        long previous = 0;
+        for (int row = 0; row < rowCount; row++) {
+            previous += ColumnCodec.readVarLong(timestampBlock);
+            timestampMicros[row] = previous;
+        }
+        int[] songs = ColumnCodec.readPacked(ColumnCodec.readBlock(in), rowCount);
+        for (int song : songs) {
+            if (song >= songCount) {
+                throw new IllegalArgumentException("Song index out of range");
+            }
+        }
+        int[] durations = ColumnCodec.readPacked(ColumnCodec.readBlock(in), rowCount);
+        long[] monetized = new long[(rowCount + 63) >>> 6];
+        ColumnCodec.readBlock(in).asLongBuffer().get(monetized);
+        byte[] coldBlock = ColumnCodec.copyBlock(in);
+
+        return new StreamArchiveSegment(period, rowCount, songIds, artistIds,
+                timestampMicros, songs, durations, monetized, coldBlock);
+    }
+
+    static long toMicros(Instant instant) {
+        return Math.addExact(Math.multiplyExact(instant.getEpochSecond(), 1_000_000L), instant.getNano() / 1_000);
+    }
+
+    static Instant toInstant(long micros) {
+        return Instant.ofEpochSecond(Math.floorDiv(micros, 1_000_000L), Math.floorMod(micros, 1_000_000L) * 1_000L);
+    }
+
+    private static int max(int[] values) {
+        int max = 0;
+        for (int value : values) {
+            max = Math.max(max, value);
+        }
+        return max;
+    }
+
+    private static void writeUuid(DataOutputStream out, UUID uuid) throws IOException {
+        out.writeLong(uuid.getMostSignificantBits());
+        out.writeLong(uuid.getLeastSignificantBits());
+    }
+
+    private static UUID readUuid(ByteBuffer in) {
+        return new UUID(in.getLong(), in.getLong());
+    }
+
+    private static UUID[] readUuids(ByteBuffer in) {
+        UUID[] uuids = new UUID[in.getInt()];
+        for (int i = 0; i < uuids.length; i++) {
+            uuids[i] = readUuid(in);
+        }
+        return uuids;
+    }
+
+    /**
+     * Collects the streams of one period, in timestamp order, into a segment
+     */
+    static final class Builder {
+        private final int period;
+        private final Map<UUID, Integer> songDictionary = new HashMap<>();
+        private final List<UUID> songIds = new ArrayList<>();
+        private final List<UUID> artistIds = new ArrayList<>();
+        private final Map<UUID, Integer> userDictionary = new HashMap<>();
+        private final List<UUID> userIds = new ArrayList<>();
+
+        private int rowCount;
+        private long[] timestampMicros = new long[1024];
+        private int[] songs = new int[1024];
+        private int[] users = new int[1024];
+        private int[] durations = new int[1024];
+        private long[] streamIds = new long[2048];
+        private long[] monetized = new long[16];
+
+        Builder(int period) {
+            this.period = period;
+        }
+
+        /**
+         * Append a stream of this period that is not older than the previous one
+         */
+        Builder add(Stream stream) {
+            long micros = toMicros(stream.getStreamDate());
+            if (Stream.periodOf(stream.getStreamDate()) != period) {
+                throw new IllegalArgumentException("Stream " + stream.getId() + " is not in period " + period);
+            }
+            if (rowCount > 0 && micros < timestampMicros[rowCount - 1]) {
+                throw new IllegalArgumentException("Streams must be added in timestamp order");
+            }
+            long seconds = stream.getDuration().getSeconds();
+            if (seconds > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Stream duration too long to archive");
+            }
+            if (rowCount == songs.length) {
+                int capacity = songs.length * 2;
+                timestampMicros = Arrays.copyOf(timestampMicros, capacity);
+                songs = Arrays.copyOf(songs, capacity);
+                users = Arrays.copyOf(users, capacity);
+                durations = Arrays.copyOf(durations, capacity);
+                streamIds = Arrays.copyOf(streamIds, capacity * 2);
+                monetized = Arrays.copyOf(monetized, capacity >>> 6);
+            }
+
+            int row = rowCount++;
+            timestampMicros[row] = micros;
+            songs[row] = songDictionary.computeIfAbsent(stream.getSongId(), songId -> {
+                songIds.add(songId);
+                artistIds.add(stream.getArtistId() != null ? stream.getArtistId() : UNKNOWN_ARTIST);
+                return songIds.size() - 1;
+            });
+            users[row] = userDictionary.computeIfAbsent(stream.getUserId(), userId -> {
+                userIds.add(userId);
+                return userIds.size() - 1;
+            });
+            durations[row] = (int) seconds;
+            streamIds[row * 2] = stream.getId().getMostSignificantBits();
+            streamIds[row * 2 + 1] = stream.getId().getLeastSignificantBits();
+            if (stream.isMonetizable()) {
+                monetized[row >>> 6] |= 1L << (row & 63);
+            }
+            return this;
+        }
+
+        StreamArchiveSegment build() {
+            ByteArrayOutputStream cold = new ByteArrayOutputStream(rowCount * 20 + userIds.size() * 16 + 16);
+            try (DataOutputStream out = new DataOutputStream(cold)) {
+                out.writeInt(userIds.size());
+                for (UUID userId : userIds) {
+                    writeUuid(out, userId);
+                }
+                out.write(ColumnCodec.packedBytes(users, rowCount, ColumnCodec.bitsFor(Math.max(0, userIds.size() - 1))));
+                for (int i = 0; i < rowCount * 2; i++) {
+                    out.writeLong(streamIds[i]);
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException(e); // in-memory stream
+            }
+            ByteArrayOutputStream coldBlock = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(coldBlock)) {
+                ColumnCodec.writeBlock(out, cold.toByteArray());
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+
+            return new StreamArchiveSegment(period, rowCount,
+                    songIds.toArray(UUID[]::new), artistIds.toArray(UUID[]::new),
+                    Arrays.copyOf(timestampMicros, rowCount), Arrays.copyOf(songs, rowCount),
+                    Arrays.copyOf(durations, rowCount), Arrays.copyOf(monetized, (rowCount + 63) >>> 6),
+                    coldBlock.toByteArray());
+        }
+    }
+}
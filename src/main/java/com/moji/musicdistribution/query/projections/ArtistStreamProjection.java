@@ -3,17 +3,23 @@ package com.moji.musicdistribution.query.projections;
 import com.moji.musicdistribution.domain.aggregates.Artist;
 import com.moji.musicdistribution.domain.aggregates.Song;
 import com.moji.musicdistribution.domain.aggregates.Stream;
-import com.moji.musicdistribution.domain.events.StreamRecorded;
 import com.moji.musicdistribution.domain.repositories.ArtistRepository;
 import com.moji.musicdistribution.domain.repositories.SongRepository;
 import com.moji.musicdistribution.domain.repositories.StreamRepository;
+import com.moji.musicdistribution.query.archive.StreamArchive;
 import com.moji.musicdistribution.query.readmodels.ArtistStreamReport;
+import com.moji.musicdistribution.query.readmodels.DailyStreamReport;
+import com.moji.musicdistribution.query.readmodels.SongStreamPage;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
-import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
+import java.time.LocalDate;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -27,28 +33,13 @@ public class ArtistStreamProjection {
     private final ArtistRepository artistRepository;
     private final SongRepository songRepository;
     private final StreamRepository streamRepository;
-
-    // Optional: In-memory cache for faster lookups
-    private final Map<UUID, Map<UUID, String>> artistSongTitlesCache = new HashMap<>();
-
-    /**
-     * Listen for StreamRecorded events and update projection data
-     */
-    @EventListener
-    public void on(StreamRecorded event) {
-        // For a real implementation, we might update a dedicated read model table in the database
-        // For this simplified implementation, we'll rely on the repositories
-
-        // Update the artist song titles cache
-        Map<UUID, String> songTitles = artistSongTitlesCache.computeIfAbsent(
-                event.getArtistId(),
-                artistId -> new HashMap<>()
-        );
-        songTitles.put(event.getSongId(), event.getSongTitle());
-    }
+    private final StreamArchive streamArchive;
+    private final EntityManager entityManager;
 
     /**
      * Generate a stream report for an artist
+     * The counts are aggregated by the database (grouped by song and monetization), so no
+     * individual streams are loaded
      */
     public ArtistStreamReport generateStreamReport(UUID artistId, Instant fromDate, Instant toDate) {
         // Get the artist
@@ -60,24 +51,21 @@ public class ArtistStreamProjection {
         Map<UUID, String> songTitles = artistSongs.stream()
                 .collect(Collectors.toMap(Song::getId, Song::getTitle));
 
-        // Get all streams for this artist's songs
-        List<Stream> streams;
-        if (fromDate != null && toDate != null) {
-            // Filter by date range if provided
-            streams = streamRepository.findByArtistId(artistId).stream()
-                    .filter(stream -> !stream.getStreamDate().isBefore(fromDate) &&
-                            !stream.getStreamDate().isAfter(toDate))
-                    .collect(Collectors.toList());
-        } else {
-            // Get all streams if no date range
-            streams = streamRepository.findByArtistId(artistId);
-        }
-
-        // Group streams by song
-        Map<UUID, List<Stream>> streamsBySong = new HashMap<>();
-        for (Stream stream : streams) {
-            streamsBySong.computeIfAbsent(stream.getSongId(), k -> new ArrayList<>())
-                    .add(stream);
+        // Count streams per song and monetization, filtered by date range if provided
+        boolean ranged = fromDate != null && toDate != null;
+        List<StreamRepository.SongStreamCount> counts = new ArrayList<>(ranged
+                ? streamRepository.countStreamsByArtistAndDateRange(artistId, fromDate, toDate)
+                : streamRepository.countStreamsByArtist(artistId));
+        // Closed periods that were compacted out of the streams table
+        counts.addAll(ranged
+                ? streamArchive.countStreamsByArtist(artistId, fromDate, toDate)
+                : streamArchive.countStreamsByArtist(artistId, null, null));
+
+        // Fold the monetized and non-monetized rows of each song together
+        Map<UUID, long[]> countsBySong = new HashMap<>();
+        for (StreamRepository.SongStreamCount count : counts) {
+            long[] songCounts = countsBySong.computeIfAbsent(count.getSongId(), k -> new long[2]);
+            songCounts[count.isMonetized() ? 0 : 1] += count.getStreamCount();
         }
 
         // Calculate statistics for each song
@@ -85,26 +73,17 @@ public class ArtistStreamProjection {
         int totalMonetizedStreams = 0;
         int totalNonMonetizedStreams = 0;
 
-        for (UUID songId : streamsBySong.keySet()) {
-            List<Stream> songStreams = streamsBySong.get(songId);
-            int monetizedCount = 0;
-            int nonMonetizedCount = 0;
-
-            for (Stream stream : songStreams) {
-                if (stream.isMonetizable()) {
-                    monetizedCount++;
-                } else {
-                    nonMonetizedCount++;
-                }
-            }
+        for (Map.Entry<UUID, long[]> entry : countsBySong.entrySet()) {
+            int monetizedCount = Math.toIntExact(entry.getValue()[0]);
+            int nonMonetizedCount = Math.toIntExact(entry.getValue()[1]);
 
             totalMonetizedStreams += monetizedCount;
             totalNonMonetizedStreams += nonMonetizedCount;
 
             songStats.add(new ArtistStreamReport.SongStreamStats(
-                    songId,
-                    songTitles.getOrDefault(songId, "Unknown Song"),
-                    songStreams.size(),
+                    entry.getKey(),
+                    songTitles.getOrDefault(entry.getKey(), "Unknown Song"),
+                    monetizedCount + nonMonetizedCount,
                     monetizedCount,
                     nonMonetizedCount
             ));
@@ -117,7 +96,7 @@ public class ArtistStreamProjection {
         return new ArtistStreamReport(
                 artistId,
                 artist.getName(),
-                streams.size(),
+                totalMonetizedStreams + totalNonMonetizedStreams,
                 totalMonetizedStreams,
                 totalNonMonetizedStreams,
                 fromDate,
@@ -125,4 +104,90 @@ public class ArtistStreamProjection {
                 songStats
         );
     }
-}
\ No newline at end of file
+
+    /**
+     * Generate a per-day breakdown of an artist's streams within a date range
+     */
+    public DailyStreamReport generateDailyStreamReport(UUID artistId, Instant fromDate, Instant toDate) {
+        Artist artist = artistRepository.findById(artistId)
+                .orElseThrow(() -> new IllegalArgumentException("Artist not found"));
+
+        // A day lies in a single period, which is either live or archived; merging by date
+        // still keeps the report right while a period is being compacted
+        SortedMap<LocalDate, long[]> totalsByDay = new TreeMap<>();
+        List<StreamRepository.DailyStreamTotals> totals = new ArrayList<>(
+                streamRepository.sumStreamsByDay(artistId, fromDate, toDate));
+        totals.addAll(streamArchive.sumStreamsByDay(artistId, fromDate, toDate));
+        for (StreamRepository.DailyStreamTotals day : totals) {
+            long[] dayTotals = totalsByDay.computeIfAbsent(day.getStreamDate(), d -> new long[3]);
+            dayTotals[0] += day.getStreamCount();
+            dayTotals[1] += day.getMonetizedCount();
+            dayTotals[2] += day.getTotalDurationSeconds();
+        }
+
+        List<DailyStreamReport.DayStreamStats> days = totalsByDay.entrySet().stream()
+                .map(day -> new DailyStreamReport.DayStreamStats(
+                        day.getKey(),
+                        Math.toIntExact(day.getValue()[0]),
+                        Math.toIntExact(day.getValue()[1]),
+                        day.getValue()[2]))
+                .toList();
+
+        return new DailyStreamReport(artistId, artist.getName(), fromDate, toDate, days);
+    }
+
+    /**
+     * Get one page of the individual streams of an artist's song, oldest first
+     * Pages are addressed by a keyset cursor, so deep pages cost the same as the first
+     */
+    public SongStreamPage getSongStreams(UUID artistId, UUID songId, int limit, String cursor) {
+        Song song = songRepository.findById(songId)
+                .filter(s -> s.getArtistId().equals(artistId))
+                .orElseThrow(() -> new IllegalArgumentException("Song not found"));
+
+        // Fetch one extra row to learn whether another page follows
+        StreamCursor after = StreamCursor.decode(cursor);
+        PageRequest page = PageRequest.of(0, limit + 1);
+        List<Stream> streams = after == null
+                ? streamRepository.findFirstStreamsOfSong(song.getId(), page)
+                : streamRepository.findStreamsOfSongAfter(song.getId(), after.getTimestamp(), after.getStreamId(), page);
+
+        boolean hasMore = streams.size() > limit;
+        List<Stream> pageStreams = hasMore ? streams.subList(0, limit) : streams;
+        List<SongStreamPage.StreamDetail> details = pageStreams.stream()
+                .map(stream -> new SongStreamPage.StreamDetail(
+                        stream.getId(),
+                        stream.getUserId(),
+                        stream.getStreamDate(),
+                        stream.getDuration().getSeconds(),
+                        stream.isMonetizable()))
+                .toList();
+
+        String nextCursor = hasMore ? StreamCursor.encode(pageStreams.get(limit - 1)) : null;
+        return new SongStreamPage(song.getId(), details, nextCursor);
+    }
+
+    /**
+     * Pass every stream of an artist, optionally within a date range, to the consumer
+     * Archived periods come first, then the streams table in chronological order. Rows are read
+     * from a database cursor in batches of {@link StreamRepository#EXPORT_FETCH_SIZE} and detached
+     * once consumed, so memory use does not grow with the number of streams
+     */
+    @Transactional(readOnly = true)
+    public void exportStreams(UUID artistId, Instant fromDate, Instant toDate, Consumer<Stream> consumer) {
+        if (!artistRepository.existsById(artistId)) {
+            throw new IllegalArgumentException("Artist not found");
+        }
+
+        boolean ranged = fromDate != null && toDate != null;
+        streamArchive.forEachStream(artistId, ranged ? fromDate : null, ranged ? toDate : null, consumer);
+        try (java.util.stream.Stream<Stream> streams = ranged
+                ? streamRepository.streamByArtistIdAndDateRange(artistId, fromDate, toDate)
+                : streamRepository.streamByArtistId(artistId)) {
+            streams.forEach(stream -> {
+                consumer.accept(stream);
+                entityManager.detach(stream);
+            });
+        }
+    }
+}
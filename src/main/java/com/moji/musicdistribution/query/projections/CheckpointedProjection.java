@@ -0,0 +1,468 @@
+package com.moji.musicdistribution.query.projections;
+
+import com.moji.musicdistribution.domain.events.DomainEvent;
+import com.moji.musicdistribution.eventstore.EventStore;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Base class for in-memory projections that remember their position in the event log
+ * <p>
+ * Every stored event a projection applies is recorded by sequence. Events are delivered
+ * asynchronously and can arrive out of order, so the checkpoint is the highest sequence up to
+ * which every event in the log has been either applied or skipped as one the projection does
+ * not {@link #handles handle}; the sequences applied beyond it are marked in a bitmap window
+ * that starts just after the checkpoint and grows only if the checkpoint falls far behind. An
+ * event is applied at most once, however often it is delivered or replayed.
+ * <p>
+ * {@link ProjectionCheckpoints} advances the checkpoints every second and periodically writes
+ * each projection's state to a {@link ProjectionSnapshot}. At startup a snapshot taken from
+ * the same event log is restored and only the events after it are replayed; otherwise the
+ * projection is rebuilt from the {@link EventStore} by the {@link ProjectionRebuilder}, which
+ * applies events to independent {@link RebuildShard}s in parallel and swaps the merged state in
+ * when they are done. The {@link ProjectionEndpoint} runs the same rebuild on demand.
+ * <p>
+ * Updates run concurrently under a shared lock; advancing the checkpoint holds the exclusive
+ * lock, and so does taking a snapshot while the state is serialized to memory. Applied events
+ * are reported to the {@link ProjectionMetrics}. {@link #advanceCheckpoint} and
+ * {@link #snapshot} are not final so that they reach the target of a class-based proxy.
+ */
+@Slf4j
+public abstract class CheckpointedProjection {
+
+    private static final int CATCH_UP_BATCH_SIZE = 10_000;
+    // Sequences the applied bitmap covers beyond the checkpoint at first; a power of two
+    private static final int INITIAL_WINDOW = 1 << 16;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Every event up to here is applied or not handled; changed under the write lock
+    private volatile long checkpoint;
+    // Bit (sequence & (window - 1)) is set once the sequence, beyond the checkpoint and at most
+    // a window ahead of it, is applied; replaced and cleared under the write lock
+    private AtomicLongArray appliedAfter = new AtomicLongArray(INITIAL_WINDOW / Long.SIZE);
+    // Highest sequence applied, live or by a rebuild
+    private final AtomicLong lastApplied = new AtomicLong();
+    private final AtomicLong applied = new AtomicLong();
+
+    // Set while catching up, whose events are not live deliveries
+    private volatile Thread replayingThread;
+    private volatile ApplyMetrics metrics = ApplyMetrics.NONE;
+
+    // Checkpoint and applied count of the last snapshot, guarded by the write lock
+    private long lastSnapshotSequence = -1;
+    private long lastSnapshotApplied = -1;
+
+    /**
+     * Name of the projection
+     */
+    public abstract String getName();
+
+    /**
+     * Whether the projection changes its state for this event
+     */
+    protected abstract boolean handles(DomainEvent event);
+
+    /**
+     * Apply a replayed event by passing it to the matching listener method
+     */
+    protected abstract void replay(DomainEvent event);
+
+    /**
+     * Write the projection's state; called with all updates excluded
+     */
+    protected abstract void writeState(DataOutputStream out) throws IOException;
+
+    /**
+     * Replace the projection's state with what {@link #writeState} wrote, leaving it unchanged
+     * if the input cannot be read
+     */
+    protected abstract void readState(DataInputStream in) throws IOException;
+
+    /**
+     * Key that orders the events of a rebuild: events with equal keys are applied by the same
+     * shard in log order, and shards must be mergeable by {@link #swapIn}
+     */
+    protected abstract Object partitionKey(DomainEvent event);
+
+    /**
+     * Empty partial state for one shard of a parallel rebuild
+     */
+    protected abstract RebuildShard newRebuildShard();
+
+    /**
+     * Merge the rebuilt shards and make the result the projection's state; called with all
+     * updates excluded
+     */
+    protected abstract void swapIn(List<RebuildShard> shards);
+
+    /**
+     * Called after the state has been restored from a snapshot or rebuilt, outside the lock
+     */
+    protected void restored() {
+    }
+
+    /**
+     * Apply an event unless it has been applied already
+     * Events that did not come from the event store have no sequence and are always applied.
+     */
+    protected final void apply(DomainEvent event, Runnable update) {
+        long sequence = event.getSequence();
+        long started;
+        lock.readLock().lock();
+        try {
+            if (sequence != 0) {
+                while (sequence - checkpoint > windowSize()) {
+                    lock.readLock().unlock();
+                    try {
+                        widen(sequence);
+                    } finally {
+                        lock.readLock().lock();
+                    }
+                }
+                if (sequence <= checkpoint || !markApplied(sequence)) {
+                    return;
+                }
+            }
+            started = System.nanoTime();
+            update.run();
+        } finally {
+            lock.readLock().unlock();
+        }
+        long duration = System.nanoTime() - started;
+        lastApplied.accumulateAndGet(sequence, Math::max);
+        applied.incrementAndGet();
+        metrics.applied(event, duration, Thread.currentThread() != replayingThread);
+    }
+
+    /**
+     * Sequence up to which every event has been applied or is not handled by the projection
+     */
+    public long getCheckpoint() {
+        return checkpoint;
+    }
+
+    /**
+     * Highest sequence applied so far; events stored later may not have been delivered yet
+     */
+    public long getLastAppliedSequence() {
+        return lastApplied.get();
+    }
+
+    /**
+     * Number of events applied since startup, live or replayed
+     */
+    public long getAppliedEvents() {
+        return applied.get();
+    }
+
+    void bindMetrics(ApplyMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Replace the state with the snapshot's, if there is one taken from this event log
+     *
+     * @return whether the snapshot was used
+     */
+    boolean restoreSnapshot(EventStore eventStore, Path snapshotPath) {
+        ProjectionSnapshot snapshot = readSnapshot(eventStore, snapshotPath);
+        if (snapshot == null) {
+            return false;
+        }
+        lock.writeLock().lock();
+        try {
+            readState(new DataInputStream(new ByteArrayInputStream(snapshot.getState())));
+            checkpoint = snapshot.getSequence();
+            long window = INITIAL_WINDOW;
+            while (snapshot.getLastSequence() - checkpoint > window) {
+                window *= 2;
+            }
+            appliedAfter = new AtomicLongArray(Math.toIntExact(window / Long.SIZE));
+            for (long sequence : snapshot.getAppliedAfter()) {
+                markApplied(sequence);
+            }
+            lastApplied.accumulateAndGet(snapshot.getLastSequence(), Math::max);
+            lastSnapshotSequence = checkpoint;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Ignoring corrupt {} projection snapshot {}: {}", getName(), snapshotPath, e.getMessage());
+            return false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        restored();
+        return true;
+    }
+
+    /**
+     * Apply the events stored after the checkpoint, reading the log in batches
+     * Events already applied, live or from a snapshot, are skipped.
+     *
+     * @return the number of events replayed
+     */
+    int catchUp(EventStore eventStore) {
+        int replayed = 0;
+        long position = checkpoint;
+        List<DomainEvent> batch;
+        replayingThread = Thread.currentThread();
+        try {
+            while (!(batch = eventStore.getEventsAfter(position, CATCH_UP_BATCH_SIZE)).isEmpty()) {
+                for (DomainEvent event : batch) {
+                    if (handles(event)) {
+                        replay(event);
+                        replayed++;
+                    }
+                }
+                position = batch.get(batch.size() - 1).getSequence();
+            }
+        } finally {
+            replayingThread = null;
+        }
+        return replayed;
+    }
+
+    /**
+     * Swap in the state rebuilt from every event up to the given sequence
+     * Events applied meanwhile went to the state being replaced, so callers catch up afterwards.
+     */
+    void rebuilt(List<RebuildShard> shards, long sequence) {
+        lock.writeLock().lock();
+        try {
+            swapIn(shards);
+            checkpoint = sequence;
+            appliedAfter = new AtomicLongArray(appliedAfter.length());
+            lastApplied.accumulateAndGet(sequence, Math::max);
+            lastSnapshotSequence = -1;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        restored();
+    }
+
+    /**
+     * Advance the checkpoint over every event applied so far and every event the projection
+     * does not handle
+     *
+     * @return the new checkpoint
+     */
+    long advanceCheckpoint(EventStore eventStore) {
+        long head = eventStore.getLastSequence();
+        List<DomainEvent> recent = eventStore.getEventsAfter(checkpoint);
+
+        lock.writeLock().lock();
+        try {
+            return advance(recent, head);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Advance the checkpoint and write a snapshot, unless nothing changed since the last one
+     *
+     * @return whether a snapshot was written
+     */
+    boolean snapshot(EventStore eventStore, Path snapshotPath) throws IOException {
+        long head = eventStore.getLastSequence();
+        List<DomainEvent> recent = eventStore.getEventsAfter(checkpoint);
+
+        long sequence;
+        List<Long> appliedSequences;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        lock.writeLock().lock();
+        try {
+            sequence = advance(recent, head);
+            if (sequence == lastSnapshotSequence && applied.get() == lastSnapshotApplied) {
+                return false; // nothing new
+            }
+            DataOutputStream out = new DataOutputStream(bytes);
+            writeState(out);
+            out.flush();
+            appliedSequences = new ArrayList<>();
+            for (long next = sequence + 1; next <= sequence + windowSize(); next++) {
+                if (isApplied(next)) {
+                    appliedSequences.add(next);
+                }
+            }
+            lastSnapshotSequence = sequence;
+            lastSnapshotApplied = applied.get();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        long last = appliedSequences.isEmpty() ? sequence : appliedSequences.get(appliedSequences.size() - 1);
+        ProjectionSnapshot snapshot = new ProjectionSnapshot(sequence, appliedSequences,
+                eventStore.getEventIdAt(last), bytes.toByteArray());
+        try {
+            snapshot.write(snapshotPath);
+        } catch (IOException e) {
+            lock.writeLock().lock();
+            try {
+                lastSnapshotSequence = -1; // retry on the next run
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+        log.debug("{} projection snapshot written at sequence {} ({} bytes)",
+                getName(), sequence, snapshot.getState().length);
+        return true;
+    }
+
+    // Must hold the write lock; stops before the first handled event whose update has not run yet
+    private long advance(List<DomainEvent> recent, long head) {
+        long watermark = checkpoint;
+        for (DomainEvent event : recent) {
+            long sequence = event.getSequence();
+            if (sequence > head) {
+                break;
+            }
+            if (sequence <= watermark) {
+                continue;
+            }
+            if (handles(event) && !isApplied(sequence)) {
+                break;
+            }
+            clearApplied(sequence);
+            watermark = sequence;
+        }
+        checkpoint = watermark;
+        return watermark;
+    }
+
+    private ProjectionSnapshot readSnapshot(EventStore eventStore, Path snapshotPath) {
+        if (snapshotPath == null || !Files.exists(snapshotPath)) {
+            return null;
+        }
+        ProjectionSnapshot snapshot;
+        try {
+            snapshot = ProjectionSnapshot.read(snapshotPath);
+        } catch (IOException e) {
+            log.warn("Ignoring unreadable {} projection snapshot {}: {}", getName(), snapshotPath, e.getMessage());
+            return null;
+        }
+        long last = snapshot.getLastSequence();
+        if (last > eventStore.getLastSequence()
+                || !eventStore.getEventIdAt(last).equals(snapshot.getLastEventId())) {
+            log.info("{} projection snapshot was taken from another event log; rebuilding from the whole log",
+                    getName());
+            return null;
+        }
+        return snapshot;
+    }
+
+    // Number of sequences beyond the checkpoint the bitmap covers; read under either lock
+    private long windowSize() {
+        return (long) appliedAfter.length() * Long.SIZE;
+    }
+
+    // Set the sequence's bit unless it is set already; called under the read lock
+    private boolean markApplied(long sequence) {
+        AtomicLongArray bits = appliedAfter;
+        int word = word(bits, sequence);
+        long mask = 1L << sequence;
+        long current;
+        do {
+            current = bits.get(word);
+            if ((current & mask) != 0) {
+                return false;
+            }
+        } while (!bits.compareAndSet(word, current, current | mask));
+        return true;
+    }
+
+    private boolean isApplied(long sequence) {
+        AtomicLongArray bits = appliedAfter;
+        return (bits.get(word(bits, sequence)) & (1L << sequence)) != 0;
+    }
+
+    // Called under the write lock
+    private void clearApplied(long sequence) {
+        AtomicLongArray bits = appliedAfter;
+        int word = word(bits, sequence);
+        bits.set(word, bits.get(word) & ~(1L << sequence));
+    }
+
+    // Grow the bitmap until it reaches the sequence, for a checkpoint that has fallen far behind
+    private void widen(long sequence) {
+        lock.writeLock().lock();
+        try {
+            long size = windowSize();
+            if (sequence - checkpoint <= size) {
+                return;
+            }
+            while (sequence - checkpoint > size) {
+                size *= 2;
+            }
+            AtomicLongArray widened = new AtomicLongArray(Math.toIntExact(size / Long.SIZE));
+            long last = checkpoint + windowSize();
+            for (long applied = checkpoint + 1; applied <= last; applied++) {
+                if (isApplied(applied)) {
+                    int word = word(widened, applied);
+                    widened.set(word, widened.get(word) | (1L << applied));
+                }
+            }
+            appliedAfter = widened;
+            log.info("{} projection checkpoint is {} events behind; tracking applied events over {}",
+                    getName(), sequence - checkpoint, size);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static int word(AtomicLongArray bits, long sequence) {
+        return (int) ((sequence >>> 6) & (bits.length() - 1));
+    }
+
+    protected static void writeUuid(DataOutputStream out, UUID uuid) throws IOException {
+        out.writeLong(uuid.getMostSignificantBits());
+        out.writeLong(uuid.getLeastSignificantBits());
+    }
+
+    protected static UUID readUuid(DataInputStream in) throws IOException {
+        return new UUID(in.readLong(), in.readLong());
+    }
+
+    // Guards against allocating from a corrupt length
+    protected static int readCount(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        if (count < 0) {
+            throw new IOException("Negative count " + count);
+        }
+        return count;
+    }
+
+    /**
+     * Receives every applied event with the time its update took
+     */
+    interface ApplyMetrics {
+
+        ApplyMetrics NONE = (event, durationNanos, live) -> {
+        };
+
+        /**
+         * @param live false when the event was replayed from the log rather than delivered
+         */
+        void applied(DomainEvent event, long durationNanos, boolean live);
+    }
+
+    /**
+     * Partial state built by one shard of a parallel rebuild
+     */
+    protected interface RebuildShard {
+
+        /**
+         * Apply an event; events of one shard are applied by a single thread, in log order
+         */
+        void apply(DomainEvent event);
+    }
+}
@@ -1,10 +1,14 @@
 package com.moji.musicdistribution.query.projections;
 
+import com.moji.musicdistribution.domain.events.DomainEvent;
 import com.moji.musicdistribution.domain.events.StreamMonetized;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.ArrayList;
@@ -19,92 +23,201 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 @Component
 @RequiredArgsConstructor
-public class MonetizationProjection {
+public class MonetizationProjection extends CheckpointedProjection {
 
-    // Map to track total monetization amounts by artist
-    private final Map<UUID, BigDecimal> artistMonetization = new ConcurrentHashMap<>();
-
-    // Map to track total monetization amounts by song
-    private final Map<UUID, BigDecimal> songMonetization = new ConcurrentHashMap<>();
-
-    // Map to track monetized streams by artist
-    private final Map<UUID, List<MonetizedStreamRecord>> monetizedStreamsByArtist = new ConcurrentHashMap<>();
+    // Replaced as a whole when the projection is restored or rebuilt
+    private volatile State state = new State();
 
     /**
      * Listen for StreamMonetized events
      */
     @EventListener
     public void on(StreamMonetized event) {
-        // Update artist monetization
-        updateArtistMonetization(event.getArtistId(), event.getMonetizationAmount());
-
-        // Update song monetization
-        updateSongMonetization(event.getSongId(), event.getMonetizationAmount());
-
-        // Track the monetized stream
-        trackMonetizedStream(event);
-    }
-
-    /**
-     * Update the total monetization amount for an artist
-     */
-    private void updateArtistMonetization(UUID artistId, BigDecimal amount) {
-        artistMonetization.compute(artistId, (id, currentAmount) ->
-                currentAmount == null ? amount : currentAmount.add(amount));
-    }
-
-    /**
-     * Update the total monetization amount for a song
-     */
-    private void updateSongMonetization(UUID songId, BigDecimal amount) {
-        songMonetization.compute(songId, (id, currentAmount) ->
-                currentAmount == null ? amount : currentAmount.add(amount));
-    }
-
-    /**
-     * Track a monetized stream
-     */
-    private void trackMonetizedStream(StreamMonetized event) {
-        MonetizedStreamRecord record = new MonetizedStreamRecord(
-                event.getId(),
-                event.getSongId(),
-                event.getStreamTimestamp(),
-                event.getMonetizationAmount()
-        );
-
-        // Add to the list of monetized streams for this artist
-        List<MonetizedStreamRecord> artistStreams = monetizedStreamsByArtist.computeIfAbsent(
-                event.getArtistId(),
-                id -> new ArrayList<>()
-        );
-        artistStreams.add(record);
+        apply(event, () -> state.apply(event));
     }
 
     /**
      * Get the total monetization amount for an artist
      */
     public BigDecimal getArtistMonetization(UUID artistId) {
-        return artistMonetization.getOrDefault(artistId, BigDecimal.ZERO);
+        return state.artistMonetization.getOrDefault(artistId, BigDecimal.ZERO);
     }
 
     /**
      * Get the total monetization amount for a song
      */
     public BigDecimal getSongMonetization(UUID songId) {
-        return songMonetization.getOrDefault(songId, BigDecimal.ZERO);
+        return state.songMonetization.getOrDefault(songId, BigDecimal.ZERO);
     }
 
     /**
      * Get all monetized streams for an artist between two dates
      */
     public List<MonetizedStreamRecord> getArtistMonetizedStreams(UUID artistId, Instant fromDate, Instant toDate) {
-        List<MonetizedStreamRecord> allStreams = monetizedStreamsByArtist.getOrDefault(artistId, new ArrayList<>());
+        List<MonetizedStreamRecord> allStreams = state.monetizedStreamsByArtist.getOrDefault(artistId, new ArrayList<>());
 
         return allStreams.stream()
                 .filter(record -> !record.timestamp.isBefore(fromDate) && !record.timestamp.isAfter(toDate))
                 .toList();
     }
 
+    @Override
+    public String getName() {
+        return "monetization";
+    }
+
+    @Override
+    protected boolean handles(DomainEvent event) {
+        return event instanceof StreamMonetized;
+    }
+
+    @Override
+    protected void replay(DomainEvent event) {
+        if (event instanceof StreamMonetized monetized) {
+            on(monetized);
+        }
+    }
+
+    // Every amount and record then belongs to exactly one shard
+    @Override
+    protected Object partitionKey(DomainEvent event) {
+        return ((StreamMonetized) event).getArtistId();
+    }
+
+    @Override
+    protected RebuildShard newRebuildShard() {
+        return new State();
+    }
+
+    @Override
+    protected void swapIn(List<RebuildShard> shards) {
+        State merged = new State();
+        for (RebuildShard shard : shards) {
+            State part = (State) shard;
+            merged.artistMonetization.putAll(part.artistMonetization);
+            merged.songMonetization.putAll(part.songMonetization);
+            merged.monetizedStreamsByArtist.putAll(part.monetizedStreamsByArtist);
+        }
+        state = merged;
+    }
+
+    @Override
+    protected void writeState(DataOutputStream out) throws IOException {
+        State current = state;
+        writeAmounts(out, current.artistMonetization);
+        writeAmounts(out, current.songMonetization);
+        out.writeInt(current.monetizedStreamsByArtist.size());
+        for (Map.Entry<UUID, List<MonetizedStreamRecord>> artist : current.monetizedStreamsByArtist.entrySet()) {
+            writeUuid(out, artist.getKey());
+            out.writeInt(artist.getValue().size());
+            for (MonetizedStreamRecord record : artist.getValue()) {
+                writeUuid(out, record.streamId);
+                writeUuid(out, record.songId);
+                out.writeLong(record.timestamp.getEpochSecond());
+                out.writeInt(record.timestamp.getNano());
+                out.writeUTF(record.amount.toString());
+            }
+        }
+    }
+
+    @Override
+    protected void readState(DataInputStream in) throws IOException {
+        State restored = new State();
+        readAmounts(in, restored.artistMonetization);
+        readAmounts(in, restored.songMonetization);
+        int artists = readCount(in);
+        for (int i = 0; i < artists; i++) {
+            UUID artistId = readUuid(in);
+            int count = readCount(in);
+            List<MonetizedStreamRecord> records = new ArrayList<>(Math.min(count, 1 << 16));
+            for (int j = 0; j < count; j++) {
+                records.add(new MonetizedStreamRecord(readUuid(in), readUuid(in),
+                        Instant.ofEpochSecond(in.readLong(), in.readInt()), new BigDecimal(in.readUTF())));
+            }
+            restored.monetizedStreamsByArtist.put(artistId, records);
+        }
+        state = restored;
+    }
+
+    private static void writeAmounts(DataOutputStream out, Map<UUID, BigDecimal> amounts) throws IOException {
+        out.writeInt(amounts.size());
+        for (Map.Entry<UUID, BigDecimal> amount : amounts.entrySet()) {
+            writeUuid(out, amount.getKey());
+            out.writeUTF(amount.getValue().toString());
+        }
+    }
+
+    private static void readAmounts(DataInputStream in, Map<UUID, BigDecimal> amounts) throws IOException {
+        int count = readCount(in);
+        for (int i = 0; i < count; i++) {
+            amounts.put(readUuid(in), new BigDecimal(in.readUTF()));
+        }
+    }
+
+    /**
+     * Monetization totals and records; also the partial state of a rebuild shard
+     */
+    private static final class State implements RebuildShard {
+
+        // Map to track total monetization amounts by artist
+        private final Map<UUID, BigDecimal> artistMonetization = new ConcurrentHashMap<>();
+
+        // Map to track total monetization amounts by song
+        private final Map<UUID, BigDecimal> songMonetization = new ConcurrentHashMap<>();
+
+        // Map to track monetized streams by artist
+        private final Map<UUID, List<MonetizedStreamRecord>> monetizedStreamsByArtist = new ConcurrentHashMap<>();
+
+        @Override
+        public void apply(DomainEvent event) {
+            StreamMonetized monetized = (StreamMonetized) event;
+
+            // Update artist monetization
+            updateArtistMonetization(monetized.getArtistId(), monetized.getMonetizationAmount());
+
+            // Update song monetization
+            updateSongMonetization(monetized.getSongId(), monetized.getMonetizationAmount());
+
+            // Track the monetized stream
+            trackMonetizedStream(monetized);
+        }
+
+        /**
+         * Update the total monetization amount for an artist
+         */
+        private void updateArtistMonetization(UUID artistId, BigDecimal amount) {
+            artistMonetization.compute(artistId, (id, currentAmount) ->
+                    currentAmount == null ? amount : currentAmount.add(amount));
+        }
+
+        /**
+         * Update the total monetization amount for a song
+         */
+        private void updateSongMonetization(UUID songId, BigDecimal amount) {
+            songMonetization.compute(songId, (id, currentAmount) ->
+                    currentAmount == null ? amount : currentAmount.add(amount));
+        }
+
+        /**
+         * Track a monetized stream
+         */
+        private void trackMonetizedStream(StreamMonetized event) {
+            MonetizedStreamRecord record = new MonetizedStreamRecord(
+                    event.getId(),
+                    event.getSongId(),
+                    event.getStreamTimestamp(),
+                    event.getMonetizationAmount()
+            );
+
+            // Add to the list of monetized streams for this artist, atomically per artist
+            monetizedStreamsByArtist.compute(event.getArtistId(), (id, artistStreams) -> {
+                List<MonetizedStreamRecord> streams = artistStreams == null ? new ArrayList<>() : artistStreams;
+                streams.add(record);
+                return streams;
+            });
+        }
+    }
+
     /**
      * Record of a monetized stream
      */
@@ -2,22 +2,27 @@ package com.moji.musicdistribution.query.projections;
 
 import com.moji.musicdistribution.domain.aggregates.Artist;
 import com.moji.musicdistribution.domain.aggregates.Song;
-import com.moji.musicdistribution.domain.aggregates.Stream;
+import com.moji.musicdistribution.domain.events.DomainEvent;
 import com.moji.musicdistribution.domain.events.PaymentReportRequested;
 import com.moji.musicdistribution.domain.events.StreamMonetized;
 import com.moji.musicdistribution.domain.repositories.ArtistRepository;
 import com.moji.musicdistribution.domain.repositories.SongRepository;
 import com.moji.musicdistribution.domain.repositories.StreamRepository;
+import com.moji.musicdistribution.query.archive.StreamArchive;
 import com.moji.musicdistribution.query.readmodels.MonetizationReport;
 import com.moji.musicdistribution.query.readmodels.PaymentReport;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.time.Clock;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 /**
@@ -26,15 +31,16 @@ import java.util.stream.Collectors;
  */
 @Component
 @RequiredArgsConstructor
-public class PaymentReportProjection {
+public class PaymentReportProjection extends CheckpointedProjection {
 
     private final ArtistRepository artistRepository;
     private final SongRepository songRepository;
     private final StreamRepository streamRepository;
+    private final StreamArchive streamArchive;
     private final Clock clock;
 
     // Map to track the last payment date for each artist
-    private final Map<UUID, Instant> lastPaymentDates = new HashMap<>();
+    private volatile PaymentDates lastPaymentDates = new PaymentDates();
 
     /**
      * Listen for PaymentReportRequested events
@@ -43,7 +49,7 @@ public class PaymentReportProjection {
     public void on(PaymentReportRequested event) {
         // When a payment report is requested, we generate it and could store it
         // For this implementation, we'll just update the last payment date
-        lastPaymentDates.put(event.getArtistId(), Instant.now(clock));
+        apply(event, () -> lastPaymentDates.apply(event));
     }
 
     /**
@@ -57,6 +63,7 @@ public class PaymentReportProjection {
 
     /**
      * Generate a payment report for an artist
+     * Streams are counted per song by the database and the stream archive rather than loaded
      */
     public PaymentReport generatePaymentReport(UUID artistId, Instant fromDate, Instant toDate) {
         // Get the artist
@@ -68,29 +75,31 @@ public class PaymentReportProjection {
         Map<UUID, String> songTitles = artistSongs.stream()
                 .collect(Collectors.toMap(Song::getId, Song::getTitle));
 
-        // Get all monetizable streams in the date range
-        List<Stream> monetizableStreams = streamRepository
-                .findMonetizableStreamsByArtistAndDateRange(artistId, fromDate, toDate);
-
-        // Group streams by song
-        Map<UUID, List<Stream>> streamsBySong = monetizableStreams.stream()
-                .collect(Collectors.groupingBy(Stream::getSongId));
+        // Count the monetizable streams of each song in the date range, live and archived
+        Map<UUID, Long> streamsBySong = new HashMap<>();
+        List<StreamRepository.SongStreamTotals> songTotals = new ArrayList<>(streamRepository
+                .sumMonetizedStreamsBySong(artistId, fromDate, toDate));
+        songTotals.addAll(streamArchive.sumMonetizedStreamsBySong(artistId, fromDate, toDate));
+        for (StreamRepository.SongStreamTotals totals : songTotals) {
+            streamsBySong.merge(totals.getSongId(), totals.getStreamCount(), Long::sum);
+        }
 
         // Calculate payment for each song
         List<PaymentReport.SongPayment> songPayments = new ArrayList<>();
         BigDecimal totalAmount = BigDecimal.ZERO;
+        int totalMonetizedStreams = 0;
 
-        for (UUID songId : streamsBySong.keySet()) {
-            List<Stream> songStreams = streamsBySong.get(songId);
-            int streamCount = songStreams.size();
+        for (Map.Entry<UUID, Long> song : streamsBySong.entrySet()) {
+            int streamCount = Math.toIntExact(song.getValue());
+            totalMonetizedStreams += streamCount;
 
             // Calculate payment amount (in a real system, this would use complex business rules)
-            BigDecimal songAmount = calculatePaymentAmount(songStreams);
+            BigDecimal songAmount = calculatePaymentAmount(streamCount);
             totalAmount = totalAmount.add(songAmount);
 
             songPayments.add(new PaymentReport.SongPayment(
-                    songId,
-                    songTitles.getOrDefault(songId, "Unknown Song"),
+                    song.getKey(),
+                    songTitles.getOrDefault(song.getKey(), "Unknown Song"),
                     streamCount,
                     songAmount
             ));
@@ -103,7 +112,7 @@ public class PaymentReportProjection {
         return new PaymentReport(
                 artistId,
                 artist.getName(),
-                monetizableStreams.size(),
+                totalMonetizedStreams,
                 totalAmount,
                 fromDate,
                 toDate,
@@ -123,19 +132,22 @@ public class PaymentReportProjection {
 
         // Use default date range if not provided
         Instant effectiveFromDate = fromDate != null ? fromDate :
-                lastPaymentDates.getOrDefault(artistId, Instant.EPOCH);
+                lastPaymentDates.byArtist.getOrDefault(artistId, Instant.EPOCH);
         Instant effectiveToDate = toDate != null ? toDate : Instant.now(clock);
 
-        // Get all streams in the date range
-        List<Stream> allStreams = streamRepository.findByArtistId(artistId).stream()
-                .filter(stream -> !stream.getStreamDate().isBefore(effectiveFromDate) &&
-                        !stream.getStreamDate().isAfter(effectiveToDate))
-                .collect(Collectors.toList());
-
-        // Count monetizable streams
-        List<Stream> monetizableStreams = allStreams.stream()
-                .filter(Stream::isMonetizable)
-                .collect(Collectors.toList());
+        // Count the streams in the date range, split by monetization
+        int totalStreams = 0;
+        int monetizableStreams = 0;
+        List<StreamRepository.SongStreamCount> counts = new ArrayList<>(streamRepository
+                .countStreamsByArtistAndDateRange(artistId, effectiveFromDate, effectiveToDate));
+        counts.addAll(streamArchive.countStreamsByArtist(artistId, effectiveFromDate, effectiveToDate));
+        for (StreamRepository.SongStreamCount count : counts) {
+            int streamCount = Math.toIntExact(count.getStreamCount());
+            totalStreams += streamCount;
+            if (count.isMonetized()) {
+                monetizableStreams += streamCount;
+            }
+        }
 
         // Calculate estimated revenue
         BigDecimal estimatedRevenue = calculatePaymentAmount(monetizableStreams);
@@ -144,10 +156,10 @@ public class PaymentReportProjection {
         return new MonetizationReport(
                 artistId,
                 artist.getName(),
-                allStreams.size(),
-                monetizableStreams.size(),
+                totalStreams,
+                monetizableStreams,
                 estimatedRevenue,
-                lastPaymentDates.get(artistId),
+                lastPaymentDates.byArtist.get(artistId),
                 effectiveFromDate,
                 effectiveToDate,
                 Instant.now(clock)
@@ -155,11 +167,82 @@ public class PaymentReportProjection {
     }
 
     /**
-     * Calculate payment amount for a list of streams
+     * Calculate payment amount for a number of monetizable streams
      * In a real system, this would implement complex business rules
      */
-    private BigDecimal calculatePaymentAmount(List<Stream> streams) {
+    private BigDecimal calculatePaymentAmount(int monetizableStreams) {
         // Simplified calculation: $0.004 per monetizable stream
-        return new BigDecimal("0.004").multiply(new BigDecimal(streams.size()));
+        return new BigDecimal("0.004").multiply(new BigDecimal(monetizableStreams));
+    }
+
+    @Override
+    public String getName() {
+        return "payment-reports";
+    }
+
+    @Override
+    protected boolean handles(DomainEvent event) {
+        return event instanceof PaymentReportRequested;
+    }
+
+    @Override
+    protected void replay(DomainEvent event) {
+        if (event instanceof PaymentReportRequested requested) {
+            on(requested);
+        }
+    }
+
+    @Override
+    protected Object partitionKey(DomainEvent event) {
+        return ((PaymentReportRequested) event).getArtistId();
+    }
+
+    @Override
+    protected RebuildShard newRebuildShard() {
+        return new PaymentDates();
+    }
+
+    @Override
+    protected void swapIn(List<RebuildShard> shards) {
+        PaymentDates merged = new PaymentDates();
+        for (RebuildShard shard : shards) {
+            merged.byArtist.putAll(((PaymentDates) shard).byArtist);
+        }
+        lastPaymentDates = merged;
+    }
+
+    @Override
+    protected void writeState(DataOutputStream out) throws IOException {
+        Map<UUID, Instant> byArtist = lastPaymentDates.byArtist;
+        out.writeInt(byArtist.size());
+        for (Map.Entry<UUID, Instant> payment : byArtist.entrySet()) {
+            writeUuid(out, payment.getKey());
+            out.writeLong(payment.getValue().toEpochMilli());
+        }
+    }
+
+    @Override
+    protected void readState(DataInputStream in) throws IOException {
+        PaymentDates restored = new PaymentDates();
+        int count = readCount(in);
+        for (int i = 0; i < count; i++) {
+            restored.byArtist.put(readUuid(in), Instant.ofEpochMilli(in.readLong()));
+        }
+        lastPaymentDates = restored;
+    }
+
+    /**
+     * Last payment date by artist; also the partial state of a rebuild shard
+     */
+    private static final class PaymentDates implements RebuildShard {
+        private final Map<UUID, Instant> byArtist = new ConcurrentHashMap<>();
+
+        // The date is taken from the event so that replaying the event gives the same date
+        @Override
+        public void apply(DomainEvent event) {
+            PaymentReportRequested requested = (PaymentReportRequested) event;
+            byArtist.merge(requested.getArtistId(), Instant.ofEpochMilli(requested.getTimestamp()),
+                    (current, requestedAt) -> requestedAt.isAfter(current) ? requestedAt : current);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,113 @@
+package com.moji.musicdistribution.query.projections;
+
+import com.moji.musicdistribution.eventstore.EventStore;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Restores every {@link CheckpointedProjection} at startup, advances their checkpoints and
+ * snapshots them periodically
+ * <p>
+ * Snapshots live in {@code projections.snapshot.path}, one file per projection, and are only
+ * restored against the event log they were taken from, so they need a journaled log
+ * ({@code eventstore.journal.path}). Without a path nothing is written. A projection without
+ * a usable snapshot is rebuilt from the whole log in parallel by the {@link ProjectionRebuilder}.
+ * Advancing a checkpoint moves it past the events the projection has applied and those it
+ * does not handle, which keeps the window of applied sequences beyond it small and lets the
+ * {@link ProjectionMetrics} report how far each projection is behind the log.
+ */
+@Component
+@Slf4j
+public class ProjectionCheckpoints {
+
+    private final List<CheckpointedProjection> projections;
+    private final EventStore eventStore;
+    private final ProjectionRebuilder rebuilder;
+    private final Path directory; // null when snapshots are disabled
+    private volatile boolean restored;
+
+    public ProjectionCheckpoints(List<CheckpointedProjection> projections,
+                                 EventStore eventStore,
+                                 ProjectionRebuilder rebuilder,
+                                 @Value("${projections.snapshot.path:}") String path) {
+        this.projections = projections;
+        this.eventStore = eventStore;
+        this.rebuilder = rebuilder;
+        this.directory = path == null || path.isBlank() ? null : Path.of(path);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void restore() {
+        for (CheckpointedProjection projection : projections) {
+            if (projection.restoreSnapshot(eventStore, snapshotPath(projection))) {
+                int replayed = projection.catchUp(eventStore);
+                log.info("{} projection restored from its snapshot, replayed {} events",
+                        projection.getName(), replayed);
+            } else {
+                rebuilder.rebuild(projection);
+            }
+        }
+        restored = true;
+    }
+
+    /**
+     * Advance every projection's checkpoint, every second by default
+     */
+    @Scheduled(fixedDelayString = "${projections.checkpoint.interval-ms:1000}",
+            initialDelayString = "${projections.checkpoint.interval-ms:1000}")
+    public void checkpoint() {
+        if (!restored) {
+            return; // the rebuild sets the checkpoints
+        }
+        for (CheckpointedProjection projection : projections) {
+            try {
+                projection.advanceCheckpoint(eventStore);
+            } catch (RuntimeException e) {
+                log.error("Failed to advance the checkpoint of the {} projection", projection.getName(), e);
+            }
+        }
+    }
+
+    /**
+     * Snapshot every projection that changed since its last snapshot, every five minutes by default
+     */
+    @Scheduled(fixedDelayString = "${projections.snapshot.interval-ms:300000}",
+            initialDelayString = "${projections.snapshot.interval-ms:300000}")
+    public void snapshot() {
+        if (!restored || directory == null) {
+            return; // a snapshot taken now would overwrite the one not yet restored
+        }
+        for (CheckpointedProjection projection : projections) {
+            try {
+                projection.snapshot(eventStore, snapshotPath(projection));
+            } catch (IOException | RuntimeException e) {
+                log.error("Failed to snapshot the {} projection to {}", projection.getName(), directory, e);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        snapshot();
+    }
+
+    /**
+     * Projections under checkpoint management
+     */
+    public List<CheckpointedProjection> getProjections() {
+        return projections;
+    }
+
+    private Path snapshotPath(CheckpointedProjection projection) {
+        return directory == null ? null : directory.resolve(projection.getName() + ".snap");
+    }
+}
@@ -0,0 +1,59 @@
+package com.moji.musicdistribution.query.projections;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Actuator endpoint to inspect the checkpointed projections and rebuild them at runtime
+ * {@code POST /actuator/projections} with {@code {"name": "stream-stats"}} rebuilds that
+ * projection from the event log with the {@link ProjectionRebuilder}; the old state keeps
+ * serving queries until the rebuilt one is swapped in. Without a name every projection is
+ * rebuilt, one at a time.
+ */
+@Component
+@Endpoint(id = "projections")
+@RequiredArgsConstructor
+public class ProjectionEndpoint {
+
+    private final ProjectionCheckpoints checkpoints;
+    private final ProjectionRebuilder rebuilder;
+
+    @ReadOperation
+    public Map<String, Object> projections() {
+        Map<String, Object> projections = new LinkedHashMap<>();
+        for (CheckpointedProjection projection : checkpoints.getProjections()) {
+            projections.put(projection.getName(), Map.of(
+                    "checkpoint", projection.getCheckpoint(),
+                    "lastAppliedSequence", projection.getLastAppliedSequence(),
+                    "appliedEvents", projection.getAppliedEvents()
+            ));
+        }
+        return projections;
+    }
+
+    /**
+     * Rebuild the named projection, or all of them
+     *
+     * @return the number of events applied by each rebuild
+     */
+    @WriteOperation
+    public Map<String, Long> rebuild(@Nullable String name) {
+        Map<String, Long> rebuilt = new LinkedHashMap<>();
+        for (CheckpointedProjection projection : checkpoints.getProjections()) {
+            if (name == null || name.equals(projection.getName())) {
+                rebuilt.put(projection.getName(), rebuilder.rebuild(projection));
+            }
+        }
+        if (rebuilt.isEmpty()) {
+            throw new IllegalArgumentException("Unknown projection: " + name);
+        }
+        return rebuilt;
+    }
+}
@@ -0,0 +1,104 @@
+package com.moji.musicdistribution.query.projections;
+
+import com.moji.musicdistribution.domain.events.DomainEvent;
+import com.moji.musicdistribution.eventstore.EventStore;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer meters for every {@link CheckpointedProjection}, tagged with the projection name
+ * <ul>
+ *     <li>{@code projections.sequence.head}: last sequence in the event store</li>
+ *     <li>{@code projections.sequence.applied} and {@code projections.sequence.checkpoint}:
+ *     highest sequence applied, and the one up to which nothing is missing</li>
+ *     <li>{@code projections.lag}: events stored after the checkpoint, so a gap left by an
+ *     event not yet applied counts in full; it drops as {@link ProjectionCheckpoints} advances
+ *     the checkpoint, also over the events the projection ignores</li>
+ *     <li>{@code projections.events.applied}: events applied, whose rate is the throughput</li>
+ *     <li>{@code projections.apply.duration}: time in the update, also tagged with the event type</li>
+ *     <li>{@code projections.apply.delay}: time from an event's creation to its live application</li>
+ * </ul>
+ * Both timers publish percentile histograms for the Prometheus endpoint.
+ */
+@Component
+public class ProjectionMetrics {
+
+    private final MeterRegistry meterRegistry;
+    private final Clock clock;
+
+    public ProjectionMetrics(List<CheckpointedProjection> projections,
+                             EventStore eventStore,
+                             MeterRegistry meterRegistry,
+                             Clock clock) {
+        this.meterRegistry = meterRegistry;
+        this.clock = clock;
+
+        Gauge.builder("projections.sequence.head", eventStore, EventStore::getLastSequence)
+                .description("Sequence of the last stored event")
+                .register(meterRegistry);
+        for (CheckpointedProjection projection : projections) {
+            String name = projection.getName();
+            Gauge.builder("projections.sequence.applied", projection, CheckpointedProjection::getLastAppliedSequence)
+                    .tag("projection", name)
+                    .description("Highest event sequence applied to the projection")
+                    .register(meterRegistry);
+            Gauge.builder("projections.sequence.checkpoint", projection, CheckpointedProjection::getCheckpoint)
+                    .tag("projection", name)
+                    .description("Sequence up to which every event has been applied to the projection")
+                    .register(meterRegistry);
+            Gauge.builder("projections.lag", projection,
+                            p -> Math.max(0, eventStore.getLastSequence() - p.getCheckpoint()))
+                    .tag("projection", name)
+                    .baseUnit("events")
+                    .description("Events stored after the projection's checkpoint")
+                    .register(meterRegistry);
+            FunctionCounter.builder("projections.events.applied", projection, CheckpointedProjection::getAppliedEvents)
+                    .tag("projection", name)
+                    .description("Events applied to the projection")
+                    .register(meterRegistry);
+            projection.bindMetrics(new Meters(name));
+        }
+    }
+
+    /**
+     * Timers of one projection; duration timers are created per event type on first use
+     */
+    private final class Meters implements CheckpointedProjection.ApplyMetrics {
+
+        private final String projection;
+        private final Timer delay;
+        private final Map<Class<?>, Timer> durations = new ConcurrentHashMap<>();
+
+        private Meters(String projection) {
+            this.projection = projection;
+            this.delay = Timer.builder("projections.apply.delay")
+                    .tag("projection", projection)
+                    .description("Time from an event's creation until the projection applied it")
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+        }
+
+        @Override
+        public void applied(DomainEvent event, long durationNanos, boolean live) {
+            durations.computeIfAbsent(event.getClass(), type -> Timer.builder("projections.apply.duration")
+                    .tag("projection", projection)
+                    .tag("event", type.getSimpleName())
+                    .description("Time the projection spent applying an event")
+                    .publishPercentileHistogram()
+                    .register(meterRegistry)
+            ).record(durationNanos, TimeUnit.NANOSECONDS);
+            if (live) {
+                delay.record(Math.max(0, clock.millis() - event.getTimestamp()), TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+}
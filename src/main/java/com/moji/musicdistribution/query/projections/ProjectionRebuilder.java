@@ -0,0 +1,149 @@
+package com.moji.musicdistribution.query.projections;
+
+import com.moji.musicdistribution.domain.events.DomainEvent;
+import com.moji.musicdistribution.eventstore.EventStore;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Rebuilds a {@link CheckpointedProjection} from the whole event log in parallel
+ * <p>
+ * The calling thread reads the log in batches of {@code projections.rebuild.batch-size},
+ * bypassing the application event multicaster, and splits each batch by the projection's
+ * {@link CheckpointedProjection#partitionKey partition key} across one shard per worker
+ * ({@code projections.rebuild.parallelism}, one per CPU core by default). Each worker applies
+ * its share to its own {@link CheckpointedProjection.RebuildShard} in log order, so no locks
+ * are taken on the rebuild path; bounded queues keep the reader at most a few batches ahead.
+ * The live state keeps serving queries until the shards are merged and swapped in at once,
+ * after which the events stored during the rebuild are caught up.
+ */
+@Component
+@Slf4j
+public class ProjectionRebuilder {
+
+    private static final int QUEUE_DEPTH = 4;
+    private static final List<DomainEvent> END = new ArrayList<>(0);
+
+    private final EventStore eventStore;
+    private final int batchSize;
+    private final int parallelism;
+    private final ExecutorService workers;
+
+    public ProjectionRebuilder(EventStore eventStore,
+                               @Value("${projections.rebuild.batch-size:50000}") int batchSize,
+                               @Value("${projections.rebuild.parallelism:0}") int parallelism) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Rebuild batch size must be positive");
+        }
+        this.eventStore = eventStore;
+        this.batchSize = batchSize;
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threads = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(this.parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "projection-rebuild-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Rebuild the projection from every stored event and swap the result in
+     * Rebuilds share the worker pool, so callers rebuild one projection at a time.
+     *
+     * @return the number of events applied
+     */
+    public synchronized long rebuild(CheckpointedProjection projection) {
+        long started = System.nanoTime();
+        long head = eventStore.getLastSequence();
+
+        List<CheckpointedProjection.RebuildShard> shards = new ArrayList<>(parallelism);
+        List<BlockingQueue<List<DomainEvent>>> queues = new ArrayList<>(parallelism);
+        List<Future<?>> results = new ArrayList<>(parallelism);
+        for (int i = 0; i < parallelism; i++) {
+            CheckpointedProjection.RebuildShard shard = projection.newRebuildShard();
+            BlockingQueue<List<DomainEvent>> queue = new ArrayBlockingQueue<>(QUEUE_DEPTH);
+            shards.add(shard);
+            queues.add(queue);
+            results.add(workers.submit(() -> {
+                List<DomainEvent> batch;
+                while ((batch = queue.take()) != END) {
+                    for (DomainEvent event : batch) {
+                        shard.apply(event);
+                    }
+                }
+                return null;
+            }));
+        }
+
+        long applied = 0;
+        long position = 0;
+        try {
+            while (position < head) {
+                List<DomainEvent> batch = eventStore.getEventsAfter(position,
+                        (int) Math.min(batchSize, head - position));
+                if (batch.isEmpty()) {
+                    break;
+                }
+                List<List<DomainEvent>> parts = new ArrayList<>(parallelism);
+                for (int i = 0; i < parallelism; i++) {
+                    parts.add(new ArrayList<>(batch.size() / parallelism + 16));
+                }
+                for (DomainEvent event : batch) {
+                    if (projection.handles(event)) {
+                        parts.get(Math.floorMod(projection.partitionKey(event).hashCode(), parallelism)).add(event);
+                        applied++;
+                    }
+                }
+                for (int i = 0; i < parallelism; i++) {
+                    if (!parts.get(i).isEmpty()) {
+                        hand(queues.get(i), parts.get(i), results.get(i));
+                    }
+                }
+                position = batch.get(batch.size() - 1).getSequence();
+            }
+            for (int i = 0; i < parallelism; i++) {
+                hand(queues.get(i), END, results.get(i));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            results.forEach(result -> result.cancel(true));
+            throw new IllegalStateException("Rebuild of the " + projection.getName() + " projection was interrupted", e);
+        } catch (ExecutionException e) {
+            results.forEach(result -> result.cancel(true));
+            throw new IllegalStateException("Rebuild of the " + projection.getName() + " projection failed", e.getCause());
+        }
+
+        projection.rebuilt(shards, position);
+        int caughtUp = projection.catchUp(eventStore);
+        log.info("Rebuilt the {} projection from {} events on {} shards in {} ms, then caught up {} more",
+                projection.getName(), applied, parallelism,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started), caughtUp);
+        return applied;
+    }
+
+    // Queue a batch for a worker without blocking forever on one that has died
+    private static void hand(BlockingQueue<List<DomainEvent>> queue, List<DomainEvent> batch, Future<?> worker)
+            throws InterruptedException, ExecutionException {
+        while (!queue.offer(batch, 100, TimeUnit.MILLISECONDS)) {
+            if (worker.isDone()) {
+                worker.get();
+                throw new IllegalStateException("Rebuild worker stopped early");
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+}
@@ -0,0 +1,155 @@
+package com.moji.musicdistribution.query.projections;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+/**
+ * Persisted state of a {@link CheckpointedProjection}, stamped with the checkpoint it reflects
+ * <p>
+ * File layout (big-endian): magic, format version, body length, body, CRC32 of the body.
+ * The body holds the checkpoint sequence, the sequences applied beyond the checkpoint, the ID
+ * of the event at the highest of those sequences, and the projection's own state bytes. The
+ * event ID ties the snapshot to the event log it was taken from: a log that holds the same
+ * event at that sequence holds every event the state reflects. Files are written to a
+ * temporary sibling and moved into place.
+ */
+final class ProjectionSnapshot {
+
+    private static final int MAGIC = 0x50524A53; // "PRJS"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+
+    private final long sequence;
+    private final List<Long> appliedAfter;
+    private final UUID lastEventId;
+    private final byte[] state;
+
+    ProjectionSnapshot(long sequence, List<Long> appliedAfter, UUID lastEventId, byte[] state) {
+        this.sequence = sequence;
+        this.appliedAfter = appliedAfter;
+        this.lastEventId = lastEventId;
+        this.state = state;
+    }
+
+    long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Highest sequence the state reflects
+     */
+    long getLastSequence() {
+        return appliedAfter.isEmpty() ? sequence : appliedAfter.get(appliedAfter.size() - 1);
+    }
+
+    /**
+     * ID of the event at {@link #getLastSequence()}; the nil UUID for an empty log
+     */
+    UUID getLastEventId() {
+        return lastEventId;
+    }
+
+    /**
+     * Sequences beyond the checkpoint whose events the state already reflects
+     */
+    List<Long> getAppliedAfter() {
+        return appliedAfter;
+    }
+
+    byte[] getState() {
+        return state;
+    }
+
+    /**
+     * Write the snapshot, replacing any previous file atomically
+     */
+    void write(Path path) throws IOException {
+        int bodyLength = Long.BYTES + Integer.BYTES + appliedAfter.size() * Long.BYTES + 16
+                + Integer.BYTES + state.length;
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + bodyLength + Long.BYTES);
+        buffer.putInt(MAGIC).putInt(VERSION).putLong(bodyLength);
+        buffer.putLong(sequence);
+        buffer.putInt(appliedAfter.size());
+        for (long applied : appliedAfter) {
+            buffer.putLong(applied);
+        }
+        buffer.putLong(lastEventId.getMostSignificantBits()).putLong(lastEventId.getLeastSignificantBits());
+        buffer.putInt(state.length).put(state);
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), HEADER_BYTES, bodyLength);
+        buffer.putLong(crc.getValue()).flip();
+
+        Path parent = path.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Read and verify a snapshot file
+     *
+     * @throws IOException if the file cannot be read or is not a valid snapshot of this version
+     */
+    static ProjectionSnapshot read(Path path) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+        int size = buffer.capacity();
+        if (size < HEADER_BYTES || buffer.getInt() != MAGIC) {
+            throw new IOException("Not a projection snapshot");
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported snapshot version " + version);
+        }
+        long bodyLength = buffer.getLong();
+        if (bodyLength < 0 || HEADER_BYTES + bodyLength + Long.BYTES != size) {
+            throw new IOException("Truncated snapshot");
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), HEADER_BYTES, (int) bodyLength);
+        if (crc.getValue() != buffer.getLong(HEADER_BYTES + (int) bodyLength)) {
+            throw new IOException("Snapshot checksum mismatch");
+        }
+        try {
+            long sequence = buffer.getLong();
+            int appliedCount = buffer.getInt();
+            if (appliedCount < 0 || appliedCount > buffer.remaining() / Long.BYTES) {
+                throw new IllegalArgumentException("Invalid applied count");
+            }
+            List<Long> appliedAfter = new ArrayList<>(appliedCount);
+            for (int i = 0; i < appliedCount; i++) {
+                appliedAfter.add(buffer.getLong());
+            }
+            UUID lastEventId = new UUID(buffer.getLong(), buffer.getLong());
+            int stateLength = buffer.getInt();
+            if (stateLength < 0 || stateLength > buffer.remaining()) {
+                throw new IllegalArgumentException("Invalid state length");
+            }
+            byte[] state = new byte[stateLength];
+            buffer.get(state);
+            return new ProjectionSnapshot(sequence, appliedAfter, lastEventId, state);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Corrupt snapshot", e);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.moji.musicdistribution.query.projections;
+
+import java.util.UUID;
+
+/**
+ * Callback for read models that rank songs by popularity
+ * Notified by {@link StreamStatsProjection} after a song's stream count has changed
+ */
+public interface SongPopularityListener {
+
+    /**
+     * Called with the new total stream count of a song
+     */
+    void onSongStreamCount(UUID songId, long totalStreams);
+}
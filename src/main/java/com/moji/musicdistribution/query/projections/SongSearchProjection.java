@@ -1,14 +1,18 @@
 package com.moji.musicdistribution.query.projections;
 
+import com.moji.musicdistribution.domain.events.DomainEvent;
 import com.moji.musicdistribution.domain.events.ReleasePublished;
 import com.moji.musicdistribution.domain.events.ReleaseWithdrawn;
 import com.moji.musicdistribution.domain.events.SongsAddedToRelease;
 import com.moji.musicdistribution.query.readmodels.SongReadModel;
+import com.moji.musicdistribution.query.search.LevenshteinMatcher;
 import lombok.RequiredArgsConstructor;
-import org.apache.commons.text.similarity.LevenshteinDistance;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
@@ -19,16 +23,13 @@ import java.util.stream.Collectors;
  */
 @Component
 @RequiredArgsConstructor
-public class SongSearchProjection {
+public class SongSearchProjection extends CheckpointedProjection {
 
     // Map of all songs by ID
     private final Map<UUID, SongReadModel> songsById = new ConcurrentHashMap<>();
 
-    // Map of songs by release ID
-    private final Map<UUID, Set<UUID>> songsByRelease = new ConcurrentHashMap<>();
-
-    // Set of published releases
-    private final Set<UUID> publishedReleases = ConcurrentHashMap.newKeySet();
+    // Songs by release and published releases, replaced as a whole when restored or rebuilt
+    private volatile State state = new State();
 
     /**
      * Listen for SongsAddedToRelease events to add songs to the index
@@ -36,11 +37,7 @@ public class SongSearchProjection {
     @EventListener
     public void on(SongsAddedToRelease event) {
         // Update the songs by release map
-        Set<UUID> releaseSongs = songsByRelease.computeIfAbsent(
-                event.getAggregateId(),
-                releaseId -> ConcurrentHashMap.newKeySet()
-        );
-        releaseSongs.addAll(event.getSongIds());
+        apply(event, () -> state.apply(event));
 
         // In a real implementation, we would fetch song details from the repository
         // For this simplified version, we only have the song IDs
@@ -53,7 +50,7 @@ public class SongSearchProjection {
     @EventListener
     public void on(ReleasePublished event) {
         // Add to published releases
-        publishedReleases.add(event.getAggregateId());
+        apply(event, () -> state.apply(event));
     }
 
     /**
@@ -62,7 +59,7 @@ public class SongSearchProjection {
     @EventListener
     public void on(ReleaseWithdrawn event) {
         // Remove from published releases
-        publishedReleases.remove(event.getAggregateId());
+        apply(event, () -> state.apply(event));
     }
 
     /**
@@ -72,8 +69,9 @@ public class SongSearchProjection {
         Set<UUID> searchableSongIds = new HashSet<>();
 
         // Add all songs from published releases
-        for (UUID releaseId : publishedReleases) {
-            Set<UUID> releaseSongs = songsByRelease.getOrDefault(releaseId, Collections.emptySet());
+        State current = state;
+        for (UUID releaseId : current.publishedReleases) {
+            Set<UUID> releaseSongs = current.songsByRelease.getOrDefault(releaseId, Collections.emptySet());
             searchableSongIds.addAll(releaseSongs);
         }
 
@@ -95,19 +93,120 @@ public class SongSearchProjection {
                 .filter(Objects::nonNull)
                 .collect(Collectors.toList());
 
-        // Create Levenshtein distance calculator
-        LevenshteinDistance levenshtein = new LevenshteinDistance();
-        String searchTermLower = searchTerm.toLowerCase();
+        // Compile the search term once for all comparisons
+        LevenshteinMatcher matcher = LevenshteinMatcher.compile(searchTerm);
 
         // Filter songs by title similarity
         return searchableSongs.stream()
-                .filter(song -> {
-                    int distance = levenshtein.apply(
-                            searchTermLower,
-                            song.getTitle().toLowerCase()
-                    );
-                    return distance <= maxDistance;
-                })
+                .filter(song -> matcher.matches(song.getTitle(), maxDistance))
                 .collect(Collectors.toList());
     }
-}
\ No newline at end of file
+
+    @Override
+    public String getName() {
+        return "song-search";
+    }
+
+    @Override
+    protected boolean handles(DomainEvent event) {
+        return event instanceof SongsAddedToRelease
+                || event instanceof ReleasePublished
+                || event instanceof ReleaseWithdrawn;
+    }
+
+    @Override
+    protected void replay(DomainEvent event) {
+        if (event instanceof SongsAddedToRelease added) {
+            on(added);
+        } else if (event instanceof ReleasePublished published) {
+            on(published);
+        } else if (event instanceof ReleaseWithdrawn withdrawn) {
+            on(withdrawn);
+        }
+    }
+
+    // Each release's songs and publication state then belong to exactly one shard
+    @Override
+    protected Object partitionKey(DomainEvent event) {
+        return event.getAggregateId();
+    }
+
+    @Override
+    protected RebuildShard newRebuildShard() {
+        return new State();
+    }
+
+    @Override
+    protected void swapIn(List<RebuildShard> shards) {
+        State merged = new State();
+        for (RebuildShard shard : shards) {
+            State part = (State) shard;
+            merged.songsByRelease.putAll(part.songsByRelease);
+            merged.publishedReleases.addAll(part.publishedReleases);
+        }
+        state = merged;
+    }
+
+    @Override
+    protected void writeState(DataOutputStream out) throws IOException {
+        State current = state;
+        out.writeInt(current.songsByRelease.size());
+        for (Map.Entry<UUID, Set<UUID>> release : current.songsByRelease.entrySet()) {
+            writeUuid(out, release.getKey());
+            out.writeInt(release.getValue().size());
+            for (UUID songId : release.getValue()) {
+                writeUuid(out, songId);
+            }
+        }
+        out.writeInt(current.publishedReleases.size());
+        for (UUID releaseId : current.publishedReleases) {
+            writeUuid(out, releaseId);
+        }
+    }
+
+    @Override
+    protected void readState(DataInputStream in) throws IOException {
+        State restored = new State();
+        int releases = readCount(in);
+        for (int i = 0; i < releases; i++) {
+            UUID releaseId = readUuid(in);
+            int songs = readCount(in);
+            Set<UUID> releaseSongs = ConcurrentHashMap.newKeySet();
+            for (int j = 0; j < songs; j++) {
+                releaseSongs.add(readUuid(in));
+            }
+            restored.songsByRelease.put(releaseId, releaseSongs);
+        }
+        int published = readCount(in);
+        for (int i = 0; i < published; i++) {
+            restored.publishedReleases.add(readUuid(in));
+        }
+        state = restored;
+    }
+
+    /**
+     * Songs by release and published releases; also the partial state of a rebuild shard
+     */
+    private static final class State implements RebuildShard {
+
+        // Map of songs by release ID
+        private final Map<UUID, Set<UUID>> songsByRelease = new ConcurrentHashMap<>();
+
+        // Set of published releases
+        private final Set<UUID> publishedReleases = ConcurrentHashMap.newKeySet();
+
+        @Override
+        public void apply(DomainEvent event) {
+            if (event instanceof SongsAddedToRelease added) {
+                songsByRelease.computeIfAbsent(
+                        added.getAggregateId(),
+                        releaseId -> ConcurrentHashMap.newKeySet()
+                ).addAll(added.getSongIds());
+            } else if (event instanceof ReleasePublished) {
+                publishedReleases.add(event.getAggregateId());
+            } else if (event instanceof ReleaseWithdrawn) {
+                publishedReleases.remove(event.getAggregateId());
+            }
+        }
+    }
+}
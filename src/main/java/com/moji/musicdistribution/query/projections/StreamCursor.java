@@ -0,0 +1,58 @@
+package com.moji.musicdistribution.query.projections;
+
+import com.moji.musicdistribution.domain.aggregates.Stream;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Opaque keyset cursor pointing at the last stream of a page, ordered by (timestamp, id)
+ */
+final class StreamCursor {
+
+    private final Instant timestamp;
+    private final UUID streamId;
+
+    private StreamCursor(Instant timestamp, UUID streamId) {
+        this.timestamp = timestamp;
+        this.streamId = streamId;
+    }
+
+    Instant getTimestamp() {
+        return timestamp;
+    }
+
+    UUID getStreamId() {
+        return streamId;
+    }
+
+    /**
+     * Encode the position of a stream
+     */
+    static String encode(Stream stream) {
+        Instant timestamp = stream.getStreamDate();
+        String raw = timestamp.getEpochSecond() + ":" + timestamp.getNano() + ":" + stream.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a cursor produced by {@link #encode(Stream)}
+     *
+     * @return the position the cursor points at, or null when no cursor was given
+     */
+    static StreamCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split(":", 3);
+            return new StreamCursor(Instant.ofEpochSecond(Long.parseLong(parts[0]), Long.parseLong(parts[1])),
+                    UUID.fromString(parts[2]));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid stream cursor");
+        }
+    }
+}
@@ -1,15 +1,20 @@
 package com.moji.musicdistribution.query.projections;
 
+import com.moji.musicdistribution.domain.events.DomainEvent;
 import com.moji.musicdistribution.domain.events.StreamMonetized;
 import com.moji.musicdistribution.domain.events.StreamRecorded;
 import com.moji.musicdistribution.query.readmodels.StreamStatistics;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
@@ -20,30 +25,35 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 @Component
 @RequiredArgsConstructor
-public class StreamStatsProjection {
+public class StreamStatsProjection extends CheckpointedProjection {
 
-    // Map of statistics by song ID
-    private final Map<UUID, StreamStatistics> statsBySong = new ConcurrentHashMap<>();
+    // Read models notified when a song's stream count changes
+    private final ObjectProvider<SongPopularityListener> popularityListeners;
 
-    // Map of statistics by artist ID
-    private final Map<UUID, StreamStatistics> statsByArtist = new ConcurrentHashMap<>();
+    // Resolved on first use rather than per event; the listeners depend on this projection
+    private volatile List<SongPopularityListener> listeners;
 
-    // Map to track daily streams
-    private final Map<String, Map<UUID, Integer>> dailyStreamsBySong = new ConcurrentHashMap<>();
+    // Replaced as a whole when the projection is restored or rebuilt
+    private volatile State state = new State();
 
     /**
      * Listen for StreamRecorded events to update statistics
      */
     @EventListener
     public void on(StreamRecorded event) {
-        // Update song stats
-        updateSongStats(event.getSongId(), event.isMonetizable());
+        apply(event, () -> {
+            State current = state;
 
-        // Update artist stats
-        updateArtistStats(event.getArtistId(), event.isMonetizable());
+            // Update song stats
+            long songStreams = current.updateSongStats(event.getSongId(), event.isMonetizable());
+            notifyListeners(event.getSongId(), songStreams);
 
-        // Update daily stats
-        updateDailyStats(event.getSongId(), event.getStreamTimestamp());
+            // Update artist stats
+            current.updateArtistStats(event.getArtistId(), event.isMonetizable());
+
+            // Update daily stats
+            current.updateDailyStats(event.getSongId(), event.getStreamTimestamp());
+        });
     }
 
     /**
@@ -55,75 +65,225 @@ public class StreamStatsProjection {
     }
 
     /**
-     * Update statistics for a song
+     * Get statistics for a song
      */
-    private void updateSongStats(UUID songId, boolean monetizable) {
-        StreamStatistics stats = statsBySong.computeIfAbsent(
-                songId,
-                id -> new StreamStatistics(id)
-        );
-
-        stats.incrementTotalStreams();
-        if (monetizable) {
-            stats.incrementMonetizedStreams();
-        } else {
-            stats.incrementNonMonetizedStreams();
-        }
+    public StreamStatistics getSongStatistics(UUID songId) {
+        return state.statsBySong.getOrDefault(songId, new StreamStatistics(songId));
     }
 
     /**
-     * Update statistics for an artist
+     * Get the total number of streams for a song without creating an empty statistics object
      */
-    private void updateArtistStats(UUID artistId, boolean monetizable) {
-        StreamStatistics stats = statsByArtist.computeIfAbsent(
-                artistId,
-                id -> new StreamStatistics(id)
-        );
-
-        stats.incrementTotalStreams();
-        if (monetizable) {
-            stats.incrementMonetizedStreams();
-        } else {
-            stats.incrementNonMonetizedStreams();
-        }
+    public long getSongStreamCount(UUID songId) {
+        StreamStatistics stats = state.statsBySong.get(songId);
+        return stats == null ? 0 : stats.getTotalStreams().get();
     }
 
     /**
-     * Update daily stream statistics
+     * Get statistics for an artist
      */
-    private void updateDailyStats(UUID songId, Instant timestamp) {
-        // Format the date as YYYY-MM-DD
-        String dateKey = timestamp.truncatedTo(ChronoUnit.DAYS).toString().substring(0, 10);
-
-        // Get or create the map for this day
-        Map<UUID, Integer> dailyStreams = dailyStreamsBySong.computeIfAbsent(
-                dateKey,
-                date -> new HashMap<>()
-        );
-
-        // Increment the stream count for this song
-        dailyStreams.put(songId, dailyStreams.getOrDefault(songId, 0) + 1);
+    public StreamStatistics getArtistStatistics(UUID artistId) {
+        return state.statsByArtist.getOrDefault(artistId, new StreamStatistics(artistId));
     }
 
     /**
-     * Get statistics for a song
+     * Get the number of daily streams for a song on a specific date
      */
-    public StreamStatistics getSongStatistics(UUID songId) {
-        return statsBySong.getOrDefault(songId, new StreamStatistics(songId));
+    public int getDailyStreamsForSong(UUID songId, String date) {
+        Map<UUID, Integer> dailyStreams = state.dailyStreamsBySong.getOrDefault(date, Map.of());
+        return dailyStreams.getOrDefault(songId, 0);
+    }
+
+    @Override
+    public String getName() {
+        return "stream-stats";
+    }
+
+    @Override
+    protected boolean handles(DomainEvent event) {
+        return event instanceof StreamRecorded;
+    }
+
+    @Override
+    protected void replay(DomainEvent event) {
+        if (event instanceof StreamRecorded recorded) {
+            on(recorded);
+        }
+    }
+
+    // Song and daily statistics are then disjoint between shards; artist totals are summed
+    @Override
+    protected Object partitionKey(DomainEvent event) {
+        return ((StreamRecorded) event).getSongId();
+    }
+
+    @Override
+    protected RebuildShard newRebuildShard() {
+        return new State();
+    }
+
+    @Override
+    protected void swapIn(List<RebuildShard> shards) {
+        State merged = new State();
+        for (RebuildShard shard : shards) {
+            State part = (State) shard;
+            merged.statsBySong.putAll(part.statsBySong);
+            part.dailyStreamsBySong.forEach((dateKey, songs) -> merged.dailyStreamsBySong
+                    .computeIfAbsent(dateKey, date -> new ConcurrentHashMap<>()).putAll(songs));
+            part.statsByArtist.forEach((artistId, stats) -> merged.statsByArtist.merge(artistId, stats,
+                    (a, b) -> new StreamStatistics(artistId,
+                            a.getMonetizedStreams().get() + b.getMonetizedStreams().get(),
+                            a.getNonMonetizedStreams().get() + b.getNonMonetizedStreams().get())));
+        }
+        state = merged;
+    }
+
+    @Override
+    protected void writeState(DataOutputStream out) throws IOException {
+        State current = state;
+        writeStatistics(out, current.statsBySong);
+        writeStatistics(out, current.statsByArtist);
+        out.writeInt(current.dailyStreamsBySong.size());
+        for (Map.Entry<String, Map<UUID, Integer>> day : current.dailyStreamsBySong.entrySet()) {
+            out.writeUTF(day.getKey());
+            out.writeInt(day.getValue().size());
+            for (Map.Entry<UUID, Integer> song : day.getValue().entrySet()) {
+                writeUuid(out, song.getKey());
+                out.writeInt(song.getValue());
+            }
+        }
+    }
+
+    @Override
+    protected void readState(DataInputStream in) throws IOException {
+        State restored = new State();
+        readStatistics(in, restored.statsBySong);
+        readStatistics(in, restored.statsByArtist);
+        int days = readCount(in);
+        for (int i = 0; i < days; i++) {
+            String dateKey = in.readUTF();
+            int songs = readCount(in);
+            Map<UUID, Integer> dailyStreams = new ConcurrentHashMap<>();
+            for (int j = 0; j < songs; j++) {
+                dailyStreams.put(readUuid(in), in.readInt());
+            }
+            restored.dailyStreamsBySong.put(dateKey, dailyStreams);
+        }
+        state = restored;
     }
 
     /**
-     * Get statistics for an artist
+     * Tell the popularity read models the restored stream counts
      */
-    public StreamStatistics getArtistStatistics(UUID artistId) {
-        return statsByArtist.getOrDefault(artistId, new StreamStatistics(artistId));
+    @Override
+    protected void restored() {
+        for (StreamStatistics stats : state.statsBySong.values()) {
+            notifyListeners(stats.getId(), stats.getTotalStreams().get());
+        }
+    }
+
+    private void notifyListeners(UUID songId, long songStreams) {
+        List<SongPopularityListener> resolved = listeners;
+        if (resolved == null) {
+            resolved = popularityListeners.stream().toList();
+            listeners = resolved;
+        }
+        for (int i = 0; i < resolved.size(); i++) {
+            resolved.get(i).onSongStreamCount(songId, songStreams);
+        }
+    }
+
+    private static void writeStatistics(DataOutputStream out, Map<UUID, StreamStatistics> stats) throws IOException {
+        out.writeInt(stats.size());
+        for (StreamStatistics entry : stats.values()) {
+            writeUuid(out, entry.getId());
+            out.writeInt(entry.getMonetizedStreams().get());
+            out.writeInt(entry.getNonMonetizedStreams().get());
+        }
+    }
+
+    private static void readStatistics(DataInputStream in, Map<UUID, StreamStatistics> stats) throws IOException {
+        int count = readCount(in);
+        for (int i = 0; i < count; i++) {
+            UUID id = readUuid(in);
+            stats.put(id, new StreamStatistics(id, in.readInt(), in.readInt()));
+        }
     }
 
     /**
-     * Get the number of daily streams for a song on a specific date
+     * Statistics by song, artist and day; also the partial state of a rebuild shard
      */
-    public int getDailyStreamsForSong(UUID songId, String date) {
-        Map<UUID, Integer> dailyStreams = dailyStreamsBySong.getOrDefault(date, new HashMap<>());
-        return dailyStreams.getOrDefault(songId, 0);
+    private static final class State implements RebuildShard {
+
+        // Map of statistics by song ID
+        private final Map<UUID, StreamStatistics> statsBySong = new ConcurrentHashMap<>();
+
+        // Map of statistics by artist ID
+        private final Map<UUID, StreamStatistics> statsByArtist = new ConcurrentHashMap<>();
+
+        // Map to track daily streams
+        private final Map<String, Map<UUID, Integer>> dailyStreamsBySong = new ConcurrentHashMap<>();
+
+        @Override
+        public void apply(DomainEvent event) {
+            StreamRecorded recorded = (StreamRecorded) event;
+            updateSongStats(recorded.getSongId(), recorded.isMonetizable());
+            updateArtistStats(recorded.getArtistId(), recorded.isMonetizable());
+            updateDailyStats(recorded.getSongId(), recorded.getStreamTimestamp());
+        }
+
+        /**
+         * Update statistics for a song
+         *
+         * @return the song's new total stream count
+         */
+        private long updateSongStats(UUID songId, boolean monetizable) {
+            StreamStatistics stats = statsBySong.computeIfAbsent(
+                    songId,
+                    id -> new StreamStatistics(id)
+            );
+
+            int total = stats.incrementTotalStreams();
+            if (monetizable) {
+                stats.incrementMonetizedStreams();
+            } else {
+                stats.incrementNonMonetizedStreams();
+            }
+            return total;
+        }
+
+        /**
+         * Update statistics for an artist
+         */
+        private void updateArtistStats(UUID artistId, boolean monetizable) {
+            StreamStatistics stats = statsByArtist.computeIfAbsent(
+                    artistId,
+                    id -> new StreamStatistics(id)
+            );
+
+            stats.incrementTotalStreams();
+            if (monetizable) {
+                stats.incrementMonetizedStreams();
+            } else {
+                stats.incrementNonMonetizedStreams();
+            }
+        }
+
+        /**
+         * Update daily stream statistics
+         */
+        private void updateDailyStats(UUID songId, Instant timestamp) {
+            // Format the date as YYYY-MM-DD
+            String dateKey = timestamp.truncatedTo(ChronoUnit.DAYS).toString().substring(0, 10);
+
+            // Get or create the map for this day
+            Map<UUID, Integer> dailyStreams = dailyStreamsBySong.computeIfAbsent(
+                    dateKey,
+                    date -> new ConcurrentHashMap<>()
+            );
+
+            // Increment the stream count for this song
+            dailyStreams.merge(songId, 1, Integer::sum);
+        }
     }
-}
\ No newline at end of file
+}
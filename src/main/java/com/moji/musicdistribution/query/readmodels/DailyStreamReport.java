@@ -0,0 +1,31 @@
+package com.moji.musicdistribution.query.readmodels;
+
+import lombok.Value;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Read model for an artist's streams per calendar day (UTC)
+ */
+@Value
+public class DailyStreamReport {
+    UUID artistId;
+    String artistName;
+    Instant fromDate;
+    Instant toDate;
+    List<DayStreamStats> days; // oldest first, days without streams are omitted
+
+    /**
+     * Statistics for a single day
+     */
+    @Value
+    public static class DayStreamStats {
+        LocalDate date;
+        int totalStreams;
+        int monetizedStreams;
+        long totalDurationSeconds;
+    }
+}
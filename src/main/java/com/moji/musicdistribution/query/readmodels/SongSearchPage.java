@@ -0,0 +1,15 @@
+package com.moji.musicdistribution.query.readmodels;
+
+import com.moji.musicdistribution.domain.aggregates.Song;
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * One page of ranked song search results
+ */
+@Value
+public class SongSearchPage {
+    List<Song> songs;
+    String nextCursor; // null when there are no further results
+}
@@ -0,0 +1,29 @@
+package com.moji.musicdistribution.query.readmodels;
+
+import lombok.Value;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * One page of a song's individual streams in chronological order
+ */
+@Value
+public class SongStreamPage {
+    UUID songId;
+    List<StreamDetail> streams;
+    String nextCursor; // null when there are no further streams
+
+    /**
+     * A single stream of the song
+     */
+    @Value
+    public static class StreamDetail {
+        UUID streamId;
+        UUID userId;
+        Instant timestamp;
+        long durationSeconds;
+        boolean monetized;
+    }
+}
@@ -0,0 +1,15 @@
+package com.moji.musicdistribution.query.readmodels;
+
+import lombok.Value;
+
+import java.util.UUID;
+
+/**
+ * Read model for title autocompletion
+ */
+@Value
+public class SongSuggestion {
+    UUID songId;
+    String title;
+    long streamCount;
+}
@@ -24,11 +24,23 @@ public class StreamStatistics {
         this.id = id;
     }
 
+    /**
+     * Recreate statistics with known counts, e.g. when restoring a snapshot or merging rebuild shards
+     */
+    public StreamStatistics(UUID id, int monetizedStreams, int nonMonetizedStreams) {
+        this.id = id;
+        this.totalStreams.set(monetizedStreams + nonMonetizedStreams);
+        this.monetizedStreams.set(monetizedStreams);
+        this.nonMonetizedStreams.set(nonMonetizedStreams);
+    }
+
     /**
      * Increment the total stream count
+     *
+     * @return the new total
      */
-    public void incrementTotalStreams() {
-        totalStreams.incrementAndGet();
+    public int incrementTotalStreams() {
+        return totalStreams.incrementAndGet();
     }
 
     /**
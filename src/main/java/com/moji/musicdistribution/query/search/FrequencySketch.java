@@ -0,0 +1,67 @@
+package com.moji.musicdistribution.query.search;
+
+/**
+ * Count-min sketch of small saturating counters estimating how often keys were requested
+ * <p>
+ * Used as the TinyLFU admission filter: a new entry only displaces an existing one when it
+ * has been requested more often recently. Counters are halved every {@code sampleSize}
+ * increments so the estimate follows shifts in popularity. Not thread-safe.
+ */
+final class FrequencySketch {
+
+    private static final int MAX_COUNT = 15;
+    private static final int[] SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+
+    private final byte[] table;
+    private final int mask;
+    private final int sampleSize;
+    private int additions;
+
+    FrequencySketch(int expectedEntries) {
+        int width = Integer.highestOneBit(Math.max(16, expectedEntries * 8) - 1) << 1;
+        this.table = new byte[width];
+        this.mask = width - 1;
+        this.sampleSize = Math.max(100, expectedEntries * 10);
+    }
+
+    /**
+     * Record one request for the key
+     */
+    void increment(int hash) {
+        boolean added = false;
+        for (int seed : SEEDS) {
+            int index = index(hash, seed);
+            if (table[index] < MAX_COUNT) {
+                table[index]++;
+                added = true;
+            }
+        }
+        if (added && ++additions >= sampleSize) {
+            reset();
+        }
+    }
+
+    /**
+     * Estimated number of recent requests for the key
+     */
+    int frequency(int hash) {
+        int min = MAX_COUNT;
+        for (int seed : SEEDS) {
+            min = Math.min(min, table[index(hash, seed)]);
+        }
+        return min;
+    }
+
+    private int index(int hash, int seed) {
+        int h = (hash ^ seed) * 0x01000193;
+        h ^= h >>> 15;
+        return h & mask;
+    }
+
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (byte) (table[i] >>> 1);
+        }
+        additions /= 2;
+    }
+}
@@ -0,0 +1,25 @@
+package com.moji.musicdistribution.query.search;
+
+import lombok.Value;
+
+import java.util.UUID;
+
+/**
+ * A searchable song title together with its normalised form and tokens, computed once at
+ * index time so queries compare against them without allocating
+ */
+@Value
+public class IndexedTitle {
+    UUID songId;
+    String title;
+    char[] folded;
+    char[][] tokens;
+
+    /**
+     * Create an entry for a song title
+     */
+    public static IndexedTitle of(UUID songId, String title) {
+        String normalized = TitleNormalizer.normalize(title);
+        return new IndexedTitle(songId, title, normalized.toCharArray(), TitleNormalizer.tokenize(normalized));
+    }
+}
@@ -0,0 +1,84 @@
+package com.moji.musicdistribution.query.search;
+
+/**
+ * Levenshtein automaton for a search term and a maximum distance.
+ * <p>
+ * A state is the row of the edit-distance matrix reached after consuming a prefix of the
+ * candidate. Walking a trie while stepping the automaton enumerates exactly the titles within
+ * the distance, and whole subtrees are skipped as soon as no state in the row can still match.
+ * States are caller-owned {@code int[]} rows of {@link #stateSize()} so a depth-first walk can
+ * reuse one row per depth.
+ */
+public final class LevenshteinAutomaton {
+
+    private final char[] term;
+    private final int maxDistance;
+
+    private LevenshteinAutomaton(char[] term, int maxDistance) {
+        this.term = term;
+        this.maxDistance = maxDistance;
+    }
+
+    /**
+     * Build an automaton accepting every string within maxDistance of the (case-folded) term
+     */
+    public static LevenshteinAutomaton of(CharSequence term, int maxDistance) {
+        char[] folded = new char[term.length()];
+        for (int i = 0; i < folded.length; i++) {
+            folded[i] = LevenshteinMatcher.fold(term.charAt(i));
+        }
+        return new LevenshteinAutomaton(folded, maxDistance);
+    }
+
+    public int maxDistance() {
+        return maxDistance;
+    }
+
+    /**
+     * Number of ints in a state row
+     */
+    public int stateSize() {
+        return term.length + 1;
+    }
+
+    /**
+     * Write the start state (the empty prefix) into the given row
+     */
+    public void start(int[] state) {
+        for (int i = 0; i < state.length; i++) {
+            state[i] = i;
+        }
+    }
+
+    /**
+     * Consume one (folded) character
+     *
+     * @return the smallest value in the new state; the walk can stop when it exceeds maxDistance
+     */
+    public int step(int[] state, char c, int[] next) {
+        int min = next[0] = state[0] + 1;
+        for (int i = 1; i < next.length; i++) {
+            int cost = term[i - 1] == c ? 0 : 1;
+            int value = Math.min(Math.min(next[i - 1] + 1, state[i] + 1), state[i - 1] + cost);
+            next[i] = value;
+            if (value < min) {
+                min = value;
+            }
+        }
+        return min;
+    }
+
+    /**
+     * Check whether the consumed string is accepted
+     */
+    public boolean isMatch(int[] state) {
+        return state[term.length] <= maxDistance;
+    }
+
+    /**
+     * Edit distance between the term and the consumed string
+     */
+    public int distance(int[] state) {
+        return state[term.length];
+    }
+}
@@ -0,0 +1,258 @@
+package com.moji.musicdistribution.query.search;
+
+import java.util.Arrays;
+
+/**
+ * Threshold-bounded Levenshtein distance kernel for one search term against many titles.
+ * <p>
+ * The term is compiled once into per-character match masks (Myers/Hyyrö bit-parallel
+ * algorithm). Terms of up to 64 characters are evaluated with a single {@code long} per
+ * column; longer terms fall back to a blocked variant that chains 64-bit words. Comparisons
+ * are case-insensitive, stop as soon as the threshold can no longer be met and do not
+ * allocate.
+ * <p>
+ * Instances keep scratch state and are therefore not thread-safe; compile one matcher per
+ * query (or per worker thread).
+ */
+public final class LevenshteinMatcher {
+
+    private static final int WORD_SIZE = 64;
+    private static final long HIGH_BIT = 1L << (WORD_SIZE - 1);
+
+    private final int patternLength;
+    private final int blocks;
+    private final long lastRowBit;
+
+    // Open-addressing table mapping a (folded) character to its slot in peq
+    private final char[] slotChars;
+    private final int[] slotIndex;
+    private final int slotMask;
+
+    // Match masks: peq[slot * blocks + block] has bit i set when pattern[block * 64 + i] == char
+    private final long[] peq;
+
+    // Scratch vertical delta vectors for the blocked variant
+    private final long[] pv;
+    private final long[] mv;
+
+    // Reusable view for comparisons against char arrays
+    private final CharSlice slice = new CharSlice();
+
+    private LevenshteinMatcher(char[] pattern, int length) {
+        this.patternLength = length;
+        this.blocks = Math.max(1, (length + WORD_SIZE - 1) / WORD_SIZE);
+        this.lastRowBit = length == 0 ? 0L : 1L << ((length - 1) % WORD_SIZE);
+
+        int capacity = Integer.highestOneBit(Math.max(4, length * 2) - 1) << 1;
+        this.slotChars = new char[capacity];
+        this.slotIndex = new int[capacity];
+        this.slotMask = capacity - 1;
+        Arrays.fill(slotIndex, -1);
+
+        int distinct = 0;
+        long[] masks = new long[Math.max(1, length) * blocks];
+        for (int i = 0; i < length; i++) {
+            char c = pattern[i];
+            int pos = probe(c);
+            if (slotIndex[pos] < 0) {
+                slotChars[pos] = c;
+                slotIndex[pos] = distinct++;
+            }
+            masks[slotIndex[pos] * blocks + i / WORD_SIZE] |= 1L << (i % WORD_SIZE);
+        }
+        this.peq = Arrays.copyOf(masks, Math.max(1, distinct) * blocks);
+        this.pv = new long[blocks];
+        this.mv = new long[blocks];
+    }
+
+    /**
+     * Compile a matcher for the given search term
+     */
+    public static LevenshteinMatcher compile(CharSequence term) {
+        char[] folded = new char[term.length()];
+        for (int i = 0; i < folded.length; i++) {
+            folded[i] = fold(term.charAt(i));
+        }
+        return new LevenshteinMatcher(folded, folded.length);
+    }
+
+    /**
+     * Length of the compiled search term
+     */
+    public int patternLength() {
+        return patternLength;
+    }
+
+    /**
+     * Check whether the text is within the given distance of the search term
+     */
+    public boolean matches(CharSequence text, int maxDistance) {
+        return distance(text, maxDistance) <= maxDistance;
+    }
+
+    /**
+     * Compute the edit distance between the search term and the text, bounded by maxDistance
+     *
+     * @return the exact distance when it is at most maxDistance, otherwise maxDistance + 1
+     */
+    public int distance(CharSequence text, int maxDistance) {
+        return distance(text, 0, text.length(), maxDistance);
+    }
+
+    /**
+     * Bounded edit distance against the characters of a pre-folded array slice
+     */
+    public int distance(char[] text, int offset, int length, int maxDistance) {
+        slice.chars = text;
+        return distance(slice, offset, length, maxDistance);
+    }
+
+    private int distance(CharSequence text, int offset, int length, int maxDistance) {
+        if (maxDistance < 0) {
+            return maxDistance + 1;
+        }
+        // The length difference is a lower bound on the distance
+        if (Math.abs(length - patternLength) > maxDistance) {
+            return maxDistance + 1;
+        }
+        if (patternLength == 0) {
+            return length;
+        }
+        return blocks == 1
+                ? singleWord(text, offset, length, maxDistance)
+                : blocked(text, offset, length, maxDistance);
+    }
+
+    private int singleWord(CharSequence text, int offset, int length, int maxDistance) {
+        long pvw = -1L;
+        long mvw = 0L;
+        int score = patternLength;
+
+        for (int j = 0; j < length; j++) {
+            long eq = eq(fold(text.charAt(offset + j)), 0);
+            long xv = eq | mvw;
+            long xh = (((eq & pvw) + pvw) ^ pvw) | eq;
+            long ph = mvw | ~(xh | pvw);
+            long mh = pvw & xh;
+
+            if ((ph & lastRowBit) != 0) {
+                score++;
+            } else if ((mh & lastRowBit) != 0) {
+                score--;
+            }
+
+            // The first row of a global alignment grows by one per text character
+            ph = (ph << 1) | 1L;
+            mh <<= 1;
+            pvw = mh | ~(xv | ph);
+            mvw = ph & xv;
+
+            // Each remaining text character can lower the score by at most one
+            if (score - (length - j - 1) > maxDistance) {
+                return maxDistance + 1;
+            }
+        }
+        return score <= maxDistance ? score : maxDistance + 1;
+    }
+
+    private int blocked(CharSequence text, int offset, int length, int maxDistance) {
+        Arrays.fill(pv, -1L);
+        Arrays.fill(mv, 0L);
+        int last = blocks - 1;
+        int score = patternLength;
+
+        for (int j = 0; j < length; j++) {
+            char c = fold(text.charAt(offset + j));
+            int slot = slotOf(c);
+            int hin = 1;
+
+            for (int b = 0; b < blocks; b++) {
+                long eq = slot < 0 ? 0L : peq[slot * blocks + b];
+                long pvb = pv[b];
+                long mvb = mv[b];
+                long hinNeg = hin < 0 ? 1L : 0L;
+
+                long xv = eq | mvb;
+                eq |= hinNeg;
+                long xh = (((eq & pvb) + pvb) ^ pvb) | eq;
+                long ph = mvb | ~(xh | pvb);
+                long mh = pvb & xh;
+
+                long outBit = b == last ? lastRowBit : HIGH_BIT;
+                int hout = (ph & outBit) != 0 ? 1 : (mh & outBit) != 0 ? -1 : 0;
+
+                ph <<= 1;
+                mh <<= 1;
+                mh |= hinNeg;
+                if (hin > 0) {
+                    ph |= 1L;
+                }
+                pv[b] = mh | ~(xv | ph);
+                mv[b] = ph & xv;
+                hin = hout;
+            }
+            score += hin;
+
+            if (score - (length - j - 1) > maxDistance) {
+                return maxDistance + 1;
+            }
+        }
+        return score <= maxDistance ? score : maxDistance + 1;
+    }
+
+    private long eq(char c, int block) {
+        int slot = slotOf(c);
+        return slot < 0 ? 0L : peq[slot * blocks + block];
+    }
+
+    private int slotOf(char c) {
+        int pos = probe(c);
+        return slotIndex[pos];
+    }
+
+    private int probe(char c) {
+        int pos = (c * 0x9E37) & slotMask;
+        while (slotIndex[pos] >= 0 && slotChars[pos] != c) {
+            pos = (pos + 1) & slotMask;
+        }
+        return pos;
+    }
+
+    /**
+     * Case folding applied to both the search term and the titles
+     */
+    static char fold(char c) {
+        if (c < 0x80) {
+            return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+        }
+        return Character.toLowerCase(c);
+    }
+
+    /**
+     * Read-only CharSequence view over a char array, so array slices share the
+     * CharSequence code path without copying
+     */
+    private static final class CharSlice implements CharSequence {
+        private char[] chars;
+
+        @Override
+        public int length() {
+            return chars.length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return chars[index];
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new String(chars, start, end - start);
+        }
+
+        @Override
+        public String toString() {
+            return new String(chars);
+        }
+    }
+}
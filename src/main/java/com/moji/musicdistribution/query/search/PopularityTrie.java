@@ -0,0 +1,228 @@
+package com.moji.musicdistribution.query.search;
+
+import com.moji.musicdistribution.query.readmodels.SongSuggestion;
+
+import java.util.*;
+
+/**
+ * Compressed (radix) trie over folded song titles for prefix completion
+ * <p>
+ * Every node caches the top-N songs of its subtree by stream count, so a completion is a walk
+ * down the prefix followed by a copy of at most N entries. Stream counts only grow, so a
+ * popularity update just offers the song to the nodes on its path; a removal recomputes the
+ * affected caches bottom-up from the children's caches. Not thread-safe; callers synchronise.
+ */
+public final class PopularityTrie {
+
+    private static final Comparator<Entry> BY_POPULARITY = Comparator
+            .comparingLong((Entry entry) -> entry.popularity).reversed()
+            .thenComparing(entry -> entry.title)
+            .thenComparing(entry -> entry.songId);
+
+    private final int topN;
+    private final Node root = new Node("");
+    private final Map<UUID, Entry> entries = new HashMap<>();
+
+    public PopularityTrie(int topN) {
+        if (topN <= 0) {
+            throw new IllegalArgumentException("Top-N must be positive");
+        }
+        this.topN = topN;
+    }
+
+    /**
+     * Number of songs in the trie
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Add a song under its folded title
+     */
+    public void insert(UUID songId, String title, String key, long popularity) {
+        if (entries.containsKey(songId)) {
+            updatePopularity(songId, popularity);
+            return;
+        }
+        Entry entry = new Entry(songId, title, key, popularity);
+        entries.put(songId, entry);
+
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        path.add(node);
+        int i = 0;
+        while (i < key.length()) {
+            char c = key.charAt(i);
+            Node child = node.children.get(c);
+            if (child == null) {
+                child = new Node(key.substring(i));
+                node.children.put(c, child);
+                path.add(child);
+                node = child;
+                break;
+            }
+            int common = commonPrefix(child.label, key, i);
+            if (common < child.label.length()) {
+                // Split the edge; the new middle node covers exactly the old child's subtree
+                Node middle = new Node(child.label.substring(0, common));
+                child.label = child.label.substring(common);
+                middle.children.put(child.label.charAt(0), child);
+                middle.top.addAll(child.top);
+                node.children.put(c, middle);
+                child = middle;
+            }
+            i += common;
+            path.add(child);
+            node = child;
+        }
+        node.terminal.add(entry);
+        for (Node pathNode : path) {
+            pathNode.offer(entry, topN);
+        }
+    }
+
+    /**
+     * Remove a song
+     */
+    public void remove(UUID songId) {
+        Entry entry = entries.remove(songId);
+        if (entry == null) {
+            return;
+        }
+        List<Node> path = path(entry.key);
+        Node terminal = path.get(path.size() - 1);
+        terminal.terminal.remove(entry);
+
+        // Children are recomputed before their parents
+        for (int i = path.size() - 1; i >= 0; i--) {
+            Node node = path.get(i);
+            if (i > 0 && node.terminal.isEmpty() && node.children.isEmpty()) {
+                path.get(i - 1).children.remove(node.label.charAt(0));
+                continue;
+            }
+            if (node.top.contains(entry)) {
+                node.recompute(topN);
+            }
+        }
+    }
+
+    /**
+     * Raise a song's stream count and refresh the caches along its path
+     */
+    public void updatePopularity(UUID songId, long popularity) {
+        Entry entry = entries.get(songId);
+        if (entry == null || popularity <= entry.popularity) {
+            return; // unknown song, or an older count delivered late
+        }
+        entry.popularity = popularity;
+        for (Node node : path(entry.key)) {
+            node.offer(entry, topN);
+        }
+    }
+
+    /**
+     * The most streamed songs whose folded title starts with the folded prefix
+     */
+    public List<SongSuggestion> complete(String prefix, int limit) {
+        Node node = root;
+        int i = 0;
+        while (i < prefix.length()) {
+            Node child = node.children.get(prefix.charAt(i));
+            if (child == null) {
+                return Collections.emptyList();
+            }
+            int common = commonPrefix(child.label, prefix, i);
+            if (common < child.label.length() && i + common < prefix.length()) {
+                return Collections.emptyList(); // diverges inside the edge
+            }
+            i += common;
+            node = child;
+        }
+
+        int count = Math.min(limit, node.top.size());
+        List<SongSuggestion> suggestions = new ArrayList<>(count);
+        for (int k = 0; k < count; k++) {
+            Entry entry = node.top.get(k);
+            suggestions.add(new SongSuggestion(entry.songId, entry.title, entry.popularity));
+        }
+        return suggestions;
+    }
+
+    private List<Node> path(String key) {
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        path.add(node);
+        int i = 0;
+        while (i < key.length()) {
+            node = node.children.get(key.charAt(i));
+            i += node.label.length();
+            path.add(node);
+        }
+        return path;
+    }
+
+    private static int commonPrefix(String label, String key, int offset) {
+        int max = Math.min(label.length(), key.length() - offset);
+        int i = 0;
+        while (i < max && label.charAt(i) == key.charAt(offset + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    private static final class Entry {
+        private final UUID songId;
+        private final String title;
+        private final String key;
+        private long popularity;
+
+        Entry(UUID songId, String title, String key, long popularity) {
+            this.songId = songId;
+            this.title = title;
+            this.key = key;
+            this.popularity = popularity;
+        }
+    }
+
+    private static final class Node {
+        private String label;
+        private final Map<Character, Node> children = new HashMap<>(4);
+        private final List<Entry> terminal = new ArrayList<>(1);
+        private final List<Entry> top = new ArrayList<>();
+
+        Node(String label) {
+            this.label = label;
+        }
+
+        /**
+         * Offer an entry whose popularity may have grown
+         */
+        void offer(Entry entry, int topN) {
+            if (!top.contains(entry)) {
+                if (top.size() == topN) {
+                    Entry worst = top.get(topN - 1);
+                    if (BY_POPULARITY.compare(entry, worst) >= 0) {
+                        return;
+                    }
+                    top.remove(topN - 1);
+                }
+                top.add(entry);
+            }
+            top.sort(BY_POPULARITY);
+        }
+
+        /**
+         * Rebuild the cache from the songs ending here and the children's caches
+         */
+        void recompute(int topN) {
+            List<Entry> candidates = new ArrayList<>(terminal);
+            for (Node child : children.values()) {
+                candidates.addAll(child.top);
+            }
+            candidates.sort(BY_POPULARITY);
+            top.clear();
+            top.addAll(candidates.subList(0, Math.min(topN, candidates.size())));
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.moji.musicdistribution.query.search;
+
+import java.util.*;
+
+/**
+ * Tracks which songs are published, i.e. belong to at least one published release
+ * <p>
+ * A song can be part of several releases, so withdrawing one release only hides the songs
+ * that no other published release still carries. Not thread-safe; callers synchronise.
+ */
+final class PublishedSongs {
+
+    private final Map<UUID, Set<UUID>> songsByRelease = new HashMap<>();
+    private final Map<UUID, Integer> releaseCountBySong = new HashMap<>();
+
+    /**
+     * Record a published release
+     *
+     * @return the songs that were not published before
+     */
+    Set<UUID> publish(UUID releaseId, Set<UUID> songIds) {
+        if (songsByRelease.putIfAbsent(releaseId, Set.copyOf(songIds)) != null) {
+            return Collections.emptySet(); // already applied
+        }
+        Set<UUID> newlyPublished = new HashSet<>();
+        for (UUID songId : songIds) {
+            if (releaseCountBySong.merge(songId, 1, Integer::sum) == 1) {
+                newlyPublished.add(songId);
+            }
+        }
+        return newlyPublished;
+    }
+
+    /**
+     * Record songs added to a release, which only publishes them if the release is published
+     *
+     * @return the songs that were not published before
+     */
+    Set<UUID> add(UUID releaseId, Set<UUID> songIds) {
+        Set<UUID> releaseSongs = songsByRelease.get(releaseId);
+        if (releaseSongs == null) {
+            return Collections.emptySet(); // not published (yet); publish() will pick them up
+        }
+        Set<UUID> merged = new HashSet<>(releaseSongs);
+        Set<UUID> newlyPublished = new HashSet<>();
+        for (UUID songId : songIds) {
+            if (merged.add(songId) && releaseCountBySong.merge(songId, 1, Integer::sum) == 1) {
+                newlyPublished.add(songId);
+            }
+        }
+        songsByRelease.put(releaseId, Set.copyOf(merged));
+        return newlyPublished;
+    }
+
+    /**
+     * Record a withdrawn release
+     *
+     * @return the songs that are no longer published
+     */
+    Set<UUID> withdraw(UUID releaseId) {
+        Set<UUID> songIds = songsByRelease.remove(releaseId);
+        if (songIds == null) {
+            return Collections.emptySet();
+        }
+        Set<UUID> unpublished = new HashSet<>();
+        for (UUID songId : songIds) {
+            if (releaseCountBySong.merge(songId, -1, Integer::sum) <= 0) {
+                releaseCountBySong.remove(songId);
+                unpublished.add(songId);
+            }
+        }
+        return unpublished;
+    }
+
+    /**
+     * The published releases with their songs
+     */
+    Map<UUID, Set<UUID>> releases() {
+        return new HashMap<>(songsByRelease);
+    }
+
+    /**
+     * Check whether a song is currently published
+     */
+    boolean isPublished(UUID songId) {
+        return releaseCountBySong.containsKey(songId);
+    }
+}
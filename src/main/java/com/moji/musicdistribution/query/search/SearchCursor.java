@@ -0,0 +1,44 @@
+package com.moji.musicdistribution.query.search;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Opaque keyset cursor pointing at the last hit of a page
+ * <p>
+ * The next page contains only hits ranked strictly after it, so earlier pages are never
+ * materialised again. Popularity may move between requests; a song whose stream count changed
+ * can then appear on two pages or be skipped, which is acceptable for search results.
+ */
+public final class SearchCursor {
+
+    private SearchCursor() {
+    }
+
+    /**
+     * Encode the position of a hit
+     */
+    public static String encode(SearchHit hit) {
+        String raw = hit.getDistance() + ":" + hit.getPopularity() + ":" + hit.getSongId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a cursor produced by {@link #encode(SearchHit)}
+     *
+     * @return the hit the cursor points at, or null when no cursor was given
+     */
+    public static SearchHit decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split(":", 3);
+            return new SearchHit(UUID.fromString(parts[2]), Integer.parseInt(parts[0]), Long.parseLong(parts[1]));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid search cursor");
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.moji.musicdistribution.query.search;
+
+import lombok.Value;
+
+import java.util.Comparator;
+import java.util.UUID;
+
+/**
+ * A ranked search result: closer titles first, more streamed songs first among equals
+ */
+@Value
+public class SearchHit {
+
+    /**
+     * Ranking order; the song ID makes it total so cursors are unambiguous
+     */
+    public static final Comparator<SearchHit> RANKING = Comparator
+            .comparingInt(SearchHit::getDistance)
+            .thenComparing(Comparator.comparingLong(SearchHit::getPopularity).reversed())
+            .thenComparing(SearchHit::getSongId);
+
+    UUID songId;
+    int distance;
+    long popularity;
+}
@@ -0,0 +1,18 @@
+package com.moji.musicdistribution.query.search;
+
+/**
+ * How a search term is compared with song titles
+ */
+public enum SearchMode {
+
+    /**
+     * The whole normalised term against the whole normalised title
+     */
+    TITLE,
+
+    /**
+     * Every word of the term against the closest word of the title, in any order;
+     * the distance is the sum over the term's words
+     */
+    TOKENS
+}
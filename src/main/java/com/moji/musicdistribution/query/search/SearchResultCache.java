@@ -0,0 +1,315 @@
+package com.moji.musicdistribution.query.search;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.function.BiPredicate;
+import java.util.function.Supplier;
+
+/**
+ * Bounded cache of title index matches, keyed by normalised search term, maximum distance and
+ * search mode
+ * <p>
+ * Eviction follows W-TinyLFU: new entries enter a small LRU window, and an entry leaving the
+ * window is only admitted to the main segmented LRU if a {@link FrequencySketch} says it is
+ * requested more often than the main segment's eviction victim. One-off queries therefore
+ * cannot flush the popular ones.
+ * <p>
+ * Entries are invalidated precisely from {@link SongTitleIndex} notifications: a newly
+ * searchable title drops only the entries whose term it matches, and a removed song drops only
+ * the entries that contain it. A load that races with an invalidation is not cached.
+ */
+@Component
+public class SearchResultCache implements TitleIndexListener {
+
+    private final boolean enabled;
+    private final int windowMax;
+    private final int mainMax;
+    private final int protectedMax;
+    private final FrequencySketch sketch;
+
+    // Access-ordered, eldest first; all guarded by this
+    private final LinkedHashMap<Key, CachedMatches> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<Key, CachedMatches> probation = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<Key, CachedMatches> protectedSegment = new LinkedHashMap<>(16, 0.75f, true);
+
+    // Bumped on every invalidation so loads that overlap one are discarded
+    private long epoch;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    public SearchResultCache(MeterRegistry meterRegistry,
+                             @Value("${search.cache.enabled:true}") boolean enabled,
+                             @Value("${search.cache.max-entries:10000}") int maxEntries) {
+        if (maxEntries < 2) {
+            throw new IllegalArgumentException("Search cache must hold at least 2 entries");
+        }
+        this.enabled = enabled;
+        this.windowMax = Math.max(1, maxEntries / 100);
+        this.mainMax = maxEntries - windowMax;
+        this.protectedMax = mainMax * 4 / 5;
+        this.sketch = new FrequencySketch(maxEntries);
+
+        FunctionCounter.builder("search.cache.requests", this, cache -> cache.stats()[0])
+                .tag("result", "hit")
+                .description("Song search queries answered from the cache")
+                .register(meterRegistry);
+        FunctionCounter.builder("search.cache.requests", this, cache -> cache.stats()[1])
+                .tag("result", "miss")
+                .description("Song search queries answered from the title index")
+                .register(meterRegistry);
+        FunctionCounter.builder("search.cache.evictions", this, cache -> cache.stats()[2])
+                .description("Song search results rejected or evicted by the size bound")
+                .register(meterRegistry);
+        FunctionCounter.builder("search.cache.invalidations", this, cache -> cache.stats()[3])
+                .description("Song search results dropped because the catalogue changed")
+                .register(meterRegistry);
+        Gauge.builder("search.cache.hit.ratio", this, SearchResultCache::hitRatio)
+                .description("Fraction of song search queries answered from the cache")
+                .register(meterRegistry);
+        Gauge.builder("search.cache.size", this, SearchResultCache::size)
+                .description("Number of cached song search results")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Return the cached matches for the term, loading and caching them on a miss
+     */
+    public List<TitleMatch> get(String searchTerm, int maxDistance, SearchMode mode,
+                                Supplier<List<TitleMatch>> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        Key key = new Key(TitleNormalizer.normalize(searchTerm), maxDistance, mode);
+        long loadEpoch;
+        synchronized (this) {
+            CachedMatches cached = lookup(key);
+            if (cached != null) {
+                hits++;
+                return cached.getMatches();
+            }
+            misses++;
+            loadEpoch = epoch;
+        }
+
+        // Load outside the lock so slow queries do not block hits
+        List<TitleMatch> matches = List.copyOf(loader.get());
+        synchronized (this) {
+            if (epoch == loadEpoch) {
+                admit(key, new CachedMatches(matches));
+            }
+        }
+        return matches;
+    }
+
+    @Override
+    public void onTitlesAdded(Collection<IndexedTitle> titles) {
+        // Match the cached terms outside the lock so hits are not held up by the pass;
+        // loads that overlap it are discarded by the epoch
+        List<Key> keys;
+        synchronized (this) {
+            epoch++;
+            keys = new ArrayList<>(size());
+            keys.addAll(window.keySet());
+            keys.addAll(probation.keySet());
+            keys.addAll(protectedSegment.keySet());
+        }
+
+        List<Key> stale = new ArrayList<>();
+        for (Key key : keys) {
+            if (matchesAny(key, titles)) {
+                stale.add(key);
+            }
+        }
+        if (stale.isEmpty()) {
+            return;
+        }
+
+        synchronized (this) {
+            for (Key key : stale) {
+                if (window.remove(key) != null || probation.remove(key) != null
+                        || protectedSegment.remove(key) != null) {
+                    invalidations++;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void onSongsRemoved(Collection<UUID> songIds) {
+        Set<UUID> removed = Set.copyOf(songIds);
+        synchronized (this) {
+            epoch++;
+            invalidate((key, cached) -> cached.containsAny(removed));
+        }
+    }
+
+    /**
+     * Number of cached queries
+     */
+    public synchronized int size() {
+        return window.size() + probation.size() + protectedSegment.size();
+    }
+
+    /**
+     * Fraction of queries answered from the cache
+     */
+    public synchronized double hitRatio() {
+        long requests = hits + misses;
+        return requests == 0 ? 0.0 : (double) hits / requests;
+    }
+
+    private synchronized double[] stats() {
+        return new double[]{hits, misses, evictions, invalidations};
+    }
+
+    // Must hold the lock
+    private CachedMatches lookup(Key key) {
+        sketch.increment(key.hashCode());
+        CachedMatches cached = window.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        cached = probation.remove(key);
+        if (cached != null) {
+            // Second hit in the main segment: promote, demoting the protected LRU if full
+            protectedSegment.put(key, cached);
+            if (protectedSegment.size() > protectedMax) {
+                Map.Entry<Key, CachedMatches> demoted = pollEldest(protectedSegment);
+                probation.put(demoted.getKey(), demoted.getValue());
+            }
+            return cached;
+        }
+        return protectedSegment.get(key);
+    }
+
+    // Must hold the lock
+    private void admit(Key key, CachedMatches matches) {
+        if (window.containsKey(key) || probation.containsKey(key) || protectedSegment.containsKey(key)) {
+            return; // loaded concurrently
+        }
+        window.put(key, matches);
+        if (window.size() <= windowMax) {
+            return;
+        }
+
+        Map.Entry<Key, CachedMatches> candidate = pollEldest(window);
+        if (probation.size() + protectedSegment.size() < mainMax) {
+            probation.put(candidate.getKey(), candidate.getValue());
+            return;
+        }
+        Map.Entry<Key, CachedMatches> victim = eldest(probation);
+        if (victim != null && sketch.frequency(candidate.getKey().hashCode()) > sketch.frequency(victim.getKey().hashCode())) {
+            probation.remove(victim.getKey());
+            probation.put(candidate.getKey(), candidate.getValue());
+        }
+        evictions++;
+    }
+
+    // Must hold the lock
+    private void invalidate(BiPredicate<Key, CachedMatches> stale) {
+        for (LinkedHashMap<Key, CachedMatches> segment : List.of(window, probation, protectedSegment)) {
+            Iterator<Map.Entry<Key, CachedMatches>> it = segment.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<Key, CachedMatches> entry = it.next();
+                if (stale.test(entry.getKey(), entry.getValue())) {
+                    it.remove();
+                    invalidations++;
+                }
+            }
+        }
+    }
+
+    private static boolean matchesAny(Key key, Collection<IndexedTitle> titles) {
+        if (key.mode == SearchMode.TOKENS) {
+            TokenMatcher matcher = TokenMatcher.compile(key.term);
+            for (IndexedTitle title : titles) {
+                if (matcher.distance(title.getTokens(), key.maxDistance) != TokenMatcher.NO_MATCH) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        LevenshteinMatcher matcher = LevenshteinMatcher.compile(key.term);
+        for (IndexedTitle title : titles) {
+            char[] folded = title.getFolded();
+            if (matcher.distance(folded, 0, folded.length, key.maxDistance) <= key.maxDistance) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Map.Entry<Key, CachedMatches> eldest(LinkedHashMap<Key, CachedMatches> segment) {
+        Iterator<Map.Entry<Key, CachedMatches>> it = segment.entrySet().iterator();
+        return it.hasNext() ? it.next() : null;
+    }
+
+    private static Map.Entry<Key, CachedMatches> pollEldest(LinkedHashMap<Key, CachedMatches> segment) {
+        Iterator<Map.Entry<Key, CachedMatches>> it = segment.entrySet().iterator();
+        Map.Entry<Key, CachedMatches> eldest = it.next();
+        it.remove();
+        return eldest;
+    }
+
+    /**
+     * Normalised search term, maximum distance and mode of a query
+     */
+    private static final class Key {
+        private final String term;
+        private final int maxDistance;
+        private final SearchMode mode;
+
+        Key(String term, int maxDistance, SearchMode mode) {
+            this.term = term;
+            this.maxDistance = maxDistance;
+            this.mode = mode;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key other && maxDistance == other.maxDistance
+                    && mode == other.mode && term.equals(other.term);
+        }
+
+        @Override
+        public int hashCode() {
+            return (31 * term.hashCode() + maxDistance) * 31 + mode.ordinal();
+        }
+    }
+
+    /**
+     * Matches of one query together with their song IDs for removal lookups
+     */
+    private static final class CachedMatches {
+        private final List<TitleMatch> matches;
+        private final Set<UUID> songIds = new HashSet<>();
+
+        CachedMatches(List<TitleMatch> matches) {
+            this.matches = matches;
+            for (TitleMatch match : matches) {
+                songIds.add(match.getSongId());
+            }
+        }
+
+        List<TitleMatch> getMatches() {
+            return matches;
+        }
+
+        boolean containsAny(Set<UUID> removed) {
+            for (UUID songId : removed) {
+                if (songIds.contains(songId)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
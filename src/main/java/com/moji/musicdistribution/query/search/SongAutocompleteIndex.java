@@ -0,0 +1,214 @@
+package com.moji.musicdistribution.query.search;
+
+import com.moji.musicdistribution.domain.aggregates.Release;
+import com.moji.musicdistribution.domain.aggregates.Song;
+import com.moji.musicdistribution.domain.events.ReleasePublished;
+import com.moji.musicdistribution.domain.events.ReleaseWithdrawn;
+import com.moji.musicdistribution.domain.events.SongsAddedToRelease;
+import com.moji.musicdistribution.domain.repositories.ReleaseRepository;
+import com.moji.musicdistribution.domain.repositories.SongRepository;
+import com.moji.musicdistribution.query.projections.SongPopularityListener;
+import com.moji.musicdistribution.query.projections.StreamStatsProjection;
+import com.moji.musicdistribution.query.readmodels.SongSuggestion;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Type-ahead index over the titles of published songs, ranked by stream count
+ * <p>
+ * Backed by a {@link PopularityTrie} whose nodes cache the top-N songs of their subtree.
+ * Publication and withdrawal are applied as the events arrive. Stream counts pushed by
+ * {@link StreamStatsProjection} are coalesced per song without locking and applied to the trie
+ * in one batch by the next write or the periodic flush, so completions only take the read lock.
+ */
+@Component
+@Slf4j
+public class SongAutocompleteIndex implements SongPopularityListener {
+
+    private final SongRepository songRepository;
+    private final ReleaseRepository releaseRepository;
+    private final StreamStatsProjection streamStatsProjection;
+    private final int topN;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final PopularityTrie trie;
+    private final PublishedSongs publishedSongs = new PublishedSongs();
+
+    // Latest stream count per song not yet applied to the trie
+    private final Map<UUID, Long> pendingCounts = new ConcurrentHashMap<>();
+
+    public SongAutocompleteIndex(SongRepository songRepository,
+                                 ReleaseRepository releaseRepository,
+                                 StreamStatsProjection streamStatsProjection,
+                                 @Value("${search.autocomplete.top-n:10}") int topN) {
+        this.songRepository = songRepository;
+        this.releaseRepository = releaseRepository;
+        this.streamStatsProjection = streamStatsProjection;
+        this.topN = topN;
+        this.trie = new PopularityTrie(topN);
+    }
+
+    /**
+     * Load the titles of all published songs once the application is up
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void initialize() {
+        List<Release> publishedReleases = releaseRepository.findAll().stream()
+                .filter(Release::isPublished)
+                .toList();
+        for (Release release : publishedReleases) {
+            applyPublished(release.getId(), release.getSongIds());
+        }
+        log.info("Song autocomplete index initialised with {} titles", size());
+    }
+
+    /**
+     * Make the songs of a published release completable
+     */
+    @EventListener
+    public void on(ReleasePublished event) {
+        applyPublished(event.getAggregateId(), event.getSongIds());
+    }
+
+    /**
+     * Make songs added to an already published release completable
+     */
+    @EventListener
+    public void on(SongsAddedToRelease event) {
+        List<Song> songs = songRepository.findAllById(event.getSongIds());
+
+        lock.writeLock().lock();
+        try {
+            applyPendingCounts();
+            insert(songs, publishedSongs.add(event.getAggregateId(), event.getSongIds()));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove the songs of a withdrawn release unless another published release still has them
+     */
+    @EventListener
+    public void on(ReleaseWithdrawn event) {
+        lock.writeLock().lock();
+        try {
+            applyPendingCounts();
+            for (UUID songId : publishedSongs.withdraw(event.getAggregateId())) {
+                trie.remove(songId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Record the song's new count; counts only grow, so a late lower one never replaces it
+     */
+    @Override
+    public void onSongStreamCount(UUID songId, long totalStreams) {
+        pendingCounts.merge(songId, totalStreams, Math::max);
+    }
+
+    /**
+     * Apply the coalesced stream counts to the trie, every 200 ms by default
+     */
+    @Scheduled(fixedDelayString = "${search.autocomplete.flush-interval-ms:200}",
+            initialDelayString = "${search.autocomplete.flush-interval-ms:200}")
+    public void flush() {
+        if (pendingCounts.isEmpty()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            applyPendingCounts();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * The most streamed published songs whose title starts with the prefix
+     */
+    public List<SongSuggestion> complete(String prefix, int limit) {
+        if (prefix == null || prefix.isEmpty()) {
+            return Collections.emptyList();
+        }
+        String key = prefixKey(prefix);
+        if (key.isEmpty()) {
+            return Collections.emptyList();
+        }
+        lock.readLock().lock();
+        try {
+            return trie.complete(key, Math.min(limit, topN));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Largest number of suggestions a completion can return
+     */
+    public int maxSuggestions() {
+        return topN;
+    }
+
+    private int size() {
+        lock.readLock().lock();
+        try {
+            return trie.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void applyPublished(UUID releaseId, Set<UUID> songIds) {
+        // Load titles outside the lock; songs that are already published are skipped below
+        List<Song> songs = songRepository.findAllById(songIds);
+
+        lock.writeLock().lock();
+        try {
+            applyPendingCounts();
+            insert(songs, publishedSongs.publish(releaseId, songIds));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Must hold the write lock
+    private void applyPendingCounts() {
+        for (Map.Entry<UUID, Long> pending : pendingCounts.entrySet()) {
+            trie.updatePopularity(pending.getKey(), pending.getValue());
+            // Keep a count that arrived meanwhile for the next batch
+            pendingCounts.remove(pending.getKey(), pending.getValue());
+        }
+    }
+
+    // Must hold the write lock
+    private void insert(List<Song> songs, Set<UUID> newlyPublished) {
+        for (Song song : songs) {
+            if (newlyPublished.contains(song.getId())) {
+                trie.insert(song.getId(), song.getTitle(), TitleNormalizer.normalize(song.getTitle()),
+                        streamStatsProjection.getSongStreamCount(song.getId()));
+            }
+        }
+    }
+
+    private static String prefixKey(String text) {
+        String normalized = TitleNormalizer.normalize(text);
+        // A trailing space in a prefix asks for the next word, so keep it
+        boolean nextWord = !normalized.isEmpty() && Character.isWhitespace(text.charAt(text.length() - 1));
+        return nextWord ? normalized + ' ' : normalized;
+    }
+}
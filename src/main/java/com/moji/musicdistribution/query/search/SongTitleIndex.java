@@ -0,0 +1,851 @@
+package com.moji.musicdistribution.query.search;
+
+import com.moji.musicdistribution.domain.aggregates.Release;
+import com.moji.musicdistribution.domain.aggregates.Song;
+import com.moji.musicdistribution.domain.events.DomainEvent;
+import com.moji.musicdistribution.domain.events.ReleasePublished;
+import com.moji.musicdistribution.domain.events.ReleaseWithdrawn;
+import com.moji.musicdistribution.domain.events.SongsAddedToRelease;
+import com.moji.musicdistribution.domain.repositories.ReleaseRepository;
+import com.moji.musicdistribution.domain.repositories.SongRepository;
+import com.moji.musicdistribution.eventstore.EventStore;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Searchable index of the titles of published songs
+ * <p>
+ * Titles live in an immutable {@link TitleTrie} snapshot that fuzzy queries walk with a
+ * {@link LevenshteinAutomaton}, so matches are enumerated without scanning the catalogue.
+ * ReleasePublished/ReleaseWithdrawn events, and songs added to an already published release,
+ * are applied immediately to a small delta layer (added entries plus tombstones for removed
+ * ones) and the snapshot is rebuilt in the background once the delta has settled.
+ * {@link TitleIndexListener}s are told about every change once queries can see it.
+ * <p>
+ * Titles are normalised once by {@link TitleNormalizer}. Besides the whole-title trie, every
+ * shard keeps a trie over the title tokens for {@link SearchMode#TOKENS} queries, which match
+ * each word of the term separately and in any order.
+ * <p>
+ * The snapshot is split into shards by song ID. Queries over a large snapshot walk the shards
+ * in parallel on a shared pool sized to the CPU count, using at most
+ * {@code search.index.max-query-parallelism} threads per query (the caller included) so that
+ * one wide query cannot starve concurrent ones.
+ * <p>
+ * When {@code search.index.snapshot.path} is set, the built shards are periodically written to
+ * a {@link TitleIndexSnapshot} stamped with the event sequence they reflect and the ID of the
+ * event there. At startup a snapshot taken from the same event log is mapped and served as it
+ * is, and only the later events are replayed, instead of loading and indexing the whole
+ * catalogue from the repositories.
+ */
+@Component
+@Slf4j
+public class SongTitleIndex {
+
+    private static final int REPLAY_BATCH_SIZE = 10_000;
+
+    private final SongRepository songRepository;
+    private final ReleaseRepository releaseRepository;
+    private final ObjectProvider<TitleIndexListener> listeners;
+    private final EventStore eventStore;
+    private final boolean enabled;
+    private final long rebuildDelayMillis;
+    private final int maxDeltaSize;
+    private final int shardCount;
+    private final int maxQueryParallelism;
+    private final int parallelThreshold;
+    private final Path snapshotPath; // null when snapshots are disabled
+    private final ScheduledExecutorService rebuildExecutor;
+    private final ExecutorService searchExecutor;
+
+    // Authoritative view of what is searchable, guarded by this
+    private final Map<UUID, IndexedTitle> liveEntries = new HashMap<>();
+    private final PublishedSongs publishedSongs = new PublishedSongs();
+
+    // The live entries reflect every indexed event up to appliedBase, plus these later ones
+    private long appliedBase;
+    private final NavigableSet<Long> appliedSequences = new TreeSet<>();
+    private long lastSnapshotSequence = -1;
+
+    // Snapshot plus delta currently served to queries
+    private volatile View view;
+
+    // Changes made while a rebuild is running, applied on top of the rebuilt snapshot
+    private Delta pendingDelta;
+    private boolean rebuildScheduled;
+
+    public SongTitleIndex(SongRepository songRepository,
+                          ReleaseRepository releaseRepository,
+                          ObjectProvider<TitleIndexListener> listeners,
+                          EventStore eventStore,
+                          @Value("${search.index.enabled:true}") boolean enabled,
+                          @Value("${search.index.rebuild-delay-ms:5000}") long rebuildDelayMillis,
+                          @Value("${search.index.max-delta-size:10000}") int maxDeltaSize,
+                          @Value("${search.index.shards:0}") int shards,
+                          @Value("${search.index.max-query-parallelism:4}") int maxQueryParallelism,
+                          @Value("${search.index.parallel-threshold:20000}") int parallelThreshold,
+                          @Value("${search.index.snapshot.path:}") String snapshotPath) {
+        this.songRepository = songRepository;
+        this.releaseRepository = releaseRepository;
+        this.listeners = listeners;
+        this.eventStore = eventStore;
+        this.enabled = enabled;
+        this.rebuildDelayMillis = rebuildDelayMillis;
+        this.maxDeltaSize = maxDeltaSize;
+        int processors = Runtime.getRuntime().availableProcessors();
+        this.shardCount = shards > 0 ? shards : processors;
+        this.maxQueryParallelism = Math.max(1, maxQueryParallelism);
+        this.parallelThreshold = parallelThreshold;
+        this.snapshotPath = snapshotPath == null || snapshotPath.isBlank() ? null : Path.of(snapshotPath);
+        this.rebuildExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "song-title-index");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger searchThreads = new AtomicInteger();
+        this.searchExecutor = Executors.newFixedThreadPool(processors, runnable -> {
+            Thread thread = new Thread(runnable, "song-title-search-" + searchThreads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Build the initial snapshot once the application is up, from the persisted snapshot if
+     * there is a usable one and from the repositories otherwise
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void initialize() {
+        if (!enabled) {
+            return;
+        }
+        if (restoreSnapshot()) {
+            return;
+        }
+        loadFromRepositories();
+        rebuild();
+        log.info("Song title index initialised with {} titles", liveEntries.size());
+    }
+
+    private void loadFromRepositories() {
+        // Handlers save before storing their event, so everything up to here is in the repositories
+        long head = eventStore.getLastSequence();
+        List<Release> publishedReleases = releaseRepository.findAll().stream()
+                .filter(Release::isPublished)
+                .toList();
+
+        Set<UUID> songIds = new HashSet<>();
+        for (Release release : publishedReleases) {
+            songIds.addAll(release.getSongIds());
+        }
+        Map<UUID, String> titles = loadTitles(songIds);
+
+        synchronized (this) {
+            for (Release release : publishedReleases) {
+                applyPublished(release.getId(), release.getSongIds(), titles);
+            }
+            appliedBase = Math.max(appliedBase, head);
+        }
+    }
+
+    /**
+     * Serve the persisted snapshot and replay the events stored after it
+     *
+     * @return whether the snapshot could be used
+     */
+    private boolean restoreSnapshot() {
+        if (snapshotPath == null || !Files.exists(snapshotPath)) {
+            return false;
+        }
+        TitleIndexSnapshot snapshot;
+        try {
+            snapshot = TitleIndexSnapshot.read(snapshotPath);
+        } catch (IOException e) {
+            log.warn("Ignoring unreadable song title index snapshot {}: {}", snapshotPath, e.getMessage());
+            return false;
+        }
+        if (snapshot.getSequence() > eventStore.getLastSequence()
+                || !eventStore.getEventIdAt(snapshot.getSequence()).equals(snapshot.getEventId())) {
+            log.info("Song title index snapshot was taken from another event log; rebuilding from the repositories");
+            return false;
+        }
+
+        List<IndexedTitle> restored;
+        synchronized (this) {
+            snapshot.getReleases().forEach(publishedSongs::publish);
+            Shard[] shards = snapshot.getShards().toArray(new Shard[0]);
+            Delta delta = new Delta();
+            int size = 0;
+            for (Shard shard : shards) {
+                for (IndexedTitle entry : shard.getEntries()) {
+                    liveEntries.put(entry.getSongId(), entry);
+                }
+                size += shard.getEntries().length;
+            }
+            for (IndexedTitle entry : snapshot.getAdded()) {
+                liveEntries.put(entry.getSongId(), entry);
+                delta.add(entry);
+            }
+            for (UUID songId : snapshot.getRemoved()) {
+                liveEntries.remove(songId);
+                delta.remove(songId);
+            }
+            view = new View(shards, size, delta);
+            appliedBase = snapshot.getSequence();
+            lastSnapshotSequence = snapshot.getSequence();
+            restored = new ArrayList<>(liveEntries.values());
+            listeners.forEach(listener -> listener.onTitlesAdded(restored));
+            if (delta.size() > 0) {
+                scheduleRebuild();
+            }
+        }
+
+        // Replaying an event that was already applied leaves the state unchanged
+        int replayed = 0;
+        long position = snapshot.getSequence();
+        List<DomainEvent> batch;
+        while (!(batch = eventStore.getEventsAfter(position, REPLAY_BATCH_SIZE)).isEmpty()) {
+            for (DomainEvent event : batch) {
+                if (event instanceof ReleasePublished published) {
+                    on(published);
+                } else if (event instanceof SongsAddedToRelease added) {
+                    on(added);
+                } else if (event instanceof ReleaseWithdrawn withdrawn) {
+                    on(withdrawn);
+                } else {
+                    continue;
+                }
+                replayed++;
+            }
+            position = batch.get(batch.size() - 1).getSequence();
+        }
+        log.info("Song title index restored from its snapshot at sequence {} with {} titles, replayed {} events",
+                snapshot.getSequence(), restored.size(), replayed);
+        return true;
+    }
+
+    /**
+     * Make the songs of a published release searchable
+     */
+    @EventListener
+    public void on(ReleasePublished event) {
+        if (!enabled) {
+            return;
+        }
+        Map<UUID, String> titles = loadTitles(event.getSongIds());
+        synchronized (this) {
+            applyPublished(event.getAggregateId(), event.getSongIds(), titles);
+            markApplied(event);
+        }
+    }
+
+    /**
+     * Make songs added to an already published release searchable
+     */
+    @EventListener
+    public void on(SongsAddedToRelease event) {
+        if (!enabled) {
+            return;
+        }
+        Map<UUID, String> titles = loadTitles(event.getSongIds());
+        synchronized (this) {
+            applyAdded(publishedSongs.add(event.getAggregateId(), event.getSongIds()), titles);
+            markApplied(event);
+        }
+    }
+
+    /**
+     * Remove the songs of a withdrawn release unless another published release still has them
+     */
+    @EventListener
+    public void on(ReleaseWithdrawn event) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (this) {
+            List<UUID> removed = new ArrayList<>();
+            for (UUID songId : publishedSongs.withdraw(event.getAggregateId())) {
+                if (liveEntries.remove(songId) != null) {
+                    recordRemove(songId);
+                    removed.add(songId);
+                }
+            }
+            if (!removed.isEmpty()) {
+                listeners.forEach(listener -> listener.onSongsRemoved(removed));
+            }
+            scheduleRebuild();
+            markApplied(event);
+        }
+    }
+
+    /**
+     * Whether the index has been built and can serve queries
+     */
+    public boolean isReady() {
+        return view != null;
+    }
+
+    /**
+     * Find all searchable titles within maxDistance of the search term
+     */
+    public List<TitleMatch> search(String searchTerm, int maxDistance) {
+        return search(searchTerm, maxDistance, SearchMode.TITLE);
+    }
+
+    /**
+     * Find all searchable titles matching the search term in the given mode
+     */
+    public List<TitleMatch> search(String searchTerm, int maxDistance, SearchMode mode) {
+        View current = view;
+        if (current == null || searchTerm == null || maxDistance < 0) {
+            return Collections.emptyList();
+        }
+        Query query = Query.compile(searchTerm, maxDistance, mode);
+        if (query.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Delta delta = current.getDelta();
+        List<TitleMatch> matches = searchShards(current, query);
+
+        // The delta is small, so a linear pass with the bit-parallel kernel is enough
+        if (!delta.added.isEmpty()) {
+            if (mode == SearchMode.TOKENS) {
+                TokenMatcher matcher = TokenMatcher.compile(searchTerm);
+                for (IndexedTitle entry : delta.added.values()) {
+                    int distance = matcher.distance(entry.getTokens(), maxDistance);
+                    if (distance != TokenMatcher.NO_MATCH) {
+                        matches.add(new TitleMatch(entry.getSongId(), entry.getTitle(), distance));
+                    }
+                }
+            } else {
+                LevenshteinMatcher matcher = LevenshteinMatcher.compile(query.getNormalizedTerm());
+                for (IndexedTitle entry : delta.added.values()) {
+                    char[] folded = entry.getFolded();
+                    int distance = matcher.distance(folded, 0, folded.length, maxDistance);
+                    if (distance <= maxDistance) {
+                        matches.add(new TitleMatch(entry.getSongId(), entry.getTitle(), distance));
+                    }
+                }
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Persist the index if it changed since the last snapshot, every ten minutes by default
+     */
+    @Scheduled(fixedDelayString = "${search.index.snapshot.interval-ms:600000}",
+            initialDelayString = "${search.index.snapshot.interval-ms:600000}")
+    public void snapshot() {
+        if (snapshotPath == null || view == null) {
+            return; // a snapshot taken now would overwrite the one not yet restored
+        }
+        try {
+            writeSnapshot();
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to write song title index snapshot to {}", snapshotPath, e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        snapshot();
+        rebuildExecutor.shutdownNow();
+        searchExecutor.shutdownNow();
+    }
+
+    /**
+     * Persist the current shards and delta, stamped with the highest sequence they fully reflect
+     *
+     * @return whether a snapshot was written
+     */
+    boolean writeSnapshot() throws IOException {
+        long base;
+        synchronized (this) {
+            base = appliedBase;
+        }
+        long head = eventStore.getLastSequence();
+        List<DomainEvent> recent = eventStore.getEventsAfter(base);
+
+        long watermark;
+        View current;
+        Map<UUID, Set<UUID>> releases;
+        List<IndexedTitle> added;
+        List<UUID> removed;
+        synchronized (this) {
+            // Stop before the first indexed event whose listener has not run yet
+            watermark = Math.max(base, head);
+            for (DomainEvent event : recent) {
+                long sequence = event.getSequence();
+                if (sequence > head) {
+                    break;
+                }
+                if (isIndexed(event) && sequence > appliedBase && !appliedSequences.contains(sequence)) {
+                    watermark = sequence - 1;
+                    break;
+                }
+            }
+            if (watermark == lastSnapshotSequence) {
+                return false; // nothing new
+            }
+            // The shards are immutable; the delta keeps changing, so it is copied
+            current = view;
+            releases = publishedSongs.releases();
+            added = new ArrayList<>(current.getDelta().added.values());
+            removed = new ArrayList<>(current.getDelta().removed);
+            appliedBase = Math.max(appliedBase, watermark);
+            appliedSequences.headSet(appliedBase, true).clear();
+            lastSnapshotSequence = watermark;
+        }
+
+        TitleIndexSnapshot snapshot = new TitleIndexSnapshot(watermark, eventStore.getEventIdAt(watermark),
+                releases, List.of(current.getShards()), added, removed);
+        try {
+            snapshot.write(snapshotPath);
+        } catch (IOException e) {
+            synchronized (this) {
+                lastSnapshotSequence = -1; // retry on the next run
+            }
+            throw e;
+        }
+        log.debug("Song title index snapshot written at sequence {} with {} titles",
+                watermark, current.size() + added.size() - removed.size());
+        return true;
+    }
+
+    // Must hold the lock; only snapshots read the applied sequences back
+    private void markApplied(DomainEvent event) {
+        if (snapshotPath != null && event.getSequence() > appliedBase) {
+            appliedSequences.add(event.getSequence());
+        }
+    }
+
+    private static boolean isIndexed(DomainEvent event) {
+        return event instanceof ReleasePublished
+                || event instanceof SongsAddedToRelease
+                || event instanceof ReleaseWithdrawn;
+    }
+
+    /**
+     * Walk the snapshot shards, in parallel when the snapshot is large enough to benefit
+     */
+    private List<TitleMatch> searchShards(View current, Query query) {
+        Shard[] shards = current.getShards();
+        Delta delta = current.getDelta();
+        int tasks = current.size() < parallelThreshold ? 1 : Math.min(maxQueryParallelism, shards.length);
+        if (tasks <= 1) {
+            return searchShards(shards, 0, 1, delta, query);
+        }
+
+        // Task t walks shards t, t + tasks, ...; the caller takes task 0 itself
+        List<Future<List<TitleMatch>>> futures = new ArrayList<>(tasks - 1);
+        for (int t = 1; t < tasks; t++) {
+            int first = t;
+            futures.add(searchExecutor.submit(() ->
+                    searchShards(shards, first, tasks, delta, query)));
+        }
+        List<TitleMatch> matches = searchShards(shards, 0, tasks, delta, query);
+        try {
+            for (Future<List<TitleMatch>> future : futures) {
+                matches.addAll(future.get());
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Song title search was interrupted", e);
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw new IllegalStateException("Song title search failed", e.getCause());
+        }
+        return matches;
+    }
+
+    private static List<TitleMatch> searchShards(Shard[] shards, int first, int step, Delta delta, Query query) {
+        List<TitleMatch> matches = new ArrayList<>();
+        for (int i = first; i < shards.length; i += step) {
+            IndexedTitle[] entries = shards[i].getEntries();
+            // Skip entries removed since the snapshot was built
+            TitleTrie.HitConsumer consumer = (index, distance) -> {
+                IndexedTitle entry = entries[index];
+                if (!delta.removed.contains(entry.getSongId())) {
+                    matches.add(new TitleMatch(entry.getSongId(), entry.getTitle(), distance));
+                }
+            };
+            if (query.getMode() == SearchMode.TOKENS) {
+                shards[i].searchTokens(query.getTokens(), consumer);
+            } else {
+                shards[i].getTrie().search(query.getTitle(), consumer);
+            }
+        }
+        return matches;
+    }
+
+    private Map<UUID, String> loadTitles(Collection<UUID> songIds) {
+        Map<UUID, String> titles = new HashMap<>();
+        for (Song song : songRepository.findAllById(songIds)) {
+            titles.put(song.getId(), song.getTitle());
+        }
+        return titles;
+    }
+
+    // Must hold the lock
+    private void applyPublished(UUID releaseId, Set<UUID> songIds, Map<UUID, String> titles) {
+        applyAdded(publishedSongs.publish(releaseId, songIds), titles);
+    }
+
+    // Must hold the lock
+    private void applyAdded(Set<UUID> newlyPublished, Map<UUID, String> titles) {
+        List<IndexedTitle> added = new ArrayList<>();
+        for (UUID songId : newlyPublished) {
+            String title = titles.get(songId);
+            if (title != null) {
+                IndexedTitle entry = IndexedTitle.of(songId, title);
+                liveEntries.put(songId, entry);
+                recordAdd(entry);
+                added.add(entry);
+            }
+        }
+        if (!added.isEmpty()) {
+            listeners.forEach(listener -> listener.onTitlesAdded(added));
+        }
+        scheduleRebuild();
+    }
+
+    // Must hold the lock
+    private void recordAdd(IndexedTitle entry) {
+        if (view != null) {
+            view.getDelta().add(entry);
+        }
+        if (pendingDelta != null) {
+            pendingDelta.add(entry);
+        }
+    }
+
+    // Must hold the lock
+    private void recordRemove(UUID songId) {
+        if (view != null) {
+            view.getDelta().remove(songId);
+        }
+        if (pendingDelta != null) {
+            pendingDelta.remove(songId);
+        }
+    }
+
+    // Must hold the lock
+    private void scheduleRebuild() {
+        if (view == null || rebuildScheduled) {
+            return;
+        }
+        rebuildScheduled = true;
+        long delay = view.getDelta().size() >= maxDeltaSize ? 0 : rebuildDelayMillis;
+        rebuildExecutor.schedule(this::rebuild, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Rebuild the snapshot from the live entries; changes made meanwhile are carried over
+     */
+    private void rebuild() {
+        List<IndexedTitle> entries;
+        synchronized (this) {
+            rebuildScheduled = false;
+            entries = new ArrayList<>(liveEntries.values());
+            pendingDelta = new Delta();
+        }
+
+        try {
+            // Hashing song IDs spreads every title prefix, and so the query work, evenly
+            List<List<IndexedTitle>> partitions = new ArrayList<>(shardCount);
+            for (int i = 0; i < shardCount; i++) {
+                partitions.add(new ArrayList<>(entries.size() / shardCount + 1));
+            }
+            for (IndexedTitle entry : entries) {
+                partitions.get(Math.floorMod(entry.getSongId().hashCode(), shardCount)).add(entry);
+            }
+            Shard[] shards = new Shard[shardCount];
+            int nodes = 0;
+            for (int i = 0; i < shardCount; i++) {
+                shards[i] = Shard.build(partitions.get(i));
+                nodes += shards[i].getTrie().nodeCount();
+            }
+
+            synchronized (this) {
+                view = new View(shards, entries.size(), pendingDelta);
+                pendingDelta = null;
+            }
+            log.debug("Song title index rebuilt: {} titles in {} shards, {} nodes", entries.size(), shardCount, nodes);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                pendingDelta = null;
+            }
+            log.error("Failed to rebuild song title index", e);
+        }
+    }
+
+    /**
+     * Immutable sharded snapshot together with the delta recorded since it was built
+     */
+    private static final class View {
+        private final Shard[] shards;
+        private final int size;
+        private final Delta delta;
+
+        View(Shard[] shards, int size, Delta delta) {
+            this.shards = shards;
+            this.size = size;
+            this.delta = delta;
+        }
+
+        Shard[] getShards() {
+            return shards;
+        }
+
+        int size() {
+            return size;
+        }
+
+        Delta getDelta() {
+            return delta;
+        }
+    }
+
+    /**
+     * Compiled search term; automata are immutable, so parallel tasks share them
+     */
+    private static final class Query {
+        private final SearchMode mode;
+        private final String normalizedTerm;
+        private final LevenshteinAutomaton title;
+        private final LevenshteinAutomaton[] tokens;
+
+        private Query(SearchMode mode, String normalizedTerm, LevenshteinAutomaton title, LevenshteinAutomaton[] tokens) {
+            this.mode = mode;
+            this.normalizedTerm = normalizedTerm;
+            this.title = title;
+            this.tokens = tokens;
+        }
+
+        static Query compile(String searchTerm, int maxDistance, SearchMode mode) {
+            String normalized = TitleNormalizer.normalize(searchTerm);
+            if (mode != SearchMode.TOKENS) {
+                return new Query(mode, normalized, LevenshteinAutomaton.of(normalized, maxDistance), null);
+            }
+            char[][] termTokens = TitleNormalizer.tokenize(normalized);
+            LevenshteinAutomaton[] automata = new LevenshteinAutomaton[termTokens.length];
+            for (int i = 0; i < automata.length; i++) {
+                automata[i] = LevenshteinAutomaton.of(new String(termTokens[i]), maxDistance);
+            }
+            return new Query(mode, normalized, null, automata);
+        }
+
+        boolean isEmpty() {
+            return mode == SearchMode.TOKENS && tokens.length == 0;
+        }
+
+        SearchMode getMode() {
+            return mode;
+        }
+
+        String getNormalizedTerm() {
+            return normalizedTerm;
+        }
+
+        LevenshteinAutomaton getTitle() {
+            return title;
+        }
+
+        LevenshteinAutomaton[] getTokens() {
+            return tokens;
+        }
+    }
+
+    /**
+     * Tries over one partition of the titles: one over whole titles, whose key indexes point
+     * into the entries, and one over title tokens, whose key indexes map to their entry
+     */
+    static final class Shard {
+        private final TitleTrie trie;
+        private final IndexedTitle[] entries;
+        private final TitleTrie tokenTrie;
+        private final int[] tokenOwners;
+
+        Shard(TitleTrie trie, IndexedTitle[] entries, TitleTrie tokenTrie, int[] tokenOwners) {
+            this.trie = trie;
+            this.entries = entries;
+            this.tokenTrie = tokenTrie;
+            this.tokenOwners = tokenOwners;
+        }
+
+        static Shard build(List<IndexedTitle> partition) {
+            IndexedTitle[] entries = partition.toArray(new IndexedTitle[0]);
+            Arrays.sort(entries, (a, b) -> Arrays.compare(a.getFolded(), b.getFolded()));
+            char[][] keys = new char[entries.length][];
+            int tokenCount = 0;
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = entries[i].getFolded();
+                tokenCount += entries[i].getTokens().length;
+            }
+
+            // Sort (token, entry) pairs by token
+            char[][] tokens = new char[tokenCount][];
+            int[] owners = new int[tokenCount];
+            Integer[] order = new Integer[tokenCount];
+            int t = 0;
+            for (int i = 0; i < entries.length; i++) {
+                for (char[] token : entries[i].getTokens()) {
+                    tokens[t] = token;
+                    owners[t] = i;
+                    order[t] = t;
+                    t++;
+                }
+            }
+            Arrays.sort(order, (a, b) -> Arrays.compare(tokens[a], tokens[b]));
+            char[][] tokenKeys = new char[tokenCount][];
+            int[] tokenOwners = new int[tokenCount];
+            for (int i = 0; i < tokenCount; i++) {
+                tokenKeys[i] = tokens[order[i]];
+                tokenOwners[i] = owners[order[i]];
+            }
+            return new Shard(TitleTrie.build(keys), entries, TitleTrie.build(tokenKeys), tokenOwners);
+        }
+
+        TitleTrie getTrie() {
+            return trie;
+        }
+
+        IndexedTitle[] getEntries() {
+            return entries;
+        }
+
+        TitleTrie getTokenTrie() {
+            return tokenTrie;
+        }
+
+        int[] getTokenOwners() {
+            return tokenOwners;
+        }
+
+        /**
+         * Report the entries having a token within reach of every term token, with the sum of
+         * the closest distances
+         */
+        void searchTokens(LevenshteinAutomaton[] termTokens, TitleTrie.HitConsumer consumer) {
+            // Hits are packed as (entry << 32 | distance) so sorting groups them by entry
+            long[] current = null;
+            int size = 0;
+            PackedHits hits = new PackedHits();
+            for (LevenshteinAutomaton automaton : termTokens) {
+                hits.clear();
+                tokenTrie.search(automaton, (key, distance) -> hits.add(((long) tokenOwners[key] << 32) | distance));
+                int count = hits.sortKeepingClosest();
+                if (current == null) {
+                    current = Arrays.copyOf(hits.values, count);
+                    size = count;
+                } else {
+                    size = intersect(current, size, hits.values, count);
+                }
+                if (size == 0) {
+                    return;
+                }
+            }
+            for (int i = 0; i < size; i++) {
+                consumer.accept((int) (current[i] >>> 32), (int) current[i]);
+            }
+        }
+
+        /**
+         * Keep the entries present in both sorted lists, adding up their distances, in place
+         */
+        private static int intersect(long[] current, int size, long[] next, int count) {
+            int kept = 0;
+            int i = 0;
+            int j = 0;
+            while (i < size && j < count) {
+                long a = current[i] >>> 32;
+                long b = next[j] >>> 32;
+                if (a < b) {
+                    i++;
+                } else if (a > b) {
+                    j++;
+                } else {
+                    current[kept++] = current[i++] + (int) next[j++];
+                }
+            }
+            return kept;
+        }
+    }
+
+    /**
+     * Growable buffer of packed token hits, reused across the tokens of a query
+     */
+    private static final class PackedHits {
+        private long[] values = new long[64];
+        private int size;
+
+        void add(long hit) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = hit;
+        }
+
+        void clear() {
+            size = 0;
+        }
+
+        /**
+         * Sort by entry and keep only the closest hit of each entry
+         *
+         * @return the number of hits kept
+         */
+        int sortKeepingClosest() {
+            Arrays.sort(values, 0, size);
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                if (kept == 0 || (values[kept - 1] >>> 32) != (values[i] >>> 32)) {
+                    values[kept++] = values[i];
+                }
+            }
+            return kept;
+        }
+    }
+
+    /**
+     * Entries added since the snapshot, and tombstones for snapshot entries removed since
+     */
+    private static final class Delta {
+        private final Map<UUID, IndexedTitle> added = new ConcurrentHashMap<>();
+        private final Set<UUID> removed = ConcurrentHashMap.newKeySet();
+
+        void add(IndexedTitle entry) {
+            // A tombstoned snapshot entry becomes visible again; titles never change
+            if (!removed.remove(entry.getSongId())) {
+                added.put(entry.getSongId(), entry);
+            }
+        }
+
+        void remove(UUID songId) {
+            if (added.remove(songId) == null) {
+                removed.add(songId);
+            }
+        }
+
+        int size() {
+            return added.size() + removed.size();
+        }
+    }
+}
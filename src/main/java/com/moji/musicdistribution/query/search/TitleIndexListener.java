@@ -0,0 +1,21 @@
+package com.moji.musicdistribution.query.search;
+
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * Callback for components derived from the song title index
+ * Invoked by {@link SongTitleIndex} after a change is visible to queries
+ */
+public interface TitleIndexListener {
+
+    /**
+     * Titles that became searchable
+     */
+    void onTitlesAdded(Collection<IndexedTitle> titles);
+
+    /**
+     * Songs that are no longer searchable
+     */
+    void onSongsRemoved(Collection<UUID> songIds);
+}
@@ -0,0 +1,314 @@
+package com.moji.musicdistribution.query.search;
+
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Persisted state of the {@link SongTitleIndex}: the published releases with their songs, the
+ * built shards and the delta recorded since they were built, stamped with the position in the
+ * event log they reflect
+ * <p>
+ * File layout (big-endian): magic, format version, body length, body, CRC32 of the body.
+ * The body holds the sequence and the ID of the event at that sequence, the releases (ID, song
+ * count, song IDs), the shards (entries with their folded title and tokens, the node arrays of
+ * both tries, the token owners) and the delta (added entries, removed song IDs). Files are
+ * written to a temporary sibling and moved into place, and are memory-mapped when read, with
+ * the trie arrays copied out in bulk.
+ */
+final class TitleIndexSnapshot {
+
+    private static final int MAGIC = 0x53544958; // "STIX"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+
+    private final long sequence;
+    private final UUID eventId;
+    private final Map<UUID, Set<UUID>> releases;
+    private final List<SongTitleIndex.Shard> shards;
+    private final List<IndexedTitle> added;
+    private final List<UUID> removed;
+
+    TitleIndexSnapshot(long sequence, UUID eventId, Map<UUID, Set<UUID>> releases,
+                       List<SongTitleIndex.Shard> shards, List<IndexedTitle> added, List<UUID> removed) {
+        this.sequence = sequence;
+        this.eventId = eventId;
+        this.releases = releases;
+        this.shards = shards;
+        this.added = added;
+        this.removed = removed;
+    }
+
+    /**
+     * Sequence of the last event the state fully reflects
+     */
+    long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * ID of the event at {@link #getSequence()}; the nil UUID for an empty log
+     */
+    UUID getEventId() {
+        return eventId;
+    }
+
+    Map<UUID, Set<UUID>> getReleases() {
+        return releases;
+    }
+
+    List<SongTitleIndex.Shard> getShards() {
+        return shards;
+    }
+
+    List<IndexedTitle> getAdded() {
+        return added;
+    }
+
+    List<UUID> getRemoved() {
+        return removed;
+    }
+
+    /**
+     * Write the snapshot, replacing any previous file atomically
+     */
+    void write(Path path) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+        try {
+            // Body goes first so its length and checksum can be patched into the frame
+            CRC32 crc = new CRC32();
+            long bodyLength;
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                channel.position(HEADER_BYTES);
+                CountingOutputStream counter = new CountingOutputStream(
+                        new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+                DataOutputStream out = new DataOutputStream(new CheckedOutputStream(counter, crc));
+                writeBody(out);
+                out.flush();
+                bodyLength = counter.count;
+
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+                header.putInt(MAGIC).putInt(VERSION).putLong(bodyLength).flip();
+                channel.write(header, 0);
+                ByteBuffer trailer = ByteBuffer.allocate(Long.BYTES);
+                trailer.putLong(crc.getValue()).flip();
+                channel.write(trailer, HEADER_BYTES + bodyLength);
+                channel.force(true);
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Map and decode a snapshot file
+     *
+     * @throws IOException if the file cannot be read or is not a valid snapshot of this version
+     */
+    static TitleIndexSnapshot read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot too large to map: " + size + " bytes");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (size < HEADER_BYTES || buffer.getInt() != MAGIC) {
+                throw new IOException("Not a song title index snapshot");
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version " + version);
+            }
+            long bodyLength = buffer.getLong();
+            if (bodyLength < 0 || HEADER_BYTES + bodyLength + Long.BYTES != size) {
+                throw new IOException("Truncated snapshot");
+            }
+
+            CRC32 crc = new CRC32();
+            crc.update(buffer.slice(HEADER_BYTES, (int) bodyLength));
+            if (crc.getValue() != buffer.getLong(HEADER_BYTES + (int) bodyLength)) {
+                throw new IOException("Snapshot checksum mismatch");
+            }
+            try {
+                return readBody(buffer);
+            } catch (BufferUnderflowException | IllegalArgumentException e) {
+                throw new IOException("Corrupt snapshot", e);
+            }
+        }
+    }
+
+    private void writeBody(DataOutputStream out) throws IOException {
+        out.writeLong(sequence);
+        writeUuid(out, eventId);
+
+        out.writeInt(releases.size());
+        for (Map.Entry<UUID, Set<UUID>> release : releases.entrySet()) {
+            writeUuid(out, release.getKey());
+            out.writeInt(release.getValue().size());
+            for (UUID songId : release.getValue()) {
+                writeUuid(out, songId);
+            }
+        }
+
+        out.writeInt(shards.size());
+        for (SongTitleIndex.Shard shard : shards) {
+            IndexedTitle[] entries = shard.getEntries();
+            out.writeInt(entries.length);
+            for (IndexedTitle entry : entries) {
+                writeEntry(out, entry);
+            }
+            shard.getTrie().write(out);
+            int[] tokenOwners = shard.getTokenOwners();
+            out.writeInt(tokenOwners.length);
+            for (int owner : tokenOwners) {
+                out.writeInt(owner);
+            }
+            shard.getTokenTrie().write(out);
+        }
+
+        out.writeInt(added.size());
+        for (IndexedTitle entry : added) {
+            writeEntry(out, entry);
+        }
+        out.writeInt(removed.size());
+        for (UUID songId : removed) {
+            writeUuid(out, songId);
+        }
+    }
+
+    private static TitleIndexSnapshot readBody(ByteBuffer buffer) {
+        long sequence = buffer.getLong();
+        UUID eventId = readUuid(buffer);
+
+        int releaseCount = readCount(buffer);
+        Map<UUID, Set<UUID>> releases = new HashMap<>(releaseCount * 2);
+        for (int i = 0; i < releaseCount; i++) {
+            UUID releaseId = readUuid(buffer);
+            int songCount = readCount(buffer);
+            Set<UUID> songIds = new HashSet<>(songCount * 2);
+            for (int j = 0; j < songCount; j++) {
+                songIds.add(readUuid(buffer));
+            }
+            releases.put(releaseId, songIds);
+        }
+
+        int shardCount = readCount(buffer);
+        List<SongTitleIndex.Shard> shards = new ArrayList<>(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            IndexedTitle[] entries = new IndexedTitle[readCount(buffer)];
+            for (int j = 0; j < entries.length; j++) {
+                entries[j] = readEntry(buffer);
+            }
+            TitleTrie trie = TitleTrie.read(buffer, entries.length);
+            int[] tokenOwners = new int[readCount(buffer)];
+            buffer.asIntBuffer().get(tokenOwners);
+            buffer.position(buffer.position() + tokenOwners.length * Integer.BYTES);
+            for (int owner : tokenOwners) {
+                if (owner < 0 || owner >= entries.length) {
+                    throw new IllegalArgumentException("Invalid token owner " + owner);
+                }
+            }
+            TitleTrie tokenTrie = TitleTrie.read(buffer, tokenOwners.length);
+            shards.add(new SongTitleIndex.Shard(trie, entries, tokenTrie, tokenOwners));
+        }
+
+        int addedCount = readCount(buffer);
+        List<IndexedTitle> added = new ArrayList<>(addedCount);
+        for (int i = 0; i < addedCount; i++) {
+            added.add(readEntry(buffer));
+        }
+        int removedCount = readCount(buffer);
+        List<UUID> removed = new ArrayList<>(removedCount);
+        for (int i = 0; i < removedCount; i++) {
+            removed.add(readUuid(buffer));
+        }
+        return new TitleIndexSnapshot(sequence, eventId, releases, shards, added, removed);
+    }
+
+    // The folded title and tokens are stored too, so restoring does not normalise again
+    private static void writeEntry(DataOutputStream out, IndexedTitle entry) throws IOException {
+        writeUuid(out, entry.getSongId());
+        writeChars(out, entry.getTitle().toCharArray());
+        writeChars(out, entry.getFolded());
+        out.writeInt(entry.getTokens().length);
+        for (char[] token : entry.getTokens()) {
+            writeChars(out, token);
+        }
+    }
+
+    private static IndexedTitle readEntry(ByteBuffer buffer) {
+        UUID songId = readUuid(buffer);
+        String title = new String(readChars(buffer));
+        char[] folded = readChars(buffer);
+        char[][] tokens = new char[readCount(buffer)][];
+        for (int i = 0; i < tokens.length; i++) {
+            tokens[i] = readChars(buffer);
+        }
+        return new IndexedTitle(songId, title, folded, tokens);
+    }
+
+    private static void writeChars(DataOutputStream out, char[] chars) throws IOException {
+        out.writeInt(chars.length);
+        for (char c : chars) {
+            out.writeChar(c);
+        }
+    }
+
+    private static char[] readChars(ByteBuffer buffer) {
+        char[] chars = new char[readCount(buffer)];
+        buffer.asCharBuffer().get(chars);
+        buffer.position(buffer.position() + chars.length * Character.BYTES);
+        return chars;
+    }
+
+    private static void writeUuid(DataOutputStream out, UUID uuid) throws IOException {
+        out.writeLong(uuid.getMostSignificantBits());
+        out.writeLong(uuid.getLeastSignificantBits());
+    }
+
+    private static UUID readUuid(ByteBuffer buffer) {
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+    // Guards against allocating from a corrupt count: every counted item takes at least one byte
+    private static int readCount(ByteBuffer buffer) {
+        int count = buffer.getInt();
+        if (count < 0 || count > buffer.remaining()) {
+            throw new IllegalArgumentException("Invalid count " + count);
+        }
+        return count;
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.moji.musicdistribution.query.search;
+
+import lombok.Value;
+
+import java.util.UUID;
+
+/**
+ * A song title within the requested edit distance of a search term
+ */
+@Value
+public class TitleMatch {
+    UUID songId;
+    String title;
+    int distance;
+}
@@ -0,0 +1,102 @@
+package com.moji.musicdistribution.query.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Canonical form shared by indexed titles and search terms
+ * <p>
+ * Text is decomposed (NFKD), combining marks such as accents are dropped, case is folded and
+ * runs of whitespace collapse to a single space with none at either end, so "Beyoncé",
+ * "BEYONCE " and "beyonce" all normalise to the same string. Tokens are the runs of letters
+ * and digits of the normalised text. Titles are normalised once when they are indexed;
+ * already-canonical ASCII text is returned without copying.
+ */
+public final class TitleNormalizer {
+
+    private static final char[][] NO_TOKENS = new char[0][];
+
+    private TitleNormalizer() {
+    }
+
+    /**
+     * Normalise a title or search term
+     */
+    public static String normalize(CharSequence text) {
+        if (isCanonicalAscii(text)) {
+            return text.toString();
+        }
+        CharSequence decomposed = isAscii(text) ? text : Normalizer.normalize(text, Normalizer.Form.NFKD);
+
+        StringBuilder normalized = new StringBuilder(decomposed.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.isWhitespace(c) || Character.isSpaceChar(c)) {
+                pendingSpace = normalized.length() > 0;
+            } else if (!isMark(c)) {
+                if (pendingSpace) {
+                    normalized.append(' ');
+                    pendingSpace = false;
+                }
+                normalized.append(LevenshteinMatcher.fold(c));
+            }
+        }
+        return normalized.toString();
+    }
+
+    /**
+     * Split normalised text into its runs of letters and digits
+     */
+    public static char[][] tokenize(String normalized) {
+        List<char[]> tokens = null;
+        int start = -1;
+        for (int i = 0; i <= normalized.length(); i++) {
+            boolean tokenChar = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+            if (tokenChar && start < 0) {
+                start = i;
+            } else if (!tokenChar && start >= 0) {
+                if (tokens == null) {
+                    tokens = new ArrayList<>(4);
+                }
+                char[] token = new char[i - start];
+                normalized.getChars(start, i, token, 0);
+                tokens.add(token);
+                start = -1;
+            }
+        }
+        return tokens == null ? NO_TOKENS : tokens.toArray(new char[0][]);
+    }
+
+    private static boolean isMark(char c) {
+        int type = Character.getType(c);
+        return type == Character.NON_SPACING_MARK
+                || type == Character.COMBINING_SPACING_MARK
+                || type == Character.ENCLOSING_MARK;
+    }
+
+    private static boolean isAscii(CharSequence text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * ASCII without upper case, control characters or redundant spaces needs no work
+     */
+    private static boolean isCanonicalAscii(CharSequence text) {
+        char previous = ' ';
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= 0x80 || (c >= 'A' && c <= 'Z') || c < ' ' || c == 0x7F || (c == ' ' && previous == ' ')) {
+                return false;
+            }
+            previous = c;
+        }
+        return previous != ' ' || text.length() == 0;
+    }
+}
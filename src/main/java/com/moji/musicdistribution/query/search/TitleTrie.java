@@ -0,0 +1,243 @@
+package com.moji.musicdistribution.query.search;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Immutable, array-backed trie over folded titles.
+ * <p>
+ * Nodes are laid out breadth-first so the children of a node occupy a contiguous index range,
+ * and every node stores one label character. Keys must be supplied sorted; the values of a
+ * terminal node are then a contiguous range of key positions, which callers use as indexes
+ * into their own entry arrays. The node arrays can be written out and read back as they are,
+ * without building the trie again.
+ */
+public final class TitleTrie {
+
+    private final char[] labels;
+    private final int[] childStart;
+    private final int[] childEnd;
+    private final int[] valueStart;
+    private final int[] valueEnd;
+    private final int nodeCount;
+
+    private TitleTrie(char[] labels, int[] childStart, int[] childEnd,
+                      int[] valueStart, int[] valueEnd, int nodeCount) {
+        this.labels = labels;
+        this.childStart = childStart;
+        this.childEnd = childEnd;
+        this.valueStart = valueStart;
+        this.valueEnd = valueEnd;
+        this.nodeCount = nodeCount;
+    }
+
+    /**
+     * Callback for titles accepted by a search
+     */
+    @FunctionalInterface
+    public interface HitConsumer {
+        void accept(int keyIndex, int distance);
+    }
+
+    /**
+     * Build a trie over keys sorted with {@link Arrays#compare(char[], char[])}
+     */
+    public static TitleTrie build(char[][] sortedKeys) {
+        int capacity = Math.max(16, sortedKeys.length * 2);
+        Builder builder = new Builder(capacity);
+
+        // Root covers all keys at depth 0
+        builder.add('\0', 0, sortedKeys.length, 0);
+        for (int node = 0; node < builder.count; node++) {
+            int lo = builder.lo[node];
+            int hi = builder.hi[node];
+            int depth = builder.depth[node];
+
+            // Keys that end here sort before their extensions
+            int split = lo;
+            while (split < hi && sortedKeys[split].length == depth) {
+                split++;
+            }
+            builder.valueStart[node] = lo;
+            builder.valueEnd[node] = split;
+
+            // Group the remaining keys by their character at this depth
+            builder.childStart[node] = builder.count;
+            int i = split;
+            while (i < hi) {
+                char c = sortedKeys[i][depth];
+                int j = i + 1;
+                while (j < hi && sortedKeys[j][depth] == c) {
+                    j++;
+                }
+                builder.add(c, i, j, depth + 1);
+                i = j;
+            }
+            builder.childEnd[node] = builder.count;
+        }
+        return builder.toTrie();
+    }
+
+    /**
+     * Read a trie written by {@link #write}, leaving the buffer positioned after it
+     *
+     * @param keyCount number of keys the trie was built over
+     * @throws IllegalArgumentException if the buffer does not hold a valid trie over that many keys
+     */
+    static TitleTrie read(ByteBuffer buffer, int keyCount) {
+        int count = buffer.getInt();
+        if (count < 0 || count > buffer.remaining() / (Character.BYTES + 4 * Integer.BYTES)) {
+            throw new IllegalArgumentException("Invalid trie node count " + count);
+        }
+        char[] labels = new char[count];
+        buffer.asCharBuffer().get(labels);
+        buffer.position(buffer.position() + count * Character.BYTES);
+        int[][] ranges = new int[4][count];
+        for (int[] range : ranges) {
+            buffer.asIntBuffer().get(range);
+            buffer.position(buffer.position() + count * Integer.BYTES);
+        }
+        // Children follow their parent, so a search cannot loop
+        for (int node = 0; node < count; node++) {
+            if (ranges[0][node] <= node || ranges[0][node] > ranges[1][node] || ranges[1][node] > count
+                    || ranges[2][node] < 0 || ranges[2][node] > ranges[3][node] || ranges[3][node] > keyCount) {
+                throw new IllegalArgumentException("Invalid trie node " + node);
+            }
+        }
+        return new TitleTrie(labels, ranges[0], ranges[1], ranges[2], ranges[3], count);
+    }
+
+    /**
+     * Write the node arrays
+     */
+    void write(DataOutputStream out) throws IOException {
+        out.writeInt(nodeCount);
+        for (char label : labels) {
+            out.writeChar(label);
+        }
+        for (int[] range : new int[][]{childStart, childEnd, valueStart, valueEnd}) {
+            for (int value : range) {
+                out.writeInt(value);
+            }
+        }
+    }
+
+    /**
+     * Number of nodes in the trie
+     */
+    public int nodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Enumerate every key accepted by the automaton
+     */
+    public void search(LevenshteinAutomaton automaton, HitConsumer consumer) {
+        if (automaton.maxDistance() < 0 || nodeCount == 0) {
+            return;
+        }
+        Rows rows = new Rows(automaton.stateSize());
+        automaton.start(rows.at(0));
+        visit(0, 0, automaton, rows, consumer);
+    }
+
+    private void visit(int node, int depth, LevenshteinAutomaton automaton, Rows rows, HitConsumer consumer) {
+        int[] state = rows.at(depth);
+        if (automaton.isMatch(state) && valueStart[node] < valueEnd[node]) {
+            int distance = automaton.distance(state);
+            for (int k = valueStart[node]; k < valueEnd[node]; k++) {
+                consumer.accept(k, distance);
+            }
+        }
+        int[] next = rows.at(depth + 1);
+        for (int child = childStart[node]; child < childEnd[node]; child++) {
+            if (automaton.step(state, labels[child], next) <= automaton.maxDistance()) {
+                visit(child, depth + 1, automaton, rows, consumer);
+                // Deeper visits may have reallocated the row table
+                state = rows.at(depth);
+                next = rows.at(depth + 1);
+            }
+        }
+    }
+
+    /**
+     * One reusable automaton state row per trie depth
+     */
+    private static final class Rows {
+        private final int width;
+        private int[][] rows = new int[32][];
+
+        Rows(int width) {
+            this.width = width;
+        }
+
+        int[] at(int depth) {
+            if (depth >= rows.length) {
+                rows = Arrays.copyOf(rows, Math.max(depth + 1, rows.length * 2));
+            }
+            int[] row = rows[depth];
+            if (row == null) {
+                row = rows[depth] = new int[width];
+            }
+            return row;
+        }
+    }
+
+    /**
+     * Growable parallel arrays used while laying out nodes
+     */
+    private static final class Builder {
+        char[] labels;
+        int[] childStart;
+        int[] childEnd;
+        int[] valueStart;
+        int[] valueEnd;
+        int[] lo;
+        int[] hi;
+        int[] depth;
+        int count;
+
+        Builder(int capacity) {
+            labels = new char[capacity];
+            childStart = new int[capacity];
+            childEnd = new int[capacity];
+            valueStart = new int[capacity];
+            valueEnd = new int[capacity];
+            lo = new int[capacity];
+            hi = new int[capacity];
+            depth = new int[capacity];
+        }
+
+        void add(char label, int from, int to, int nodeDepth) {
+            if (count == labels.length) {
+                int capacity = labels.length * 2;
+                labels = Arrays.copyOf(labels, capacity);
+                childStart = Arrays.copyOf(childStart, capacity);
+                childEnd = Arrays.copyOf(childEnd, capacity);
+                valueStart = Arrays.copyOf(valueStart, capacity);
+                valueEnd = Arrays.copyOf(valueEnd, capacity);
+                lo = Arrays.copyOf(lo, capacity);
+                hi = Arrays.copyOf(hi, capacity);
+                depth = Arrays.copyOf(depth, capacity);
+            }
+            labels[count] = label;
+            lo[count] = from;
+            hi[count] = to;
+            depth[count] = nodeDepth;
+            count++;
+        }
+
+        TitleTrie toTrie() {
+            return new TitleTrie(
+                    Arrays.copyOf(labels, count),
+                    Arrays.copyOf(childStart, count),
+                    Arrays.copyOf(childEnd, count),
+                    Arrays.copyOf(valueStart, count),
+                    Arrays.copyOf(valueEnd, count),
+                    count
+            );
+        }
+    }
+}
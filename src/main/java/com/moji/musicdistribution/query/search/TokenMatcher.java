@@ -0,0 +1,69 @@
+package com.moji.musicdistribution.query.search;
+
+/**
+ * Word-level fuzzy matcher: each token of the search term must be within the maximum distance
+ * of some token of the title, in any order
+ * <p>
+ * Title tokens are precomputed by {@link IndexedTitle}, so a comparison does not allocate.
+ * Not thread-safe, like the {@link LevenshteinMatcher}s it holds.
+ */
+public final class TokenMatcher {
+
+    /**
+     * Returned by {@link #distance} when some term token matches no title token
+     */
+    public static final int NO_MATCH = -1;
+
+    private final char[][] tokens;
+    private final LevenshteinMatcher[] matchers;
+
+    private TokenMatcher(char[][] tokens) {
+        this.tokens = tokens;
+        this.matchers = new LevenshteinMatcher[tokens.length];
+        for (int i = 0; i < tokens.length; i++) {
+            matchers[i] = LevenshteinMatcher.compile(new String(tokens[i]));
+        }
+    }
+
+    /**
+     * Compile the tokens of a search term
+     */
+    public static TokenMatcher compile(CharSequence term) {
+        return new TokenMatcher(TitleNormalizer.tokenize(TitleNormalizer.normalize(term)));
+    }
+
+    /**
+     * Normalised tokens of the search term
+     */
+    public char[][] tokens() {
+        return tokens;
+    }
+
+    /**
+     * Sum over the term's tokens of the distance to the closest title token
+     *
+     * @return the total distance, or {@link #NO_MATCH} if the term has no tokens or one of
+     * them is further than maxDistance from every title token
+     */
+    public int distance(char[][] titleTokens, int maxDistance) {
+        if (matchers.length == 0 || maxDistance < 0) {
+            return NO_MATCH;
+        }
+        int total = 0;
+        for (LevenshteinMatcher matcher : matchers) {
+            int best = maxDistance + 1;
+            for (char[] titleToken : titleTokens) {
+                // Only a strictly closer token can improve on the best so far
+                best = Math.min(best, matcher.distance(titleToken, 0, titleToken.length, best - 1));
+                if (best == 0) {
+                    break;
+                }
+            }
+            if (best > maxDistance) {
+                return NO_MATCH;
+            }
+            total += best;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,60 @@
+package com.moji.musicdistribution.query.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Keeps the best K hits ranked after an optional cursor, using a bounded heap
+ * <p>
+ * The heap is ordered worst-first, so a new hit only costs a comparison against the current
+ * K-th best once the heap is full. Not thread-safe; merge collectors with {@link #addAll}.
+ */
+public final class TopKCollector {
+
+    private final int limit;
+    private final SearchHit after;
+    private final PriorityQueue<SearchHit> heap;
+
+    public TopKCollector(int limit, SearchHit after) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        this.limit = limit;
+        this.after = after;
+        this.heap = new PriorityQueue<>(Math.min(limit, 1024) + 1, SearchHit.RANKING.reversed());
+    }
+
+    /**
+     * Offer a hit; it is kept only if it ranks after the cursor and among the best K so far
+     */
+    public void add(SearchHit hit) {
+        if (after != null && SearchHit.RANKING.compare(hit, after) <= 0) {
+            return;
+        }
+        if (heap.size() < limit) {
+            heap.add(hit);
+        } else if (SearchHit.RANKING.compare(hit, heap.peek()) < 0) {
+            heap.poll();
+            heap.add(hit);
+        }
+    }
+
+    /**
+     * Merge the hits kept by another collector
+     */
+    public void addAll(TopKCollector other) {
+        for (SearchHit hit : other.heap) {
+            add(hit);
+        }
+    }
+
+    /**
+     * Hits kept so far, best first
+     */
+    public List<SearchHit> results() {
+        List<SearchHit> results = new ArrayList<>(heap);
+        results.sort(SearchHit.RANKING);
+        return results;
+    }
+}
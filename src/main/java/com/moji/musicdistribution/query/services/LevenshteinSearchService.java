@@ -4,15 +4,20 @@ import com.moji.musicdistribution.domain.aggregates.Release;
 import com.moji.musicdistribution.domain.aggregates.Song;
 import com.moji.musicdistribution.domain.repositories.ReleaseRepository;
 import com.moji.musicdistribution.domain.repositories.SongRepository;
+import com.moji.musicdistribution.query.projections.StreamStatsProjection;
+import com.moji.musicdistribution.query.readmodels.SongSearchPage;
+import com.moji.musicdistribution.query.search.*;
 import lombok.RequiredArgsConstructor;
-import org.apache.commons.text.similarity.LevenshteinDistance;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
  * Service for searching songs by title using Levenshtein distance algorithm
+ * Queries are answered from the {@link SongTitleIndex} once it is ready, through the
+ * {@link SearchResultCache}, and by scanning the repositories otherwise
  */
 @Service
 @RequiredArgsConstructor
@@ -20,6 +25,9 @@ public class LevenshteinSearchService {
 
     private final SongRepository songRepository;
     private final ReleaseRepository releaseRepository;
+    private final SongTitleIndex songTitleIndex;
+    private final SearchResultCache searchResultCache;
+    private final StreamStatsProjection streamStatsProjection;
 
     /**
      * Search for songs by title using Levenshtein distance
@@ -35,6 +43,73 @@ public class LevenshteinSearchService {
             return Collections.emptyList(); // Return empty list if search term is null
         }
 
+        List<UUID> matchingSongIds = new ArrayList<>();
+        Map<UUID, Song> loadedSongs = findMatches(searchTerm, maxDistance, SearchMode.TITLE,
+                (songId, distance) -> matchingSongIds.add(songId));
+        return loadSongs(matchingSongIds, loadedSongs);
+    }
+
+    /**
+     * Search for songs by title and return one page of results ranked by distance,
+     * with the most streamed songs first among equally close titles
+     *
+     * @param searchTerm  The search term to match against song titles
+     * @param maxDistance The maximum Levenshtein distance allowed for a match
+     * @param limit       The maximum number of songs on the page
+     * @param cursor      The cursor returned with the previous page, or null for the first page
+     * @return The page of songs and the cursor for the next page
+     */
+    public SongSearchPage searchSongsByTitle(String searchTerm, int maxDistance, int limit, String cursor) {
+        return searchSongsByTitle(searchTerm, maxDistance, SearchMode.TITLE, limit, cursor);
+    }
+
+    /**
+     * Search for songs by title in the given mode and return one page of ranked results
+     *
+     * @param searchTerm  The search term to match against song titles
+     * @param maxDistance The maximum Levenshtein distance allowed for a match (per word in token mode)
+     * @param mode        Whether to compare whole titles or individual words
+     * @param limit       The maximum number of songs on the page
+     * @param cursor      The cursor returned with the previous page, or null for the first page
+     * @return The page of songs and the cursor for the next page
+     */
+    public SongSearchPage searchSongsByTitle(String searchTerm, int maxDistance, SearchMode mode,
+                                             int limit, String cursor) {
+        if (searchTerm == null) {
+            return new SongSearchPage(Collections.emptyList(), null);
+        }
+
+        // Keep one extra hit to learn whether another page exists
+        TopKCollector collector = new TopKCollector(limit + 1, SearchCursor.decode(cursor));
+        Map<UUID, Song> loadedSongs = findMatches(searchTerm, maxDistance, mode, (songId, distance) -> collector.add(
+                new SearchHit(songId, distance, streamStatsProjection.getSongStreamCount(songId))));
+
+        List<SearchHit> hits = collector.results();
+        String nextCursor = null;
+        if (hits.size() > limit) {
+            hits = hits.subList(0, limit);
+            nextCursor = SearchCursor.encode(hits.get(limit - 1));
+        }
+
+        List<Song> songs = loadSongs(hits.stream().map(SearchHit::getSongId).toList(), loadedSongs);
+        return new SongSearchPage(songs, nextCursor);
+    }
+
+    /**
+     * Report every published song matching the search term
+     *
+     * @return the matching songs that already had to be loaded to find them
+     */
+    private Map<UUID, Song> findMatches(String searchTerm, int maxDistance, SearchMode mode, MatchConsumer consumer) {
+        if (songTitleIndex.isReady()) {
+            List<TitleMatch> matches = searchResultCache.get(searchTerm, maxDistance, mode,
+                    () -> songTitleIndex.search(searchTerm, maxDistance, mode));
+            for (TitleMatch match : matches) {
+                consumer.accept(match.getSongId(), match.getDistance());
+            }
+            return Collections.emptyMap();
+        }
+
         // First, get all songs
         List<Song> allSongs = songRepository.findAll();
 
@@ -49,20 +124,71 @@ public class LevenshteinSearchService {
             availableSongIds.addAll(release.getSongIds());
         }
 
-        // Create Levenshtein distance calculator
-        LevenshteinDistance levenshtein = new LevenshteinDistance();
+        // Compile the search term once; titles are normalised the same way as in the index
+        SongMatcher matcher = compileMatcher(searchTerm, mode);
 
         // Filter songs by title similarity and availability
-        return allSongs.stream()
-                .filter(song -> availableSongIds.contains(song.getId())) // Only include available songs
-                .filter(song -> {
-                    // Calculate Levenshtein distance between search term and song title
-                    int distance = levenshtein.apply(
-                            searchTerm.toLowerCase(),
-                            song.getTitle().toLowerCase()
-                    );
-                    return distance <= maxDistance;
-                })
-                .collect(Collectors.toList());
+        Map<UUID, Song> matchingSongs = new HashMap<>();
+        for (Song song : allSongs) {
+            if (availableSongIds.contains(song.getId())) { // Only include available songs
+                int distance = matcher.distance(TitleNormalizer.normalize(song.getTitle()), maxDistance);
+                if (distance != SongMatcher.NO_MATCH) {
+                    matchingSongs.put(song.getId(), song);
+                    consumer.accept(song.getId(), distance);
+                }
+            }
+        }
+        return matchingSongs;
+    }
+
+    /**
+     * Load songs by ID, preserving the order of the IDs and fetching only those not loaded yet
+     */
+    private List<Song> loadSongs(List<UUID> songIds, Map<UUID, Song> loadedSongs) {
+        if (songIds.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Map<UUID, Song> songsById = new HashMap<>(loadedSongs);
+        List<UUID> missingIds = songIds.stream()
+                .filter(songId -> !songsById.containsKey(songId))
+                .toList();
+        if (!missingIds.isEmpty()) {
+            songsById.putAll(songRepository.findAllById(missingIds).stream()
+                    .collect(Collectors.toMap(Song::getId, Function.identity())));
+        }
+        return songIds.stream()
+                .map(songsById::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    private static SongMatcher compileMatcher(String searchTerm, SearchMode mode) {
+        if (mode == SearchMode.TOKENS) {
+            TokenMatcher matcher = TokenMatcher.compile(searchTerm);
+            // Each word may be up to maxDistance away, so the total can exceed it
+            return (title, maxDistance) -> matcher.distance(TitleNormalizer.tokenize(title), maxDistance);
+        }
+        LevenshteinMatcher matcher = LevenshteinMatcher.compile(TitleNormalizer.normalize(searchTerm));
+        return (title, maxDistance) -> {
+            int distance = matcher.distance(title, maxDistance);
+            return distance > maxDistance ? SongMatcher.NO_MATCH : distance;
+        };
+    }
+
+    @FunctionalInterface
+    private interface MatchConsumer {
+        void accept(UUID songId, int distance);
+    }
+
+    @FunctionalInterface
+    private interface SongMatcher {
+
+        // Returned when the title does not match, whatever the mode's distances add up to
+        int NO_MATCH = TokenMatcher.NO_MATCH;
+
+        /**
+         * @return the distance of a matching title, or {@link #NO_MATCH}
+         */
+        int distance(String normalizedTitle, int maxDistance);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,98 @@
+package com.moji.musicdistribution;
+
+import org.junit.jupiter.api.Assumptions;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.util.Properties;
+import java.util.function.IntConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the bytes a hot path allocates per operation against its budget in
+ * {@code allocation-budgets.properties}
+ * The operation runs long enough to be compiled first, then over several rounds counted by the
+ * thread's allocation counter. The cheapest round is compared, so one-off allocations such as a
+ * map resizing do not count against the path.
+ */
+public final class AllocationBudget {
+
+    /**
+     * Number of times the operation is called, with indexes 0 to OPERATIONS - 1, so tests can
+     * prepare their inputs up front
+     */
+    public static final int OPERATIONS = 100_000;
+
+    private static final int WARMUP_OPERATIONS = 50_000;
+    private static final int ROUNDS = 5;
+    private static final int OPERATIONS_PER_ROUND = (OPERATIONS - WARMUP_OPERATIONS) / ROUNDS;
+    private static final String BUDGETS = "/allocation-budgets.properties";
+
+    private static final Properties budgets = load();
+
+    private AllocationBudget() {
+    }
+
+    /**
+     * Fail if the operation allocates more bytes per call than the budget of the given name
+     */
+    public static void assertWithinBudget(String name, IntConsumer operation) {
+        long budget = budget(name);
+        long allocated = bytesPerOperation(operation);
+        assertTrue(allocated <= budget, () -> String.format(
+                "%s allocates %d bytes per operation, over its budget of %d; if that is intended, raise it in %s",
+                name, allocated, budget, BUDGETS));
+    }
+
+    private static long bytesPerOperation(IntConsumer operation) {
+        com.sun.management.ThreadMXBean threads = threadBean();
+        int index = 0;
+        for (; index < WARMUP_OPERATIONS; index++) {
+            operation.accept(index);
+        }
+
+        long cheapest = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long before = threads.getCurrentThreadAllocatedBytes();
+            for (int i = 0; i < OPERATIONS_PER_ROUND; i++, index++) {
+                operation.accept(index);
+            }
+            long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+            cheapest = Math.min(cheapest, allocated / OPERATIONS_PER_ROUND);
+        }
+        return cheapest;
+    }
+
+    private static com.sun.management.ThreadMXBean threadBean() {
+        Assumptions.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean,
+                "The JVM does not count allocations per thread");
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assumptions.assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled(),
+                "The JVM does not count allocations per thread");
+        return threads;
+    }
+
+    private static long budget(String name) {
+        String budget = budgets.getProperty(name);
+        if (budget == null) {
+            throw new IllegalStateException("No allocation budget for " + name + " in " + BUDGETS);
+        }
+        return Long.parseLong(budget.trim());
+    }
+
+    private static Properties load() {
+        Properties properties = new Properties();
+        try (InputStream in = AllocationBudget.class.getResourceAsStream(BUDGETS)) {
+            if (in == null) {
+                throw new IllegalStateException(BUDGETS + " not found on the test classpath");
+            }
+            properties.load(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read " + BUDGETS, e);
+        }
+        return properties;
+    }
+}
@@ -5,10 +5,16 @@ import com.moji.musicdistribution.domain.aggregates.Artist;
 import com.moji.musicdistribution.domain.aggregates.LabelRecord;
 import com.moji.musicdistribution.domain.aggregates.Release;
 import com.moji.musicdistribution.domain.aggregates.Song;
+import com.moji.musicdistribution.domain.aggregates.Stream;
 import com.moji.musicdistribution.domain.repositories.ArtistRepository;
 import com.moji.musicdistribution.domain.repositories.LabelRepository;
 import com.moji.musicdistribution.domain.repositories.ReleaseRepository;
+import com.moji.musicdistribution.domain.repositories.SongReleaseIndex;
 import com.moji.musicdistribution.domain.repositories.SongRepository;
+import com.moji.musicdistribution.domain.repositories.StreamRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -52,6 +58,18 @@ public class CommandControllerIntegrationTest {
     @Autowired
     private SongRepository songRepository;
 
+    @Autowired
+    private StreamRepository streamRepository;
+
+    @Autowired
+    private SongReleaseIndex songReleaseIndex;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     private UUID artistId;
     private UUID labelId;
     private UUID song1Id;
@@ -200,6 +218,80 @@ public class CommandControllerIntegrationTest {
         assertNotNull(updatedRelease.getPublishedDate());
     }
 
+    @Test
+    void testRecordStreamIsTimedAsHotPath() throws Exception {
+        Release release = new Release(UUID.randomUUID(), "Test Release", artistId);
+        release.addSongs(Set.of(song1Id));
+        release.proposeReleaseDate(LocalDate.now());
+        release.approveReleaseDate(LocalDate.now());
+        release.publish(LocalDate.now());
+        releaseRepository.save(release);
+
+        Map<String, Object> stream = new HashMap<>();
+        stream.put("songId", song1Id.toString());
+        stream.put("userId", UUID.randomUUID().toString());
+        stream.put("duration", "PT45S");
+        stream.put("timestamp", "2025-03-01T12:00:00Z");
+
+        Timer existing = recordStreamTimer();
+        long before = existing == null ? 0 : existing.count();
+
+        mockMvc.perform(post("/commands/streams")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(stream)))
+                .andExpect(status().isOk());
+
+        Timer timer = recordStreamTimer();
+        assertNotNull(timer, "RecordStream was not timed through the command bus");
+        assertEquals(before + 1, timer.count());
+    }
+
+    @Test
+    void testRecordStreamBatch() throws Exception {
+        Release release = new Release(UUID.randomUUID(), "Test Release", artistId);
+        release.addSongs(Set.of(song1Id));
+        release.proposeReleaseDate(LocalDate.now().minusDays(2));
+        release.approveReleaseDate(LocalDate.now().minusDays(2));
+        release.publish(LocalDate.now().minusDays(1));
+        releaseRepository.save(release);
+
+        List<Map<String, Object>> requestData = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            Map<String, Object> stream = new HashMap<>();
+            stream.put("songId", song1Id.toString());
+            stream.put("userId", UUID.randomUUID().toString());
+            stream.put("duration", "PT45S");
+            stream.put("timestamp", "2025-03-01T12:00:00Z");
+            requestData.add(stream);
+        }
+
+        mockMvc.perform(post("/commands/streams/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requestData)))
+                .andExpect(status().isOk());
+
+        List<Stream> streams = new ArrayList<>();
+        streamRepository.findAll().forEach(streams::add);
+        streams.removeIf(stream -> !stream.getSongId().equals(song1Id));
+        assertEquals(120, streams.size());
+        assertTrue(streams.stream().allMatch(stream -> stream.getId().version() == 7));
+        assertTrue(streams.stream().allMatch(stream -> artistId.equals(stream.getArtistId())));
+    }
+
+    @Test
+    void testRecordStreamBatchRejectsUnpublishedSong() throws Exception {
+        Map<String, Object> stream = new HashMap<>();
+        stream.put("songId", song2Id.toString());
+        stream.put("userId", UUID.randomUUID().toString());
+        stream.put("duration", "PT45S");
+        stream.put("timestamp", "2025-03-01T12:00:00Z");
+
+        mockMvc.perform(post("/commands/streams/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(stream))))
+                .andExpect(status().isConflict());
+    }
+
     @Test
     void testWithdrawRelease() throws Exception {
         // First create and publish a release
@@ -218,6 +310,37 @@ public class CommandControllerIntegrationTest {
         assertEquals(Release.ReleaseStatus.WITHDRAWN, updatedRelease.getStatus());
     }
 
+    @Test
+    void testStreamRejectedOnceReleaseIsWithdrawn() throws Exception {
+        Release release = new Release(UUID.randomUUID(), "Test Release", artistId);
+        release.addSongs(Set.of(song1Id));
+        release.proposeReleaseDate(LocalDate.now());
+        release.approveReleaseDate(LocalDate.now());
+        release.publish(LocalDate.now());
+        releaseRepository.save(release);
+
+        Map<String, Object> stream = new HashMap<>();
+        stream.put("songId", song1Id.toString());
+        stream.put("userId", UUID.randomUUID().toString());
+        stream.put("duration", "PT45S");
+        stream.put("timestamp", "2025-03-01T12:00:00Z");
+        String content = objectMapper.writeValueAsString(stream);
+
+        mockMvc.perform(post("/commands/streams").contentType(MediaType.APPLICATION_JSON).content(content))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/commands/streams").contentType(MediaType.APPLICATION_JSON).content(content))
+                .andExpect(status().isOk());
+        assertTrue(songReleaseIndex.isPublished(song1Id));
+
+        mockMvc.perform(delete("/commands/releases/" + release.getId() + "?artistId=" + artistId))
+                .andExpect(status().isOk());
+        entityManager.flush(); // done by the commit outside of a test transaction
+
+        assertFalse(songReleaseIndex.isPublished(song1Id));
+        mockMvc.perform(post("/commands/streams").contentType(MediaType.APPLICATION_JSON).content(content))
+                .andExpect(status().isConflict());
+    }
+
     @Test
     void testCreateReleaseWithInvalidData() throws Exception {
         // Create request with missing required data
@@ -264,4 +387,11 @@ public class CommandControllerIntegrationTest {
         mockMvc.perform(post("/commands/releases/" + release.getId() + "/publish"))
                 .andExpect(status().isConflict());
     }
-}
\ No newline at end of file
+
+    private Timer recordStreamTimer() {
+        return meterRegistry.find("hotpath.duration")
+                .tag("operation", "command")
+                .tag("name", "RecordStream")
+                .timer();
+    }
+}
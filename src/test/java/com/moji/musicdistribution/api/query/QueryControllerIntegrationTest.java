@@ -1,9 +1,11 @@
 package com.moji.musicdistribution.api.query;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.moji.musicdistribution.domain.aggregates.*;
 import com.moji.musicdistribution.domain.repositories.*;
 import com.moji.musicdistribution.eventstore.EventStore;
+import com.moji.musicdistribution.job.StreamBackfill;
 import com.moji.musicdistribution.query.projections.ArtistStreamProjection;
 import com.moji.musicdistribution.query.readmodels.ArtistStreamReport;
 import org.junit.jupiter.api.BeforeEach;
@@ -59,6 +61,9 @@ public class QueryControllerIntegrationTest {
     @Autowired
     private ArtistStreamProjection artistStreamProjection;
 
+    @Autowired
+    private StreamBackfill streamBackfill;
+
     @Autowired
     private EventStore eventStore;
 
@@ -121,6 +126,69 @@ public class QueryControllerIntegrationTest {
         assertTrue(responseJson.contains(song2Id.toString()));
     }
 
+    @Test
+    void testGetArtistDailyStreams() throws Exception {
+        Instant fromDate = Instant.now(clock).minus(1, ChronoUnit.DAYS);
+        Instant toDate = Instant.now(clock).plus(1, ChronoUnit.DAYS);
+
+        MvcResult result = mockMvc.perform(get("/queries/artists/{artistId}/daily-streams", artistId)
+                        .param("fromDate", fromDate.toString())
+                        .param("toDate", toDate.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.artistId").value(artistId.toString()))
+                .andExpect(jsonPath("$.days", hasSize(greaterThanOrEqualTo(1))))
+                .andReturn();
+
+        // Both streams were recorded just now, which may straddle midnight
+        int totalStreams = 0;
+        int monetizedStreams = 0;
+        long totalDurationSeconds = 0;
+        for (JsonNode day : objectMapper.readTree(result.getResponse().getContentAsString()).get("days")) {
+            totalStreams += day.get("totalStreams").asInt();
+            monetizedStreams += day.get("monetizedStreams").asInt();
+            totalDurationSeconds += day.get("totalDurationSeconds").asLong();
+        }
+        assertEquals(2, totalStreams);
+        assertEquals(1, monetizedStreams);
+        assertEquals(70, totalDurationSeconds);
+    }
+
+    @Test
+    void testGetSongStreams() throws Exception {
+        mockMvc.perform(get("/queries/artists/{artistId}/songs/{songId}/streams", artistId, song1Id)
+                        .param("limit", "10"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("X-Next-Cursor"))
+                .andExpect(jsonPath("$.songId").value(song1Id.toString()))
+                .andExpect(jsonPath("$.streams", hasSize(1)))
+                .andExpect(jsonPath("$.streams[0].monetized").value(true));
+    }
+
+    @Test
+    void testExportArtistStreams() throws Exception {
+        MvcResult result = mockMvc.perform(get("/queries/artists/{artistId}/streams/export", artistId))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("text/csv"))
+                .andReturn();
+
+        String[] lines = result.getResponse().getContentAsString().split("\\R");
+        assertEquals(3, lines.length);
+        assertTrue(lines[0].startsWith("stream_id,"));
+    }
+
+    @Test
+    void testStreamsRecordedWithoutArtistAreBackfilled() throws Exception {
+        // A stream written before streams.artist_id existed
+        streamRepository.save(new Stream(UUID.randomUUID(), song1Id, null, userId, Instant.now(clock), Duration.ofSeconds(40)));
+
+        assertEquals(1, streamBackfill.backfill());
+
+        mockMvc.perform(get("/queries/artists/{artistId}/stream-report", artistId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalStreams").value(3))
+                .andExpect(jsonPath("$.monetizedStreams").value(2));
+    }
+
     @Test
     void testGetArtistPaymentReport() throws Exception {
         // Get the payment report
@@ -188,6 +256,7 @@ public class QueryControllerIntegrationTest {
         Stream stream1 = new Stream(
                 UUID.randomUUID(),
                 song1Id,
+                artistId,
                 userId,
                 Instant.now(clock),
                 Duration.ofSeconds(45)
@@ -195,6 +264,7 @@ public class QueryControllerIntegrationTest {
         Stream stream2 = new Stream(
                 UUID.randomUUID(),
                 song2Id,
+                artistId,
                 userId,
                 Instant.now(clock),
                 Duration.ofSeconds(25)
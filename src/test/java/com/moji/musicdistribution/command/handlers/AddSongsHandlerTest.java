@@ -18,6 +18,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.time.Duration;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
@@ -86,8 +87,7 @@ public class AddSongsHandlerTest {
     @Test
     void testHandleAddSongsCommand() {
 
-        when(songRepository.findById(song1Id)).thenReturn(Optional.of(song1));
-        when(songRepository.findById(song2Id)).thenReturn(Optional.of(song2));
+        when(songRepository.findAllById(songIds)).thenReturn(List.of(song1, song2));
         when(releaseRepository.save(any(Release.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
         // Execute the handler
@@ -96,10 +96,9 @@ public class AddSongsHandlerTest {
         // Verify release was retrieved
         verify(releaseRepository).findById(releaseId);
 
-        // Verify songs were retrieved
-        for (UUID songId : songIds) {
-            verify(songRepository).findById(songId);
-        }
+        // Verify songs were retrieved in one batch
+        verify(songRepository).findAllById(songIds);
+        verify(songRepository, never()).findById(any());
 
         // Verify release was saved
         verify(releaseRepository).save(releaseCaptor.capture());
@@ -125,6 +124,20 @@ public class AddSongsHandlerTest {
         }
     }
 
+    @Test
+    void testHandleAddSongsCommandSongNotFound() {
+        when(songRepository.findAllById(songIds)).thenReturn(List.of(song1));
+
+        IllegalArgumentException exception = assertThrows(
+                IllegalArgumentException.class,
+                () -> handler.handle(command)
+        );
+
+        assertEquals("Song not found: " + song2Id, exception.getMessage());
+        verify(releaseRepository, never()).save(any());
+        verify(eventStore, never()).store(any());
+    }
+
     @Test
     void testHandleAddSongsCommandReleaseNotFound() {
         // Setup mock to return empty for release
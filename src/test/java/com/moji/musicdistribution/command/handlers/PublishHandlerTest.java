@@ -0,0 +1,154 @@
+package com.moji.musicdistribution.command.handlers;
+
+import com.moji.musicdistribution.command.commands.PublishRelease;
+import com.moji.musicdistribution.command.commands.PublishReleases;
+import com.moji.musicdistribution.domain.aggregates.Release;
+import com.moji.musicdistribution.domain.events.DomainEvent;
+import com.moji.musicdistribution.domain.events.ReleasePublished;
+import com.moji.musicdistribution.domain.repositories.ReleaseRepository;
+import com.moji.musicdistribution.eventstore.EventStore;
+import com.moji.musicdistribution.eventstore.InMemoryEventStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class PublishHandlerTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2025, 3, 2);
+
+    @Mock
+    private ReleaseRepository releaseRepository;
+
+    @Mock
+    private EventStore eventStore;
+
+    @InjectMocks
+    private PublishHandler handler;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testHandleAllPublishesDueReleasesAndReportsTheRest() {
+        Release due = approvedRelease(TODAY);
+        Release dueEarlier = approvedRelease(TODAY.minusDays(3));
+        Release notYetDue = approvedRelease(TODAY.plusDays(1));
+        Release draft = new Release(UUID.randomUUID(), "Draft", UUID.randomUUID());
+        UUID missingId = UUID.randomUUID();
+        List<UUID> releaseIds = List.of(due.getId(), notYetDue.getId(), missingId, draft.getId(), dueEarlier.getId());
+        when(releaseRepository.findAllById(releaseIds)).thenReturn(List.of(due, notYetDue, draft, dueEarlier));
+
+        PublishHandler.BatchResult result = handler.handleAll(new PublishReleases(releaseIds, TODAY));
+
+        assertEquals(List.of(due.getId(), dueEarlier.getId()), result.getPublished());
+        assertEquals(3, result.getFailures().size());
+        assertEquals("Approved release date has not been reached yet", result.getFailures().get(notYetDue.getId()));
+        assertEquals("Release not found", result.getFailures().get(missingId));
+        assertEquals("Release has no approved date", result.getFailures().get(draft.getId()));
+        assertTrue(due.isPublished());
+        assertFalse(notYetDue.isPublished());
+
+        // Only the published releases are saved, and their events are appended as one group
+        verify(releaseRepository).saveAll(List.of(due, dueEarlier));
+        ArgumentCaptor<List<DomainEvent>> events = ArgumentCaptor.forClass(List.class);
+        verify(eventStore).storeAll(events.capture());
+        verify(eventStore, never()).store(any());
+        assertEquals(2, events.getValue().size());
+        assertEquals(due.getId(), events.getValue().get(0).getAggregateId());
+        assertInstanceOf(ReleasePublished.class, events.getValue().get(1));
+    }
+
+    @Test
+    void testHandleAllReportsReleaseThatCannotBePublished() {
+        Release published = approvedRelease(TODAY.minusDays(1));
+        published.publish(TODAY.minusDays(1));
+        when(releaseRepository.findAllById(List.of(published.getId()))).thenReturn(List.of(published));
+
+        PublishHandler.BatchResult result = handler.handleAll(new PublishReleases(List.of(published.getId()), TODAY));
+
+        assertTrue(result.getPublished().isEmpty());
+        assertEquals("Cannot publish a release that hasn't been approved", result.getFailures().get(published.getId()));
+    }
+
+    @Test
+    void testFailedBatchLeavesOneEventPerReleaseAfterFallback() {
+        InMemoryEventStore store = new InMemoryEventStore(mock(ApplicationEventPublisher.class));
+        PublishHandler handler = new PublishHandler(releaseRepository, store);
+        Release first = approvedRelease(TODAY);
+        Release second = approvedRelease(TODAY);
+        List<UUID> releaseIds = List.of(first.getId(), second.getId());
+        when(releaseRepository.findAllById(releaseIds)).thenReturn(List.of(first, second));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            handler.handleAll(new PublishReleases(releaseIds, TODAY));
+            assertTrue(store.getAllEvents().isEmpty(), "Events must wait for the commit");
+
+            // The batch fails at commit and rolls back
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        // The scheduler falls back to publishing them one by one, from the rolled back rows
+        for (UUID releaseId : releaseIds) {
+            when(releaseRepository.findById(releaseId)).thenReturn(Optional.of(approvedRelease(releaseId, TODAY)));
+            handler.handle(new PublishRelease(releaseId, TODAY));
+        }
+
+        List<ReleasePublished> events = store.getEventsByType(ReleasePublished.class);
+        assertEquals(2, events.size());
+        assertEquals(1, store.getEventsForAggregate(first.getId()).size());
+        assertEquals(1, store.getEventsForAggregate(second.getId()).size());
+    }
+
+    @Test
+    void testHandleAllAppendsEventsOnCommit() {
+        Release due = approvedRelease(TODAY);
+        when(releaseRepository.findAllById(List.of(due.getId()))).thenReturn(List.of(due));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            handler.handleAll(new PublishReleases(List.of(due.getId()), TODAY));
+            verify(eventStore, never()).storeAll(any());
+
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCommit();
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        verify(eventStore).storeAll(anyList());
+    }
+
+    private static Release approvedRelease(LocalDate date) {
+        return approvedRelease(UUID.randomUUID(), date);
+    }
+
+    private static Release approvedRelease(UUID releaseId, LocalDate date) {
+        Release release = new Release(releaseId, "Release", UUID.randomUUID());
+        release.addSongs(Set.of(UUID.randomUUID()));
+        release.proposeReleaseDate(date);
+        release.approveReleaseDate(date);
+        return release;
+    }
+}
@@ -0,0 +1,143 @@
+package com.moji.musicdistribution.command.handlers;
+
+import com.moji.musicdistribution.AllocationBudget;
+import com.moji.musicdistribution.command.CommandBus;
+import com.moji.musicdistribution.command.commands.RecordStream;
+import com.moji.musicdistribution.domain.aggregates.Release;
+import com.moji.musicdistribution.domain.aggregates.Song;
+import com.moji.musicdistribution.domain.aggregates.SongRelease;
+import com.moji.musicdistribution.domain.events.DomainEvent;
+import com.moji.musicdistribution.domain.repositories.SongReleaseIndex;
+import com.moji.musicdistribution.domain.repositories.SongReleaseRepository;
+import com.moji.musicdistribution.domain.repositories.SongRepository;
+import com.moji.musicdistribution.domain.repositories.StreamRepository;
+import com.moji.musicdistribution.eventstore.EventStore;
+import com.moji.musicdistribution.monitoring.HotPathMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Allocation budget of the stream ingest path: a RecordStream command routed by the
+ * {@link CommandBus}, timed by the {@link HotPathMetrics}, to the {@link StreamHandler}
+ * The repositories answer from memory through plain proxies rather than mocks, whose recorded
+ * invocations would be counted. The event store only numbers the events: the in-memory store
+ * copies its whole log on every append, which grows with the log rather than per stream.
+ */
+public class StreamHandlerAllocationTest {
+
+    private static final int SONGS = 1_000;
+
+    private CommandBus commandBus;
+    private SequencingEventStore eventStore;
+    private RecordStream[] commands;
+
+    @BeforeEach
+    void setUp() {
+        Map<UUID, Song> songs = new HashMap<>();
+        List<UUID> songIds = new ArrayList<>();
+        for (int i = 0; i < SONGS; i++) {
+            Song song = new Song(UUID.randomUUID(), "Song " + i, UUID.randomUUID(), Duration.ofMinutes(3));
+            songs.put(song.getId(), song);
+            songIds.add(song.getId());
+        }
+        UUID releaseId = UUID.randomUUID();
+
+        SongRepository songRepository = repository(SongRepository.class, (proxy, method, args) -> switch (method.getName()) {
+            case "findById" -> Optional.ofNullable(songs.get((UUID) args[0]));
+            default -> throw new UnsupportedOperationException(method.getName());
+        });
+        StreamRepository streamRepository = repository(StreamRepository.class, (proxy, method, args) -> switch (method.getName()) {
+            case "save" -> args[0];
+            default -> throw new UnsupportedOperationException(method.getName());
+        });
+        SongReleaseRepository songReleaseRepository = repository(SongReleaseRepository.class, (proxy, method, args) -> switch (method.getName()) {
+            case "findBySongId" -> List.of(new SongRelease((UUID) args[0], releaseId, Release.ReleaseStatus.PUBLISHED));
+            default -> throw new UnsupportedOperationException(method.getName());
+        });
+
+        eventStore = new SequencingEventStore();
+        StreamHandler handler = new StreamHandler(songRepository, new SongReleaseIndex(songReleaseRepository, SONGS),
+                streamRepository, eventStore);
+        commandBus = new CommandBus(new HotPathMetrics(new SimpleMeterRegistry(), true, 100));
+        commandBus.register(RecordStream.class, handler::handle);
+
+        // One stream in four is too short to be monetized
+        Random random = new Random(1);
+        Instant now = Instant.now();
+        commands = new RecordStream[AllocationBudget.OPERATIONS];
+        for (int i = 0; i < commands.length; i++) {
+            commands[i] = new RecordStream(songIds.get(random.nextInt(SONGS)), UUID.randomUUID(),
+                    Duration.ofSeconds(i % 4 == 0 ? 15 : 180), now);
+        }
+    }
+
+    @Test
+    void testRecordStream() {
+        AllocationBudget.assertWithinBudget("ingest.record-stream", i -> commandBus.execute(commands[i]));
+
+        // A StreamRecorded event per stream, and a StreamMonetized event for three in four
+        assertEquals(commands.length + commands.length / 4 * 3, eventStore.getLastSequence());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T repository(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    /**
+     * Numbers stored events without keeping them
+     */
+    private static final class SequencingEventStore implements EventStore {
+
+        private long sequence;
+
+        @Override
+        public void store(DomainEvent event) {
+            event.assignSequence(++sequence);
+        }
+
+        @Override
+        public void storeAll(List<? extends DomainEvent> events) {
+            events.forEach(this::store);
+        }
+
+        @Override
+        public List<DomainEvent> getEventsForAggregate(UUID aggregateId) {
+            return List.of();
+        }
+
+        @Override
+        public <T extends DomainEvent> List<T> getEventsByType(Class<T> eventType) {
+            return List.of();
+        }
+
+        @Override
+        public List<DomainEvent> getAllEvents() {
+            return List.of();
+        }
+
+        @Override
+        public List<DomainEvent> getEventsAfter(long sequence) {
+            return List.of();
+        }
+
+        @Override
+        public List<DomainEvent> getEventsAfter(long sequence, int limit) {
+            return List.of();
+        }
+
+        @Override
+        public long getLastSequence() {
+            return sequence;
+        }
+    }
+}
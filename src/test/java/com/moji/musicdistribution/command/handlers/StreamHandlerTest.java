@@ -0,0 +1,115 @@
+package com.moji.musicdistribution.command.handlers;
+
+import com.moji.musicdistribution.command.commands.RecordStream;
+import com.moji.musicdistribution.command.commands.RecordStreams;
+import com.moji.musicdistribution.domain.aggregates.Song;
+import com.moji.musicdistribution.domain.events.DomainEvent;
+import com.moji.musicdistribution.domain.events.StreamMonetized;
+import com.moji.musicdistribution.domain.events.StreamRecorded;
+import com.moji.musicdistribution.domain.repositories.SongReleaseIndex;
+import com.moji.musicdistribution.domain.repositories.SongRepository;
+import com.moji.musicdistribution.domain.repositories.StreamRepository;
+import com.moji.musicdistribution.eventstore.EventStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class StreamHandlerTest {
+
+    private final Song song = new Song(UUID.randomUUID(), "Song", UUID.randomUUID(), Duration.ofMinutes(3));
+
+    @Mock
+    private SongRepository songRepository;
+
+    @Mock
+    private SongReleaseIndex songReleaseIndex;
+
+    @Mock
+    private StreamRepository streamRepository;
+
+    @Mock
+    private EventStore eventStore;
+
+    @InjectMocks
+    private StreamHandler handler;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testHandleAllAppendsEventsOnlyAfterCommit() {
+        when(songRepository.findAllById(Set.of(song.getId()))).thenReturn(List.of(song));
+        when(songReleaseIndex.isPublished(song.getId())).thenReturn(true);
+        RecordStreams batch = new RecordStreams(List.of(
+                new RecordStream(song.getId(), UUID.randomUUID(), Duration.ofSeconds(180), Instant.now()),
+                new RecordStream(song.getId(), UUID.randomUUID(), Duration.ofSeconds(15), Instant.now())));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            handler.handleAll(batch);
+            verify(streamRepository).saveAll(any());
+            verifyNoInteractions(eventStore);
+
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCommit();
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        ArgumentCaptor<List<DomainEvent>> events = ArgumentCaptor.forClass(List.class);
+        verify(eventStore).storeAll(events.capture());
+        // The short stream is not monetized
+        assertEquals(3, events.getValue().size());
+        assertInstanceOf(StreamRecorded.class, events.getValue().get(0));
+        assertInstanceOf(StreamMonetized.class, events.getValue().get(1));
+        assertInstanceOf(StreamRecorded.class, events.getValue().get(2));
+    }
+
+    @Test
+    void testHandleAllAppendsNothingWhenTheCommitRollsBack() {
+        when(songRepository.findAllById(Set.of(song.getId()))).thenReturn(List.of(song));
+        when(songReleaseIndex.isPublished(song.getId())).thenReturn(true);
+        RecordStreams batch = new RecordStreams(List.of(
+                new RecordStream(song.getId(), UUID.randomUUID(), Duration.ofSeconds(180), Instant.now())));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            handler.handleAll(batch);
+
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        verifyNoInteractions(eventStore);
+    }
+
+    @Test
+    void testHandleAllRejectsStreamsOfUnpublishedSongs() {
+        when(songRepository.findAllById(Set.of(song.getId()))).thenReturn(List.of(song));
+        RecordStreams batch = new RecordStreams(List.of(
+                new RecordStream(song.getId(), UUID.randomUUID(), Duration.ofSeconds(180), Instant.now())));
+
+        assertThrows(IllegalStateException.class, () -> handler.handleAll(batch));
+
+        verify(streamRepository, never()).saveAll(any());
+        verifyNoInteractions(eventStore);
+    }
+}
@@ -0,0 +1,64 @@
+package com.moji.musicdistribution.domain.ids;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UuidV7Test {
+
+    @Test
+    void testIdsAreVersion7AndCarryTheirTimestamp() {
+        long before = System.currentTimeMillis();
+        UUID id = UuidV7.next();
+        long after = System.currentTimeMillis();
+
+        assertEquals(7, id.version());
+        assertEquals(2, id.variant());
+        assertTrue(UuidV7.timestampOf(id) >= before);
+        // Bursts of more than 4096 IDs per millisecond (other tests) borrow from later milliseconds
+        assertTrue(UuidV7.timestampOf(id) <= after + 1_000);
+    }
+
+    @Test
+    void testIdsIncreaseWithinAMillisecond() {
+        UUID previous = UuidV7.next();
+        for (int i = 0; i < 100_000; i++) {
+            UUID id = UuidV7.next();
+            // Unsigned order of the most significant bits is the order of an index on the raw bytes
+            assertTrue(Long.compareUnsigned(id.getMostSignificantBits(), previous.getMostSignificantBits()) > 0);
+            previous = id;
+        }
+    }
+
+    @Test
+    void testConcurrentGenerationHasNoDuplicates() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<List<UUID>>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                futures.add(executor.submit(() -> {
+                    List<UUID> ids = new ArrayList<>();
+                    for (int i = 0; i < 25_000; i++) {
+                        ids.add(UuidV7.next());
+                    }
+                    return ids;
+                }));
+            }
+            Set<UUID> all = new HashSet<>();
+            for (Future<List<UUID>> future : futures) {
+                all.addAll(future.get());
+            }
+            assertEquals(100_000, all.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testTimestampOfRejectsRandomUuids() {
+        assertThrows(IllegalArgumentException.class, () -> UuidV7.timestampOf(UUID.randomUUID()));
+    }
+}
@@ -0,0 +1,108 @@
+package com.moji.musicdistribution.domain.repositories;
+
+import com.moji.musicdistribution.domain.aggregates.Artist;
+import com.moji.musicdistribution.domain.aggregates.LabelRecord;
+import com.moji.musicdistribution.domain.aggregates.Release;
+import com.moji.musicdistribution.domain.aggregates.Song;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Not transactional: entries only reach the second-level cache when a transaction commits
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+public class SecondLevelCacheIntegrationTest {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private LabelRepository labelRepository;
+
+    @Autowired
+    private ArtistRepository artistRepository;
+
+    @Autowired
+    private SongRepository songRepository;
+
+    @Autowired
+    private ReleaseRepository releaseRepository;
+
+    private UUID labelId;
+    private UUID artistId;
+    private UUID songId;
+    private UUID releaseId;
+
+    @BeforeEach
+    void setUp() {
+        labelId = UUID.randomUUID();
+        artistId = UUID.randomUUID();
+        songId = UUID.randomUUID();
+        releaseId = UUID.randomUUID();
+        labelRepository.save(new LabelRecord(labelId, "Cache Label " + labelId));
+        artistRepository.save(new Artist(artistId, "Cache Artist " + artistId, labelId));
+        songRepository.save(new Song(songId, "Cache Song", artistId, Duration.ofMinutes(3)));
+        releaseRepository.save(new Release(releaseId, "Cache Release", artistId));
+    }
+
+    @AfterEach
+    void tearDown() {
+        releaseRepository.deleteById(releaseId);
+        songRepository.deleteById(songId);
+        artistRepository.deleteById(artistId);
+        labelRepository.deleteById(labelId);
+    }
+
+    @Test
+    void testCommittedEntitiesAreCached() {
+        assertTrue(entityManagerFactory.getCache().contains(LabelRecord.class, labelId));
+        assertTrue(entityManagerFactory.getCache().contains(Artist.class, artistId));
+        assertTrue(entityManagerFactory.getCache().contains(Song.class, songId));
+        assertTrue(entityManagerFactory.getCache().contains(Release.class, releaseId));
+    }
+
+    @Test
+    void testWritesReplaceCachedState() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Release release = releaseRepository.findById(releaseId).orElseThrow();
+            release.addSongs(Set.of(songId));
+            releaseRepository.save(release);
+        });
+
+        Release reloaded = transactionTemplate.execute(status -> {
+            Release release = releaseRepository.findById(releaseId).orElseThrow();
+            release.getSongIds().size(); // initialise the cached collection
+            return release;
+        });
+        assertEquals(Set.of(songId), reloaded.getSongIds());
+        assertEquals(1, releaseRepository.findBySongId(songId).size());
+    }
+
+    @Test
+    void testDeletesEvictCachedEntities() {
+        UUID otherSongId = UUID.randomUUID();
+        songRepository.save(new Song(otherSongId, "Short Lived", artistId, Duration.ofMinutes(2)));
+        assertTrue(entityManagerFactory.getCache().contains(Song.class, otherSongId));
+
+        songRepository.deleteById(otherSongId);
+
+        assertFalse(entityManagerFactory.getCache().contains(Song.class, otherSongId));
+        assertTrue(songRepository.findById(otherSongId).isEmpty());
+    }
+}
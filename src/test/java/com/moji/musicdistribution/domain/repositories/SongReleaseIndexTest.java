@@ -0,0 +1,102 @@
+package com.moji.musicdistribution.domain.repositories;
+
+import com.moji.musicdistribution.domain.aggregates.Release;
+import com.moji.musicdistribution.domain.aggregates.SongRelease;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class SongReleaseIndexTest {
+
+    @Mock
+    private SongReleaseRepository songReleaseRepository;
+
+    private SongReleaseIndex index;
+    private UUID songId;
+
+    @BeforeEach
+    void setUp() {
+        index = new SongReleaseIndex(songReleaseRepository, 100);
+        songId = UUID.randomUUID();
+    }
+
+    @Test
+    void testLookupsAreServedFromTheCache() {
+        when(songReleaseRepository.findBySongId(songId)).thenReturn(List.of(
+                row(songId, Release.ReleaseStatus.WITHDRAWN),
+                row(songId, Release.ReleaseStatus.PUBLISHED)));
+
+        assertTrue(index.isPublished(songId));
+        assertTrue(index.isPublished(songId));
+        assertEquals(2, index.releasesOf(songId).size());
+
+        verify(songReleaseRepository, times(1)).findBySongId(songId);
+    }
+
+    @Test
+    void testInvalidationReloadsTheSong() {
+        when(songReleaseRepository.findBySongId(songId)).thenReturn(
+                List.of(row(songId, Release.ReleaseStatus.PUBLISHED)),
+                List.of(row(songId, Release.ReleaseStatus.WITHDRAWN)));
+
+        assertTrue(index.isPublished(songId));
+        index.invalidate(songId);
+
+        assertFalse(index.isPublished(songId));
+        verify(songReleaseRepository, times(2)).findBySongId(songId);
+    }
+
+    @Test
+    void testClearReloadsEverySong() {
+        UUID otherSongId = UUID.randomUUID();
+        when(songReleaseRepository.findBySongId(songId)).thenReturn(
+                List.of(),
+                List.of(row(songId, Release.ReleaseStatus.PUBLISHED)));
+        when(songReleaseRepository.findBySongId(otherSongId)).thenReturn(List.of());
+
+        assertFalse(index.isPublished(songId));
+        assertFalse(index.isPublished(otherSongId));
+        index.clear();
+
+        assertEquals(0, index.size());
+        assertTrue(index.isPublished(songId));
+        verify(songReleaseRepository, times(2)).findBySongId(songId);
+    }
+
+    @Test
+    void testLoadOverlappingAnInvalidationIsNotCached() {
+        when(songReleaseRepository.findBySongId(songId)).thenAnswer(invocation -> {
+            index.invalidate(songId); // a release is written while the rows are read
+            return List.of(row(songId, Release.ReleaseStatus.PUBLISHED));
+        });
+
+        assertTrue(index.isPublished(songId));
+
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void testSizeIsBounded() {
+        SongReleaseIndex small = new SongReleaseIndex(songReleaseRepository, 10);
+        when(songReleaseRepository.findBySongId(any())).thenReturn(List.of());
+
+        for (int i = 0; i < 50; i++) {
+            assertFalse(small.isPublished(UUID.randomUUID()));
+        }
+
+        assertEquals(10, small.size());
+    }
+
+    private static SongRelease row(UUID songId, Release.ReleaseStatus status) {
+        return new SongRelease(songId, UUID.randomUUID(), status);
+    }
+}
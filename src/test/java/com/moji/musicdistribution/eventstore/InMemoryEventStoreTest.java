@@ -0,0 +1,99 @@
+package com.moji.musicdistribution.eventstore;
+
+import com.moji.musicdistribution.domain.events.DomainEvent;
+import com.moji.musicdistribution.domain.events.ReleaseCreated;
+import com.moji.musicdistribution.domain.events.ReleasePublished;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InMemoryEventStoreTest {
+
+    @TempDir
+    Path dataDir;
+
+    private final List<Object> published = new ArrayList<>();
+
+    @Test
+    void testJournaledEventsAreReloadedInSequenceOrderWithoutPublishing() throws IOException {
+        Path journalPath = dataDir.resolve("events.journal");
+        UUID releaseId = UUID.randomUUID();
+        InMemoryEventStore store = new InMemoryEventStore(published::add, journalPath.toString());
+        ReleaseCreated created = new ReleaseCreated(releaseId, "Release", UUID.randomUUID());
+        store.store(created);
+        store.storeAll(List.of(
+                new ReleasePublished(releaseId, LocalDate.of(2025, 3, 1), "Release", UUID.randomUUID(), Set.of()),
+                new ReleaseCreated(UUID.randomUUID(), "Other", UUID.randomUUID())));
+        store.close();
+        published.clear();
+
+        InMemoryEventStore reopened = new InMemoryEventStore(published::add, journalPath.toString());
+
+        List<DomainEvent> events = reopened.getAllEvents();
+        assertEquals(3, reopened.getLastSequence());
+        assertEquals(created.getId(), events.get(0).getId());
+        assertInstanceOf(ReleasePublished.class, events.get(1));
+        assertEquals(List.of(1L, 2L, 3L), events.stream().map(DomainEvent::getSequence).toList());
+        assertEquals(2, reopened.getEventsForAggregate(releaseId).size());
+        assertTrue(published.isEmpty());
+
+        reopened.store(new ReleaseCreated(UUID.randomUUID(), "Later", UUID.randomUUID()));
+        assertEquals(4, reopened.getLastSequence());
+        reopened.close();
+    }
+
+    @Test
+    void testIncompleteRecordAtTheEndIsDropped() throws IOException {
+        Path journalPath = dataDir.resolve("events.journal");
+        InMemoryEventStore store = new InMemoryEventStore(published::add, journalPath.toString());
+        store.store(new ReleaseCreated(UUID.randomUUID(), "First", UUID.randomUUID()));
+        store.store(new ReleaseCreated(UUID.randomUUID(), "Second", UUID.randomUUID()));
+        store.close();
+
+        // Cut the last record short, as a crash in the middle of a write would
+        long size = Files.size(journalPath);
+        try (FileChannel channel = FileChannel.open(journalPath, StandardOpenOption.WRITE)) {
+            channel.truncate(size - 5);
+        }
+
+        InMemoryEventStore reopened = new InMemoryEventStore(published::add, journalPath.toString());
+        assertEquals(1, reopened.getLastSequence());
+
+        // Appends continue from the last complete record
+        reopened.store(new ReleaseCreated(UUID.randomUUID(), "Third", UUID.randomUUID()));
+        reopened.close();
+        InMemoryEventStore restarted = new InMemoryEventStore(published::add, journalPath.toString());
+        assertEquals(2, restarted.getLastSequence());
+        restarted.close();
+    }
+
+    @Test
+    void testFileThatIsNotAJournalIsRejected() throws IOException {
+        Path journalPath = dataDir.resolve("events.journal");
+        Files.writeString(journalPath, "not a journal");
+
+        assertThrows(IllegalStateException.class,
+                () -> new InMemoryEventStore(published::add, journalPath.toString()));
+    }
+
+    @Test
+    void testStoreWithoutAJournalStartsEmpty() {
+        InMemoryEventStore store = new InMemoryEventStore(published::add);
+        store.store(new ReleaseCreated(UUID.randomUUID(), "Release", UUID.randomUUID()));
+
+        assertEquals(1, store.getLastSequence());
+        assertEquals(1, published.size());
+    }
+}
@@ -0,0 +1,238 @@
+package com.moji.musicdistribution.job;
+
+import com.moji.musicdistribution.command.CommandBus;
+import com.moji.musicdistribution.command.commands.PublishRelease;
+import com.moji.musicdistribution.command.commands.PublishReleases;
+import com.moji.musicdistribution.command.handlers.PublishHandler;
+import com.moji.musicdistribution.domain.repositories.ReleaseRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.*;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ReleasePublicationSchedulerTest {
+
+    private static final LocalDate RELEASE_DATE = LocalDate.of(2025, 3, 2);
+    // Start of 2025-03-02 in Berlin (UTC+1)
+    private static final Instant DUE = Instant.parse("2025-03-01T23:00:00Z");
+
+    @Mock
+    private ReleaseRepository releaseRepository;
+
+    @Mock
+    private CommandBus commandBus;
+
+    private MutableClock clock;
+    private ReleasePublicationScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(DUE.minusSeconds(1));
+        scheduler = new ReleasePublicationScheduler(releaseRepository, commandBus, clock,
+                "Europe/Berlin", false, 4, 3, 1_000, 3);
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    void testPublishesAtStartOfApprovedDateInZone() {
+        List<PublishReleases> commands = publishAll();
+        UUID releaseId = UUID.randomUUID();
+        scheduler.schedule(releaseId, RELEASE_DATE);
+
+        assertEquals(0, scheduler.publishDue());
+        assertTrue(commands.isEmpty());
+
+        clock.set(DUE);
+        assertEquals(1, scheduler.publishDue());
+
+        assertEquals(1, commands.size());
+        assertEquals(List.of(releaseId), commands.get(0).getReleaseIds());
+        assertEquals(RELEASE_DATE, commands.get(0).getCurrentDate());
+        assertEquals(0, scheduler.size());
+    }
+
+    @Test
+    void testRebuildsQueueFromApprovedReleasesPageByPage() {
+        publishAll();
+        List<ReleaseRepository.ApprovedRelease> firstPage = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            firstPage.add(approved(UUID.randomUUID(), RELEASE_DATE.plusDays(7)));
+        }
+        UUID lastOfFirstPage = firstPage.get(firstPage.size() - 1).getId();
+        when(releaseRepository.findFirstApprovedReleases(any())).thenReturn(firstPage);
+        when(releaseRepository.findApprovedReleasesAfter(eq(lastOfFirstPage), any()))
+                .thenReturn(List.of(approved(UUID.randomUUID(), RELEASE_DATE)));
+
+        scheduler.onApplicationReady();
+        scheduler.reconcile(); // already queued, so nothing is added twice
+
+        assertEquals(1_001, scheduler.size());
+        clock.set(DUE);
+        assertEquals(1, scheduler.publishDue());
+    }
+
+    @Test
+    void testLatestApprovedDateWins() {
+        List<PublishReleases> commands = publishAll();
+        UUID releaseId = UUID.randomUUID();
+        scheduler.schedule(releaseId, RELEASE_DATE);
+        scheduler.schedule(releaseId, RELEASE_DATE.plusDays(1));
+
+        clock.set(DUE);
+        assertEquals(0, scheduler.publishDue());
+
+        clock.set(DUE.plus(Duration.ofDays(1)));
+        assertEquals(1, scheduler.publishDue());
+        assertEquals(1, commands.size());
+    }
+
+    @Test
+    void testReleaseLeftOutOfBatchIsRetriedAlone() {
+        UUID failing = UUID.randomUUID();
+        UUID other = UUID.randomUUID();
+        when(commandBus.executeForResult(any(PublishReleases.class)))
+                .thenAnswer(invocation -> {
+                    List<UUID> ids = invocation.<PublishReleases>getArgument(0).getReleaseIds();
+                    return ids.contains(failing) && ids.size() > 1
+                            ? new PublishHandler.BatchResult(List.of(other),
+                            Map.of(failing, "Cannot publish a release that hasn't been approved"))
+                            : new PublishHandler.BatchResult(ids, Map.of());
+                });
+        scheduler.schedule(failing, RELEASE_DATE);
+        scheduler.schedule(other, RELEASE_DATE);
+
+        clock.set(DUE);
+        assertEquals(1, scheduler.publishDue());
+        assertEquals(1, scheduler.size());
+
+        clock.set(DUE.plusSeconds(1));
+        assertEquals(1, scheduler.publishDue());
+        assertEquals(0, scheduler.size());
+    }
+
+    @Test
+    void testFailedBatchFallsBackToSingleReleases() {
+        UUID broken = UUID.randomUUID();
+        UUID healthy = UUID.randomUUID();
+        when(commandBus.executeForResult(any(PublishReleases.class)))
+                .thenThrow(new IllegalStateException("Batch transaction rolled back"));
+        doAnswer(invocation -> {
+            if (invocation.<PublishRelease>getArgument(0).getReleaseId().equals(broken)) {
+                throw new IllegalStateException("Release not found");
+            }
+            return null;
+        }).when(commandBus).execute(any(PublishRelease.class));
+        scheduler.schedule(broken, RELEASE_DATE);
+        scheduler.schedule(healthy, RELEASE_DATE);
+
+        clock.set(DUE);
+
+        assertEquals(1, scheduler.publishDue());
+        assertEquals(1, scheduler.size()); // the broken release waits for its retry
+    }
+
+    @Test
+    void testGivesUpAfterMaxAttempts() {
+        when(commandBus.executeForResult(any(PublishReleases.class))).thenAnswer(invocation ->
+                new PublishHandler.BatchResult(List.of(), Map.of(
+                        invocation.<PublishReleases>getArgument(0).getReleaseIds().get(0), "Release not found")));
+        scheduler.schedule(UUID.randomUUID(), RELEASE_DATE);
+
+        for (int attempt = 0; attempt < 5; attempt++) {
+            clock.set(DUE.plusSeconds(attempt));
+            scheduler.publishDue();
+        }
+
+        verify(commandBus, times(3)).executeForResult(any(PublishReleases.class));
+        assertEquals(0, scheduler.size());
+    }
+
+    @Test
+    void testPublishesEveryDueReleaseInBoundedBatches() {
+        List<PublishReleases> commands = publishAll();
+        Set<UUID> releaseIds = new HashSet<>();
+        for (int i = 0; i < 50; i++) {
+            UUID releaseId = UUID.randomUUID();
+            releaseIds.add(releaseId);
+            scheduler.schedule(releaseId, RELEASE_DATE);
+        }
+
+        clock.set(DUE);
+
+        assertEquals(50, scheduler.publishDue());
+        assertEquals(13, commands.size()); // batches of at most 4
+        Set<UUID> published = new HashSet<>();
+        for (PublishReleases command : commands) {
+            assertTrue(command.getReleaseIds().size() <= 4);
+            published.addAll(command.getReleaseIds());
+        }
+        assertEquals(releaseIds, published);
+    }
+
+    // Publish every release of every batch, recording the commands
+    private List<PublishReleases> publishAll() {
+        List<PublishReleases> commands = Collections.synchronizedList(new ArrayList<>());
+        lenient().when(commandBus.executeForResult(any(PublishReleases.class))).thenAnswer(invocation -> {
+            PublishReleases command = invocation.getArgument(0);
+            commands.add(command);
+            return new PublishHandler.BatchResult(command.getReleaseIds(), Map.of());
+        });
+        return commands;
+    }
+
+    private static ReleaseRepository.ApprovedRelease approved(UUID releaseId, LocalDate date) {
+        return new ReleaseRepository.ApprovedRelease() {
+            @Override
+            public UUID getId() {
+                return releaseId;
+            }
+
+            @Override
+            public LocalDate getApprovedReleaseDate() {
+                return date;
+            }
+        };
+    }
+
+    private static final class MutableClock extends Clock {
+        private volatile Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void set(Instant now) {
+            this.now = now;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return Clock.fixed(now, zone);
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
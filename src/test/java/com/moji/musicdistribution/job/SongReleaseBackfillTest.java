@@ -0,0 +1,45 @@
+package com.moji.musicdistribution.job;
+
+import com.moji.musicdistribution.domain.repositories.SongReleaseIndex;
+import com.moji.musicdistribution.domain.repositories.SongReleaseRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class SongReleaseBackfillTest {
+
+    @Mock
+    private SongReleaseRepository songReleaseRepository;
+
+    @Mock
+    private SongReleaseIndex songReleaseIndex;
+
+    @InjectMocks
+    private SongReleaseBackfill backfill;
+
+    @Test
+    void testClearsTheIndexAfterAddingRows() {
+        when(songReleaseRepository.backfill()).thenReturn(3);
+
+        backfill.onApplicationReady();
+
+        InOrder order = inOrder(songReleaseRepository, songReleaseIndex);
+        order.verify(songReleaseRepository).backfill();
+        order.verify(songReleaseIndex).clear();
+    }
+
+    @Test
+    void testKeepsTheIndexWhenNothingWasAdded() {
+        when(songReleaseRepository.backfill()).thenReturn(0);
+
+        backfill.onApplicationReady();
+
+        verify(songReleaseIndex, never()).clear();
+    }
+}
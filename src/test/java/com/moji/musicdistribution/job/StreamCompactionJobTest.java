@@ -0,0 +1,156 @@
+package com.moji.musicdistribution.job;
+
+import com.moji.musicdistribution.domain.aggregates.Stream;
+import com.moji.musicdistribution.domain.repositories.StreamRepository;
+import com.moji.musicdistribution.query.archive.StreamArchive;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionSystemException;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class StreamCompactionJobTest {
+
+    private static final int PERIOD = 202501;
+    private static final Instant IN_PERIOD = Instant.parse("2025-01-10T12:00:00Z");
+
+    @Mock
+    private StreamRepository streamRepository;
+
+    @Mock
+    private StreamArchive streamArchive;
+
+    @Mock
+    private EntityManager entityManager;
+
+    private final StubTransactionManager transactionManager = new StubTransactionManager();
+
+    // Rows of the period in the streams table
+    private final List<Stream> table = new ArrayList<>();
+    private StreamCompactionJob job;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        table.add(stream(IN_PERIOD));
+        table.add(stream(IN_PERIOD.plusSeconds(60)));
+        when(streamRepository.streamByPeriod(PERIOD)).thenAnswer(invocation -> List.copyOf(table).stream());
+        when(streamArchive.write(eq(PERIOD), any())).thenAnswer(invocation -> {
+            java.util.stream.Stream<Stream> streams = invocation.getArgument(1);
+            return (int) streams.count();
+        });
+        job = new StreamCompactionJob(streamRepository, streamArchive, entityManager, transactionManager,
+                Clock.fixed(Instant.parse("2025-03-15T10:00:00Z"), ZoneOffset.UTC), 2);
+    }
+
+    @Test
+    void testLoadsThePeriodBeforeDeletingAndPublishesItOnCommit() throws IOException {
+        deleteFromTable();
+
+        job.compact(PERIOD);
+
+        InOrder order = inOrder(streamArchive, streamRepository);
+        order.verify(streamArchive).write(eq(PERIOD), any());
+        order.verify(streamArchive).prepare(PERIOD);
+        order.verify(streamRepository).deleteByIdIn(anyCollection());
+        order.verify(streamArchive).publish(PERIOD);
+        verify(streamArchive, never()).discard(PERIOD);
+        assertTrue(table.isEmpty());
+    }
+
+    @Test
+    void testStreamBackfilledAfterTheReadSurvivesTheDelete() throws IOException {
+        deleteFromTable();
+        // A backdated stream for the period arrives once the archive has been written
+        Stream late = stream(IN_PERIOD.plusSeconds(30));
+        doAnswer(invocation -> table.add(late)).when(streamArchive).prepare(PERIOD);
+
+        job.compact(PERIOD);
+
+        assertEquals(List.of(late), table);
+        verify(streamRepository, never()).deleteByPeriod(anyInt());
+    }
+
+    @Test
+    void testUnreadableArchiveKeepsTheRows() throws IOException {
+        doThrow(new IOException("corrupt")).when(streamArchive).prepare(PERIOD);
+
+        assertThrows(IOException.class, () -> job.compact(PERIOD));
+
+        verify(streamRepository, never()).deleteByIdIn(anyCollection());
+        verify(streamArchive, never()).publish(anyInt());
+        assertEquals(2, table.size());
+    }
+
+    @Test
+    void testFailedCommitDiscardsThePreparedPeriod() {
+        when(streamRepository.deleteByIdIn(anyCollection())).thenReturn(2);
+        transactionManager.failCommit = true;
+
+        assertThrows(TransactionSystemException.class, () -> job.compact(PERIOD));
+
+        verify(streamArchive, never()).publish(anyInt());
+        verify(streamArchive).discard(PERIOD);
+    }
+
+    private void deleteFromTable() {
+        when(streamRepository.deleteByIdIn(anyCollection())).thenAnswer(invocation -> {
+            Collection<UUID> ids = invocation.getArgument(0);
+            int before = table.size();
+            table.removeIf(stream -> ids.contains(stream.getId()));
+            return before - table.size();
+        });
+    }
+
+    private static Stream stream(Instant timestamp) {
+        return new Stream(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(),
+                timestamp, Duration.ofSeconds(90));
+    }
+
+    /**
+     * Runs transaction synchronizations like a real manager, without a database
+     */
+    private static final class StubTransactionManager extends AbstractPlatformTransactionManager {
+
+        private boolean failCommit;
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+            if (failCommit && !status.isReadOnly()) {
+                throw new TransactionSystemException("Commit failed");
+            }
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.moji.musicdistribution.job;
+
+import com.moji.musicdistribution.domain.aggregates.Stream;
+import com.moji.musicdistribution.domain.repositories.StreamRepository;
+import com.moji.musicdistribution.query.archive.StreamArchive;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class StreamRetentionJobTest {
+
+    @Mock
+    private StreamRepository streamRepository;
+
+    @Mock
+    private StreamArchive streamArchive;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final Clock clock = Clock.fixed(Instant.parse("2025-03-15T10:00:00Z"), ZoneOffset.UTC);
+
+    @Test
+    void testPeriodOfUsesUtcMonth() {
+        assertEquals(202412, Stream.periodOf(Instant.parse("2024-12-31T23:59:59Z")));
+        assertEquals(202501, Stream.periodOf(Instant.parse("2025-01-01T00:00:00Z")));
+    }
+
+    @Test
+    void testDropsPeriodsOlderThanRetentionWindow() {
+        when(streamRepository.findPeriodsBefore(202412)).thenReturn(List.of(202410, 202411));
+
+        new StreamRetentionJob(streamRepository, streamArchive, transactionManager, clock, 3).dropExpiredPeriods();
+
+        verify(streamRepository).deleteByPeriod(202410);
+        verify(streamRepository).deleteByPeriod(202411);
+        verify(streamRepository, never()).deleteByPeriod(202412);
+    }
+
+    @Test
+    void testDropsExpiredArchivedPeriods() throws IOException {
+        when(streamArchive.periods()).thenReturn(new TreeSet<>(List.of(202409, 202411, 202412)));
+
+        new StreamRetentionJob(streamRepository, streamArchive, transactionManager, clock, 3).dropExpiredPeriods();
+
+        verify(streamArchive).drop(202409);
+        verify(streamArchive).drop(202411);
+        verify(streamArchive, never()).drop(202412);
+    }
+
+    @Test
+    void testFailedPeriodDoesNotStopLaterOnes() {
+        when(streamRepository.findPeriodsBefore(202412)).thenReturn(List.of(202410, 202411));
+        when(streamRepository.deleteByPeriod(202410)).thenThrow(new IllegalStateException("locked"));
+
+        new StreamRetentionJob(streamRepository, streamArchive, transactionManager, clock, 3).dropExpiredPeriods();
+
+        verify(streamRepository).deleteByPeriod(202411);
+    }
+
+    @Test
+    void testZeroRetentionKeepsEverything() {
+        new StreamRetentionJob(streamRepository, streamArchive, transactionManager, clock, 0).dropExpiredPeriods();
+
+        verifyNoInteractions(streamRepository);
+    }
+}
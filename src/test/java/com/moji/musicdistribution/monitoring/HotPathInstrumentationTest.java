@@ -0,0 +1,69 @@
+package com.moji.musicdistribution.monitoring;
+
+import com.moji.musicdistribution.domain.events.ReleasePublished;
+import com.moji.musicdistribution.domain.events.StreamRecorded;
+import com.moji.musicdistribution.eventstore.EventStore;
+import com.moji.musicdistribution.eventstore.InMemoryEventStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class HotPathInstrumentationTest {
+
+    @Mock
+    private ObjectProvider<HotPathMetrics> metricsProvider;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private EventStore eventStore;
+
+    @BeforeEach
+    void setUp() {
+        when(metricsProvider.getObject()).thenReturn(new HotPathMetrics(meterRegistry, true, 100));
+        Object bean = new HotPathInstrumentation(metricsProvider)
+                .postProcessAfterInitialization(new InMemoryEventStore(event -> {
+                }), "inMemoryEventStore");
+        eventStore = (EventStore) bean;
+    }
+
+    @Test
+    void testEventStoreAppendsAreTimedByEventType() {
+        eventStore.store(stream());
+        eventStore.store(stream());
+        eventStore.storeAll(List.of(new ReleasePublished(UUID.randomUUID(), LocalDate.of(2025, 3, 1),
+                "Release", UUID.randomUUID(), Set.of())));
+
+        assertEquals(2, meterRegistry.get("hotpath.duration").tag("operation", "event-store")
+                .tag("name", "StreamRecorded").timer().count());
+        assertEquals(1, meterRegistry.get("hotpath.duration").tag("operation", "event-store")
+                .tag("name", "storeAll").timer().count());
+        assertEquals(3, eventStore.getLastSequence());
+    }
+
+    @Test
+    void testReadsAreNotTimed() {
+        eventStore.store(stream());
+
+        assertEquals(1, eventStore.getEventsAfter(0).size());
+        assertEquals(1, meterRegistry.find("hotpath.duration").timers().size());
+    }
+
+    private StreamRecorded stream() {
+        return new StreamRecorded(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(),
+                Instant.parse("2025-03-01T12:00:00Z"), Duration.ofSeconds(60), UUID.randomUUID(), "Song");
+    }
+}
@@ -0,0 +1,98 @@
+package com.moji.musicdistribution.monitoring;
+
+import com.moji.musicdistribution.command.CommandBus;
+import com.moji.musicdistribution.command.commands.RecordStream;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HotPathMetricsTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final HotPathMetrics hotPathMetrics = new HotPathMetrics(meterRegistry, true, 100);
+
+    @Test
+    void testOperationsAreTimedByKindAndName() {
+        for (int i = 0; i < 3; i++) {
+            hotPathMetrics.stop(HotPathMetrics.Operation.REPOSITORY, "songRepository.findById", hotPathMetrics.start());
+        }
+        hotPathMetrics.stop(HotPathMetrics.Operation.COMMAND, RecordStream.class, hotPathMetrics.start());
+
+        Timer repository = timer("repository", "songRepository.findById");
+        assertEquals(3, repository.count());
+        assertEquals(1, timer("command", "RecordStream").count());
+        assertEquals(Arrays.asList(0.5, 0.99, 0.999), Arrays.stream(repository.takeSnapshot().percentileValues())
+                .map(ValueAtPercentile::percentile).toList());
+    }
+
+    @Test
+    void testNothingIsRecordedWhileDisabled() {
+        hotPathMetrics.setEnabled(false);
+        long started = hotPathMetrics.start();
+        hotPathMetrics.setEnabled(true); // switched on mid-operation
+
+        hotPathMetrics.stop(HotPathMetrics.Operation.COMMAND, RecordStream.class, started);
+
+        assertTrue(meterRegistry.find("hotpath.duration").timers().isEmpty());
+    }
+
+    @Test
+    void testCommandBusTimesHandlersByCommandType() {
+        CommandBus commandBus = new CommandBus(hotPathMetrics);
+        commandBus.register(RecordStream.class, this::rejectStream);
+
+        RecordStream command = new RecordStream(UUID.randomUUID(), UUID.randomUUID(), Duration.ofSeconds(60),
+                Instant.parse("2025-03-01T12:00:00Z"));
+        assertThrows(IllegalArgumentException.class, () -> commandBus.execute(command));
+
+        assertEquals(1, timer("command", "RecordStream").count());
+    }
+
+    @Test
+    void testSlowOperationsAreRecordedByFlightRecorder() throws IOException {
+        hotPathMetrics.setSlowThreshold(Duration.ZERO);
+        Path file = Files.createTempFile("hotpath", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("com.moji.musicdistribution.SlowOperation");
+            recording.start();
+            hotPathMetrics.stop(HotPathMetrics.Operation.REPOSITORY, "songRepository.findById", hotPathMetrics.start());
+            recording.stop();
+            recording.dump(file);
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+            assertEquals(1, events.size());
+            assertEquals("repository", events.get(0).getString("operation"));
+            assertEquals("songRepository.findById", events.get(0).getString("name"));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void testNegativeSlowThresholdIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> hotPathMetrics.setSlowThreshold(Duration.ofMillis(-1)));
+    }
+
+    private void rejectStream(RecordStream command) {
+        throw new IllegalArgumentException("Song not found");
+    }
+
+    private Timer timer(String operation, String name) {
+        return meterRegistry.get("hotpath.duration").tag("operation", operation).tag("name", name).timer();
+    }
+}
@@ -0,0 +1,141 @@
+package com.moji.musicdistribution.query.archive;
+
+import com.moji.musicdistribution.domain.aggregates.Stream;
+import com.moji.musicdistribution.domain.repositories.StreamRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StreamArchiveTest {
+
+    private static final int PERIOD = 202501;
+    private static final Instant PERIOD_START = Instant.parse("2025-01-01T00:00:00Z");
+
+    @TempDir
+    Path archiveDir;
+
+    private StreamArchive archive;
+    private UUID artistId;
+    private List<Stream> streams;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        archive = new StreamArchive(archiveDir.toString());
+        artistId = UUID.randomUUID();
+        UUID otherArtistId = UUID.randomUUID();
+        List<UUID> songs = List.of(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID());
+        List<UUID> users = List.of(UUID.randomUUID(), UUID.randomUUID());
+
+        Random random = new Random(7);
+        streams = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            Instant timestamp = PERIOD_START.plusMillis((long) random.nextInt(31 * 86_400) * 1_000 + random.nextInt(1_000));
+            boolean ownSong = random.nextInt(4) > 0;
+            UUID songId = ownSong ? songs.get(random.nextInt(songs.size())) : UUID.randomUUID();
+            streams.add(new Stream(UUID.randomUUID(), songId, ownSong ? artistId : otherArtistId,
+                    users.get(random.nextInt(users.size())), timestamp, Duration.ofSeconds(random.nextInt(300))));
+        }
+        streams.sort(Comparator.comparing(Stream::getStreamDate).thenComparing(Stream::getId));
+
+        archive.write(PERIOD, streams.stream());
+        archive.prepare(PERIOD);
+        archive.publish(PERIOD);
+    }
+
+    @Test
+    void testAggregatesMatchRowByRowTotals() {
+        Instant fromDate = Instant.parse("2025-01-10T00:00:00Z");
+        Instant toDate = Instant.parse("2025-01-20T12:00:00Z");
+        List<Stream> expected = streamsOf(artistId, fromDate, toDate);
+
+        Map<String, Long> counts = new HashMap<>();
+        for (StreamRepository.SongStreamCount count : archive.countStreamsByArtist(artistId, fromDate, toDate)) {
+            counts.put(count.getSongId() + "/" + count.isMonetized(), count.getStreamCount());
+        }
+        assertEquals(expected.stream().collect(Collectors.groupingBy(
+                stream -> stream.getSongId() + "/" + stream.isMonetizable(), Collectors.counting())), counts);
+
+        Map<UUID, Long> monetizedSeconds = new HashMap<>();
+        for (StreamRepository.SongStreamTotals totals : archive.sumMonetizedStreamsBySong(artistId, fromDate, toDate)) {
+            monetizedSeconds.put(totals.getSongId(), totals.getTotalDurationSeconds());
+        }
+        assertEquals(expected.stream().filter(Stream::isMonetizable).collect(Collectors.groupingBy(
+                Stream::getSongId, Collectors.summingLong(stream -> stream.getDuration().getSeconds()))), monetizedSeconds);
+
+        Map<LocalDate, Long> daily = new TreeMap<>();
+        for (StreamRepository.DailyStreamTotals day : archive.sumStreamsByDay(artistId, fromDate, toDate)) {
+            daily.put(day.getStreamDate(), day.getStreamCount());
+        }
+        assertEquals(expected.stream().collect(Collectors.groupingBy(
+                stream -> LocalDate.ofInstant(stream.getStreamDate(), ZoneOffset.UTC), TreeMap::new, Collectors.counting())), daily);
+    }
+
+    @Test
+    void testStreamsRoundTripInTimestampOrder() {
+        List<Stream> archived = new ArrayList<>();
+        archive.forEachStream(artistId, null, null, archived::add);
+
+        List<Stream> expected = streamsOf(artistId, null, null);
+        assertEquals(expected.size(), archived.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getId(), archived.get(i).getId());
+            assertEquals(expected.get(i).getSongId(), archived.get(i).getSongId());
+            assertEquals(expected.get(i).getUserId(), archived.get(i).getUserId());
+            assertEquals(expected.get(i).getStreamDate(), archived.get(i).getStreamDate());
+            assertEquals(expected.get(i).getDuration(), archived.get(i).getDuration());
+        }
+    }
+
+    @Test
+    void testRewriteMergesWithoutDuplicatingStreams() throws IOException {
+        Stream late = new Stream(UUID.randomUUID(), streams.get(0).getSongId(), streams.get(0).getArtistId(),
+                UUID.randomUUID(), PERIOD_START.plusSeconds(60), Duration.ofSeconds(90));
+        List<Stream> rewrite = new ArrayList<>(streams.subList(0, 100));
+        rewrite.add(late);
+        rewrite.sort(Comparator.comparing(Stream::getStreamDate).thenComparing(Stream::getId));
+
+        assertEquals(streams.size() + 1, archive.write(PERIOD, rewrite.stream()));
+        archive.prepare(PERIOD);
+
+        // The merged contents stay hidden from queries until published
+        List<Stream> served = new ArrayList<>();
+        archive.forEachStream(late.getArtistId(), null, null, served::add);
+        assertEquals(streamsOf(late.getArtistId(), null, null).size(), served.size());
+        archive.publish(PERIOD);
+
+        // Reopening reads the merged file from disk
+        StreamArchive reopened = new StreamArchive(archiveDir.toString());
+        List<Stream> archived = new ArrayList<>();
+        reopened.forEachStream(late.getArtistId(), null, null, archived::add);
+        assertEquals(streamsOf(late.getArtistId(), null, null).size() + 1, archived.size());
+    }
+
+    @Test
+    void testDropRemovesPeriodAndFile() throws IOException {
+        archive.drop(PERIOD);
+
+        assertFalse(archive.contains(PERIOD));
+        assertTrue(archive.countStreamsByArtist(artistId, null, null).isEmpty());
+        assertFalse(Files.exists(archiveDir.resolve(StreamArchiveFile.fileName(PERIOD))));
+    }
+
+    private List<Stream> streamsOf(UUID artist, Instant fromDate, Instant toDate) {
+        return streams.stream()
+                .filter(stream -> stream.getArtistId().equals(artist))
+                .filter(stream -> fromDate == null || !stream.getStreamDate().isBefore(fromDate))
+                .filter(stream -> toDate == null || !stream.getStreamDate().isAfter(toDate))
+                .collect(Collectors.toList());
+    }
+}
@@ -3,11 +3,13 @@ package com.moji.musicdistribution.query.projections;
 import com.moji.musicdistribution.domain.aggregates.Artist;
 import com.moji.musicdistribution.domain.aggregates.Song;
 import com.moji.musicdistribution.domain.aggregates.Stream;
-import com.moji.musicdistribution.domain.events.StreamRecorded;
 import com.moji.musicdistribution.domain.repositories.ArtistRepository;
 import com.moji.musicdistribution.domain.repositories.SongRepository;
 import com.moji.musicdistribution.domain.repositories.StreamRepository;
+import com.moji.musicdistribution.query.archive.StreamArchive;
 import com.moji.musicdistribution.query.readmodels.ArtistStreamReport;
+import com.moji.musicdistribution.query.readmodels.SongStreamPage;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -21,6 +23,8 @@ import java.time.temporal.ChronoUnit;
 import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -35,6 +39,12 @@ public class ArtistStreamProjectionTest {
     @Mock
     private StreamRepository streamRepository;
 
+    @Mock
+    private StreamArchive streamArchive;
+
+    @Mock
+    private EntityManager entityManager;
+
     @InjectMocks
     private ArtistStreamProjection projection;
 
@@ -70,9 +80,9 @@ public class ArtistStreamProjectionTest {
         songs = Arrays.asList(song1, song2);
 
         // Create streams - 2 monetizable, 1 not monetizable
-        Stream stream1 = new Stream(UUID.randomUUID(), song1Id, user1Id, now, Duration.ofSeconds(45));
-        Stream stream2 = new Stream(UUID.randomUUID(), song1Id, user2Id, yesterday, Duration.ofSeconds(20));
-        Stream stream3 = new Stream(UUID.randomUUID(), song2Id, user1Id, yesterday, Duration.ofSeconds(60));
+        Stream stream1 = new Stream(UUID.randomUUID(), song1Id, artistId, user1Id, now, Duration.ofSeconds(45));
+        Stream stream2 = new Stream(UUID.randomUUID(), song1Id, artistId, user2Id, yesterday, Duration.ofSeconds(20));
+        Stream stream3 = new Stream(UUID.randomUUID(), song2Id, artistId, user1Id, yesterday, Duration.ofSeconds(60));
         streams = Arrays.asList(stream1, stream2, stream3);
     }
 
@@ -80,35 +90,30 @@ public class ArtistStreamProjectionTest {
     private void setupDefaultReportMocks() {
         when(artistRepository.findById(artistId)).thenReturn(Optional.of(artist));
         when(songRepository.findByArtistId(artistId)).thenReturn(songs);
-        when(streamRepository.findByArtistId(artistId)).thenReturn(streams);
     }
 
+    // Stub the database-side aggregation as if the given streams were stored
+    private void stubStreamCounts(List<Stream> storedStreams) {
+        when(streamRepository.countStreamsByArtist(artistId)).thenReturn(countsOf(storedStreams));
+    }
 
-    @Test
-    void testOnStreamRecordedEvent() {
-        // Create a StreamRecorded event
-        UUID streamId = UUID.randomUUID();
-        StreamRecorded event = new StreamRecorded(
-                streamId,
-                song1Id,
-                user1Id,
-                now,
-                Duration.ofSeconds(45),
-                artistId,
-                "Song 1"
-        );
-
-        // Call the event handler
-        projection.on(event);
-
-        // Not much to verify since our implementation just updates an in-memory cache
-        // In a real test with a persistent projection, we would verify repository calls
+    private void stubStreamCountsInRange(List<Stream> storedStreams) {
+        when(streamRepository.countStreamsByArtistAndDateRange(eq(artistId), any(), any()))
+                .thenAnswer(invocation -> {
+                    Instant from = invocation.getArgument(1);
+                    Instant to = invocation.getArgument(2);
+                    return countsOf(storedStreams.stream()
+                            .filter(stream -> !stream.getStreamDate().isBefore(from) && !stream.getStreamDate().isAfter(to))
+                            .toList());
+                });
     }
 
+
     @Test
     void testGenerateStreamReport_AllStreams() {
 
         setupDefaultReportMocks();
+        stubStreamCounts(streams);
 
         // Generate report for all time
         ArtistStreamReport report = projection.generateStreamReport(artistId, null, null);
@@ -146,6 +151,7 @@ public class ArtistStreamProjectionTest {
     void testGenerateStreamReport_DateRange() {
 
         setupDefaultReportMocks();
+        stubStreamCountsInRange(streams);
 
         // Generate report for just today
         ArtistStreamReport report = projection.generateStreamReport(artistId, now.minus(12, ChronoUnit.HOURS), now.plus(12, ChronoUnit.HOURS));
@@ -170,7 +176,7 @@ public class ArtistStreamProjectionTest {
 
         setupDefaultReportMocks();
         // Setup empty streams
-        when(streamRepository.findByArtistId(artistId)).thenReturn(Collections.emptyList());
+        stubStreamCounts(Collections.emptyList());
 
         // Generate report
         ArtistStreamReport report = projection.generateStreamReport(artistId, null, null);
@@ -203,9 +209,9 @@ public class ArtistStreamProjectionTest {
         setupDefaultReportMocks();
 
         // Add more streams to song2 to make it have the most streams
-        Stream stream4 = new Stream(UUID.randomUUID(), song2Id, user2Id, yesterday, Duration.ofSeconds(45));
-        Stream stream5 = new Stream(UUID.randomUUID(), song2Id, user1Id, lastWeek, Duration.ofSeconds(45));
-        when(streamRepository.findByArtistId(artistId)).thenReturn(Arrays.asList(
+        Stream stream4 = new Stream(UUID.randomUUID(), song2Id, artistId, user2Id, yesterday, Duration.ofSeconds(45));
+        Stream stream5 = new Stream(UUID.randomUUID(), song2Id, artistId, user1Id, lastWeek, Duration.ofSeconds(45));
+        stubStreamCounts(Arrays.asList(
                 streams.get(0), streams.get(1), streams.get(2), stream4, stream5
         ));
 
@@ -220,6 +226,88 @@ public class ArtistStreamProjectionTest {
         assertEquals(2, report.getSongStats().get(1).getTotalStreams());
     }
 
+    @Test
+    void testGetSongStreams_PagesByKeyset() {
+        when(songRepository.findById(song1Id)).thenReturn(Optional.of(songs.get(0)));
+        // Oldest first: stream2 (yesterday), then stream1 (now)
+        when(streamRepository.findFirstStreamsOfSong(eq(song1Id), any()))
+                .thenReturn(List.of(streams.get(1), streams.get(0)));
+
+        SongStreamPage firstPage = projection.getSongStreams(artistId, song1Id, 1, null);
+
+        assertEquals(1, firstPage.getStreams().size());
+        assertEquals(streams.get(1).getId(), firstPage.getStreams().get(0).getStreamId());
+        assertFalse(firstPage.getStreams().get(0).isMonetized());
+        assertNotNull(firstPage.getNextCursor());
+
+        when(streamRepository.findStreamsOfSongAfter(eq(song1Id), eq(yesterday), eq(streams.get(1).getId()), any()))
+                .thenReturn(List.of(streams.get(0)));
+
+        SongStreamPage secondPage = projection.getSongStreams(artistId, song1Id, 1, firstPage.getNextCursor());
+
+        assertEquals(1, secondPage.getStreams().size());
+        assertEquals(streams.get(0).getId(), secondPage.getStreams().get(0).getStreamId());
+        assertNull(secondPage.getNextCursor());
+    }
+
+    @Test
+    void testGetSongStreams_SongOfAnotherArtist() {
+        Song otherSong = new Song(UUID.randomUUID(), "Other", UUID.randomUUID(), Duration.ofMinutes(3));
+        when(songRepository.findById(otherSong.getId())).thenReturn(Optional.of(otherSong));
+
+        IllegalArgumentException exception = assertThrows(
+                IllegalArgumentException.class,
+                () -> projection.getSongStreams(artistId, otherSong.getId(), 10, null)
+        );
+
+        assertEquals("Song not found", exception.getMessage());
+    }
+
+    @Test
+    void testGetSongStreams_InvalidCursor() {
+        when(songRepository.findById(song1Id)).thenReturn(Optional.of(songs.get(0)));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> projection.getSongStreams(artistId, song1Id, 10, "not-a-cursor"));
+    }
+
+    @Test
+    void testExportStreams_DetachesEachStream() {
+        when(artistRepository.existsById(artistId)).thenReturn(true);
+        when(streamRepository.streamByArtistId(artistId)).thenReturn(streams.stream());
+
+        List<Stream> exported = new ArrayList<>();
+        projection.exportStreams(artistId, null, null, exported::add);
+
+        assertEquals(streams, exported);
+        streams.forEach(stream -> verify(entityManager).detach(stream));
+    }
+
+    private static List<StreamRepository.SongStreamCount> countsOf(List<Stream> storedStreams) {
+        Map<List<Object>, Long> grouped = new LinkedHashMap<>();
+        for (Stream stream : storedStreams) {
+            grouped.merge(List.of(stream.getSongId(), stream.isMonetizable()), 1L, Long::sum);
+        }
+        List<StreamRepository.SongStreamCount> counts = new ArrayList<>();
+        grouped.forEach((key, count) -> counts.add(new StreamRepository.SongStreamCount() {
+            @Override
+            public UUID getSongId() {
+                return (UUID) key.get(0);
+            }
+
+            @Override
+            public boolean isMonetized() {
+                return (Boolean) key.get(1);
+            }
+
+            @Override
+            public long getStreamCount() {
+                return count;
+            }
+        }));
+        return counts;
+    }
+
     private ArtistStreamReport.SongStreamStats findSongStats(List<ArtistStreamReport.SongStreamStats> stats, UUID songId) {
         return stats.stream()
                 .filter(s -> s.getSongId().equals(songId))
@@ -0,0 +1,223 @@
+package com.moji.musicdistribution.query.projections;
+
+import com.moji.musicdistribution.domain.events.DomainEvent;
+import com.moji.musicdistribution.domain.events.ReleasePublished;
+import com.moji.musicdistribution.domain.events.StreamMonetized;
+import com.moji.musicdistribution.domain.events.StreamRecorded;
+import com.moji.musicdistribution.eventstore.EventStore;
+import com.moji.musicdistribution.eventstore.InMemoryEventStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+public class CheckpointedProjectionTest {
+
+    @Mock
+    private ObjectProvider<SongPopularityListener> popularityListeners;
+
+    @TempDir
+    Path dataDir;
+
+    private EventStore eventStore;
+    private Path snapshotPath;
+    private UUID songId;
+    private UUID artistId;
+
+    @BeforeEach
+    void setUp() {
+        eventStore = new InMemoryEventStore(event -> {
+        });
+        snapshotPath = dataDir.resolve("stream-stats.snap");
+        songId = UUID.randomUUID();
+        artistId = UUID.randomUUID();
+    }
+
+    @Test
+    void testEventsAppliedOutOfOrderAreNotAppliedTwice() {
+        StreamStatsProjection projection = new StreamStatsProjection(popularityListeners);
+        StreamRecorded first = store(stream(Duration.ofSeconds(60)));
+        StreamRecorded late = store(stream(Duration.ofSeconds(60)));
+        StreamRecorded third = store(stream(Duration.ofSeconds(60)));
+        projection.on(first);
+        projection.on(third);
+        projection.on(third); // delivered twice
+
+        // The checkpoint cannot pass the event still in flight
+        assertEquals(1, projection.advanceCheckpoint(eventStore));
+        assertEquals(2, projection.getSongStreamCount(songId));
+
+        projection.on(late);
+        assertEquals(3, projection.advanceCheckpoint(eventStore));
+        projection.on(late);
+        projection.on(third);
+        assertEquals(3, projection.getSongStreamCount(songId));
+    }
+
+    @Test
+    void testCheckpointSkipsEventsTheProjectionDoesNotHandle() {
+        StreamStatsProjection projection = new StreamStatsProjection(popularityListeners);
+        projection.on(store(stream(Duration.ofSeconds(60))));
+        store(new ReleasePublished(UUID.randomUUID(), LocalDate.of(2025, 3, 1), "Release", artistId, Set.of()));
+
+        assertEquals(2, projection.advanceCheckpoint(eventStore));
+        assertEquals(2, projection.getCheckpoint());
+    }
+
+    @Test
+    void testEventsFarBeyondTheCheckpointAreStillAppliedOnce() {
+        StreamStatsProjection projection = new StreamStatsProjection(popularityListeners);
+        StreamRecorded near = stream(Duration.ofSeconds(60));
+        near.assignSequence(1);
+        StreamRecorded far = stream(Duration.ofSeconds(60));
+        far.assignSequence(1_000_000);
+        // Shares a bit with the far event in the initial window
+        StreamRecorded alias = stream(Duration.ofSeconds(60));
+        alias.assignSequence(1_000_000 - (1 << 16));
+
+        projection.on(near);
+        projection.on(far);
+        projection.on(alias);
+        projection.on(far);
+        projection.on(alias);
+
+        assertEquals(3, projection.getSongStreamCount(songId));
+        assertEquals(1_000_000, projection.getLastAppliedSequence());
+    }
+
+    @Test
+    void testRestoresSnapshotAfterARestartAndReplaysOnlyTheTail() throws IOException {
+        Path journalPath = dataDir.resolve("events.journal");
+        InMemoryEventStore journaled = journaledStore(journalPath);
+        eventStore = journaled;
+        StreamStatsProjection original = new StreamStatsProjection(popularityListeners);
+        for (int i = 0; i < 3; i++) {
+            original.on(store(stream(Duration.ofSeconds(60))));
+        }
+        assertTrue(original.snapshot(eventStore, snapshotPath));
+        assertEquals(3, original.getCheckpoint());
+
+        // Stored after the snapshot, so only the event log knows about them
+        store(stream(Duration.ofSeconds(10)));
+        store(stream(Duration.ofSeconds(60)));
+        journaled.close();
+
+        eventStore = journaledStore(journalPath);
+        StreamStatsProjection restored = new StreamStatsProjection(popularityListeners);
+        assertTrue(restored.restoreSnapshot(eventStore, snapshotPath));
+        assertEquals(3, restored.getCheckpoint());
+        assertEquals(2, restored.catchUp(eventStore));
+
+        assertEquals(5, restored.getSongStatistics(songId).getTotalStreams().get());
+        assertEquals(4, restored.getSongStatistics(songId).getMonetizedStreams().get());
+        assertEquals(5, restored.getArtistStatistics(artistId).getTotalStreams().get());
+    }
+
+    @Test
+    void testEventsAppliedBeyondTheCheckpointAreNotReplayedAfterRestore() throws IOException {
+        StreamStatsProjection original = new StreamStatsProjection(popularityListeners);
+        original.on(store(stream(Duration.ofSeconds(60))));
+        StreamRecorded late = store(stream(Duration.ofSeconds(60)));
+        original.on(store(stream(Duration.ofSeconds(60))));
+
+        assertTrue(original.snapshot(eventStore, snapshotPath));
+        assertEquals(1, original.getCheckpoint());
+
+        StreamStatsProjection restored = new StreamStatsProjection(popularityListeners);
+        assertTrue(restored.restoreSnapshot(eventStore, snapshotPath));
+        assertEquals(3, restored.getLastAppliedSequence());
+        restored.catchUp(eventStore);
+        restored.on(late);
+
+        assertEquals(3, restored.getSongStreamCount(songId));
+    }
+
+    @Test
+    void testUnchangedProjectionIsNotSnapshotAgain() throws IOException {
+        StreamStatsProjection projection = new StreamStatsProjection(popularityListeners);
+        projection.on(store(stream(Duration.ofSeconds(60))));
+
+        assertTrue(projection.snapshot(eventStore, snapshotPath));
+        assertFalse(projection.snapshot(eventStore, snapshotPath));
+
+        projection.on(store(stream(Duration.ofSeconds(60))));
+        assertTrue(projection.snapshot(eventStore, snapshotPath));
+    }
+
+    @Test
+    void testSnapshotFromAnotherEventLogIsIgnored() throws IOException {
+        StreamStatsProjection original = new StreamStatsProjection(popularityListeners);
+        original.on(store(stream(Duration.ofSeconds(60))));
+        original.snapshot(eventStore, snapshotPath);
+
+        // A fresh log as long as the old one, as after restarting without a journal
+        eventStore = new InMemoryEventStore(event -> {
+        });
+        store(stream(Duration.ofSeconds(60)));
+
+        StreamStatsProjection restored = new StreamStatsProjection(popularityListeners);
+        assertFalse(restored.restoreSnapshot(eventStore, snapshotPath));
+        assertEquals(0, restored.getCheckpoint());
+        assertEquals(0, restored.getSongStreamCount(songId));
+    }
+
+    @Test
+    void testCorruptSnapshotIsIgnored() throws IOException {
+        StreamStatsProjection original = new StreamStatsProjection(popularityListeners);
+        original.on(store(stream(Duration.ofSeconds(60))));
+        original.snapshot(eventStore, snapshotPath);
+        byte[] bytes = Files.readAllBytes(snapshotPath);
+        bytes[bytes.length / 2] ^= 0x5A;
+        Files.write(snapshotPath, bytes);
+
+        StreamStatsProjection restored = new StreamStatsProjection(popularityListeners);
+        assertFalse(restored.restoreSnapshot(eventStore, snapshotPath));
+        assertEquals(0, restored.getSongStreamCount(songId));
+    }
+
+    @Test
+    void testMonetizationStateRoundTrips() throws IOException {
+        MonetizationProjection original = new MonetizationProjection();
+        StreamRecorded recorded = stream(Duration.ofSeconds(60));
+        original.on(store(StreamMonetized.fromStreamRecorded(recorded, new BigDecimal("0.004"))));
+        original.snapshot(eventStore, snapshotPath);
+
+        MonetizationProjection restored = new MonetizationProjection();
+        assertTrue(restored.restoreSnapshot(eventStore, snapshotPath));
+        assertEquals(0, restored.catchUp(eventStore));
+
+        assertEquals(original.getSongMonetization(songId), restored.getSongMonetization(songId));
+        assertEquals(1, restored.getArtistMonetizedStreams(artistId, Instant.EPOCH, Instant.now()).size());
+    }
+
+    private static InMemoryEventStore journaledStore(Path journalPath) {
+        return new InMemoryEventStore(event -> {
+        }, journalPath.toString());
+    }
+
+    private StreamRecorded stream(Duration duration) {
+        return new StreamRecorded(UUID.randomUUID(), songId, UUID.randomUUID(),
+                Instant.parse("2025-03-01T12:00:00Z"), duration, artistId, "Song");
+    }
+
+    private <T extends DomainEvent> T store(T event) {
+        eventStore.store(event);
+        return event;
+    }
+}
@@ -0,0 +1,158 @@
+package com.moji.musicdistribution.query.projections;
+
+import com.moji.musicdistribution.domain.aggregates.Artist;
+import com.moji.musicdistribution.domain.aggregates.Song;
+import com.moji.musicdistribution.domain.repositories.ArtistRepository;
+import com.moji.musicdistribution.domain.repositories.SongRepository;
+import com.moji.musicdistribution.domain.repositories.StreamRepository;
+import com.moji.musicdistribution.query.archive.StreamArchive;
+import com.moji.musicdistribution.query.readmodels.MonetizationReport;
+import com.moji.musicdistribution.query.readmodels.PaymentReport;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class PaymentReportProjectionTest {
+
+    @Mock
+    private ArtistRepository artistRepository;
+
+    @Mock
+    private SongRepository songRepository;
+
+    @Mock
+    private StreamRepository streamRepository;
+
+    @Mock
+    private StreamArchive streamArchive;
+
+    private PaymentReportProjection projection;
+
+    private UUID artistId;
+    private UUID song1Id;
+    private UUID song2Id;
+    private Instant now;
+
+    @BeforeEach
+    void setUp() {
+        now = Instant.parse("2025-03-01T12:00:00Z");
+        projection = new PaymentReportProjection(artistRepository, songRepository, streamRepository, streamArchive,
+                Clock.fixed(now, ZoneOffset.UTC));
+
+        artistId = UUID.randomUUID();
+        song1Id = UUID.randomUUID();
+        song2Id = UUID.randomUUID();
+        when(artistRepository.findById(artistId))
+                .thenReturn(Optional.of(new Artist(artistId, "Test Artist", UUID.randomUUID())));
+    }
+
+    @Test
+    void testGeneratePaymentReport_PaysPerAggregatedStream() {
+        Instant fromDate = now.minus(30, ChronoUnit.DAYS);
+        when(songRepository.findByArtistId(artistId)).thenReturn(List.of(
+                new Song(song1Id, "Song 1", artistId, Duration.ofMinutes(3)),
+                new Song(song2Id, "Song 2", artistId, Duration.ofMinutes(4))));
+        when(streamRepository.sumMonetizedStreamsBySong(artistId, fromDate, now)).thenReturn(List.of(
+                totals(song1Id, 250, 250 * 45),
+                totals(song2Id, 1_000, 1_000 * 60)));
+
+        PaymentReport report = projection.generatePaymentReport(artistId, fromDate, now);
+
+        assertEquals(1_250, report.getTotalMonetizedStreams());
+        assertEquals(0, new BigDecimal("5.000").compareTo(report.getTotalAmount()));
+        assertEquals(now, report.getGeneratedAt());
+
+        // Highest amount first
+        assertEquals(2, report.getSongPayments().size());
+        assertEquals(song2Id, report.getSongPayments().get(0).getSongId());
+        assertEquals("Song 2", report.getSongPayments().get(0).getSongTitle());
+        assertEquals(1_000, report.getSongPayments().get(0).getMonetizedStreams());
+        assertEquals(0, new BigDecimal("4.000").compareTo(report.getSongPayments().get(0).getAmount()));
+        assertEquals(song1Id, report.getSongPayments().get(1).getSongId());
+    }
+
+    @Test
+    void testGeneratePaymentReport_AddsArchivedStreams() {
+        Instant fromDate = now.minus(90, ChronoUnit.DAYS);
+        when(songRepository.findByArtistId(artistId)).thenReturn(List.of(
+                new Song(song1Id, "Song 1", artistId, Duration.ofMinutes(3))));
+        when(streamRepository.sumMonetizedStreamsBySong(artistId, fromDate, now)).thenReturn(List.of(
+                totals(song1Id, 100, 100 * 45)));
+        when(streamArchive.sumMonetizedStreamsBySong(artistId, fromDate, now)).thenReturn(List.of(
+                totals(song1Id, 150, 150 * 45)));
+
+        PaymentReport report = projection.generatePaymentReport(artistId, fromDate, now);
+
+        assertEquals(250, report.getTotalMonetizedStreams());
+        assertEquals(1, report.getSongPayments().size());
+        assertEquals(0, new BigDecimal("1.000").compareTo(report.getTotalAmount()));
+    }
+
+    @Test
+    void testGenerateMonetizationReport_SplitsAggregatedCounts() {
+        when(streamRepository.countStreamsByArtistAndDateRange(artistId, Instant.EPOCH, now)).thenReturn(List.of(
+                count(song1Id, true, 3),
+                count(song1Id, false, 2),
+                count(song2Id, true, 5)));
+
+        MonetizationReport report = projection.generateMonetizationReport(artistId, null, null);
+
+        assertEquals(10, report.getTotalStreams());
+        assertEquals(8, report.getMonetizableStreams());
+        assertEquals(0, new BigDecimal("0.032").compareTo(report.getEstimatedRevenue()));
+        assertEquals(Instant.EPOCH, report.getFromDate());
+        assertEquals(now, report.getToDate());
+    }
+
+    private static StreamRepository.SongStreamTotals totals(UUID songId, long streamCount, long durationSeconds) {
+        return new StreamRepository.SongStreamTotals() {
+            @Override
+            public UUID getSongId() {
+                return songId;
+            }
+
+            @Override
+            public long getStreamCount() {
+                return streamCount;
+            }
+
+            @Override
+            public long getTotalDurationSeconds() {
+                return durationSeconds;
+            }
+        };
+    }
+
+    private static StreamRepository.SongStreamCount count(UUID songId, boolean monetized, long streamCount) {
+        return new StreamRepository.SongStreamCount() {
+            @Override
+            public UUID getSongId() {
+                return songId;
+            }
+
+            @Override
+            public boolean isMonetized() {
+                return monetized;
+            }
+
+            @Override
+            public long getStreamCount() {
+                return streamCount;
+            }
+        };
+    }
+}
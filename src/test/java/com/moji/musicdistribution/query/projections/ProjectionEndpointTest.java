@@ -0,0 +1,106 @@
+package com.moji.musicdistribution.query.projections;
+
+import com.moji.musicdistribution.domain.events.StreamRecorded;
+import com.moji.musicdistribution.eventstore.EventStore;
+import com.moji.musicdistribution.eventstore.InMemoryEventStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ProjectionEndpointTest {
+
+    private final UUID songId = UUID.randomUUID();
+    private final UUID artistId = UUID.randomUUID();
+
+    @Mock
+    private ObjectProvider<SongPopularityListener> popularityListeners;
+
+    private StreamStatsProjection projection;
+    private EventStore eventStore;
+    private ProjectionRebuilder rebuilder;
+    private ProjectionEndpoint endpoint;
+    // Whether stored events reach the projection, as the async multicaster would deliver them
+    private boolean delivering = true;
+
+    @BeforeEach
+    void setUp() {
+        projection = new StreamStatsProjection(popularityListeners);
+        eventStore = new InMemoryEventStore(event -> {
+            if (delivering && event instanceof StreamRecorded recorded) {
+                projection.on(recorded);
+            }
+        });
+        rebuilder = new ProjectionRebuilder(eventStore, 64, 4);
+        endpoint = new ProjectionEndpoint(new ProjectionCheckpoints(List.of(projection), eventStore, rebuilder, ""),
+                rebuilder);
+    }
+
+    @AfterEach
+    void tearDown() {
+        rebuilder.shutdown();
+    }
+
+    @Test
+    void testRebuildReplacesTheLiveStateWithTheWholeLog() {
+        recordStreams(600);
+        // Deliveries lost by the live projection
+        delivering = false;
+        recordStreams(400);
+        assertEquals(600, projection.getSongStreamCount(songId));
+
+        assertEquals(Map.of("stream-stats", 1_000L), endpoint.rebuild("stream-stats"));
+
+        assertEquals(1_000, projection.getSongStreamCount(songId));
+        assertEquals(1_000, projection.getArtistStatistics(artistId).getTotalStreams().get());
+        assertEquals(eventStore.getLastSequence(), projection.getCheckpoint());
+
+        // The rebuilt state keeps taking live events
+        delivering = true;
+        recordStreams(1);
+        assertEquals(1_001, projection.getSongStreamCount(songId));
+    }
+
+    @Test
+    void testRebuildWithoutNameRebuildsEveryProjection() {
+        recordStreams(10);
+
+        assertEquals(Map.of("stream-stats", 10L), endpoint.rebuild(null));
+        assertEquals(10, projection.getSongStreamCount(songId));
+    }
+
+    @Test
+    void testRebuildOfUnknownProjectionIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> endpoint.rebuild("no-such-projection"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testReportsCheckpoints() {
+        recordStreams(5);
+        endpoint.rebuild("stream-stats");
+
+        Map<String, Object> stats = (Map<String, Object>) endpoint.projections().get("stream-stats");
+        assertEquals(5L, stats.get("checkpoint"));
+        assertEquals(5L, stats.get("lastAppliedSequence"));
+    }
+
+    private void recordStreams(int count) {
+        for (int i = 0; i < count; i++) {
+            eventStore.store(new StreamRecorded(UUID.randomUUID(), songId, UUID.randomUUID(),
+                    Instant.parse("2025-03-01T12:00:00Z"), Duration.ofSeconds(60), artistId, "Song"));
+        }
+    }
+}
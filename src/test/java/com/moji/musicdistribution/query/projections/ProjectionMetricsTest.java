@@ -0,0 +1,121 @@
+package com.moji.musicdistribution.query.projections;
+
+import com.moji.musicdistribution.domain.events.ReleasePublished;
+import com.moji.musicdistribution.domain.events.StreamRecorded;
+import com.moji.musicdistribution.eventstore.EventStore;
+import com.moji.musicdistribution.eventstore.InMemoryEventStore;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ProjectionMetricsTest {
+
+    @Mock
+    private ObjectProvider<SongPopularityListener> popularityListeners;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private EventStore eventStore;
+    private StreamStatsProjection projection;
+
+    @BeforeEach
+    void setUp() {
+        eventStore = new InMemoryEventStore(event -> {
+        });
+        projection = new StreamStatsProjection(popularityListeners);
+        new ProjectionMetrics(List.of(projection), eventStore, meterRegistry, Clock.systemUTC());
+    }
+
+    @Test
+    void testLagIsMeasuredFromTheCheckpoint() {
+        StreamRecorded first = stream();
+        StreamRecorded second = stream();
+        StreamRecorded third = stream();
+        eventStore.store(first);
+        eventStore.store(second);
+        eventStore.store(third);
+
+        assertEquals(3, gauge("projections.lag"));
+
+        // The first event is still missing, so the checkpoint cannot pass it
+        projection.on(second);
+        projection.on(third);
+        projection.advanceCheckpoint(eventStore);
+        assertEquals(3, gauge("projections.sequence.applied"));
+        assertEquals(3, gauge("projections.lag"));
+        assertEquals(3, meterRegistry.get("projections.sequence.head").gauge().value());
+
+        projection.on(first);
+        projection.advanceCheckpoint(eventStore);
+        assertEquals(0, gauge("projections.lag"));
+    }
+
+    @Test
+    void testIgnoredEventsStopCountingOnceTheCheckpointPassesThem() {
+        eventStore.store(new ReleasePublished(UUID.randomUUID(), LocalDate.of(2025, 3, 1), "Release",
+                UUID.randomUUID(), Set.of()));
+
+        assertEquals(1, gauge("projections.lag"));
+
+        projection.advanceCheckpoint(eventStore);
+        assertEquals(0, gauge("projections.lag"));
+    }
+
+    @Test
+    void testAppliedEventsAreCountedAndTimed() {
+        StreamRecorded recorded = stream();
+        eventStore.store(recorded);
+        projection.on(recorded);
+        projection.on(recorded); // duplicate delivery is neither counted nor timed
+
+        assertEquals(1, meterRegistry.get("projections.events.applied")
+                .tag("projection", "stream-stats").functionCounter().count());
+        Timer duration = meterRegistry.get("projections.apply.duration")
+                .tag("projection", "stream-stats").tag("event", "StreamRecorded").timer();
+        assertEquals(1, duration.count());
+        assertEquals(1, meterRegistry.get("projections.apply.delay")
+                .tag("projection", "stream-stats").timer().count());
+    }
+
+    @Test
+    void testReplayedEventsAreNotCountedAsDelayed() {
+        eventStore.store(stream());
+        eventStore.store(new ReleasePublished(UUID.randomUUID(), LocalDate.of(2025, 3, 1), "Release",
+                UUID.randomUUID(), Set.of()));
+
+        assertEquals(1, projection.catchUp(eventStore));
+
+        assertEquals(1, meterRegistry.get("projections.apply.duration")
+                .tag("projection", "stream-stats").timer().count());
+        assertEquals(0, meterRegistry.get("projections.apply.delay")
+                .tag("projection", "stream-stats").timer().count());
+        // Nothing counts as caught up until the checkpoint advances
+        assertEquals(2, gauge("projections.lag"));
+        projection.advanceCheckpoint(eventStore);
+        assertEquals(0, gauge("projections.lag"));
+    }
+
+    private double gauge(String name) {
+        return meterRegistry.get(name).tag("projection", "stream-stats").gauge().value();
+    }
+
+    private StreamRecorded stream() {
+        return new StreamRecorded(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(),
+                Instant.parse("2025-03-01T12:00:00Z"), Duration.ofSeconds(60), UUID.randomUUID(), "Song");
+    }
+}
@@ -0,0 +1,96 @@
+package com.moji.musicdistribution.query.projections;
+
+import com.moji.musicdistribution.AllocationBudget;
+import com.moji.musicdistribution.domain.events.StreamRecorded;
+import com.moji.musicdistribution.domain.ids.UuidV7;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Allocation budgets of the projections' StreamRecorded listeners, which run once per stream
+ * Events carry sequences as if delivered from the event store, so the budgets include the
+ * bookkeeping of {@link CheckpointedProjection#apply}.
+ */
+public class StreamRecordedAllocationTest {
+
+    private static final int ARTISTS = 50;
+    private static final int SONGS = 1_000;
+
+    private StreamRecorded[] events;
+    private long popularityUpdates;
+
+    @BeforeEach
+    void setUp() {
+        Random random = new Random(1);
+        List<UUID> artistIds = new ArrayList<>();
+        for (int i = 0; i < ARTISTS; i++) {
+            artistIds.add(UUID.randomUUID());
+        }
+        List<UUID> songIds = new ArrayList<>();
+        for (int i = 0; i < SONGS; i++) {
+            songIds.add(UUID.randomUUID());
+        }
+
+        Instant now = Instant.now();
+        events = new StreamRecorded[AllocationBudget.OPERATIONS];
+        for (int i = 0; i < events.length; i++) {
+            int song = random.nextInt(SONGS);
+            events[i] = new StreamRecorded(UuidV7.next(), songIds.get(song), UUID.randomUUID(),
+                    now.minusSeconds(random.nextInt(3_600)), Duration.ofSeconds(i % 4 == 0 ? 15 : 180),
+                    artistIds.get(song % ARTISTS), "Song " + song);
+            events[i].assignSequence(i + 1);
+        }
+    }
+
+    @Test
+    void testStreamStatsProjection() {
+        SongPopularityListener listener = (songId, totalStreams) -> popularityUpdates++;
+        StreamStatsProjection projection = new StreamStatsProjection(listeners(listener));
+
+        AllocationBudget.assertWithinBudget("projection.stream-stats.stream-recorded", i -> projection.on(events[i]));
+
+        assertEquals(events.length, projection.getAppliedEvents());
+        assertEquals(events.length, popularityUpdates);
+    }
+
+    // A plain provider rather than a mock, whose recorded invocations would be counted
+    private static ObjectProvider<SongPopularityListener> listeners(SongPopularityListener... listeners) {
+        List<SongPopularityListener> all = List.of(listeners);
+        return new ObjectProvider<>() {
+            @Override
+            public SongPopularityListener getObject(Object... args) {
+                return all.get(0);
+            }
+
+            @Override
+            public SongPopularityListener getObject() {
+                return all.get(0);
+            }
+
+            @Override
+            public SongPopularityListener getIfAvailable() {
+                return all.isEmpty() ? null : all.get(0);
+            }
+
+            @Override
+            public SongPopularityListener getIfUnique() {
+                return all.size() == 1 ? all.get(0) : null;
+            }
+
+            @Override
+            public java.util.stream.Stream<SongPopularityListener> stream() {
+                return all.stream();
+            }
+        };
+    }
+}
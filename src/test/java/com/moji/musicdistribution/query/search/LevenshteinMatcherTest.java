@@ -0,0 +1,122 @@
+package com.moji.musicdistribution.query.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LevenshteinMatcherTest {
+
+    @Test
+    void testExactMatchIsCaseInsensitive() {
+        LevenshteinMatcher matcher = LevenshteinMatcher.compile("Summer Breeze");
+
+        assertEquals(0, matcher.distance("summer breeze", 0));
+        assertEquals(0, matcher.distance("SUMMER BREEZE", 2));
+    }
+
+    @Test
+    void testSingleEdits() {
+        LevenshteinMatcher matcher = LevenshteinMatcher.compile("Bad Habits");
+
+        assertEquals(1, matcher.distance("Bad Habit", 2));   // deletion
+        assertEquals(1, matcher.distance("Bad Habitss", 2)); // insertion
+        assertEquals(1, matcher.distance("Bad Hobits", 2));  // substitution
+    }
+
+    @Test
+    void testDistanceAboveThresholdIsCapped() {
+        LevenshteinMatcher matcher = LevenshteinMatcher.compile("Galway Girl");
+
+        assertEquals(3, matcher.distance("Autumn Leaves", 2));
+        assertFalse(matcher.matches("Autumn Leaves", 2));
+    }
+
+    @Test
+    void testNegativeThresholdNeverMatches() {
+        LevenshteinMatcher matcher = LevenshteinMatcher.compile("Summer");
+
+        assertFalse(matcher.matches("Summer", -1));
+    }
+
+    @Test
+    void testEmptyTerm() {
+        LevenshteinMatcher matcher = LevenshteinMatcher.compile("");
+
+        assertEquals(0, matcher.distance("", 0));
+        assertEquals(2, matcher.distance("ab", 2));
+        assertFalse(matcher.matches("abc", 2));
+    }
+
+    @Test
+    void testCharArraySlice() {
+        LevenshteinMatcher matcher = LevenshteinMatcher.compile("winter");
+        char[] text = "xxwintrxx".toCharArray();
+
+        assertEquals(1, matcher.distance(text, 2, 5, 2));
+    }
+
+    @Test
+    void testAgreesWithReferenceImplementation() {
+        Random random = new Random(42);
+        String alphabet = "abcdeABé ";
+
+        for (int i = 0; i < 5_000; i++) {
+            // Mix short terms (single word) and long terms (blocked variant)
+            int length = i % 5 == 0 ? 60 + random.nextInt(140) : random.nextInt(20);
+            String term = randomString(random, alphabet, length);
+            String text = mutate(random, alphabet, term, random.nextInt(6));
+            int maxDistance = random.nextInt(6);
+
+            int expected = reference(term.toLowerCase(), text.toLowerCase());
+            int actual = LevenshteinMatcher.compile(term).distance(text, maxDistance);
+
+            assertEquals(expected <= maxDistance ? expected : maxDistance + 1, actual,
+                    "term='" + term + "' text='" + text + "' maxDistance=" + maxDistance);
+        }
+    }
+
+    private static String randomString(Random random, String alphabet, int length) {
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return builder.toString();
+    }
+
+    private static String mutate(Random random, String alphabet, String source, int edits) {
+        StringBuilder builder = new StringBuilder(source);
+        for (int i = 0; i < edits; i++) {
+            char c = alphabet.charAt(random.nextInt(alphabet.length()));
+            int op = random.nextInt(3);
+            if (op == 0 || builder.length() == 0) {
+                builder.insert(random.nextInt(builder.length() + 1), c);
+            } else if (op == 1) {
+                builder.deleteCharAt(random.nextInt(builder.length()));
+            } else {
+                builder.setCharAt(random.nextInt(builder.length()), c);
+            }
+        }
+        return builder.toString();
+    }
+
+    private static int reference(String a, String b) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+}
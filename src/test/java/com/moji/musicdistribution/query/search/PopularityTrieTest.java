@@ -0,0 +1,82 @@
+package com.moji.musicdistribution.query.search;
+
+import com.moji.musicdistribution.query.readmodels.SongSuggestion;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PopularityTrieTest {
+
+    private final UUID badHabits = UUID.randomUUID();
+    private final UUID badGuy = UUID.randomUUID();
+    private final UUID bad = UUID.randomUUID();
+    private final UUID galwayGirl = UUID.randomUUID();
+
+    @Test
+    void testCompletesPrefixByPopularity() {
+        PopularityTrie trie = trieWithSongs(10);
+
+        assertEquals(List.of("bad guy", "Bad Habits", "Bad"), titles(trie.complete("bad", 10)));
+        assertEquals(List.of("bad guy", "Bad Habits"), titles(trie.complete("bad ", 10)));
+        assertEquals(List.of("Bad Habits"), titles(trie.complete("bad h", 10)));
+        assertEquals(List.of("Galway Girl"), titles(trie.complete("g", 10)));
+        assertTrue(trie.complete("bad x", 10).isEmpty());
+    }
+
+    @Test
+    void testCacheKeepsOnlyTopN() {
+        PopularityTrie trie = trieWithSongs(2);
+
+        assertEquals(List.of("bad guy", "Bad Habits"), titles(trie.complete("b", 10)));
+        assertEquals(List.of("bad guy", "Bad Habits"), titles(trie.complete("", 10)));
+    }
+
+    @Test
+    void testPopularityUpdateReordersSuggestions() {
+        PopularityTrie trie = trieWithSongs(2);
+
+        trie.updatePopularity(bad, 500);
+
+        assertEquals(List.of("Bad", "bad guy"), titles(trie.complete("bad", 10)));
+        assertEquals(500, trie.complete("bad", 1).get(0).getStreamCount());
+    }
+
+    @Test
+    void testStaleCountIsIgnored() {
+        PopularityTrie trie = trieWithSongs(10);
+
+        trie.updatePopularity(badGuy, 1);
+
+        assertEquals(300, trie.complete("bad g", 1).get(0).getStreamCount());
+    }
+
+    @Test
+    void testRemovalRefillsCacheFromSubtree() {
+        PopularityTrie trie = trieWithSongs(2);
+
+        trie.remove(badGuy);
+
+        assertEquals(List.of("Bad Habits", "Bad"), titles(trie.complete("b", 10)));
+        assertTrue(trie.complete("bad g", 10).isEmpty());
+        assertEquals(3, trie.size());
+    }
+
+    private PopularityTrie trieWithSongs(int topN) {
+        PopularityTrie trie = new PopularityTrie(topN);
+        trie.insert(badHabits, "Bad Habits", "bad habits", 200);
+        trie.insert(badGuy, "bad guy", "bad guy", 300);
+        trie.insert(bad, "Bad", "bad", 100);
+        trie.insert(galwayGirl, "Galway Girl", "galway girl", 50);
+        return trie;
+    }
+
+    private static List<String> titles(List<SongSuggestion> suggestions) {
+        List<String> titles = new ArrayList<>();
+        for (SongSuggestion suggestion : suggestions) {
+            titles.add(suggestion.getTitle());
+        }
+        return titles;
+    }
+}
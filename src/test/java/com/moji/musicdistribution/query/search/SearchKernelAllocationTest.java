@@ -0,0 +1,100 @@
+package com.moji.musicdistribution.query.search;
+
+import com.moji.musicdistribution.AllocationBudget;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Allocation budgets of the fuzzy search kernels, which compare a term against every candidate
+ * title and must not allocate per comparison
+ */
+public class SearchKernelAllocationTest {
+
+    private static final String[] WORDS = {"midnight", "river", "echo", "golden", "static", "summer",
+            "neon", "hollow", "velvet", "paper", "satellite", "wildfire"};
+    private static final String TERM = "midnigth rivr 42";
+
+    private List<String> titles;
+    private char[][] folded;
+    private char[][][] tokens;
+    private int matches;
+
+    @BeforeEach
+    void setUp() {
+        Random random = new Random(1);
+        titles = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            titles.add(WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " " + i);
+        }
+        folded = new char[titles.size()][];
+        tokens = new char[titles.size()][][];
+        for (int i = 0; i < folded.length; i++) {
+            String normalized = TitleNormalizer.normalize(titles.get(i));
+            folded[i] = normalized.toCharArray();
+            tokens[i] = TitleNormalizer.tokenize(normalized);
+        }
+    }
+
+    @Test
+    void testMatcherAgainstStrings() {
+        LevenshteinMatcher matcher = LevenshteinMatcher.compile(TERM);
+
+        AllocationBudget.assertWithinBudget("search.matcher.distance-string",
+                i -> matches += matcher.distance(titles.get(i % titles.size()), 2));
+    }
+
+    @Test
+    void testMatcherAgainstCharArrays() {
+        LevenshteinMatcher matcher = LevenshteinMatcher.compile(TERM);
+
+        AllocationBudget.assertWithinBudget("search.matcher.distance-chars", i -> {
+            char[] title = folded[i % folded.length];
+            matches += matcher.distance(title, 0, title.length, 2);
+        });
+    }
+
+    @Test
+    void testTokenMatcher() {
+        TokenMatcher matcher = TokenMatcher.compile("rivr midnigth");
+
+        AllocationBudget.assertWithinBudget("search.token-matcher.distance",
+                i -> matches += matcher.distance(tokens[i % tokens.length], 2));
+    }
+
+    @Test
+    void testAutomatonStep() {
+        LevenshteinAutomaton automaton = LevenshteinAutomaton.of(TitleNormalizer.normalize(TERM), 2);
+        int[] first = new int[automaton.stateSize()];
+        int[] second = new int[automaton.stateSize()];
+
+        AllocationBudget.assertWithinBudget("search.automaton.step", i -> {
+            int[] state = first;
+            int[] next = second;
+            automaton.start(state);
+            for (char c : folded[i % folded.length]) {
+                automaton.step(state, c, next);
+                int[] swap = state;
+                state = next;
+                next = swap;
+            }
+            matches += automaton.distance(state);
+        });
+    }
+
+    @Test
+    void testTrieSearch() {
+        char[][] keys = folded.clone();
+        Arrays.sort(keys, Arrays::compare);
+        TitleTrie trie = TitleTrie.build(keys);
+        LevenshteinAutomaton automaton = LevenshteinAutomaton.of(TitleNormalizer.normalize(TERM), 2);
+        TitleTrie.HitConsumer consumer = (index, distance) -> matches += distance;
+
+        // Per query rather than per title: the walk allocates one state row per trie depth
+        AllocationBudget.assertWithinBudget("search.trie.search", i -> trie.search(automaton, consumer));
+    }
+}
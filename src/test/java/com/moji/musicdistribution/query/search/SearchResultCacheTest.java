@@ -0,0 +1,114 @@
+package com.moji.musicdistribution.query.search;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SearchResultCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SearchResultCache cache = new SearchResultCache(meterRegistry, true, 100);
+
+    private final UUID badHabits = UUID.randomUUID();
+    private final UUID galwayGirl = UUID.randomUUID();
+
+    @Test
+    void testRepeatedQueryIsServedFromCache() {
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get("Bad Habits", 2, SearchMode.TITLE, () -> load(loads, match(badHabits, "Bad Habits", 0)));
+        List<TitleMatch> matches = cache.get("bad habits", 2, SearchMode.TITLE, () -> load(loads));
+
+        assertEquals(1, loads.get());
+        assertEquals(1, matches.size());
+        assertEquals(0.5, cache.hitRatio());
+        assertEquals(1.0, meterRegistry.get("search.cache.requests").tag("result", "hit").functionCounter().count());
+    }
+
+    @Test
+    void testAddedTitleInvalidatesOnlyMatchingTerms() {
+        AtomicInteger loads = new AtomicInteger();
+        cache.get("bad habit", 1, SearchMode.TITLE, () -> load(loads));
+        cache.get("galway girl", 1, SearchMode.TITLE, () -> load(loads, match(galwayGirl, "Galway Girl", 0)));
+
+        cache.onTitlesAdded(List.of(IndexedTitle.of(badHabits, "Bad Habits")));
+
+        cache.get("galway girl", 1, SearchMode.TITLE, () -> load(loads));
+        assertEquals(2, loads.get());
+        cache.get("bad habit", 1, SearchMode.TITLE, () -> load(loads));
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void testRemovedSongInvalidatesEntriesContainingIt() {
+        AtomicInteger loads = new AtomicInteger();
+        cache.get("bad habits", 0, SearchMode.TITLE, () -> load(loads, match(badHabits, "Bad Habits", 0)));
+        cache.get("galway girl", 0, SearchMode.TITLE, () -> load(loads, match(galwayGirl, "Galway Girl", 0)));
+
+        cache.onSongsRemoved(List.of(badHabits));
+
+        assertEquals(1, cache.size());
+        cache.get("galway girl", 0, SearchMode.TITLE, () -> load(loads));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testLoadRacingWithInvalidationIsNotCached() {
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get("bad habits", 0, SearchMode.TITLE, () -> {
+            cache.onSongsRemoved(List.of(galwayGirl));
+            return load(loads, match(badHabits, "Bad Habits", 0));
+        });
+
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testLoadRacingWithAddedTitlesIsNotCached() {
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get("galway girl", 0, SearchMode.TITLE, () -> {
+            cache.onTitlesAdded(List.of(IndexedTitle.of(badHabits, "Bad Habits")));
+            return load(loads, match(galwayGirl, "Galway Girl", 0));
+        });
+
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testFrequentQueriesSurviveScan() {
+        AtomicInteger loads = new AtomicInteger();
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 50; i++) {
+                cache.get("popular " + i, 1, SearchMode.TITLE, () -> load(loads));
+            }
+        }
+        int popularLoads = loads.get();
+
+        for (int i = 0; i < 300; i++) {
+            cache.get("one-off " + i, 1, SearchMode.TITLE, () -> load(loads));
+        }
+        loads.set(0);
+        for (int i = 0; i < 50; i++) {
+            cache.get("popular " + i, 1, SearchMode.TITLE, () -> load(loads));
+        }
+
+        assertEquals(50, popularLoads);
+        assertEquals(0, loads.get());
+        assertTrue(cache.size() <= 100);
+    }
+
+    private static TitleMatch match(UUID songId, String title, int distance) {
+        return new TitleMatch(songId, title, distance);
+    }
+
+    private static List<TitleMatch> load(AtomicInteger loads, TitleMatch... matches) {
+        loads.incrementAndGet();
+        return List.of(matches);
+    }
+}
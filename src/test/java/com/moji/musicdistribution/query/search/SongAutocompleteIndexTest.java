@@ -0,0 +1,75 @@
+package com.moji.musicdistribution.query.search;
+
+import com.moji.musicdistribution.domain.aggregates.Song;
+import com.moji.musicdistribution.domain.events.ReleasePublished;
+import com.moji.musicdistribution.domain.repositories.ReleaseRepository;
+import com.moji.musicdistribution.domain.repositories.SongRepository;
+import com.moji.musicdistribution.query.projections.StreamStatsProjection;
+import com.moji.musicdistribution.query.readmodels.SongSuggestion;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class SongAutocompleteIndexTest {
+
+    private final Song badHabits = new Song(UUID.randomUUID(), "Bad Habits", UUID.randomUUID(), Duration.ofMinutes(4));
+    private final Song badGuy = new Song(UUID.randomUUID(), "bad guy", UUID.randomUUID(), Duration.ofMinutes(3));
+
+    private SongAutocompleteIndex index;
+
+    @BeforeEach
+    void setUp() {
+        SongRepository songRepository = mock(SongRepository.class);
+        when(songRepository.findAllById(any())).thenReturn(List.of(badHabits, badGuy));
+
+        index = new SongAutocompleteIndex(songRepository, mock(ReleaseRepository.class),
+                mock(StreamStatsProjection.class), 10);
+        index.on(new ReleasePublished(UUID.randomUUID(), LocalDate.now(), "Singles", UUID.randomUUID(),
+                Set.of(badHabits.getId(), badGuy.getId())));
+    }
+
+    @Test
+    void testStreamCountsAreAppliedByTheNextFlush() {
+        index.onSongStreamCount(badGuy.getId(), 1);
+        index.onSongStreamCount(badGuy.getId(), 2);
+        index.onSongStreamCount(badHabits.getId(), 1);
+        index.flush();
+
+        assertEquals(List.of("bad guy", "Bad Habits"), titles(index.complete("bad", 10)));
+        assertEquals(2, index.complete("bad g", 10).get(0).getStreamCount());
+    }
+
+    @Test
+    void testLateLowerCountDoesNotReplaceTheLatest() {
+        index.onSongStreamCount(badHabits.getId(), 3);
+        index.onSongStreamCount(badGuy.getId(), 2);
+        index.onSongStreamCount(badHabits.getId(), 1);
+        index.flush();
+
+        assertEquals(List.of("Bad Habits", "bad guy"), titles(index.complete("bad", 10)));
+    }
+
+    @Test
+    void testCompletionDoesNotApplyPendingCounts() {
+        index.onSongStreamCount(badGuy.getId(), 5);
+
+        assertEquals(0, index.complete("bad g", 10).get(0).getStreamCount());
+
+        index.flush();
+        assertEquals(5, index.complete("bad g", 10).get(0).getStreamCount());
+    }
+
+    private static List<String> titles(List<SongSuggestion> suggestions) {
+        return suggestions.stream().map(SongSuggestion::getTitle).toList();
+    }
+}
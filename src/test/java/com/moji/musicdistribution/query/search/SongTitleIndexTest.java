@@ -0,0 +1,211 @@
+package com.moji.musicdistribution.query.search;
+
+import com.moji.musicdistribution.domain.aggregates.Release;
+import com.moji.musicdistribution.domain.aggregates.Song;
+import com.moji.musicdistribution.domain.events.ReleasePublished;
+import com.moji.musicdistribution.domain.events.SongsAddedToRelease;
+import com.moji.musicdistribution.domain.repositories.ReleaseRepository;
+import com.moji.musicdistribution.domain.repositories.SongRepository;
+import com.moji.musicdistribution.eventstore.EventStore;
+import com.moji.musicdistribution.eventstore.InMemoryEventStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class SongTitleIndexTest {
+
+    @Mock
+    private SongRepository songRepository;
+
+    @Mock
+    private ReleaseRepository releaseRepository;
+
+    @Mock
+    private ObjectProvider<TitleIndexListener> listeners;
+
+    @TempDir
+    Path snapshotDir;
+
+    private final Map<UUID, Song> songsById = new HashMap<>();
+    private final List<SongTitleIndex> indexes = new ArrayList<>();
+    private EventStore eventStore;
+    private Release release;
+
+    @BeforeEach
+    void setUp() {
+        UUID artistId = UUID.randomUUID();
+        Random random = new Random(11);
+        String alphabet = "abcdef ";
+        for (int i = 0; i < 2_000; i++) {
+            StringBuilder title = new StringBuilder();
+            int length = 1 + random.nextInt(10);
+            for (int j = 0; j < length; j++) {
+                title.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            Song song = new Song(UUID.randomUUID(), title.toString(), artistId, Duration.ofMinutes(3));
+            songsById.put(song.getId(), song);
+        }
+
+        release = new Release(UUID.randomUUID(), "Random Titles", artistId);
+        release.addSongs(songsById.keySet());
+        release.proposeReleaseDate(LocalDate.now().minusDays(5));
+        release.approveReleaseDate(LocalDate.now().minusDays(3));
+        release.publish(LocalDate.now().minusDays(1));
+        eventStore = new InMemoryEventStore(event -> {
+        });
+        eventStore.store(new ReleasePublished(release.getId(), LocalDate.now().minusDays(1), release.getTitle(),
+                artistId, release.getSongIds()));
+
+        when(releaseRepository.findAll()).thenReturn(List.of(release));
+        when(songRepository.findAllById(any())).thenAnswer(invocation -> {
+            List<Song> songs = new ArrayList<>();
+            for (UUID songId : invocation.<Iterable<UUID>>getArgument(0)) {
+                Optional.ofNullable(songsById.get(songId)).ifPresent(songs::add);
+            }
+            return songs;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        indexes.forEach(SongTitleIndex::shutdown);
+    }
+
+    @Test
+    void testParallelShardedSearchAgreesWithSingleShard() {
+        SongTitleIndex single = index(1, 1);
+        SongTitleIndex sharded = index(8, 4);
+
+        for (String term : List.of("abc", "fed cba", "a a", "bbbbbb")) {
+            for (int maxDistance = 0; maxDistance <= 2; maxDistance++) {
+                assertEquals(distances(single.search(term, maxDistance)),
+                        distances(sharded.search(term, maxDistance)), term + "/" + maxDistance);
+            }
+        }
+    }
+
+    @Test
+    void testTokenSearchAgreesWithTokenMatcher() {
+        SongTitleIndex index = index(4, 2);
+
+        for (String term : List.of("abc def", "fa", "ab cd ef")) {
+            for (int maxDistance = 0; maxDistance <= 1; maxDistance++) {
+                TokenMatcher matcher = TokenMatcher.compile(term);
+                Map<UUID, Integer> expected = new HashMap<>();
+                for (Song song : songsById.values()) {
+                    int distance = matcher.distance(IndexedTitle.of(song.getId(), song.getTitle()).getTokens(), maxDistance);
+                    if (distance != TokenMatcher.NO_MATCH) {
+                        expected.put(song.getId(), distance);
+                    }
+                }
+                assertEquals(expected, distances(index.search(term, maxDistance, SearchMode.TOKENS)), term + "/" + maxDistance);
+            }
+        }
+    }
+
+    @Test
+    void testSongsAddedToPublishedReleaseBecomeSearchable() {
+        SongTitleIndex index = index(4, 2);
+        Song song = new Song(UUID.randomUUID(), "Bad Habits", release.getArtistId(), Duration.ofMinutes(4));
+        songsById.put(song.getId(), song);
+
+        index.on(new SongsAddedToRelease(release.getId(), Set.of(song.getId()), release.getTitle(), release.getArtistId()));
+
+        assertEquals(Map.of(song.getId(), 1), distances(index.search("bad habit", 1)));
+    }
+
+    @Test
+    void testRestoresSnapshotWithoutReindexingAndReplaysLaterEvents() throws IOException {
+        Path snapshotPath = snapshotDir.resolve("titles.snap");
+        SongTitleIndex original = index(4, 2, snapshotPath);
+        // Still in the delta when the snapshot is taken
+        Song before = addSong("Bad Habits", original);
+        assertTrue(original.writeSnapshot());
+
+        // Added after the snapshot was taken, so only the event log knows about it
+        Song after = addSong("Sad Habits", original);
+
+        SongTitleIndex restored = index(8, 2, snapshotPath);
+
+        verify(releaseRepository, times(1)).findAll();
+        assertEquals(Map.of(before.getId(), 1, after.getId(), 2), distances(restored.search("bad habit", 2)));
+        for (String term : List.of("abc", "fed cba", "a a")) {
+            assertEquals(distances(original.search(term, 1)), distances(restored.search(term, 1)), term);
+            assertEquals(distances(original.search(term, 1, SearchMode.TOKENS)),
+                    distances(restored.search(term, 1, SearchMode.TOKENS)), term);
+        }
+    }
+
+    @Test
+    void testUnchangedIndexIsNotSnapshotAgain() throws IOException {
+        SongTitleIndex index = index(4, 2, snapshotDir.resolve("titles.snap"));
+
+        assertTrue(index.writeSnapshot());
+        assertFalse(index.writeSnapshot());
+
+        addSong("Bad Habits", index);
+        assertTrue(index.writeSnapshot());
+    }
+
+    @Test
+    void testSnapshotFromAnotherEventLogIsIgnored() throws IOException {
+        Path snapshotPath = snapshotDir.resolve("titles.snap");
+        index(4, 2, snapshotPath).writeSnapshot();
+
+        // A fresh log as long as the old one, as after restarting without a journal
+        eventStore = new InMemoryEventStore(event -> {
+        });
+        eventStore.store(new ReleasePublished(release.getId(), LocalDate.now().minusDays(1), release.getTitle(),
+                release.getArtistId(), release.getSongIds()));
+        SongTitleIndex rebuilt = index(4, 2, snapshotPath);
+
+        verify(releaseRepository, times(2)).findAll();
+        assertFalse(rebuilt.search("abc", 1).isEmpty());
+    }
+
+    // Store the event, then deliver it as the event multicaster would
+    private Song addSong(String title, SongTitleIndex index) {
+        Song song = new Song(UUID.randomUUID(), title, release.getArtistId(), Duration.ofMinutes(4));
+        songsById.put(song.getId(), song);
+        SongsAddedToRelease added = new SongsAddedToRelease(
+                release.getId(), Set.of(song.getId()), release.getTitle(), release.getArtistId());
+        eventStore.store(added);
+        index.on(added);
+        return song;
+    }
+
+    private SongTitleIndex index(int shards, int maxQueryParallelism) {
+        return index(shards, maxQueryParallelism, null);
+    }
+
+    private SongTitleIndex index(int shards, int maxQueryParallelism, Path snapshotPath) {
+        // A zero threshold makes every query fan out
+        SongTitleIndex index = new SongTitleIndex(songRepository, releaseRepository, listeners, eventStore,
+                true, 60_000, 10_000, shards, maxQueryParallelism, 0,
+                snapshotPath == null ? "" : snapshotPath.toString());
+        indexes.add(index);
+        index.initialize();
+        return index;
+    }
+
+    private static Map<UUID, Integer> distances(List<TitleMatch> matches) {
+        return matches.stream().collect(Collectors.toMap(TitleMatch::getSongId, TitleMatch::getDistance));
+    }
+}
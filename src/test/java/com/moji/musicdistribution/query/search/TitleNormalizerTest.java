@@ -0,0 +1,47 @@
+package com.moji.musicdistribution.query.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TitleNormalizerTest {
+
+    @Test
+    void testFoldsCaseAccentsAndWhitespace() {
+        assertEquals("beyonce", TitleNormalizer.normalize("Beyoncé"));
+        assertEquals("beyonce", TitleNormalizer.normalize("  BEYONCE\t"));
+        assertEquals("sigur ros agust", TitleNormalizer.normalize("Sigur Rós  Ágúst"));
+        assertEquals("fi", TitleNormalizer.normalize("ﬁ")); // compatibility ligature
+    }
+
+    @Test
+    void testCanonicalAsciiIsReturnedAsIs() {
+        String title = "bad habits";
+
+        assertSame(title, TitleNormalizer.normalize(title));
+    }
+
+    @Test
+    void testTokenizesOnNonAlphanumerics() {
+        assertEquals(List.of("don", "t", "stop", "me", "now"),
+                tokens(TitleNormalizer.normalize("Don't Stop Me Now!")));
+        assertEquals(List.of(), tokens(TitleNormalizer.normalize(" - ")));
+    }
+
+    @Test
+    void testTokenMatcherIgnoresWordOrder() {
+        TokenMatcher matcher = TokenMatcher.compile("Habits Bad");
+        IndexedTitle title = IndexedTitle.of(null, "Bad Habits");
+
+        assertEquals(0, matcher.distance(title.getTokens(), 0));
+        assertEquals(1, TokenMatcher.compile("habit bad").distance(title.getTokens(), 1));
+        assertEquals(TokenMatcher.NO_MATCH, TokenMatcher.compile("good habits").distance(title.getTokens(), 1));
+    }
+
+    private static List<String> tokens(String normalized) {
+        return Arrays.stream(TitleNormalizer.tokenize(normalized)).map(String::new).toList();
+    }
+}
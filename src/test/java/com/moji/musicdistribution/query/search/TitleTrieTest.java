@@ -0,0 +1,85 @@
+package com.moji.musicdistribution.query.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TitleTrieTest {
+
+    @Test
+    void testFindsTitlesWithinDistance() {
+        char[][] keys = sortedKeys("bad habits", "bad habit", "galway girl", "shape of you", "bad");
+        TitleTrie trie = TitleTrie.build(keys);
+
+        Map<String, Integer> hits = search(trie, keys, "Bad Habi", 2);
+
+        assertEquals(Map.of("bad habit", 1, "bad habits", 2), hits);
+    }
+
+    @Test
+    void testDuplicateTitlesAreAllReported() {
+        char[][] keys = sortedKeys("galway girl", "galway girl");
+        TitleTrie trie = TitleTrie.build(keys);
+
+        List<Integer> indexes = new ArrayList<>();
+        trie.search(LevenshteinAutomaton.of("galway girl", 0), (index, distance) -> indexes.add(index));
+
+        assertEquals(List.of(0, 1), indexes);
+    }
+
+    @Test
+    void testEmptyTrie() {
+        TitleTrie trie = TitleTrie.build(new char[0][]);
+
+        assertTrue(search(trie, new char[0][], "anything", 3).isEmpty());
+    }
+
+    @Test
+    void testAgreesWithLinearScan() {
+        Random random = new Random(7);
+        String alphabet = "abcde ";
+        Set<String> titles = new TreeSet<>();
+        for (int i = 0; i < 2_000; i++) {
+            StringBuilder title = new StringBuilder();
+            int length = 1 + random.nextInt(12);
+            for (int j = 0; j < length; j++) {
+                title.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            titles.add(title.toString());
+        }
+        char[][] keys = sortedKeys(titles.toArray(new String[0]));
+        TitleTrie trie = TitleTrie.build(keys);
+
+        for (String term : List.of("abc", "eeee", "a b c d", "dcba e")) {
+            for (int maxDistance = 0; maxDistance <= 3; maxDistance++) {
+                LevenshteinMatcher matcher = LevenshteinMatcher.compile(term);
+                Map<String, Integer> expected = new HashMap<>();
+                for (String title : titles) {
+                    int distance = matcher.distance(title, maxDistance);
+                    if (distance <= maxDistance) {
+                        expected.put(title, distance);
+                    }
+                }
+                assertEquals(expected, search(trie, keys, term, maxDistance), term + "/" + maxDistance);
+            }
+        }
+    }
+
+    private static char[][] sortedKeys(String... titles) {
+        char[][] keys = new char[titles.length][];
+        for (int i = 0; i < titles.length; i++) {
+            keys[i] = titles[i].toCharArray();
+        }
+        Arrays.sort(keys, Arrays::compare);
+        return keys;
+    }
+
+    private static Map<String, Integer> search(TitleTrie trie, char[][] keys, String term, int maxDistance) {
+        Map<String, Integer> hits = new HashMap<>();
+        trie.search(LevenshteinAutomaton.of(term, maxDistance),
+                (index, distance) -> hits.put(new String(keys[index]), distance));
+        return hits;
+    }
+}
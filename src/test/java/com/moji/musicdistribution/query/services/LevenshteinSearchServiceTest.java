@@ -4,6 +4,11 @@ import com.moji.musicdistribution.domain.aggregates.Release;
 import com.moji.musicdistribution.domain.aggregates.Song;
 import com.moji.musicdistribution.domain.repositories.ReleaseRepository;
 import com.moji.musicdistribution.domain.repositories.SongRepository;
+import com.moji.musicdistribution.query.projections.StreamStatsProjection;
+import com.moji.musicdistribution.query.readmodels.SongSearchPage;
+import com.moji.musicdistribution.query.search.SearchMode;
+import com.moji.musicdistribution.query.search.SearchResultCache;
+import com.moji.musicdistribution.query.search.SongTitleIndex;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -27,6 +32,15 @@ public class LevenshteinSearchServiceTest {
     @Mock
     private ReleaseRepository releaseRepository;
 
+    @Mock
+    private SongTitleIndex songTitleIndex; // not ready, so searches scan the repositories
+
+    @Mock
+    private SearchResultCache searchResultCache;
+
+    @Mock
+    private StreamStatsProjection streamStatsProjection;
+
     @InjectMocks
     private LevenshteinSearchService searchService;
 
@@ -134,4 +148,66 @@ public class LevenshteinSearchServiceTest {
         // Verify results - should be empty or throw exception depending on implementation
         assertTrue(results.isEmpty());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testSearchSongsByTitle_RankedByDistanceThenPopularity() {
+        when(songRepository.findAll()).thenReturn(allSongs);
+        when(releaseRepository.findAll()).thenReturn(publishedReleases);
+        when(streamStatsProjection.getSongStreamCount(any())).thenReturn(0L);
+
+        // "Summer Breeze" is 1 edit away, "Autumn Leaves" is out of range
+        SongSearchPage page = searchService.searchSongsByTitle("Summer Breezy", 1, 10, null);
+
+        assertEquals(1, page.getSongs().size());
+        assertEquals("Summer Breeze", page.getSongs().get(0).getTitle());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void testSearchSongsByTitle_TokenModeIgnoresWordOrderAndAccents() {
+        when(songRepository.findAll()).thenReturn(allSongs);
+        when(releaseRepository.findAll()).thenReturn(publishedReleases);
+        when(streamStatsProjection.getSongStreamCount(any())).thenReturn(0L);
+
+        SongSearchPage page = searchService.searchSongsByTitle("BRÉEZE summer", 0, SearchMode.TOKENS, 10, null);
+
+        assertEquals(1, page.getSongs().size());
+        assertEquals("Summer Breeze", page.getSongs().get(0).getTitle());
+    }
+
+    @Test
+    void testSearchSongsByTitle_TokenModeKeepsMatchesWhoseTotalDistanceExceedsTheLimit() {
+        when(songRepository.findAll()).thenReturn(allSongs);
+        when(releaseRepository.findAll()).thenReturn(publishedReleases);
+        when(streamStatsProjection.getSongStreamCount(any())).thenReturn(0L);
+
+        // One edit in each word: within the limit per word, two in total
+        SongSearchPage page = searchService.searchSongsByTitle("breze sumer", 1, SearchMode.TOKENS, 10, null);
+
+        assertEquals(1, page.getSongs().size());
+        assertEquals("Summer Breeze", page.getSongs().get(0).getTitle());
+    }
+
+    @Test
+    void testSearchSongsByTitle_CursorResumesAfterPreviousPage() {
+        when(songRepository.findAll()).thenReturn(allSongs);
+        when(releaseRepository.findAll()).thenReturn(publishedReleases);
+        UUID summerBreezeId = allSongs.get(0).getId();
+        UUID autumnLeavesId = allSongs.get(2).getId();
+        when(streamStatsProjection.getSongStreamCount(summerBreezeId)).thenReturn(5L);
+        when(streamStatsProjection.getSongStreamCount(autumnLeavesId)).thenReturn(10L);
+
+        // A wide distance matches both published songs at the same distance (13 edits)
+        SongSearchPage firstPage = searchService.searchSongsByTitle("x", 20, 1, null);
+
+        assertEquals(1, firstPage.getSongs().size());
+        assertEquals("Autumn Leaves", firstPage.getSongs().get(0).getTitle());
+        assertNotNull(firstPage.getNextCursor());
+
+        SongSearchPage secondPage = searchService.searchSongsByTitle("x", 20, 1, firstPage.getNextCursor());
+
+        assertEquals(1, secondPage.getSongs().size());
+        assertEquals("Summer Breeze", secondPage.getSongs().get(0).getTitle());
+        assertNull(secondPage.getNextCursor());
+    }
+}